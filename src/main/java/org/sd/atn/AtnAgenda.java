@@ -0,0 +1,178 @@
+/*
+    Copyright 2011 Semantic Discovery, Inc. (www.semanticdiscovery.com)
+
+    This file is part of the Semantic Discovery Toolkit.
+
+    The Semantic Discovery Toolkit is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    The Semantic Discovery Toolkit is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with The Semantic Discovery Toolkit.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package org.sd.atn;
+
+
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+
+/**
+ * Queue of parse states awaiting exploration.
+ * <p>
+ * States are taken in queue order, or, when the agenda has a scorer (for
+ * parsing through an AtnBeam), best first. Each state is then scored once
+ * as it is queued and kept in a heap alongside the queue.
+ * <p>
+ * Any queued state can be removed in constant time, whether taken from
+ * the heap or removed while scanning the queue (e.g., for duplicates and
+ * cluster conditions); the heap lazily skips states that are no longer
+ * queued.
+ *
+ * @author Spence Koehler
+ */
+final class AtnAgenda implements Iterable<AtnState> {
+
+  // higher scores first, then earlier queued first
+  private static final Comparator<Node> BEST_FIRST = new Comparator<Node>() {
+      public int compare(Node node1, Node node2) {
+        int result = Double.compare(node2.score, node1.score);
+        if (result == 0) {
+          result = (node1.seq < node2.seq) ? -1 : (node1.seq > node2.seq) ? 1 : 0;
+        }
+        return result;
+      }
+    };
+
+
+  private final AtnStateScorer scorer;
+  private final PriorityQueue<Node> heap;
+  private Node head;
+  private Node tail;
+  private int size;
+  private long numQueued;
+
+  AtnAgenda() {
+    this(null);
+  }
+
+  /**
+   * Construct with the scorer for taking states best first (or null).
+   */
+  AtnAgenda(AtnStateScorer scorer) {
+    this.scorer = scorer;
+    this.heap = (scorer == null) ? null : new PriorityQueue<Node>(64, BEST_FIRST);
+    this.head = null;
+    this.tail = null;
+    this.size = 0;
+    this.numQueued = 0L;
+  }
+
+  public int size() {
+    return size;
+  }
+
+  public void addLast(AtnState state) {
+    final Node node = new Node(state, numQueued++);
+
+    node.prev = tail;
+    if (tail == null) head = node; else tail.next = node;
+    tail = node;
+    ++size;
+
+    if (heap != null) {
+      node.score = scorer.score(state);
+      heap.add(node);
+    }
+  }
+
+  public AtnState getLast() {
+    if (tail == null) throw new NoSuchElementException();
+    return tail.state;
+  }
+
+  public AtnState removeFirst() {
+    if (head == null) throw new NoSuchElementException();
+    return unlink(head);
+  }
+
+  public AtnState removeLast() {
+    if (tail == null) throw new NoSuchElementException();
+    return unlink(tail);
+  }
+
+  /**
+   * Remove and return the best scoring queued state, or null if empty.
+   * <p>
+   * Requires a scorer.
+   */
+  AtnState removeBest() {
+    AtnState result = null;
+
+    while (result == null && !heap.isEmpty()) {
+      final Node node = heap.poll();
+      if (node.queued) result = unlink(node);
+    }
+
+    return result;
+  }
+
+  public Iterator<AtnState> iterator() {
+    return new Iterator<AtnState>() {
+      private Node nextNode = head;
+      private Node lastNode = null;
+
+      public boolean hasNext() {
+        return nextNode != null;
+      }
+
+      public AtnState next() {
+        if (nextNode == null) throw new NoSuchElementException();
+        lastNode = nextNode;
+        nextNode = nextNode.next;
+        return lastNode.state;
+      }
+
+      public void remove() {
+        if (lastNode == null) throw new IllegalStateException();
+        unlink(lastNode);
+        lastNode = null;
+      }
+    };
+  }
+
+  private final AtnState unlink(Node node) {
+    if (node.prev == null) head = node.next; else node.prev.next = node.next;
+    if (node.next == null) tail = node.prev; else node.next.prev = node.prev;
+    node.queued = false;
+    --size;
+
+    // drop lazily removed nodes once nothing is queued
+    if (size == 0 && heap != null) heap.clear();
+
+    return node.state;
+  }
+
+
+  private static final class Node {
+    final AtnState state;
+    final long seq;
+    double score;
+    boolean queued;
+    Node prev;
+    Node next;
+
+    Node(AtnState state, long seq) {
+      this.state = state;
+      this.seq = seq;
+      this.queued = true;
+    }
+  }
+}
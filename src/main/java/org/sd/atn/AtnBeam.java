@@ -0,0 +1,161 @@
+/*
+    Copyright 2011 Semantic Discovery, Inc. (www.semanticdiscovery.com)
+
+    This file is part of the Semantic Discovery Toolkit.
+
+    The Semantic Discovery Toolkit is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    The Semantic Discovery Toolkit is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with The Semantic Discovery Toolkit.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package org.sd.atn;
+
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Best-first agenda policy that limits the number of states explored at
+ * each token position.
+ * <p>
+ * Queued states are chosen in score order (earliest queued first among
+ * equal scores) instead of in queue order, and once beamWidth states have
+ * matched tokens starting at a position, the remaining states queued at
+ * that position are pruned. Only matched states count against the beam
+ * since it is they that extend parses; pushes into constituents and failed
+ * matches don't. This trades the completeness of exhaustive parsing for a
+ * bound on the work done per position.
+ * <p>
+ * States are scored once, when queued, by their AtnAgenda, which keeps
+ * them in a heap so that choosing the next state doesn't rescan the queue.
+ *
+ * @author Spence Koehler
+ */
+public class AtnBeam {
+  
+  private int beamWidth;
+  private AtnStateScorer scorer;
+  private Map<Integer, int[]> position2count;
+  private List<Integer> filledPositions;  // filled since last pruned
+  private long numExplored;
+  private long numPruned;
+
+  AtnBeam(int beamWidth, AtnStateScorer scorer) {
+    this.beamWidth = beamWidth;
+    this.scorer = (scorer == null) ? new DefaultAtnStateScorer() : scorer;
+    this.position2count = new HashMap<Integer, int[]>();
+    this.filledPositions = new ArrayList<Integer>();
+    this.numExplored = 0L;
+    this.numPruned = 0L;
+  }
+
+  public int getBeamWidth() {
+    return beamWidth;
+  }
+
+  public AtnStateScorer getScorer() {
+    return scorer;
+  }
+
+  /**
+   * Get the number of states chosen through this beam.
+   */
+  public long getNumExplored() {
+    return numExplored;
+  }
+
+  /**
+   * Get the number of queued states dropped for exceeding the beam.
+   */
+  public long getNumPruned() {
+    return numPruned;
+  }
+
+  /**
+   * Restart the per-position counts (e.g., for a new start rule).
+   */
+  void reset() {
+    position2count.clear();
+    filledPositions.clear();
+  }
+
+  /**
+   * Remove and return the best of the states (or of the skipStates if no
+   * states remain), pruning states whose position is full.
+   * <p>
+   * Both agendas must have been constructed with this beam's scorer.
+   *
+   * @return the next state to explore, or null if all have been pruned.
+   */
+  AtnState next(AtnAgenda states, AtnAgenda skipStates) {
+    if (filledPositions.size() > 0) {
+      // prune states already queued at newly filled positions, as these
+      // would otherwise still be seen when checking queued states
+      prune(states);
+      prune(skipStates);
+      filledPositions.clear();
+    }
+
+    AtnState result = select(states);
+    if (result == null) result = select(skipStates);
+    return result;
+  }
+
+  private final AtnState select(AtnAgenda agenda) {
+    AtnState result = null;
+
+    // states queued at a position after it filled are pruned as they come up
+    for (AtnState state = agenda.removeBest(); state != null; state = agenda.removeBest()) {
+      if (getCount(state)[0] >= beamWidth) {
+        ++numPruned;
+      }
+      else {
+        result = state;
+        ++numExplored;
+        break;
+      }
+    }
+
+    return result;
+  }
+
+  private final void prune(AtnAgenda agenda) {
+    for (Iterator<AtnState> iter = agenda.iterator(); iter.hasNext(); ) {
+      if (filledPositions.contains(iter.next().getInputToken().getStartIndex())) {
+        iter.remove();
+        ++numPruned;
+      }
+    }
+  }
+
+  /**
+   * Record that the state (chosen through next) matched its token.
+   */
+  void matched(AtnState state) {
+    final int[] count = getCount(state);
+    if (++count[0] == beamWidth) {
+      filledPositions.add(state.getInputToken().getStartIndex());
+    }
+  }
+
+  private final int[] getCount(AtnState state) {
+    final Integer position = state.getInputToken().getStartIndex();
+    int[] result = position2count.get(position);
+    if (result == null) {
+      result = new int[] { 0 };
+      position2count.put(position, result);
+    }
+    return result;
+  }
+}
@@ -186,6 +186,39 @@ public class AtnGrammar {
   private List<DomElement> grammarNodes;
   private List<AtnRule> startRules;
 
+  private boolean compile;
+  private volatile AtnGrammarTable table;
+  private boolean seekStartTests;
+
+  /**
+   * Determine whether any of this grammar's tests limit their scans to the
+   * position from which a parse was sought (scanLimit='seek_start'), so that
+   * parses depend on where seeking started and not only on where they start.
+   */
+  public boolean hasSeekStartTests() {
+    return seekStartTests;
+  }
+
+  /**
+   * Get this grammar's compiled table, compiling if necessary, or null if
+   * compilation has been disabled (grammar attribute compile='false').
+   */
+  public AtnGrammarTable getTable() {
+    AtnGrammarTable result = table;
+
+    if (result == null && compile) {
+      synchronized (this) {
+        result = table;
+        if (result == null) {
+          result = new AtnGrammarTable(this);
+          table = result;
+        }
+      }
+    }
+
+    return result;
+  }
+
   AtnGrammar(DomElement grammarNode, ResourceManager resourceManager) {
 
     //
@@ -239,6 +272,10 @@ public class AtnGrammar {
 
     this.cat2Rules = new HashMap<String, List<AtnRule>>();
 
+    this.compile = grammarNode.getAttributeBoolean("compile", true);
+    this.table = null;
+    this.seekStartTests = false;
+
     doSupplement(grammarNode);
   }
   
@@ -266,6 +303,24 @@ public class AtnGrammar {
     }
 
     loadRules(rulesNode);
+
+    if (hasSeekStartTest(grammarNode)) this.seekStartTests = true;
+
+    // recompile on demand
+    this.table = null;
+  }
+
+  private static final boolean hasSeekStartTest(Node node) {
+    if (node.getNodeType() == Node.ELEMENT_NODE &&
+        "seek_start".equalsIgnoreCase(((DomElement)node).getAttributeValue("scanLimit", null))) {
+      return true;
+    }
+
+    for (Node childNode = node.getFirstChild(); childNode != null; childNode = childNode.getNextSibling()) {
+      if (hasSeekStartTest(childNode)) return true;
+    }
+
+    return false;
   }
 
   /**
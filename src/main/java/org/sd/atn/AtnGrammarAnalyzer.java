@@ -175,6 +175,15 @@ public class AtnGrammarAnalyzer {
   }
 
 
+  /**
+   * Get a report of the parse counts collected by the parse options' profile
+   * (see AtnParseRunner.setProfiling), or null if they aren't being profiled.
+   */
+  public String getProfileReport() {
+    final AtnParseProfile profile = (parseOptions == null) ? null : parseOptions.getProfile();
+    return (profile == null) ? null : profile.getReport();
+  }
+
   public ParseInterpreter getParseInterpreter() {
     ParseInterpreter result = null;
 
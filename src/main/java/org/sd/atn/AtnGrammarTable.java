@@ -0,0 +1,183 @@
+/*
+    Copyright 2009 Semantic Discovery, Inc. (www.semanticdiscovery.com)
+
+    This file is part of the Semantic Discovery Toolkit.
+
+    The Semantic Discovery Toolkit is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    The Semantic Discovery Toolkit is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with The Semantic Discovery Toolkit.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package org.sd.atn;
+
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compiled form of an AtnGrammar's rules for the parse engine.
+ * <p>
+ * Categories (step categories, labels, and require/unless categories) are
+ * assigned dense integer ids, which are set on the grammar's AtnRuleStep
+ * and StepRequirement instances so that requirement checks compare ids
+ * instead of strings. Whether a category has classifiers or is defined by
+ * rules, and the rules to push for it, are held in arrays indexed by
+ * category id. Each rule's steps and terminal flags are compiled into
+ * arrays on the rule itself.
+ * <p>
+ * A table is discarded (and the grammar recompiled on demand) when the
+ * grammar is supplemented.
+ *
+ * @author Spence Koehler
+ */
+public class AtnGrammarTable {
+
+  private Map<String, Integer> category2id;
+  private List<String> categories;
+
+  private AtnRule[] rules;
+  private int numSteps;
+
+  private List<List<AtnRule>> pushRules;  // categoryId -> rules to push (or empty)
+  private boolean[] hasClassifiers;       // categoryId -> has classifiers
+
+  /**
+   * Compile the grammar's current rules.
+   */
+  AtnGrammarTable(AtnGrammar grammar) {
+    this.category2id = new HashMap<String, Integer>();
+    this.categories = new ArrayList<String>();
+
+    // collect rules in a stable order
+    final List<AtnRule> ruleList = new ArrayList<AtnRule>();
+    for (List<AtnRule> catRules : grammar.getCat2Rules().values()) {
+      for (AtnRule rule : catRules) {
+        ruleList.add(rule);
+        getCategoryId(rule.getRuleName());
+      }
+    }
+
+    this.rules = ruleList.toArray(new AtnRule[ruleList.size()]);
+    this.numSteps = 0;
+
+    for (AtnRule rule : rules) {
+      final AtnRuleStep[] ruleSteps = rule.getSteps().toArray(new AtnRuleStep[rule.getNumSteps()]);
+      final boolean[] terminals = new boolean[ruleSteps.length];
+
+      for (int stepNum = 0; stepNum < ruleSteps.length; ++stepNum) {
+        final AtnRuleStep step = ruleSteps[stepNum];
+        compileRequirements(step.getRequire());
+        compileRequirements(step.getUnless());
+        step.setIds(getCategoryId(step.getCategory()), getCategoryId(step.getLabel()));
+        terminals[stepNum] = rule.isTerminal(stepNum);
+      }
+
+      if (rule.getPopSteps() != null) {
+        for (AtnRuleStep popStep : rule.getPopSteps()) {
+          compileRequirements(popStep.getRequire());
+          compileRequirements(popStep.getUnless());
+          popStep.setIds(getCategoryId(popStep.getCategory()), getCategoryId(popStep.getLabel()));
+        }
+      }
+
+      rule.setCompiled(ruleSteps, terminals);
+      numSteps += ruleSteps.length;
+    }
+
+    // push transitions and classifiers by category
+    final int numCategories = categories.size();
+    this.pushRules = new ArrayList<List<AtnRule>>(numCategories);
+    this.hasClassifiers = new boolean[numCategories];
+    for (int categoryId = 0; categoryId < numCategories; ++categoryId) {
+      final String category = categories.get(categoryId);
+      final List<AtnRule> catRules = grammar.getCat2Rules().get(category);
+      pushRules.add((catRules == null) ? Collections.<AtnRule>emptyList() : Collections.unmodifiableList(catRules));
+      hasClassifiers[categoryId] = grammar.getCat2Classifiers().containsKey(category);
+    }
+  }
+
+  /**
+   * Get the number of distinct categories.
+   */
+  public int getNumCategories() {
+    return categories.size();
+  }
+
+  /**
+   * Get the id for the category, or -1 if it isn't in the grammar.
+   */
+  public int getCategoryIdIfPresent(String category) {
+    final Integer result = category2id.get(category);
+    return result == null ? -1 : result;
+  }
+
+  public String getCategory(int categoryId) {
+    return categories.get(categoryId);
+  }
+
+  public int getNumRules() {
+    return rules.length;
+  }
+
+  public AtnRule getRule(int ruleIndex) {
+    return rules[ruleIndex];
+  }
+
+  /**
+   * Get the total number of (non-pop) steps across rules.
+   */
+  public int getNumSteps() {
+    return numSteps;
+  }
+
+  /**
+   * Get the rules to push for the category (empty if the category is not
+   * a constituent).
+   */
+  public List<AtnRule> getPushRules(int categoryId) {
+    return pushRules.get(categoryId);
+  }
+
+  /**
+   * Determine whether the category is defined by rules.
+   */
+  public boolean isConstituent(int categoryId) {
+    return pushRules.get(categoryId).size() > 0;
+  }
+
+  /**
+   * Determine whether the category has classifiers.
+   */
+  public boolean hasClassifiers(int categoryId) {
+    return hasClassifiers[categoryId];
+  }
+
+  private final int getCategoryId(String category) {
+    Integer result = category2id.get(category);
+    if (result == null) {
+      result = categories.size();
+      categories.add(category);
+      category2id.put(category, result);
+    }
+    return result;
+  }
+
+  private final void compileRequirements(StepRequirement[] requirements) {
+    if (requirements == null) return;
+
+    for (StepRequirement requirement : requirements) {
+      requirement.setCategoryId(getCategoryId(requirement.getCategory()));
+    }
+  }
+}
@@ -61,6 +61,8 @@ public class AtnParseBasedTokenizer implements Tokenizer {
   private IntegerRange _parseSpans;
   private List<TokenInfo> hardBreaks;
   private boolean retainEndBreaks = true;
+  private ResourceManager resourceManager;
+  private DomElement tokenizerConfig;     // non-null when standardTokenizer is a resource
 
   public AtnParseBasedTokenizer(InputContext inputContext, StandardTokenizerOptions tokenizerOptions) {
     this(null, null, null, inputContext, tokenizerOptions);
@@ -88,6 +90,8 @@ public class AtnParseBasedTokenizer implements Tokenizer {
           (StandardTokenizer)resourceManager.getResource(tokenizerConfig.asDomElement(),
                                                          new String[]{inputContext.getText()});
         tokenizerOptions = standardTokenizer.getOptions();
+        this.resourceManager = resourceManager;
+        this.tokenizerConfig = tokenizerConfig.asDomElement();
       }
 
       // check for hardwired tokens
@@ -99,6 +103,44 @@ public class AtnParseBasedTokenizer implements Tokenizer {
     init(resourceManager, inputContext, parseResults, tokenNodes, tokenizerOptions);
   }
 
+  /**
+   * Construct with the other tokenizer's current tokens (from prior parses
+   * and configuration), hard breaks, and options, but tokenizing (and
+   * caching tokens) independently of it, e.g. for use in another thread.
+   */
+  private AtnParseBasedTokenizer(AtnParseBasedTokenizer other) {
+    final InputContext inputContext = other.getInputContext();
+
+    this.resourceManager = other.resourceManager;
+    this.tokenizerConfig = other.tokenizerConfig;
+    this.standardTokenizer = (tokenizerConfig == null) ? new StandardTokenizer(null) :
+      (StandardTokenizer)resourceManager.getResource(tokenizerConfig, new String[]{inputContext.getText()});
+    if (standardTokenizer == other.standardTokenizer) {
+      // shared (named) resource instance
+      this.standardTokenizer = new StandardTokenizer(null);
+    }
+    standardTokenizer.setInputContext(inputContext);
+
+    this.pos2tokenInfoContainer = new TreeMap<Integer, TokenInfoContainer<MyTokenInfo>>(other.pos2tokenInfoContainer);
+    this.hardBreaks = other.hardBreaks;
+    this.retainEndBreaks = other.retainEndBreaks;
+
+    standardTokenizer.setBreakMaker(new MyBreakMaker(inputContext.getText(), other.getOptions()));
+    standardTokenizer.setTokenFeatureAdder(new MyTokenFeatureAdder());
+    standardTokenizer.setSourceTokenizer(this);
+    setTokenizerOptions(other.getOptions());
+  }
+
+  /**
+   * Get a copy of this tokenizer in its current state that can be used
+   * independently of (and concurrently with) this instance.
+   * <p>
+   * NOTE: Parse results subsequently added to either are not shared.
+   */
+  public AtnParseBasedTokenizer copy() {
+    return new AtnParseBasedTokenizer(this);
+  }
+
   private void init(ResourceManager resourceManager, InputContext inputContext, List<AtnParseResult> parseResults, NodeList tokenNodes,
     StandardTokenizerOptions tokenizerOptions) {
     standardTokenizer.setInputContext(inputContext);
@@ -125,6 +125,60 @@ public class AtnParseOptions {
     this.startRules = Arrays.asList(startRules);
   }
 
+  private int beamWidth;
+  /**
+   * A limit (if positive) for the number of states explored per token
+   * position, with the best scoring states explored first.
+   * 
+   * This trades exhausting all parses for predictable parsing time on
+   * noisy input. Zero (the default) parses exhaustively.
+   */
+  public int getBeamWidth() {
+    return beamWidth;
+  }
+  public void setBeamWidth(int beamWidth) {
+    this.beamWidth = beamWidth;
+  }
+
+  private AtnStateScorer stateScorer;
+  /**
+   * The scorer for ranking states when beamWidth is positive, where null
+   * indicates that a DefaultAtnStateScorer is to be used.
+   */
+  public AtnStateScorer getStateScorer() {
+    return stateScorer;
+  }
+  public void setStateScorer(AtnStateScorer stateScorer) {
+    this.stateScorer = stateScorer;
+  }
+
+  private int segmentThreads;
+  /**
+   * When positive, input is split into segments at hard breaks, which are
+   * sought concurrently using up to this many threads and stitched back
+   * together to give the same parses as seeking through the whole input.
+   * Zero (the default) seeks through the whole input in one thread.
+   */
+  public int getSegmentThreads() {
+    return segmentThreads;
+  }
+  public void setSegmentThreads(int segmentThreads) {
+    this.segmentThreads = segmentThreads;
+  }
+
+  private AtnParseProfile profile;
+  /**
+   * The profile collecting counts for parses with these options, or null
+   * (the default) for no profiling. This is set through the owning
+   * ParseConfig (see ParseConfig.setProfile) rather than configured.
+   */
+  public AtnParseProfile getProfile() {
+    return profile;
+  }
+  public void setProfile(AtnParseProfile profile) {
+    this.profile = profile;
+  }
+
   private ResourceManager resourceManager;
   public ResourceManager getResourceManager() {
     return resourceManager;
@@ -139,6 +193,9 @@ public class AtnParseOptions {
    * AdjustInputForTokens = false;   (don't adjust input granularity)
    * ParseInterpreter = null;        (no parse interpreter)
    * StartRules = null;              (use grammar's start rules)
+   * BeamWidth = 0;                  (exhaustive search)
+   * StateScorer = null;             (default state scorer)
+   * SegmentThreads = 0;             (don't seek segments concurrently)
    * 
    */
   public AtnParseOptions(ResourceManager resourceManager) {
@@ -149,6 +206,9 @@ public class AtnParseOptions {
     this.adjustInputForTokens = false;
     this.parseInterpreter = null;
     this.startRules = null;
+    this.beamWidth = 0;
+    this.stateScorer = null;
+    this.segmentThreads = 0;
   }
 
   /**
@@ -160,6 +220,9 @@ public class AtnParseOptions {
    *   <firstParseOnly>false</firstParseOnly>
    *   <adjustInputForTokens>false</adjustInputForTokens>
    *   <parseInterpreter><class>IParseInterpreter-class</class><dll>parse-interpreter-dll</dll></parseInterpreter>
+   *   <beamWidth>0</beamWidth>
+   *   <stateScorer><jclass>AtnStateScorer-class</jclass></stateScorer>
+   *   <segmentThreads>0</segmentThreads>
    *   <start>acceptable-start-category-1</start>
    *   <start>acceptable-start-category-2</start>
    *   ...
@@ -175,6 +238,9 @@ public class AtnParseOptions {
     this.adjustInputForTokens = false;
     this.parseInterpreter = null;
     this.startRules = null;
+    this.beamWidth = 0;
+    this.stateScorer = null;
+    this.segmentThreads = 0;
 
     init(options, false);
   }
@@ -187,6 +253,9 @@ public class AtnParseOptions {
    * firstParseOnly (default=false)
    * adjustInputForTokens (default=false)
    * parseInterpreter (default=null)
+   * beamWidth (default=0)
+   * stateScorer (default=null)
+   * segmentThreads (default=0)
    * 
    * multiple "start" options sought from options' xml.
    */
@@ -199,6 +268,9 @@ public class AtnParseOptions {
     this.adjustInputForTokens = false;
     this.parseInterpreter = null;
     this.startRules = null;
+    this.beamWidth = 0;
+    this.stateScorer = null;
+    this.segmentThreads = 0;
 
     init(options, false);
   }
@@ -215,6 +287,10 @@ public class AtnParseOptions {
     this.adjustInputForTokens = options.adjustInputForTokens;
     this.parseInterpreter = options.parseInterpreter;
     this.startRules = options.startRules;
+    this.beamWidth = options.beamWidth;
+    this.stateScorer = options.stateScorer;
+    this.segmentThreads = options.segmentThreads;
+    this.profile = options.profile;
   }
 
   public void supplement(DomElement optionsElement, ResourceManager resourceManager) {
@@ -233,6 +309,9 @@ public class AtnParseOptions {
     //   <firstParseOnly>false</firstParseOnly>
     //   <adjustInputForTokens>false</adjustInputForTokens>
     //   <parseInterpreter><class>IParseInterpreter-class</class><dll>parse-interpreter-dll</dll></parseInterpreter>
+    //   <beamWidth>0</beamWidth>
+    //   <stateScorer><jclass>AtnStateScorer-class</jclass></stateScorer>
+    //   <segmentThreads>0</segmentThreads>
     //   <start>acceptable-start-category-1</start>
     //   <start>acceptable-start-category-2</start>
     //   ...
@@ -249,6 +328,13 @@ public class AtnParseOptions {
     this.skipTokenLimit = options.getInt("skipTokenLimit", this.skipTokenLimit);
     this.firstParseOnly = options.getBoolean("firstParseOnly", this.firstParseOnly);
     this.adjustInputForTokens = options.getBoolean("adjustInputForTokens", this.adjustInputForTokens);
+    this.beamWidth = options.getInt("beamWidth", this.beamWidth);
+    this.segmentThreads = options.getInt("segmentThreads", this.segmentThreads);
+
+    final DomElement stateScorerNode = (DomElement)options.getDomElement().selectSingleNode("stateScorer");
+    if (stateScorerNode != null) {
+      this.stateScorer = (AtnStateScorer)resourceManager.getResource(stateScorerNode);
+    }
 
     final DomElement parseInterpreterNode = (DomElement)options.getDomElement().selectSingleNode("parseInterpreter");
     if (parseInterpreterNode != null) {
@@ -0,0 +1,303 @@
+/*
+    Copyright 2011 Semantic Discovery, Inc. (www.semanticdiscovery.com)
+
+    This file is part of the Semantic Discovery Toolkit.
+
+    The Semantic Discovery Toolkit is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    The Semantic Discovery Toolkit is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with The Semantic Discovery Toolkit.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package org.sd.atn;
+
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counters for where parsing effort goes, kept per rule, per rule step,
+ * per classifier, and per regex.
+ * <p>
+ * A profile is attached to a ParseConfig (see ParseConfig.setProfile),
+ * which hands it to its parsers' parse options, and is updated by the parse
+ * engine as states are explored. When no profile is attached, the engine
+ * does no counting or timing.
+ * <p>
+ * Instances are thread-safe, so a single profile aggregates across the
+ * flows and threads of an AtnParseRunner.
+ *
+ * @author Spence Koehler
+ */
+public class AtnParseProfile {
+  
+  private ConcurrentHashMap<AtnRule, Counts> ruleCounts;
+  private ConcurrentHashMap<AtnRuleStep, Counts> stepCounts;
+  private ConcurrentHashMap<AtnStateTokenClassifier, Counts> classifierCounts;
+  private ConcurrentHashMap<RegexData, Counts> regexCounts;
+
+  public AtnParseProfile() {
+    this.ruleCounts = new ConcurrentHashMap<AtnRule, Counts>();
+    this.stepCounts = new ConcurrentHashMap<AtnRuleStep, Counts>();
+    this.classifierCounts = new ConcurrentHashMap<AtnStateTokenClassifier, Counts>();
+    this.regexCounts = new ConcurrentHashMap<RegexData, Counts>();
+  }
+
+  /**
+   * Record the exploration of a state, whether its token matched, and
+   * the time spent matching.
+   */
+  void explored(AtnState state, boolean matched, long nanos) {
+    final Counts rule = getCounts(ruleCounts, state.getRule());
+    final Counts step = getCounts(stepCounts, state.getRuleStep());
+
+    rule.states.incrementAndGet();
+    step.states.incrementAndGet();
+    rule.matchNanos.addAndGet(nanos);
+    step.matchNanos.addAndGet(nanos);
+
+    if (matched) {
+      rule.matches.incrementAndGet();
+      step.matches.incrementAndGet();
+    }
+    else {
+      rule.failures.incrementAndGet();
+      step.failures.incrementAndGet();
+    }
+  }
+
+  /**
+   * Record that the (matched) state popped.
+   */
+  void popped(AtnState state) {
+    getCounts(ruleCounts, state.getRule()).pops.incrementAndGet();
+    getCounts(stepCounts, state.getRuleStep()).pops.incrementAndGet();
+  }
+
+  /**
+   * Record the queueing of a state that skips a token.
+   */
+  void skipped(AtnState state) {
+    getCounts(ruleCounts, state.getRule()).skips.incrementAndGet();
+    getCounts(stepCounts, state.getRuleStep()).skips.incrementAndGet();
+  }
+
+  /**
+   * Record a step's test verification.
+   */
+  void verified(AtnRuleStep step, boolean accepted, long nanos) {
+    final Counts counts = getCounts(stepCounts, step);
+    counts.verifies.incrementAndGet();
+    counts.verifyNanos.addAndGet(nanos);
+    if (!accepted) counts.rejects.incrementAndGet();
+  }
+
+  /**
+   * Record a classifier's classification of a token.
+   */
+  void classified(AtnStateTokenClassifier classifier, boolean matched, long nanos) {
+    final Counts counts = getCounts(classifierCounts, classifier);
+    counts.states.incrementAndGet();
+    counts.matchNanos.addAndGet(nanos);
+    if (matched) counts.matches.incrementAndGet();
+    else counts.failures.incrementAndGet();
+  }
+
+  /**
+   * Record a run of a regex's pattern (as opposed to a combined scan),
+   * whether it matched, and the time it took.
+   */
+  void regexMatched(RegexData regex, boolean matched, long nanos) {
+    final Counts counts = getCounts(regexCounts, regex);
+    counts.states.incrementAndGet();
+    counts.matchNanos.addAndGet(nanos);
+    if (matched) counts.matches.incrementAndGet();
+    else counts.failures.incrementAndGet();
+  }
+
+  /**
+   * Get the counts for the rule, or null.
+   */
+  public Counts getRuleCounts(AtnRule rule) {
+    return ruleCounts.get(rule);
+  }
+
+  /**
+   * Get the counts for the rule step, or null.
+   */
+  public Counts getStepCounts(AtnRuleStep step) {
+    return stepCounts.get(step);
+  }
+
+  /**
+   * Get the counts for the classifier, or null.
+   */
+  public Counts getClassifierCounts(AtnStateTokenClassifier classifier) {
+    return classifierCounts.get(classifier);
+  }
+
+  /**
+   * Get the counts for the regex's pattern runs, or null.
+   */
+  public Counts getRegexCounts(RegexData regex) {
+    return regexCounts.get(regex);
+  }
+
+  /**
+   * Forget all counts.
+   */
+  public void reset() {
+    ruleCounts.clear();
+    stepCounts.clear();
+    classifierCounts.clear();
+    regexCounts.clear();
+  }
+
+  /**
+   * Write a report of the counts, with each section ordered from the most
+   * to the least time spent matching.
+   */
+  public void writeReport(PrintWriter out) {
+    out.println("rules:");
+    for (Map.Entry<AtnRule, Counts> entry : sort(ruleCounts)) {
+      final AtnRule rule = entry.getKey();
+      out.println("  " + rule.getRuleName() + (rule.getRuleId() == null ? "" : "[" + rule.getRuleId() + "]") +
+                  "\t" + entry.getValue());
+    }
+
+    out.println("steps:");
+    for (Map.Entry<AtnRuleStep, Counts> entry : sort(stepCounts)) {
+      final AtnRuleStep step = entry.getKey();
+      out.println("  " + step.getRule().getRuleName() + "." + step.getLabel() + "\t" + entry.getValue());
+    }
+
+    out.println("classifiers:");
+    for (Map.Entry<AtnStateTokenClassifier, Counts> entry : sort(classifierCounts)) {
+      out.println("  " + entry.getKey().getClass().getSimpleName() + "\t" + entry.getValue());
+    }
+
+    out.println("regexes:");
+    for (Map.Entry<RegexData, Counts> entry : sort(regexCounts)) {
+      out.println("  " + entry.getKey().getPattern().pattern() + "\t" + entry.getValue());
+    }
+
+    out.flush();
+  }
+
+  /**
+   * Get the report as a string.
+   */
+  public String getReport() {
+    final StringWriter result = new StringWriter();
+    writeReport(new PrintWriter(result));
+    return result.toString();
+  }
+
+  private static final <K> Counts getCounts(ConcurrentHashMap<K, Counts> map, K key) {
+    Counts result = map.get(key);
+    if (result == null) {
+      final Counts counts = new Counts();
+      result = map.putIfAbsent(key, counts);
+      if (result == null) result = counts;
+    }
+    return result;
+  }
+
+  private static final <K> List<Map.Entry<K, Counts>> sort(Map<K, Counts> map) {
+    final List<Map.Entry<K, Counts>> result = new ArrayList<Map.Entry<K, Counts>>(map.entrySet());
+    Collections.sort(result, new Comparator<Map.Entry<K, Counts>>() {
+        public int compare(Map.Entry<K, Counts> e1, Map.Entry<K, Counts> e2) {
+          final long t1 = e1.getValue().getMatchNanos();
+          final long t2 = e2.getValue().getMatchNanos();
+          return (t1 > t2) ? -1 : (t1 < t2) ? 1 : 0;
+        }
+      });
+    return result;
+  }
+
+
+  /**
+   * Counters for a rule, rule step, classifier, or regex.
+   * <p>
+   * For classifiers, states counts classifications and matchNanos the
+   * time spent classifying. For regexes, states counts pattern runs and
+   * matchNanos the time spent running the pattern, which is where
+   * catastrophic backtracking shows.
+   */
+  public static final class Counts {
+
+    final AtomicLong states = new AtomicLong();
+    final AtomicLong matches = new AtomicLong();
+    final AtomicLong failures = new AtomicLong();
+    final AtomicLong pops = new AtomicLong();
+    final AtomicLong skips = new AtomicLong();
+    final AtomicLong verifies = new AtomicLong();
+    final AtomicLong rejects = new AtomicLong();
+    final AtomicLong matchNanos = new AtomicLong();
+    final AtomicLong verifyNanos = new AtomicLong();
+
+    public long getStates() {
+      return states.get();
+    }
+
+    public long getMatches() {
+      return matches.get();
+    }
+
+    public long getFailures() {
+      return failures.get();
+    }
+
+    public long getPops() {
+      return pops.get();
+    }
+
+    public long getSkips() {
+      return skips.get();
+    }
+
+    public long getVerifies() {
+      return verifies.get();
+    }
+
+    public long getRejects() {
+      return rejects.get();
+    }
+
+    /**
+     * Get the time spent matching tokens (in tokenMatchesStepCategory or
+     * classifying), which includes time verifying the steps' tests.
+     */
+    public long getMatchNanos() {
+      return matchNanos.get();
+    }
+
+    /**
+     * Get the time spent verifying step tests (including pop tests).
+     */
+    public long getVerifyNanos() {
+      return verifyNanos.get();
+    }
+
+    public String toString() {
+      return "states=" + states.get() + " matches=" + matches.get() + " failures=" + failures.get() +
+        " pops=" + pops.get() + " skips=" + skips.get() + " verifies=" + verifies.get() +
+        " rejects=" + rejects.get() + " matchMillis=" + (matchNanos.get() / 1000000.0) +
+        " verifyMillis=" + (verifyNanos.get() / 1000000.0);
+    }
+  }
+}
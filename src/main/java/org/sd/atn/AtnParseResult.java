@@ -22,7 +22,6 @@ package org.sd.atn;
 import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.Iterator;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Set;
 import java.util.concurrent.atomic.AtomicBoolean;
@@ -80,11 +79,20 @@ public class AtnParseResult {
 
 
   private Tree<AtnState> parse;
-  private LinkedList<AtnState> states;
-  private LinkedList<AtnState> skipStates;
+  private AtnAgenda states;
+  private AtnAgenda skipStates;
   private List<AtnRule> startRules;
   private int startRuleIndex;
   private DataProperties overrides;
+  private AtnBeam beam;
+
+  /**
+   * Get the beam limiting this result's parsing (if options specify a
+   * positive beamWidth), or null.
+   */
+  public AtnBeam getBeam() {
+    return beam;
+  }
 
   private List<AtnParse> _parses;
   private int[] _parsedRange;
@@ -125,8 +133,9 @@ public class AtnParseResult {
     this.overrides = overrides;
 
     this.parse = new Tree<AtnState>(null);
-    this.states = new LinkedList<AtnState>();
-    this.skipStates = new LinkedList<AtnState>();
+    this.beam = (options.getBeamWidth() > 0) ? new AtnBeam(options.getBeamWidth(), options.getStateScorer()) : null;
+    this.states = new AtnAgenda(beam == null ? null : beam.getScorer());
+    this.skipStates = new AtnAgenda(beam == null ? null : beam.getScorer());
     this.startRules = grammar.getStartRules(options);
     this.startRuleIndex = 0;
 
@@ -334,6 +343,7 @@ public class AtnParseResult {
     while ((startRuleIndex < startRules.size() || (states.size() + skipStates.size() > 0)) && (die == null || !die.get())) {
       if (states.size() + skipStates.size() == 0) {
         final AtnRule startRule = startRules.get(startRuleIndex++);
+        if (beam != null) beam.reset();
         final Token firstToken = getFirstToken(startRule, this.firstToken);
         if (firstToken == null) {
           if (startRule.isVerbose() || AtnState.getTraceFlow()) {
@@ -381,7 +391,7 @@ public class AtnParseResult {
       }
 
 
-      success = AtnState.matchTokenToRule(grammar, states, skipStates, stopList, die);
+      success = AtnState.matchTokenToRule(grammar, states, skipStates, stopList, die, beam, options.getProfile());
       if (!success && refState != null) System.out.println(refState.showStateTree());
 
       if (success && options.getFirstParseOnly()) {
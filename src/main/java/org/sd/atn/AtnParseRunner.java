@@ -28,6 +28,8 @@ import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.io.IOException;
 import org.sd.io.FileUtil;
@@ -35,6 +37,8 @@ import org.sd.util.ExecUtil;
 import org.sd.util.FileContext;
 import org.sd.util.InputContext;
 import org.sd.util.InputContextIterator;
+import org.sd.util.SimpleInputContextIterator;
+import org.sd.util.ThreadPoolUtil;
 import org.sd.util.WhitespacePolicy;
 import org.sd.util.Usage;
 import org.sd.util.tree.Tree;
@@ -74,11 +78,18 @@ import org.sd.xml.XmlLite;
        "   \n" +
        "   verbose -- (optional, default=true)\n" +
        "   trace -- (optional, default=false) true to trace/debug AtnStates\n" +
+       "   profile -- (optional, default=false) true to count/time parsing per rule, rule step, and classifier\n" +
        " \n" +
        "   parseFlow -- (optional, default uses all) cpId1:pId1,...,pIdN;cpId2:...\n" +
        "                semi-colon delimited list of compound parser flows of the form:\n" +
        "                compoundParserId : parserId1, parserId2, ...\n" +
        "                If absent, then all parsers within all compound parsers will be executed.\n" +
+       "   flowThreads -- (optional, default=1) number of threads for running independent flows\n" +
+       "                  concurrently when parsing lines or strings, where a flow is independent\n" +
+       "                  of earlier flows if its compoundParser sets flowIndependent=true and it\n" +
+       "                  doesn't consume categories that they produce (see org.sd.atn.ParserFlowGraph).\n" +
+       "                  Concurrent flows don't see each other's parses and their results are\n" +
+       "                  merged in flow order.\n" +
        " \n" +
        "   showMarkup -- (optional, default=false)\n" +
        "   writeMarkup -- (optional, default=true)\n" +
@@ -108,6 +119,8 @@ public class AtnParseRunner {
   private Map<String, ParserFlow> id2parserFlow;
   private String activeFlowSpec;
   private List<ParserFlow> activeFlow;
+  private int flowThreads;
+  private ExecutorService flowThreadPool;
 
   public AtnParseRunner(DataProperties dataProperties) throws IOException {
     this.options = dataProperties;
@@ -116,9 +129,12 @@ public class AtnParseRunner {
     this.id2parserFlow = createParserFlow();
     this.activeFlowSpec = null;
     this.activeFlow = new ArrayList<ParserFlow>();
+    this.flowThreads = 1;
+    this.flowThreadPool = null;
 
     if (dataProperties.getBoolean("trace", false)) AtnState.setTrace(true);
     if (dataProperties.getBoolean("traceflow", false)) AtnState.setTraceFlow(true);
+    setProfiling(dataProperties.getBoolean("profile", false));
 
     updateOptions();
   }
@@ -146,6 +162,7 @@ public class AtnParseRunner {
   public final void updateOptions() {
     setVerbose(options.getBoolean("verbose", false));
     activateParseFlow(options.getString("parseFlow", null));
+    setFlowThreads(options.getInt("flowThreads", 1));
   }
 
   public DataProperties getOptions() {
@@ -165,6 +182,42 @@ public class AtnParseRunner {
     this.parseConfig.setVerbose(verbose);
   }
 
+  /**
+   * Get the profile aggregating parse counts across this runner's flows,
+   * or null if not profiling.
+   */
+  public AtnParseProfile getProfile() {
+    return parseConfig.getProfile();
+  }
+
+  /**
+   * Turn profiling of this runner's parses on (keeping any current counts)
+   * or off.
+   */
+  public final void setProfiling(boolean profiling) {
+    if (profiling && parseConfig.getProfile() == null) {
+      parseConfig.setProfile(new AtnParseProfile());
+    }
+    else if (!profiling) {
+      parseConfig.setProfile(null);
+    }
+  }
+
+  public int getFlowThreads() {
+    return flowThreads;
+  }
+
+  /**
+   * Set the number of threads for running independent flows concurrently,
+   * where 1 (or less) runs all flows sequentially.
+   */
+  public final synchronized void setFlowThreads(int flowThreads) {
+    if (flowThreads != this.flowThreads) {
+      shutdownFlowThreadPool();
+      this.flowThreads = flowThreads;
+    }
+  }
+
   public String getActiveFlowSpec() {
     return activeFlowSpec;
   }
@@ -256,6 +309,7 @@ public class AtnParseRunner {
 
 
   public void close() {
+    shutdownFlowThreadPool();
     parseConfig.close();
   }
 
@@ -265,6 +319,10 @@ public class AtnParseRunner {
       final ExtractionGroups extractionGroups = new ExtractionGroups(output);
       handleOutput(output, extractionGroups);
     }
+    final AtnParseProfile profile = getProfile();
+    if (profile != null) {
+      System.out.println("\nParse profile:\n" + profile.getReport());
+    }
   }
 
   public ParseOutputCollector buildOutput(AtomicBoolean die) throws IOException {
@@ -548,10 +606,14 @@ public class AtnParseRunner {
                                             InputUpdateStrategy inputUpdateStrategy, ParseOutputCollector result,
                                             DataProperties overrides, AtomicBoolean die) {
 
-    boolean didOne = false;
-
     final InputOptions inputOptions = new InputOptions(overrides);
 
+    if (flowThreads > 1 && activeFlow.size() > 1 && inputUpdateStrategy == InputUpdateStrategy.RESET) {
+      return parseConcurrently(inputContextIterator, result, inputOptions, die);
+    }
+
+    boolean didOne = false;
+
     for (ParserFlow parserFlow : activeFlow) {
 
       if (didOne) {
@@ -566,6 +628,76 @@ public class AtnParseRunner {
     return result == null ? new ParseOutputCollector((DomElement)null) : result;
   }
 
+  /**
+   * Parse the input through waves of independent flows, each flow in a
+   * wave running concurrently over the output of prior waves.
+   */
+  private ParseOutputCollector parseConcurrently(InputContextIterator inputContextIterator,
+                                                 ParseOutputCollector result,
+                                                 final InputOptions inputOptions, final AtomicBoolean die) {
+
+    // all flows see the same inputs, so hold them for independent iteration
+    final List<InputContext> inputContexts = new ArrayList<InputContext>();
+    while (inputContextIterator.hasNext()) {
+      inputContexts.add(inputContextIterator.next());
+    }
+
+    final ParserFlowGraph flowGraph = new ParserFlowGraph(parseConfig, activeFlow);
+    final ExecutorService threadPool = getFlowThreadPool();
+
+    for (List<ParserFlow> wave : flowGraph.getWaves()) {
+      if (die != null && die.get()) break;
+
+      final List<ParseOutputCollector> flowOutputs = new ArrayList<ParseOutputCollector>();
+      final List<Future<?>> futures = new ArrayList<Future<?>>();
+
+      for (final ParserFlow parserFlow : wave) {
+        final ParseOutputCollector flowOutput = new ParseOutputCollector(result);
+        flowOutputs.add(flowOutput);
+
+        futures.add(threadPool.submit(new Runnable() {
+            public void run() {
+              parseConfig.parse(new SimpleInputContextIterator(inputContexts.size()) {
+                  protected InputContext getItem(int itemNum) {
+                    return inputContexts.get(itemNum);
+                  }
+                },
+                parserFlow.getFlowId(), parserFlow.getParserIds(true), flowOutput, inputOptions, die);
+            }
+          }));
+      }
+
+      for (Future<?> future : futures) {
+        ThreadPoolUtil.waitFor(future);
+      }
+
+      // merge in flow order
+      if (result == null) {
+        final CompoundParser compoundParser = parseConfig.getCompoundParser(wave.get(0).getFlowId());
+        result = new ParseOutputCollector(compoundParser == null ? null : compoundParser.getOutputNode());
+      }
+      for (ParseOutputCollector flowOutput : flowOutputs) {
+        result.mergeFlowOutput(flowOutput);
+      }
+    }
+
+    return result == null ? new ParseOutputCollector((DomElement)null) : result;
+  }
+
+  private final synchronized ExecutorService getFlowThreadPool() {
+    if (flowThreadPool == null) {
+      flowThreadPool = ThreadPoolUtil.createThreadPool("AtnParseRunner-flow-", flowThreads);
+    }
+    return flowThreadPool;
+  }
+
+  private final synchronized void shutdownFlowThreadPool() {
+    if (flowThreadPool != null) {
+      ThreadPoolUtil.shutdownGracefully(flowThreadPool, 1L);
+      flowThreadPool = null;
+    }
+  }
+
   private InputContextIterator updateInput(InputContextIterator inputContextIterator, InputUpdateStrategy inputUpdateStrategy, ParseOutputCollector output) {
     InputContextIterator result = inputContextIterator;
 
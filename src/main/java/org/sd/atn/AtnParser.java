@@ -112,7 +112,16 @@ public class AtnParser {
    */
   public AtnParseResult seekParse(Token firstToken, AtnParseOptions options, Set<Integer> stopList,
                                   DataProperties overrides, AtomicBoolean die) {
-    if (firstToken == null) return null;
+    return seekParse(firstToken, -1, options, stopList, overrides, die);
+  }
+
+  /**
+   * Seek a valid parse starting with the first token, not seeking from
+   * tokens starting at or after endIndex (if non-negative).
+   */
+  private final AtnParseResult seekParse(Token firstToken, int endIndex, AtnParseOptions options, Set<Integer> stopList,
+                                         DataProperties overrides, AtomicBoolean die) {
+    if (firstToken == null || pastEnd(firstToken, endIndex)) return null;
 
     // //NOTE: when seeking, must be able to leave unconsumed text.
     // if (options.getConsumeAllText()) {
@@ -131,7 +140,7 @@ public class AtnParser {
 
     while (result.getNumParses() == 0 && !options.getConsumeAllText()) {
       firstToken = getSmallestToken(firstToken).getNextToken();
-      if (firstToken == null) break;
+      if (firstToken == null || pastEnd(firstToken, endIndex)) break;
 
       if (AtnState.getTraceFlow()) {
         System.out.println("\tAtnParser re-seeking from firstToken=" + firstToken);
@@ -149,9 +158,14 @@ public class AtnParser {
    */
   public AtnParseResult seekNextParse(AtnParse lastParse, AtnParseOptions options, Set<Integer> stopList,
                                       DataProperties overrides, AtomicBoolean die) {
+    return seekNextParse(lastParse, -1, options, stopList, overrides, die);
+  }
+
+  private final AtnParseResult seekNextParse(AtnParse lastParse, int endIndex, AtnParseOptions options, Set<Integer> stopList,
+                                             DataProperties overrides, AtomicBoolean die) {
     return
       (!options.getConsumeAllText() && lastParse.getNextToken() != null) ?
-      seekParse(lastParse.getNextToken(), options, stopList, overrides, die) :
+      seekParse(lastParse.getNextToken(), endIndex, options, stopList, overrides, die) :
       null;
   }
 
@@ -160,12 +174,87 @@ public class AtnParser {
    */
   public List<AtnParseResult> seekAll(Tokenizer tokenizer, AtnParseOptions options, Set<Integer> stopList,
                                       DataProperties overrides, AtomicBoolean die) {
+    return seekAll(tokenizer.getToken(0), -1, options, stopList, overrides, die);
+  }
+
+  /**
+   * Seek all (first) parses starting within the segment of the tokenizer's
+   * text from the token at startIndex up to the token at endIndex (or the
+   * end of the text if endIndex is negative).
+   * <p>
+   * Parses don't start at or beyond endIndex, but may continue beyond it
+   * just as when seeking through all of the text.
+   */
+  public List<AtnParseResult> seekAll(Tokenizer tokenizer, int startIndex, int endIndex, AtnParseOptions options,
+                                      Set<Integer> stopList, DataProperties overrides, AtomicBoolean die) {
     final List<AtnParseResult> result = new ArrayList<AtnParseResult>();
+    seekSegment(tokenizer, startIndex, endIndex, options, stopList, overrides, die, result);
+    return result;
+  }
+
+  /**
+   * Seek all (first) parses starting within the segment as for seekAll,
+   * adding them to (and leaving out those subsumed by) the given results.
+   *
+   * @return the last parse sought, from which seeking beyond the segment
+   *         would continue, or null if no parse starts within the segment.
+   */
+  AtnParse seekSegment(Tokenizer tokenizer, int startIndex, int endIndex, AtnParseOptions options,
+                       Set<Integer> stopList, DataProperties overrides, AtomicBoolean die,
+                       List<AtnParseResult> results) {
+    return seekAll(seekParse(tokenizer.getToken(startIndex), endIndex, options, stopList, overrides, die),
+                   endIndex, options, stopList, overrides, die, results);
+  }
 
+  /**
+   * Continue seeking all (first) parses after the given last parse up to
+   * the token at endIndex (or the end of the text if endIndex is negative),
+   * adding them to (and leaving out those subsumed by) the given results.
+   *
+   * @return the last parse sought, or the given parse if no more parses start
+   *         before endIndex.
+   */
+  AtnParse seekAllAfter(AtnParse lastParse, int endIndex, AtnParseOptions options, Set<Integer> stopList,
+                        DataProperties overrides, AtomicBoolean die, List<AtnParseResult> results) {
+    final AtnParse parse = seekAll(doSeekNextParse(lastParse, endIndex, options, stopList, overrides, die),
+                                   endIndex, options, stopList, overrides, die, results);
+    return (parse == null) ? lastParse : parse;
+  }
+
+  /**
+   * Get the start positions of the tokenizer's hard break delimited
+   * segments, the first of which starts at the tokenizer's first token.
+   */
+  public static List<Integer> findHardBreakSegments(Tokenizer tokenizer) {
+    final List<Integer> result = new ArrayList<Integer>();
+
+    for (Token token = tokenizer.getSmallestToken(0); token != null; token = tokenizer.getNextSmallestToken(token)) {
+      if (result.size() == 0 || tokenizer.followsHardBreak(token)) {
+        result.add(token.getStartIndex());
+      }
+    }
+
+    return result;
+  }
+
+  private final List<AtnParseResult> seekAll(Token firstToken, int endIndex, AtnParseOptions options, Set<Integer> stopList,
+                                             DataProperties overrides, AtomicBoolean die) {
+    final List<AtnParseResult> result = new ArrayList<AtnParseResult>();
+    seekAll(seekParse(firstToken, endIndex, options, stopList, overrides, die), endIndex, options, stopList, overrides, die, result);
+    return result;
+  }
+
+  /**
+   * Collect the first parse result and those sought after it into result.
+   *
+   * @return the last parse sought or null.
+   */
+  private final AtnParse seekAll(AtnParseResult firstParseResult, int endIndex, AtnParseOptions options, Set<Integer> stopList,
+                                 DataProperties overrides, AtomicBoolean die, List<AtnParseResult> result) {
     AtnParse parse = null;
-    for (AtnParseResult parseResult = seekParse(tokenizer, options, stopList, overrides, die);
+    for (AtnParseResult parseResult = firstParseResult;
          parseResult != null;
-         parseResult = doSeekNextParse(parse, options, stopList, overrides, die)) {
+         parseResult = doSeekNextParse(parse, endIndex, options, stopList, overrides, die)) {
       int numParses = parseResult.getNumParses();
       if (numParses > 0) {
         int numSelectedParses = 0;
@@ -202,23 +291,27 @@ public class AtnParser {
       }
     }
 
-    return result;
+    return parse;
   }
 
   /**
    * Wrapper for calling seekNextParse based on prior parse (success).
    */
-  private final AtnParseResult doSeekNextParse(AtnParse parse, AtnParseOptions options, Set<Integer> stopList,
+  private final AtnParseResult doSeekNextParse(AtnParse parse, int endIndex, AtnParseOptions options, Set<Integer> stopList,
                                                DataProperties overrides, AtomicBoolean die) {
     AtnParseResult result = null;
 
     if (parse != null) {
-      result = seekNextParse(parse, options, stopList, overrides, die);
+      result = seekNextParse(parse, endIndex, options, stopList, overrides, die);
     }
 
     return result;
   }
 
+  private static final boolean pastEnd(Token token, int endIndex) {
+    return endIndex >= 0 && token.getStartIndex() >= endIndex;
+  }
+
   private final AtnParseResult buildParseResult(Token firstToken, int seekStartIndex, AtnParseOptions options,
                                                 Set<Integer> stopList, DataProperties overrides, AtomicBoolean die) {
     return new AtnParseResult(grammar, firstToken, seekStartIndex, options, stopList, overrides, die);
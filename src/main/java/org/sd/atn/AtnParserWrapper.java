@@ -25,8 +25,12 @@ import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import org.sd.token.StandardTokenizerOptions;
+import org.sd.util.ThreadPoolUtil;
 import org.sd.util.Usage;
 import org.sd.xml.DataProperties;
 import org.sd.xml.DomElement;
@@ -156,6 +160,8 @@ public class AtnParserWrapper {
     return ambiguityResolverElement;
   }
 
+  private ExecutorService segmentThreadPool;
+
 
   AtnParserWrapper(DomElement parserElement, ResourceManager resourceManager) {
     this.id = "<UNSPECIFIED>";
@@ -297,7 +303,9 @@ public class AtnParserWrapper {
     final boolean qualified = (prequalifier == null) ? true : prequalifier.prequalify(tokenizer);
 
     if (qualified) {
-      parseResults = parser.seekAll(tokenizer, parseOptions, stopList, overrides, die);
+      parseResults = (parseOptions.getSegmentThreads() > 0) ?
+        seekSegments(tokenizer, stopList, parseOptions, overrides, die) :
+        parser.seekAll(tokenizer, parseOptions, stopList, overrides, die);
 
       if (parseSelector != null && parseResults != null && parseResults.size() > 0) {
         for (AtnParseResult parseResult : parseResults) {
@@ -316,6 +324,124 @@ public class AtnParserWrapper {
     return parseResults;
   }
 
+  /**
+   * Seek all parses through the tokenizer's hard break delimited segments,
+   * seeking segments concurrently when parseOptions allow more than one
+   * segment thread. Each worker claims the next unsought segment through
+   * its own copy of the tokenizer.
+   * <p>
+   * Parses may cross hard breaks, so each segment's parses are sought
+   * speculatively from its start and then stitched in segment order. A
+   * segment's parses are kept when seeking through the prior segments
+   * arrives at its start without any kept parse reaching into it; otherwise
+   * its parses are sought again after the last prior parse. Results are
+   * therefore the same as when seeking through all of the text at once.
+   * Grammars whose tests scan back to the seek start depend on where seeking
+   * began, so they are always sought through all of the text at once.
+   */
+  private final List<AtnParseResult> seekSegments(AtnParseBasedTokenizer tokenizer, final Set<Integer> stopList,
+                                                  final AtnParseOptions parseOptions, final DataProperties overrides,
+                                                  final AtomicBoolean die) {
+    if (parseOptions.getConsumeAllText() || parser.getGrammar().hasSeekStartTests()) {
+      return parser.seekAll(tokenizer, parseOptions, stopList, overrides, die);
+    }
+
+    final List<Integer> segmentStarts = AtnParser.findHardBreakSegments(tokenizer);
+    final int numSegments = segmentStarts.size();
+    final int numThreads = Math.min(parseOptions.getSegmentThreads(), numSegments);
+
+    if (numThreads <= 1) {
+      return parser.seekAll(tokenizer, parseOptions, stopList, overrides, die);
+    }
+
+    final List<List<AtnParseResult>> segmentResults = new ArrayList<List<AtnParseResult>>();
+    for (int segmentNum = 0; segmentNum < numSegments; ++segmentNum) segmentResults.add(null);
+    final AtnParse[] segmentLastParses = new AtnParse[numSegments];
+    final AtomicInteger nextSegment = new AtomicInteger(0);
+    final List<Future<?>> futures = new ArrayList<Future<?>>();
+
+    final ExecutorService threadPool = getSegmentThreadPool(parseOptions.getSegmentThreads());
+    for (int threadNum = 0; threadNum < numThreads; ++threadNum) {
+      final AtnParseBasedTokenizer workerTokenizer = tokenizer.copy();
+
+      futures.add(threadPool.submit(new Runnable() {
+          public void run() {
+            for (int segmentNum = nextSegment.getAndIncrement(); segmentNum < numSegments; segmentNum = nextSegment.getAndIncrement()) {
+              if (die != null && die.get()) break;
+              final List<AtnParseResult> segmentResult = new ArrayList<AtnParseResult>();
+              segmentLastParses[segmentNum] =
+                parser.seekSegment(workerTokenizer, segmentStarts.get(segmentNum), getSegmentEnd(segmentStarts, segmentNum),
+                                   parseOptions, stopList, overrides, die, segmentResult);
+              segmentResults.set(segmentNum, segmentResult);
+            }
+          }
+        }));
+    }
+
+    for (Future<?> future : futures) {
+      ThreadPoolUtil.waitFor(future);
+    }
+
+    final List<AtnParseResult> result = new ArrayList<AtnParseResult>();
+    AtnParse lastParse = null;
+    int parsedEnd = 0;
+
+    for (int segmentNum = 0; segmentNum < numSegments; ++segmentNum) {
+      if (die != null && die.get()) break;
+
+      // seeking stops after a parse that reaches the end of the text
+      if (lastParse != null && lastParse.getNextToken() == null) break;
+
+      final int segmentStart = segmentStarts.get(segmentNum);
+      final int segmentEnd = getSegmentEnd(segmentStarts, segmentNum);
+      final int seekStart = (lastParse == null) ? segmentStart : lastParse.getNextToken().getStartIndex();
+      final int resultNum = result.size();
+
+      if (seekStart <= segmentStart && parsedEnd <= segmentStart) {
+        final List<AtnParseResult> segmentResult = segmentResults.get(segmentNum);
+        if (segmentResult != null) result.addAll(segmentResult);
+        if (segmentLastParses[segmentNum] != null) lastParse = segmentLastParses[segmentNum];
+      }
+      else if (segmentEnd < 0 || seekStart < segmentEnd) {
+        // a prior parse reaches into this segment
+        lastParse = parser.seekAllAfter(lastParse, segmentEnd, parseOptions, stopList, overrides, die, result);
+      }
+
+      for (int i = resultNum; i < result.size(); ++i) {
+        final int[] parsedRange = result.get(i).getParsedRange();
+        if (parsedRange != null && parsedRange[1] > parsedEnd) parsedEnd = parsedRange[1];
+      }
+    }
+
+    return result;
+  }
+
+  private static final int getSegmentEnd(List<Integer> segmentStarts, int segmentNum) {
+    return (segmentNum + 1 < segmentStarts.size()) ? segmentStarts.get(segmentNum + 1) : -1;
+  }
+
+  /**
+   * Get the pool for seeking segments, creating it on first use with the
+   * given (configured) number of threads. Each document limits its own
+   * parallelism by the number of workers it submits.
+   */
+  private final synchronized ExecutorService getSegmentThreadPool(int numThreads) {
+    if (segmentThreadPool == null) {
+      segmentThreadPool = ThreadPoolUtil.createThreadPool("AtnParserWrapper-" + id + "-", numThreads);
+    }
+    return segmentThreadPool;
+  }
+
+  /**
+   * Shut down this wrapper's segment thread pool, if any.
+   */
+  public synchronized void close() {
+    if (segmentThreadPool != null) {
+      ThreadPoolUtil.shutdownGracefully(segmentThreadPool, 1L);
+      segmentThreadPool = null;
+    }
+  }
+
   /**
    * Resolve ambiguities (if possible) within the parse results generated
    * through this wrapper.
@@ -0,0 +1,75 @@
+/*
+    Copyright 2009 Semantic Discovery, Inc. (www.semanticdiscovery.com)
+
+    This file is part of the Semantic Discovery Toolkit.
+
+    The Semantic Discovery Toolkit is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    The Semantic Discovery Toolkit is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with The Semantic Discovery Toolkit.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package org.sd.atn;
+
+
+import org.sd.io.Publishable;
+import org.sd.io.PublishableCodec;
+import org.sd.io.PublishableString;
+
+/**
+ * Registration of the atn package's publishables with a PublishableCodec
+ * for compactly moving parse results between stages.
+ * <p>
+ * NOTE: The ids assigned here are part of the encoded format. Append new
+ *       types with new ids; never renumber or reuse an id.
+ *
+ * @author Spence Koehler
+ */
+public class AtnPublishableTypes {
+
+  /** A codec with the atn types registered. */
+  public static final PublishableCodec CODEC = register(new PublishableCodec());
+
+
+  /**
+   * Register the atn publishables with the given codec.
+   *
+   * @return the codec.
+   */
+  public static final PublishableCodec register(PublishableCodec codec) {
+    codec.
+      register(2, PublishableString.class, new PublishableCodec.Factory() {
+          public Publishable newInstance() { return new PublishableString(); }
+        }).
+      register(3, ExtractionGroups.class, new PublishableCodec.Factory() {
+          public Publishable newInstance() { return new ExtractionGroups(); }
+        }).
+      register(4, ExtractionGroup.class, new PublishableCodec.Factory() {
+          public Publishable newInstance() { return new ExtractionGroup(); }
+        }).
+      register(5, ExtractionContainer.class, new PublishableCodec.Factory() {
+          public Publishable newInstance() { return new ExtractionContainer(); }
+        }).
+      register(6, ParseInterpretation.class, new PublishableCodec.Factory() {
+          public Publishable newInstance() { return new ParseInterpretation(); }
+        }).
+      register(7, Parse.class, new PublishableCodec.Factory() {
+          public Publishable newInstance() { return new Parse(); }
+        }).
+      register(8, ParseSourceInfo.class, new PublishableCodec.Factory() {
+          public Publishable newInstance() { return new ParseSourceInfo(); }
+        }).
+      register(9, InputContextContainer.class, new PublishableCodec.Factory() {
+          public Publishable newInstance() { return new InputContextContainer(); }
+        });
+
+    return codec;
+  }
+}
@@ -96,6 +96,10 @@ public class AtnRule {
 
   private boolean verbose;
 
+  // compiled form (see AtnGrammarTable)
+  private AtnRuleStep[] stepArray;
+  private boolean[] terminalSteps;
+
   AtnRule(AtnGrammar grammar, DomElement ruleElement, ResourceManager resourceManager) {
     this.grammar = grammar;
     this.ruleName = ruleElement.getLocalName();
@@ -107,6 +111,8 @@ public class AtnRule {
     this.fromFirstTokenOnly = ruleElement.getAttributeBoolean("fromFirstTokenOnly", false);
     this.permuted = ruleElement.getAttributeBoolean("permuted", false);
     this.verbose = ruleElement.getAttributeBoolean("verbose", false);
+    this.stepArray = null;
+    this.terminalSteps = null;
 
     //
     // RuleElement is of the form:
@@ -155,11 +161,23 @@ public class AtnRule {
     }
   }
 
+  /**
+   * Set this rule's compiled steps and terminal flags.
+   */
+  void setCompiled(AtnRuleStep[] stepArray, boolean[] terminalSteps) {
+    this.stepArray = stepArray;
+    this.terminalSteps = terminalSteps;
+  }
+
   boolean isLast(int stepNum) {
     return stepNum == this.steps.size() - 1;
   }
 
   boolean isTerminal(int stepNum) {
+    if (terminalSteps != null && stepNum >= 0 && stepNum < terminalSteps.length) {
+      return terminalSteps[stepNum];
+    }
+
     boolean result = isLast(stepNum);
 
     if (!result) {
@@ -175,7 +193,12 @@ public class AtnRule {
   AtnRuleStep getStep(int stepNum) {
     AtnRuleStep result = null;
 
-    if (stepNum >= 0 && stepNum < steps.size()) {
+    if (stepArray != null) {
+      if (stepNum >= 0 && stepNum < stepArray.length) {
+        result = stepArray[stepNum];
+      }
+    }
+    else if (stepNum >= 0 && stepNum < steps.size()) {
       return steps.get(stepNum);
     }
 
@@ -46,6 +46,37 @@ public class AtnRuleStep {
     return label == null ? category : label;
   }
 
+  // ids in the grammar's compiled table (see AtnGrammarTable)
+  private int categoryId = -1;
+  private int labelId = -1;
+
+  void setIds(int categoryId, int labelId) {
+    this.categoryId = categoryId;
+    this.labelId = labelId;
+  }
+
+  /**
+   * Get this step's category id in its grammar's compiled table, or -1.
+   */
+  public int getCategoryId() {
+    return categoryId;
+  }
+
+  /**
+   * Get this step's label (or category) id in its grammar's compiled
+   * table, or -1.
+   */
+  public int getLabelId() {
+    return labelId;
+  }
+
+  /**
+   * Determine whether this step's category or label has the given id.
+   */
+  public boolean matchesCategory(int catId) {
+    return catId >= 0 && (catId == categoryId || catId == labelId);
+  }
+
   public boolean matchesCategory(String cat) {
     boolean result = category.equals(cat);
 
@@ -190,9 +221,15 @@ public class AtnRuleStep {
    * the postDelim and test constraints.
    */
   boolean verify(Token token, AtnState curState) {
+    final AtnParseProfile profile = curState.getProfile();
+    final long starttime = (profile == null) ? 0L : System.nanoTime();
+
     if (isPopStep()) curState.setPopping(true);
     final boolean result = testContainer.verify(token, curState).accept();
     if (isPopStep()) curState.setPopping(false);
+
+    if (profile != null) profile.verified(this, result, System.nanoTime() - starttime);
+
     return result;
   }
 
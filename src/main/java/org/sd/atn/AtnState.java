@@ -79,6 +79,13 @@ public class AtnState {
   AtnParseOptions parseOptions;
   int skipNum;
 
+  /**
+   * Get the profile collecting counts for this state's parse, or null.
+   */
+  AtnParseProfile getProfile() {
+    return (parseOptions == null) ? null : parseOptions.getProfile();
+  }
+
 
   private MatchResult matchResult;
   public boolean getMatched() {
@@ -183,7 +190,7 @@ public class AtnState {
   private AtnRuleStep _ruleStep;
   public AtnRuleStep getRuleStep() {
     if (_ruleStep == null) {
-      _ruleStep = rule.getSteps().get(stepNum);
+      _ruleStep = rule.getStep(stepNum);
     }
     return _ruleStep;
   }
@@ -450,7 +457,7 @@ public class AtnState {
   private final boolean stepConsumesToken(int stepNum) {
     boolean result = true;
 
-    final AtnRuleStep ruleStep = rule.getSteps().get(stepNum);
+    final AtnRuleStep ruleStep = rule.getStep(stepNum);
     if (ruleStep != null) {
       result = ruleStep.consumeToken();
     }
@@ -823,9 +830,16 @@ public class AtnState {
     else {
       String category = ruleStep.getCategory();
 
-      if (grammar.getCat2Classifiers().containsKey(category)) {
+      final AtnGrammarTable table = grammar.getTable();
+      final int categoryId = (table == null) ? -1 : ruleStep.getCategoryId();
+      final boolean hasClassifiers = (categoryId >= 0) ? table.hasClassifiers(categoryId) : grammar.getCat2Classifiers().containsKey(category);
+
+      if (hasClassifiers) {
+        final AtnParseProfile profile = getProfile();
         for (AtnStateTokenClassifier classifier : grammar.getCat2Classifiers().get(category)) {
+          final long starttime = (profile == null) ? 0L : System.nanoTime();
           final MatchResult matchResult = classifier.classify(inputToken, this);
+          if (profile != null) profile.classified(classifier, matchResult.matched(), System.nanoTime() - starttime);
           if (matchResult.matched()) {
             if (ruleStep.verify(inputToken, this)) {
               result = matchResult;
@@ -839,7 +853,8 @@ public class AtnState {
       }
       else {
         boolean constituent = true;
-        if (!grammar.getCat2Rules().containsKey(category)) {
+        final boolean isConstituent = (categoryId >= 0) ? table.isConstituent(categoryId) : grammar.getCat2Rules().containsKey(category);
+        if (!isConstituent) {
           // use an "identity" classifier for literal grammar tokens.
           matched = category.equals(inputToken.getText());
           constituent = false;
@@ -934,7 +949,7 @@ public class AtnState {
   }
 
 
-  private final boolean applyAllPops(Tree<AtnState> nextStateNode, LinkedList<AtnState> states, LinkedList<AtnState> skipStates, Set<Integer> stopList) {
+  private final boolean applyAllPops(Tree<AtnState> nextStateNode, AtnAgenda states, AtnAgenda skipStates, Set<Integer> stopList) {
     boolean result = true;
     boolean matches = true;
 
@@ -1067,7 +1082,7 @@ public class AtnState {
     return inputToken.encompasses(token);
   }
 
-  private final boolean clusterConditionFails(LinkedList<AtnState> states) {
+  private final boolean clusterConditionFails(AtnAgenda states) {
     // check for contradiction earlier in the state tree
     boolean result = clusterConditionFailsBackward();
 
@@ -1245,7 +1260,7 @@ public class AtnState {
     return result;
   }
 
-  private final boolean removeInvalidQueuedStates(LinkedList<AtnState> states) {
+  private final boolean removeInvalidQueuedStates(AtnAgenda states) {
     boolean result = false;
 
     final String curCat = getRuleStep().getCategory();
@@ -1280,7 +1295,7 @@ public class AtnState {
     return result;
   }
 
-  private final boolean checkQueuedClusterConditions(LinkedList<AtnState> states) {
+  private final boolean checkQueuedClusterConditions(AtnAgenda states) {
     boolean result = false;
 
     final String curCat = getRuleStep().getCategory();
@@ -1427,10 +1442,11 @@ public class AtnState {
 
   static List<CategorizedToken> computeTokens(Tree<AtnState> stateNode) {
     final List<CategorizedToken> result = new ArrayList<CategorizedToken>();
-    final LinkedList<Tree<AtnState>> stateNodes = stateNode.getRootPath();
+    final Iterator<Tree<AtnState>> stateNodes = stateNode.getSharedRootPath().iterator();
+    if (stateNodes.hasNext()) stateNodes.next();  // skip the root
 
-    for (int pathIndex = 1; pathIndex < stateNodes.size(); ++pathIndex) {
-      final Tree<AtnState> pathStateNode = stateNodes.get(pathIndex);
+    while (stateNodes.hasNext()) {
+      final Tree<AtnState> pathStateNode = stateNodes.next();
       final AtnState pathState = pathStateNode.getData();
       if (pathState.getMatched() && pathState.getRuleStep().consumeToken()) {
         result.add(new CategorizedToken(pathState.getInputToken(), pathState.getRuleStep().getCategory()));
@@ -1440,11 +1456,16 @@ public class AtnState {
     return result;
   }
 
-  static boolean matchTokenToRule(AtnGrammar grammar, LinkedList<AtnState> states, LinkedList<AtnState> skipStates, Set<Integer> stopList, AtomicBoolean die) {
+  /**
+   * Explore queued states until a full parse is found or no states remain,
+   * choosing states through the beam if non-null or else in queue order.
+   */
+  static boolean matchTokenToRule(AtnGrammar grammar, AtnAgenda states, AtnAgenda skipStates, Set<Integer> stopList, AtomicBoolean die, AtnBeam beam, AtnParseProfile profile) {
     boolean result = false;
 
     while ((states.size() + skipStates.size() > 0) && !result && (die == null || !die.get())) {
-      final AtnState curstate = states.size() > 0 ? states.removeFirst() : skipStates.removeFirst();
+      final AtnState curstate = (beam != null) ? beam.next(states, skipStates) : states.size() > 0 ? states.removeFirst() : skipStates.removeFirst();
+      if (curstate == null) break;  // all pruned
 
       if (stepThruFlag || traceflow || curstate.getRuleStep().getVerbose()) {
         if (traceflow || curstate.getRuleStep().getVerbose() ||
@@ -1466,8 +1487,13 @@ public class AtnState {
           System.out.println("traceflow--AtnState matching " + curstate.toString());
         }
 
+        final long starttime = (profile == null) ? 0L : System.nanoTime();
         matchResult = curstate.tokenMatchesStepCategory(grammar);
         matches = matchResult.matched();
+        if (profile != null) profile.explored(curstate, matches, System.nanoTime() - starttime);
+      }
+      else if (profile != null) {
+        profile.explored(curstate, false, 0L);
       }
       final Tree<AtnState> nextStateNode = curstate.parentStateNode.addChild(curstate);
 
@@ -1483,7 +1509,9 @@ public class AtnState {
           System.out.println("traceflow--AtnState MATCH " + curstate.toString());
         }
 
+        if (beam != null) beam.matched(curstate);
         pops = curstate.applyAllPops(nextStateNode, states, skipStates, stopList);
+        if (pops && profile != null) profile.popped(curstate);
 
         // if ((traceflow || curstate.getRuleStep().getVerbose()) && !pops) {
         //   System.out.println("traceflow--AtnState DROPPED match " + curstate.toString());
@@ -1514,7 +1542,7 @@ public class AtnState {
     return result;
   }
 
-  private static boolean addNextStates(AtnGrammar grammar, LinkedList<AtnState> states, LinkedList<AtnState> skipStates, AtnState curstate, Tree<AtnState> nextStateNode, boolean isPop, boolean inc, Set<Integer> stopList, boolean meetsRequirements) {
+  private static boolean addNextStates(AtnGrammar grammar, AtnAgenda states, AtnAgenda skipStates, AtnState curstate, Tree<AtnState> nextStateNode, boolean isPop, boolean inc, Set<Integer> stopList, boolean meetsRequirements) {
     if (curstate == null) return false;
 
     boolean foundOne = inc || isPop;
@@ -1567,7 +1595,7 @@ public class AtnState {
     return foundOne;
   }
 
-  private static boolean addNextBranchedStates(AtnGrammar grammar, LinkedList<AtnState> states, LinkedList<AtnState> skipStates, AtnState curstate, Tree<AtnState> nextStateNode, Set<Integer> stopList, boolean meetsRequirements) {
+  private static boolean addNextBranchedStates(AtnGrammar grammar, AtnAgenda states, AtnAgenda skipStates, AtnState curstate, Tree<AtnState> nextStateNode, Set<Integer> stopList, boolean meetsRequirements) {
 
     boolean foundOne = false;
     AtnState nextstate = null;
@@ -1598,11 +1626,15 @@ public class AtnState {
 
     // apply (push) rules
     if (meetsRequirements && !reachedTokenLimit) {
-      final String category = curstate.getRuleStep().getCategory();
-      if (grammar.getCat2Rules().containsKey(category)) {
+      final AtnRuleStep ruleStep = curstate.getRuleStep();
+      final AtnGrammarTable table = grammar.getTable();
+      final List<AtnRule> pushRules = (table != null && ruleStep.getCategoryId() >= 0) ?
+        table.getPushRules(ruleStep.getCategoryId()) :
+        grammar.getCat2Rules().get(ruleStep.getCategory());
+      if (pushRules != null && pushRules.size() > 0) {
         foundOne = true;
 
-        for (AtnRule rule : grammar.getCat2Rules().get(category)) {
+        for (AtnRule rule : pushRules) {
 
           if (rule.isPermuted()) {
             // add a push state for all steps
@@ -1629,7 +1661,7 @@ public class AtnState {
           if (nextstate != null) {
             nextStateNode.getParent().addChild(dupstateNode);
             dupstate.parentStateNode = nextStateNode.getParent();
-            addState(skipStates, nextstate);
+            addSkipState(grammar, skipStates, nextstate);
           }
         }
       }
@@ -1638,14 +1670,14 @@ public class AtnState {
     // skip tokens
     if (!foundOne && !reachedTokenLimit) {
       nextstate = curstate.getNextSkippedState(nextStateNode, stopList);
-      if (nextstate != null) addState(skipStates, nextstate);
+      if (nextstate != null) addSkipState(grammar, skipStates, nextstate);
     }
 
     return foundOne;
   }
 
-  private static final void addState(AtnGrammar grammar, LinkedList<AtnState> states,
-                                     LinkedList<AtnState> skipStates, AtnState nextstate,
+  private static final void addState(AtnGrammar grammar, AtnAgenda states,
+                                     AtnAgenda skipStates, AtnState nextstate,
                                      Set<Integer> stopList) {
 
     // if can't add the state due to cluster condition failure, try revision, optional bypass, and skipping
@@ -1655,7 +1687,16 @@ public class AtnState {
     }
   }
 
-  private static final boolean addState(LinkedList<AtnState> states, AtnState nextstate) {
+  private static final void addSkipState(AtnGrammar grammar, AtnAgenda skipStates, AtnState nextstate) {
+    final int size = skipStates.size();
+    addState(skipStates, nextstate);
+    final AtnParseProfile profile = nextstate.getProfile();
+    if (skipStates.size() > size && profile != null) {
+      profile.skipped(nextstate);
+    }
+  }
+
+  private static final boolean addState(AtnAgenda states, AtnState nextstate) {
     boolean result = true;
 
     boolean isDup = false;
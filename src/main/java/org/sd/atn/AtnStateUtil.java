@@ -22,6 +22,7 @@ package org.sd.atn;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
@@ -147,14 +148,15 @@ public class AtnStateUtil {
    *               false for a "shallow" or "high level" parse tree.
    */
   public static Tree<String> convertToTree(Tree<AtnState> stateNode, boolean goDeep) {
-    final LinkedList<Tree<AtnState>> stateNodes = stateNode.getRootPath();
+    final Iterator<Tree<AtnState>> stateNodes = stateNode.getSharedRootPath().iterator();
+    if (stateNodes.hasNext()) stateNodes.next();  // skip the root
 
     AtnState lastPushState = null;
     Tree<String> result = null;
     Tree<String> curResultNode = null;
 
-    for (int pathIndex = 1; pathIndex < stateNodes.size(); ++pathIndex) {
-      final Tree<AtnState> pathStateNode = stateNodes.get(pathIndex);
+    while (stateNodes.hasNext()) {
+      final Tree<AtnState> pathStateNode = stateNodes.next();
       final AtnState pathState = pathStateNode.getData();
       final String category = pathState.getRuleStep().getLabel();
       final AtnState pushState = pathState.getPushState();
@@ -494,12 +496,19 @@ public class AtnStateUtil {
     if (atnState.getMatched()) {
       int popCount = 0;
 
+      // compare compiled category ids when available
+      final boolean compiled = requirement.getCategoryId() >= 0;
+
       for (; !result && atnState != null; atnState = atnState.getPushState()) {
         final AtnRuleStep ruleStep = atnState.getRuleStep();
-        final String category = ruleStep.getCategory();
-        final String label = ruleStep.getLabel();
+        final Integer level = (levelDiff == null ? null : levelDiff[0] + popCount);
 
-        result = requirement.matches(category, label, (levelDiff == null ? null : levelDiff[0] + popCount));
+        if (compiled && ruleStep.getCategoryId() >= 0) {
+          result = requirement.matches(ruleStep.getCategoryId(), ruleStep.getLabelId(), level);
+        }
+        else {
+          result = requirement.matches(ruleStep.getCategory(), ruleStep.getLabel(), level);
+        }
         if (!result && levelDiff != null) ++popCount;
       }
       if (result && levelDiff != null) levelDiff[0] += popCount;
@@ -107,6 +107,16 @@ public class CompoundParser {
   }
 
 
+  private boolean flowIndependent;
+  /**
+   * Determine whether this parser's flows declare that their parsing doesn't
+   * depend on earlier flows' parses (beyond categories they consume), so
+   * that they may run concurrently with those flows (see ParserFlowGraph).
+   */
+  public boolean isFlowIndependent() {
+    return flowIndependent;
+  }
+
   private DataProperties config;
   private DomElement outputNode;
   private ResourceManager resourceManager;
@@ -127,6 +137,7 @@ public class CompoundParser {
     this.minNumTokens = Math.max(1, parserWrapper.getMinNumTokens());
     this.parserWrappers = new LinkedHashMap<String, AtnParserWrapper>();
     parserWrappers.put(parserWrapper.getId(), parserWrapper);
+    this.flowIndependent = false;
     this.outputNode = null;
   }
 
@@ -138,6 +149,9 @@ public class CompoundParser {
     //
     //     <id>compound-parser-id</id>
     //
+    //     <!-- optional (default=false) true if parsing doesn't depend on earlier flows' parses -->
+    //     <flowIndependent>false</flowIndependent>
+    //
     //     <outputs>
     //       <markup>
     //         <style>border: 3px solid; border-color: green; background-color: yellow;</style>
@@ -198,6 +212,7 @@ public class CompoundParser {
 
     this.config = config;
     this.id = config.getString("id");
+    this.flowIndependent = config.getBoolean("flowIndependent", false);
     this.resourceManager = resourceManager;
 
     this.minNumTokens = 1;
@@ -217,6 +232,25 @@ public class CompoundParser {
     return config;
   }
 
+  /**
+   * Get the "outputs" element configuring collectors created by this
+   * instance, or null.
+   */
+  public DomElement getOutputNode() {
+    return outputNode;
+  }
+
+  /**
+   * Release resources held by this instance's parser wrappers.
+   */
+  public void close() {
+    if (parserWrappers != null) {
+      for (AtnParserWrapper parserWrapper : parserWrappers.values()) {
+        parserWrapper.close();
+      }
+    }
+  }
+
 
   public ParseOutputCollector parse(InputContext input, String[] flow, AtomicBoolean die) {
     return parse(input, flow, null, null, null, null, die);
@@ -0,0 +1,89 @@
+/*
+    Copyright 2011 Semantic Discovery, Inc. (www.semanticdiscovery.com)
+
+    This file is part of the Semantic Discovery Toolkit.
+
+    The Semantic Discovery Toolkit is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    The Semantic Discovery Toolkit is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with The Semantic Discovery Toolkit.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package org.sd.atn;
+
+
+import org.sd.token.Feature;
+import org.sd.token.Token;
+import org.sd.util.Usage;
+import org.sd.xml.DomElement;
+import org.sd.xml.DomNode;
+
+/**
+ * Default AtnStateScorer that prefers states with fewer skipped tokens and
+ * fewer repeats whose last matched token was classified confidently.
+ * <p>
+ * @author Spence Koehler
+ */
+@Usage(notes =
+       "An org.sd.atn.AtnStateScorer implementation that\n" +
+       "scores states by classifier confidence less weighted\n" +
+       "skip and repeat counts"
+  )
+public class DefaultAtnStateScorer implements AtnStateScorer {
+  
+  private int skipWeight;
+  private int repeatWeight;
+
+  /**
+   * Attribute 'skipWeight' (default 10) is the penalty (in hundredths) for
+   * each skipped token.
+   * <p>
+   * Attribute 'repeatWeight' (default 1) is the penalty (in hundredths) for
+   * each repeat of a rule step.
+   */
+  public DefaultAtnStateScorer(DomNode domNode, ResourceManager resourceManager) {
+    final DomElement domElement = (DomElement)domNode;
+    this.skipWeight = domElement.getAttributeInt("skipWeight", 10);
+    this.repeatWeight = domElement.getAttributeInt("repeatWeight", 1);
+  }
+
+  public DefaultAtnStateScorer() {
+    this.skipWeight = 10;
+    this.repeatWeight = 1;
+  }
+
+  public double score(AtnState state) {
+    double result = getConfidence(state.getParentState());
+
+    result -= (skipWeight * state.skipNum + repeatWeight * state.getRepeatNum()) / 100.0;
+
+    return result;
+  }
+
+  /**
+   * Get the probability of the classifier feature on the matched state's
+   * token, or 1.0 if there is no such feature.
+   */
+  private final double getConfidence(AtnState matchedState) {
+    double result = 1.0;
+
+    if (matchedState != null && matchedState.getMatched()) {
+      final Token token = matchedState.getInputToken();
+      if (token.hasFeatures()) {
+        final Feature feature = token.getFeature(matchedState.getRuleStep().getCategory(), null);
+        if (feature != null) {
+          result = feature.getP();
+        }
+      }
+    }
+
+    return result;
+  }
+}
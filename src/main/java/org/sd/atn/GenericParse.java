@@ -19,9 +19,9 @@
 package org.sd.atn;
 
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import org.sd.util.tree.NodePath;
 import org.sd.util.tree.Tree;
 import org.sd.xml.DomElement;
@@ -30,32 +30,40 @@ import org.sd.xml.XmlLite;
 /**
  * Container for a single parse as accessed through a GenericParseHelper.
  * <p>
+ * Parse texts and trees are computed on construction so that instances
+ * can be shared among threads (e.g., through a GenericParseCache).
+ * <p>
  * @author Spence Koehler
  */
 public class GenericParse {
   
-  private AtnParse atnParse;
-  private ParseInterpretation interp;
-  private GenericParseHelper genericParseHelper;
-  private Map<String, String> id2text;
-  private Map<String, String> xpath2text;
-
-  private String _ruleId;
-  private String _parsedText;
-  private String _inputText;
-  private String _remainingText;
+  private final AtnParse atnParse;
+  private final ParseInterpretation interp;
+  private final GenericParseHelper genericParseHelper;
+  private final Map<String, String> id2text;
+  private final Map<String, String> xpath2text;
+
+  private final String ruleId;
+  private final String parsedText;
+  private final String inputText;
+  private final String remainingText;
+  private final Tree<String> parseTree;
+  private final Tree<XmlLite.Data> interpTree;
 
   GenericParse(ParseInterpretation interp, GenericParseHelper genericParseHelper) {
     this.atnParse = interp.getSourceParse();
     this.interp = interp;
     this.genericParseHelper = genericParseHelper;
-    this.id2text = null;
-    this.xpath2text = null;
-
-    this._ruleId = null;
-    this._parsedText = null;
-    this._inputText = null;
-    this._remainingText = null;
+    this.id2text = new ConcurrentHashMap<String, String>();
+    this.xpath2text = new ConcurrentHashMap<String, String>();
+
+    final String ruleId = atnParse.getStartRule().getRuleId();
+    this.ruleId = (ruleId == null) ? "" : ruleId;
+    this.parsedText = atnParse.getParsedText();
+    this.inputText = atnParse.getFullText();
+    this.remainingText = atnParse.getRemainingText();
+    this.parseTree = atnParse.getParseTree();
+    this.interpTree = interp.getInterpTree();
   }
 
   public AtnParse getAtnParse() {
@@ -67,25 +75,15 @@ public class GenericParse {
   }
 
   public String getRuleId() {
-    if (_ruleId == null) {
-      _ruleId = atnParse.getStartRule().getRuleId();
-      if (_ruleId == null) _ruleId = "";
-    }
-    return _ruleId;
+    return ruleId;
   }
 
   public String getParsedText() {
-    if (_parsedText == null) {
-      _parsedText = atnParse.getParsedText();
-    }
-    return _parsedText;
+    return parsedText;
   }
 
   public String getRemainingText() {
-    if (_remainingText == null) {
-      _remainingText = atnParse.getRemainingText();
-    }
-    return _remainingText;
+    return remainingText;
   }
 
   public boolean hasRemainingText() {
@@ -105,7 +103,7 @@ public class GenericParse {
    * Get the full input text submitted for parsing.
    */
   public String getInputText() {
-    return atnParse.getFullText();
+    return inputText;
   }
 
   /**
@@ -118,7 +116,7 @@ public class GenericParse {
    */
   public List<Tree<String>> findParseNodes(String constituentIdentifier) {
     final NodePath<String> nodePath = genericParseHelper.getNodePath(constituentIdentifier);
-    final List<Tree<String>> nodes = nodePath.apply(atnParse.getParseTree());
+    final List<Tree<String>> nodes = nodePath.apply(parseTree);
     return nodes;
   }
 
@@ -138,15 +136,10 @@ public class GenericParse {
    * If no text is selected, the result will be the empty string.
    */
   public String getParsedText(String constituentIdentifier) {
-    String result = null;
-
-    if (id2text != null) {
-      result = id2text.get(constituentIdentifier);
-    }
+    String result = id2text.get(constituentIdentifier);
 
     if (result == null) {
       result = buildParsedText(constituentIdentifier);
-      if (id2text == null) id2text = new HashMap<String, String>();
       id2text.put(constituentIdentifier, result);
     }
 
@@ -175,7 +168,6 @@ public class GenericParse {
    * @return the found nodes or null if no such nodes exist.
    */
   public List<Tree<XmlLite.Data>> findInterpNodes(String xpath) {
-    final Tree<XmlLite.Data> interpTree = interp.getInterpTree();
     final List<Tree<XmlLite.Data>> nodes = genericParseHelper.getNodes(xpath, interpTree);
     return nodes;
   }
@@ -193,15 +185,10 @@ public class GenericParse {
    * If no text is selected, the result will be the empty string.
    */
   public String getInterpText(String xpath) {
-    String result = null;
-
-    if (xpath2text != null) {
-      result = xpath2text.get(xpath);
-    }
+    String result = xpath2text.get(xpath);
 
     if (result == null) {
       result = buildInterpText(xpath);
-      if (xpath2text == null) xpath2text = new HashMap<String, String>();
       xpath2text.put(xpath, result);
     }
 
@@ -227,7 +214,7 @@ public class GenericParse {
    * named node (or from any node if nodeName == null).
    */
   public String getInterpAttribute(String nodeName, String attName) {
-    return ParseInterpretationUtil.getInterpAttribute(interp.getInterpTree(), nodeName, attName);
+    return ParseInterpretationUtil.getInterpAttribute(interpTree, nodeName, attName);
   }
 
   /**
@@ -235,7 +222,7 @@ public class GenericParse {
    * named node(s) (or from any node if nodeName == null).
    */
   public List<String> getInterpAttributes(String nodeName, String attName) {
-    return ParseInterpretationUtil.getInterpAttributes(interp.getInterpTree(), nodeName, attName);
+    return ParseInterpretationUtil.getInterpAttributes(interpTree, nodeName, attName);
   }
 
   /**
@@ -265,20 +252,16 @@ public class GenericParse {
 
     result.append('"').append(getParsedText()).append("\" == ");
 
-    final Tree<String> parseTree = atnParse.getParseTree();
     if (parseTree != null) {
       result.append(parseTree.toString());
     }
     result.append(" [").append(getRuleId()).append(']');
 
-    if (interp != null) {
-      final Tree<XmlLite.Data> xmlTree = interp.getInterpTree();
-      if (xmlTree != null) {
-        final DomElement xml = xmlTree.getData().asDomNode().asDomElement();
-        if (xml != null) {
-          result.append('\n');
-          xml.asPrettyString(result, 2, 2);
-        }
+    if (interpTree != null) {
+      final DomElement xml = interpTree.getData().asDomNode().asDomElement();
+      if (xml != null) {
+        result.append('\n');
+        xml.asPrettyString(result, 2, 2);
       }
     }
 
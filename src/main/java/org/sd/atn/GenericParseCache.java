@@ -0,0 +1,231 @@
+/*
+    Copyright 2011 Semantic Discovery, Inc. (www.semanticdiscovery.com)
+
+    This file is part of the Semantic Discovery Toolkit.
+
+    The Semantic Discovery Toolkit is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    The Semantic Discovery Toolkit is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with The Semantic Discovery Toolkit.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package org.sd.atn;
+
+
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+import org.sd.util.LRU;
+import org.sd.xml.DataProperties;
+
+/**
+ * Bounded cache of generic parse results by input text, for inputs that
+ * recur often enough that reparsing them dominates.
+ * <p>
+ * Results are keyed by the exact input text, the active parse flow, the
+ * parse config's version, and a hash of the (non-xml) override properties.
+ * Entries are evicted least recently used first when the cache exceeds its
+ * size and are dropped when older than the time to live (if positive).
+ * <p>
+ * Cached results are shared among callers and must be treated as
+ * read-only.
+ *
+ * @author Spence Koehler
+ */
+public class GenericParseCache {
+
+  // rough per-entry and per-parse costs for estimating memory use
+  private static final long ENTRY_BYTES = 256L;
+  private static final long PARSE_BYTES = 1024L;
+
+
+  private final long ttlMillis;
+  private final MyLRU entries;
+  private long hits;
+  private long misses;
+  private long evictions;
+  private long expirations;
+  private long estimatedBytes;
+
+  /**
+   * Construct with the maximum number of entries to hold and the time to
+   * live (in millis) for entries, where a non-positive ttl never expires.
+   */
+  public GenericParseCache(int maxSize, long ttlMillis) {
+    this.ttlMillis = ttlMillis;
+    this.entries = new MyLRU(maxSize);
+  }
+
+  /**
+   * Build the key for caching the results of parsing the inputText with
+   * the given overrides through the parseRunner, or null if the overrides
+   * can't be keyed (having xml elements).
+   */
+  public static String buildKey(String inputText, AtnParseRunner parseRunner, DataProperties overrides) {
+    final StringBuilder result = new StringBuilder();
+
+    result.append(parseRunner.getParseConfig().getVersion()).append('|');
+    final String flowSpec = parseRunner.getActiveFlowSpec();
+    if (flowSpec != null) result.append(flowSpec);
+    result.append('|');
+
+    if (overrides != null) {
+      if (overrides.getDomElement() != null) return null;
+
+      final Properties properties = overrides.getProperties();
+      if (properties != null && properties.size() > 0) {
+        result.append(Long.toHexString(hash(properties)));
+      }
+    }
+    result.append('|');
+
+    // cached results carry the exact input that was parsed
+    result.append(inputText);
+
+    return result.toString();
+  }
+
+  /**
+   * Compute a 64-bit (FNV-1a) hash of the properties in key order.
+   */
+  private static final long hash(Properties properties) {
+    long result = 0xcbf29ce484222325L;
+
+    final Map<String, String> sorted = new TreeMap<String, String>();
+    for (String name : properties.stringPropertyNames()) {
+      sorted.put(name, properties.getProperty(name));
+    }
+    for (Map.Entry<String, String> entry : sorted.entrySet()) {
+      result = hash(result, entry.getKey());
+      result = hash(result, entry.getValue());
+    }
+
+    return result;
+  }
+
+  private static final long hash(long result, String string) {
+    for (int i = 0; i < string.length(); ++i) {
+      result ^= string.charAt(i);
+      result *= 0x100000001b3L;
+    }
+    result ^= 0xffff;  // separator
+    result *= 0x100000001b3L;
+    return result;
+  }
+
+  /**
+   * Get the cached results for the key, or null if absent or expired.
+   */
+  public synchronized GenericParseResults get(String key) {
+    GenericParseResults result = null;
+
+    final Entry entry = entries.get(key);
+    if (entry != null) {
+      if (ttlMillis > 0 && System.currentTimeMillis() - entry.created > ttlMillis) {
+        entries.remove(key);
+        estimatedBytes -= entry.bytes;
+        ++expirations;
+      }
+      else {
+        result = entry.results;
+      }
+    }
+
+    if (result == null) ++misses; else ++hits;
+
+    return result;
+  }
+
+  /**
+   * Cache the results under the key.
+   */
+  public synchronized void put(String key, GenericParseResults results) {
+    final Entry entry = new Entry(results, ENTRY_BYTES + 4L * key.length() + PARSE_BYTES * results.size());
+    final Entry prior = entries.put(key, entry);
+    if (prior != null) estimatedBytes -= prior.bytes;
+    estimatedBytes += entry.bytes;
+  }
+
+  /**
+   * Drop all cached results (e.g., after start rules change).
+   */
+  public synchronized void clear() {
+    entries.clear();
+    estimatedBytes = 0L;
+  }
+
+  public synchronized int size() {
+    return entries.size();
+  }
+
+  public int getMaxSize() {
+    return entries.getCacheSize();
+  }
+
+  public long getTtlMillis() {
+    return ttlMillis;
+  }
+
+  public synchronized long getHits() {
+    return hits;
+  }
+
+  public synchronized long getMisses() {
+    return misses;
+  }
+
+  public synchronized long getEvictions() {
+    return evictions;
+  }
+
+  public synchronized long getExpirations() {
+    return expirations;
+  }
+
+  /**
+   * Get a rough estimate of the memory held by cached results.
+   */
+  public synchronized long getEstimatedBytes() {
+    return estimatedBytes;
+  }
+
+  public synchronized String toString() {
+    return "GenericParseCache[size=" + entries.size() + "/" + entries.getCacheSize() +
+      ", hits=" + hits + ", misses=" + misses + ", evictions=" + evictions +
+      ", expirations=" + expirations + ", estimatedBytes=" + estimatedBytes + "]";
+  }
+
+
+  private static final class Entry {
+    final GenericParseResults results;
+    final long created;
+    final long bytes;
+
+    Entry(GenericParseResults results, long bytes) {
+      this.results = results;
+      this.created = System.currentTimeMillis();
+      this.bytes = bytes;
+    }
+  }
+
+  private final class MyLRU extends LRU<String, Entry> {
+
+    private static final long serialVersionUID = 42L;
+
+    MyLRU(int cacheSize) {
+      super(cacheSize);
+    }
+
+    protected void prepareForRemoval(Entry entry) {
+      estimatedBytes -= entry.bytes;
+      ++evictions;
+    }
+  }
+}
@@ -19,9 +19,9 @@
 package org.sd.atn;
 
 
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import org.sd.util.tree.NodePath;
 import org.sd.util.tree.Tree;
 import org.sd.xml.XPathApplicator;
@@ -34,11 +34,11 @@ import org.sd.xml.XmlLite;
  */
 public class GenericParseHelper {
   
-  private Map<String, NodePath<String>> nodePaths;  //performance cache
+  private Map<String, NodePath<String>> nodePaths;  //performance cache (shared by generic parses)
   private XPathApplicator xpathApplicator;          //performance cache
 
   public GenericParseHelper() {
-    this.nodePaths = new HashMap<String, NodePath<String>>();
+    this.nodePaths = new ConcurrentHashMap<String, NodePath<String>>();
     this.xpathApplicator = new XPathApplicator();
   }
 
@@ -60,7 +60,6 @@ public class GenericParseHelper {
    * Package protected for access from GenericParse.
    */
   final NodePath<String> getNodePath(String id) {
-    if (nodePaths == null) nodePaths = new HashMap<String, NodePath<String>>();
     NodePath<String> result = nodePaths.get(id);
     if (result == null) {
       result = new NodePath<String>("**." + id);
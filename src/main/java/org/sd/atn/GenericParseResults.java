@@ -19,6 +19,7 @@
 package org.sd.atn;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
@@ -79,6 +80,14 @@ public class GenericParseResults {
         }
       }
     }
+
+    // results may be shared (e.g., through a GenericParseCache)
+    if (parses != null) {
+      for (Map.Entry<String, List<GenericParse>> entry : parses.entrySet()) {
+        entry.setValue(Collections.unmodifiableList(entry.getValue()));
+      }
+      this.parses = Collections.unmodifiableMap(parses);
+    }
   }
 
   private final void initSequence() {
@@ -36,6 +36,7 @@ public class GenericParser {
   private AtnParseRunner parseRunner;
   private GenericParseHelper genericParseHelper;
   private String startRules;
+  private GenericParseCache resultCache;
 
   //
   // Properties
@@ -44,6 +45,10 @@ public class GenericParser {
   //   resourcesDir -- (required) path to resources (e.g. "${HOME}/co/ancestry/resources")
   //   startRules -- (optional) comma delimited names of start rule(s) of form
   //                            compoundParserId:parserId:startRulName
+  //   resultCacheSize -- (optional, default=0) maximum number of (input text) parse
+  //                      results to cache, or 0 to parse every input
+  //   resultCacheTTL -- (optional, default=0) millis to keep cached results, or 0
+  //                     to keep them until evicted
   //
   //  Debugging options
   //   verbose -- (optional, default=false) true to turn on verbosity
@@ -56,6 +61,9 @@ public class GenericParser {
     this.genericParseHelper = new GenericParseHelper();
     this.startRules = options.getString("startRules", null);
 
+    final int resultCacheSize = options.getInt("resultCacheSize", 0);
+    this.resultCache = (resultCacheSize > 0) ? new GenericParseCache(resultCacheSize, (long)options.getInt("resultCacheTTL", 0)) : null;
+
     if (startRules != null && !"".equals(startRules)) {
       setStartRules(startRules);
     }
@@ -84,6 +92,27 @@ public class GenericParser {
     return startRules;
   }
 
+  /**
+   * Get the cache of parse results by input text, or null if not caching.
+   */
+  public GenericParseCache getResultCache() {
+    return resultCache;
+  }
+
+  /**
+   * Set (or clear with null) the cache of parse results by input text.
+   */
+  public void setResultCache(GenericParseCache resultCache) {
+    this.resultCache = resultCache;
+  }
+
+  /**
+   * Drop cached parse results, e.g. after changing the parse config.
+   */
+  public void invalidateResultCache() {
+    if (resultCache != null) resultCache.clear();
+  }
+
   /**
    * Set the start rules.
    *
@@ -98,6 +127,7 @@ public class GenericParser {
         localOptions.set(InputOptions.buildStartRulesProperty(pieces[0], pieces[1]), pieces[2]);
 
         this.startRules = startRules;
+        invalidateResultCache();
         result = true;
       }
       //else: bad arg -- result=false
@@ -111,11 +141,19 @@ public class GenericParser {
    */
   public final void unsetStartRules() {
     this.localOptions = new DataProperties(originalOptions);
+    invalidateResultCache();
   }
 
   public GenericParseResults parse(String inputText, DataProperties options, AtomicBoolean die) {
     ParseOutputCollector parseOutput = null;
 
+    final String cacheKey = (resultCache == null || inputText == null || "".equals(inputText)) ? null :
+      GenericParseCache.buildKey(inputText, parseRunner, options);
+    if (cacheKey != null) {
+      final GenericParseResults cachedResults = resultCache.get(cacheKey);
+      if (cachedResults != null) return cachedResults;
+    }
+
     if (inputText != null && !"".equals(inputText)) {
       try {
         parseOutput = parseRunner.parseInputString(inputText, options, die);
@@ -125,7 +163,14 @@ public class GenericParser {
       }
     }
 
-    return genericParseHelper.buildGenericParseResults(parseRunner, parseOutput);
+    final GenericParseResults result = genericParseHelper.buildGenericParseResults(parseRunner, parseOutput);
+
+    // don't cache results of interrupted parses
+    if (cacheKey != null && (die == null || !die.get())) {
+      resultCache.put(cacheKey, result);
+    }
+
+    return result;
   }
 
   public GenericParseResultsAsync parseAsync(ExecutorService threadPool, String inputText, DataProperties options) {
@@ -0,0 +1,928 @@
+/*
+    Copyright 2011 Semantic Discovery, Inc. (www.semanticdiscovery.com)
+
+    This file is part of the Semantic Discovery Toolkit.
+
+    The Semantic Discovery Toolkit is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    The Semantic Discovery Toolkit is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with The Semantic Discovery Toolkit.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package org.sd.atn;
+
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Matcher that scans text once for all of a list of regexes.
+ * <p>
+ * Regexes in the regular subset of java.util.regex syntax (literals,
+ * character classes, '.', the \d, \w, and \s classes, groups, alternation,
+ * greedy or reluctant quantifiers, and a leading '^' or trailing '$' where
+ * these don't change what matches) are compiled together into a single
+ * NFA, which is scanned through a lazily built DFA. Regexes using other
+ * constructs (other anchors, backreferences, lookaround, possessive
+ * quantifiers, inline flags, etc.) are not compiled and must still be
+ * matched through their own Patterns.
+ * <p>
+ * A scan reports, for each compiled regex, whether it matched according to
+ * its match type and whether it matched the full text. Capturing groups
+ * are not tracked, so a Pattern must extract them when needed.
+ * <p>
+ * Instances are thread-safe. Each thread scans with its own DFA states and
+ * result buffers.
+ *
+ * @author Spence Koehler
+ */
+public class MultiRegex {
+
+  private static final int MAX_REGEX_STATES = 5000;  // larger regexes (e.g., big counted repeats) aren't compiled
+  private static final int MAX_DFA_STATES = 10000;   // per thread, after which the DFA is rebuilt
+
+  // NFA state kinds
+  private static final byte CHAR = 0;     // consume a char in classes[s], then go to next[s]
+  private static final byte SPLIT = 1;    // go to next[s] and next2[s]
+  private static final byte EPSILON = 2;  // go to next[s]
+  private static final byte ACCEPT = 3;   // regex next[s] matched
+
+
+  private RegexData.MatchType[] matchTypes;
+  private boolean[] compiled;
+  private int numCompiled;
+
+  private byte[] kinds;
+  private CharClass[] classes;
+  private int[] next;
+  private int[] next2;
+  private int numStates;
+
+  private int[] starts;      // start states of all compiled regexes
+  private int[] findStarts;  // start states of compiled FIND regexes
+
+  private final ThreadLocal<Scan> scans;
+
+  /**
+   * Compile the regexes that are in the regular subset.
+   */
+  public MultiRegex(List<RegexData> regexes) {
+    final int numRegexes = regexes.size();
+    this.matchTypes = new RegexData.MatchType[numRegexes];
+    this.compiled = new boolean[numRegexes];
+    this.numCompiled = 0;
+
+    this.kinds = new byte[64];
+    this.classes = new CharClass[64];
+    this.next = new int[64];
+    this.next2 = new int[64];
+    this.numStates = 0;
+
+    final List<Integer> startList = new ArrayList<Integer>();
+    final List<Integer> findStartList = new ArrayList<Integer>();
+
+    for (int i = 0; i < numRegexes; ++i) {
+      final RegexData regex = regexes.get(i);
+      matchTypes[i] = regex.getMatchType();
+
+      final int mark = numStates;
+      try {
+        final Parser parser = new Parser(regex.getPattern().pattern(), regex.isCaseInsensitive());
+        final Node node = parser.parse();
+
+        // a leading '^' makes find equivalent to lookingAt; a trailing '$'
+        // is only a no-op when matching the full text
+        if (parser.anchoredEnd && matchTypes[i] != RegexData.MatchType.MATCHES) throw new Unsupported();
+        if (parser.anchoredStart && matchTypes[i] == RegexData.MatchType.FIND) matchTypes[i] = RegexData.MatchType.LOOKING_AT;
+
+        final int[] frag = build(node, mark);
+        final int accept = addState(ACCEPT, null, i, -1);
+        next[frag[1]] = accept;
+
+        compiled[i] = true;
+        ++numCompiled;
+        startList.add(frag[0]);
+        if (matchTypes[i] == RegexData.MatchType.FIND) findStartList.add(frag[0]);
+      }
+      catch (Unsupported e) {
+        // leave to the regex's pattern
+        numStates = mark;
+      }
+    }
+
+    this.starts = toArray(startList);
+    this.findStarts = toArray(findStartList);
+
+    this.scans = new ThreadLocal<Scan>() {
+        protected Scan initialValue() {
+          return new Scan();
+        }
+      };
+  }
+
+  /**
+   * Get the number of regexes (compiled or not).
+   */
+  public int size() {
+    return compiled.length;
+  }
+
+  /**
+   * Get the number of regexes compiled for scanning.
+   */
+  public int getNumCompiled() {
+    return numCompiled;
+  }
+
+  /**
+   * Determine whether the regex at the index is compiled for scanning.
+   */
+  public boolean isCompiled(int regexIndex) {
+    return compiled[regexIndex];
+  }
+
+  /**
+   * Scan the (non-empty) text for all compiled regexes.
+   * <p>
+   * The result is this thread's scan, which is overwritten by the thread's
+   * next scan.
+   *
+   * @return the scan, or null if nothing is compiled or the text is empty
+   *         or has surrogate chars (whose code points the DFA doesn't
+   *         match as units).
+   */
+  public Scan scan(String text) {
+    if (numCompiled == 0 || text == null || text.length() == 0) return null;
+
+    final int len = text.length();
+    for (int i = 0; i < len; ++i) {
+      if (Character.isSurrogate(text.charAt(i))) return null;
+    }
+
+    final Scan result = scans.get();
+    result.scan(text);
+    return result;
+  }
+
+
+  private final int[] build(Node node, int mark) {
+    if (numStates - mark > MAX_REGEX_STATES) throw new Unsupported();
+
+    int[] result = null;
+
+    switch (node.kind) {
+      case Node.CLASS : {
+        final int end = addState(EPSILON, null, -1, -1);
+        result = new int[] { addState(CHAR, node.charClass, end, -1), end };
+        break;
+      }
+      case Node.CONCAT : {
+        if (node.children.size() == 0) {
+          final int state = addState(EPSILON, null, -1, -1);
+          result = new int[] { state, state };
+        }
+        else {
+          for (Node child : node.children) {
+            final int[] frag = build(child, mark);
+            if (result == null) result = frag;
+            else {
+              next[result[1]] = frag[0];
+              result[1] = frag[1];
+            }
+          }
+        }
+        break;
+      }
+      case Node.ALT : {
+        final int end = addState(EPSILON, null, -1, -1);
+        int start = -1;
+        for (int i = node.children.size() - 1; i >= 0; --i) {
+          final int[] frag = build(node.children.get(i), mark);
+          next[frag[1]] = end;
+          start = (start < 0) ? frag[0] : addState(SPLIT, null, frag[0], start);
+        }
+        result = new int[] { start, end };
+        break;
+      }
+      case Node.REPEAT : {
+        result = buildRepeat(node, mark);
+        break;
+      }
+    }
+
+    return result;
+  }
+
+  private final int[] buildRepeat(Node node, int mark) {
+    final Node child = node.children.get(0);
+    int[] result = null;
+
+    // required copies (with the last looping if unbounded)
+    for (int i = 0; i < node.min; ++i) {
+      final int[] frag = build(child, mark);
+      if (i == node.min - 1 && node.max < 0) {
+        final int end = addState(EPSILON, null, -1, -1);
+        next[frag[1]] = addState(SPLIT, null, frag[0], end);
+        frag[1] = end;
+      }
+      result = append(result, frag);
+    }
+
+    if (node.max < 0) {
+      if (node.min == 0) {
+        // star
+        final int[] frag = build(child, mark);
+        final int end = addState(EPSILON, null, -1, -1);
+        final int split = addState(SPLIT, null, frag[0], end);
+        next[frag[1]] = split;
+        result = append(result, new int[] { split, end });
+      }
+    }
+    else {
+      // optional copies
+      for (int i = node.min; i < node.max; ++i) {
+        final int[] frag = build(child, mark);
+        final int end = addState(EPSILON, null, -1, -1);
+        next[frag[1]] = end;
+        result = append(result, new int[] { addState(SPLIT, null, frag[0], end), end });
+      }
+    }
+
+    if (result == null) {
+      final int state = addState(EPSILON, null, -1, -1);
+      result = new int[] { state, state };
+    }
+
+    return result;
+  }
+
+  private final int[] append(int[] frag1, int[] frag2) {
+    if (frag1 == null) return frag2;
+    next[frag1[1]] = frag2[0];
+    return new int[] { frag1[0], frag2[1] };
+  }
+
+  private final int addState(byte kind, CharClass charClass, int nextState, int nextState2) {
+    if (numStates == kinds.length) {
+      final int capacity = kinds.length * 2;
+      kinds = Arrays.copyOf(kinds, capacity);
+      classes = Arrays.copyOf(classes, capacity);
+      next = Arrays.copyOf(next, capacity);
+      next2 = Arrays.copyOf(next2, capacity);
+    }
+    kinds[numStates] = kind;
+    classes[numStates] = charClass;
+    next[numStates] = nextState;
+    next2[numStates] = nextState2;
+    return numStates++;
+  }
+
+  private static final int[] toArray(List<Integer> values) {
+    final int[] result = new int[values.size()];
+    for (int i = 0; i < result.length; ++i) {
+      result[i] = values.get(i);
+    }
+    return result;
+  }
+
+
+  /**
+   * A thread's DFA states and the results of its latest scan.
+   */
+  public final class Scan {
+
+    private final boolean[] accepted;  // accepted at any position
+    private final boolean[] atEnd;     // accepted at the end of the text
+
+    private Map<StateKey, DState> dstates;
+    private DState startState;
+    private int[] marks;
+    private int markStamp;
+    private int[] stack;
+    private int[] found;
+    private int numFound;
+
+    Scan() {
+      this.accepted = new boolean[compiled.length];
+      this.atEnd = new boolean[compiled.length];
+      this.dstates = new HashMap<StateKey, DState>();
+      this.startState = null;
+      this.marks = new int[numStates];
+      this.markStamp = 0;
+      this.stack = new int[numStates * 2 + 1];
+      this.found = new int[numStates];
+      this.numFound = 0;
+    }
+
+    /**
+     * Determine whether the regex at the index was scanned.
+     */
+    public boolean isScanned(int regexIndex) {
+      return compiled[regexIndex];
+    }
+
+    /**
+     * Determine whether the scanned regex matched according to its match
+     * type (disregarding its reverse flag).
+     */
+    public boolean matched(int regexIndex) {
+      return (matchTypes[regexIndex] == RegexData.MatchType.MATCHES) ? atEnd[regexIndex] : accepted[regexIndex];
+    }
+
+    /**
+     * Determine whether the scanned regex matched the full text.
+     *
+     * @return 1 if it did, 0 if it didn't, or -1 if unknown (when a FIND
+     *         regex matched somewhere in the text).
+     */
+    public int matchedFully(int regexIndex) {
+      if (matchTypes[regexIndex] != RegexData.MatchType.FIND) {
+        return atEnd[regexIndex] ? 1 : 0;
+      }
+      return accepted[regexIndex] ? -1 : 0;
+    }
+
+    void scan(String text) {
+      Arrays.fill(accepted, false);
+      Arrays.fill(atEnd, false);
+
+      if (startState == null) startState = getState(starts, null, (char)0);
+
+      DState state = startState;
+      accept(state.accepts);
+
+      final int len = text.length();
+      int pos = 0;
+      for (; pos < len && !state.dead; ++pos) {
+        state = state.next(text.charAt(pos));
+        accept(state.accepts);
+      }
+
+      if (pos == len && state.accepts != null) {
+        for (int regexIndex : state.accepts) {
+          atEnd[regexIndex] = true;
+        }
+      }
+    }
+
+    private final void accept(int[] accepts) {
+      if (accepts != null) {
+        for (int regexIndex : accepts) {
+          accepted[regexIndex] = true;
+        }
+      }
+    }
+
+    /**
+     * Get the DFA state for the closure of the NFA states (with the given
+     * char class states advanced over c).
+     */
+    private final DState getState(int[] states, int[] charStates, char c) {
+      ++markStamp;
+      numFound = 0;
+
+      if (charStates != null) {
+        for (int state : charStates) {
+          if (classes[state].matches(c)) addClosure(next[state]);
+        }
+      }
+      if (states != null) {
+        for (int state : states) {
+          addClosure(state);
+        }
+      }
+
+      final int[] key = Arrays.copyOf(found, numFound);
+      Arrays.sort(key);
+
+      final StateKey stateKey = new StateKey(key);
+      DState result = dstates.get(stateKey);
+      if (result == null) {
+        if (dstates.size() >= MAX_DFA_STATES) {
+          // start over (existing states remain valid for scans in progress)
+          dstates = new HashMap<StateKey, DState>();
+          startState = null;
+        }
+        result = new DState(key);
+        dstates.put(stateKey, result);
+      }
+
+      return result;
+    }
+
+    private final void addClosure(int state) {
+      int top = 0;
+      stack[top++] = state;
+
+      while (top > 0) {
+        final int s = stack[--top];
+        if (s < 0 || marks[s] == markStamp) continue;
+        marks[s] = markStamp;
+
+        switch (kinds[s]) {
+          case CHAR :
+          case ACCEPT :
+            found[numFound++] = s;
+            break;
+          case SPLIT :
+            stack[top++] = next2[s];
+            stack[top++] = next[s];
+            break;
+          default :
+            stack[top++] = next[s];
+        }
+      }
+    }
+
+
+    /**
+     * A DFA state: a set of NFA char and accept states.
+     */
+    private final class DState {
+
+      final int[] charStates;
+      final int[] accepts;  // indexes of accepted regexes, or null
+      final boolean dead;   // no regex can match from here
+      private final DState[] asciiNext;
+      private char[] otherChars;
+      private DState[] otherNext;
+      private int numOther;
+
+      DState(int[] states) {
+        int numChar = 0;
+        for (int state : states) {
+          if (kinds[state] == CHAR) ++numChar;
+        }
+
+        this.charStates = new int[numChar];
+        final int[] acceptList = new int[states.length - numChar];
+        int c = 0;
+        int a = 0;
+        for (int state : states) {
+          if (kinds[state] == CHAR) charStates[c++] = state;
+          else acceptList[a++] = next[state];
+        }
+
+        this.accepts = (a == 0) ? null : acceptList;
+        this.dead = (numChar == 0 && findStarts.length == 0);
+        this.asciiNext = new DState[128];
+        this.otherChars = null;
+        this.otherNext = null;
+        this.numOther = 0;
+      }
+
+      DState next(char c) {
+        if (c < 128) {
+          DState result = asciiNext[c];
+          if (result == null) {
+            result = getState(findStarts, charStates, c);
+            asciiNext[c] = result;
+          }
+          return result;
+        }
+
+        for (int i = 0; i < numOther; ++i) {
+          if (otherChars[i] == c) return otherNext[i];
+        }
+
+        final DState result = getState(findStarts, charStates, c);
+        if (otherChars == null) {
+          otherChars = new char[4];
+          otherNext = new DState[4];
+        }
+        else if (numOther == otherChars.length) {
+          otherChars = Arrays.copyOf(otherChars, numOther * 2);
+          otherNext = Arrays.copyOf(otherNext, numOther * 2);
+        }
+        otherChars[numOther] = c;
+        otherNext[numOther] = result;
+        ++numOther;
+
+        return result;
+      }
+    }
+  }
+
+  private static final class StateKey {
+
+    private final int[] states;
+    private final int hash;
+
+    StateKey(int[] states) {
+      this.states = states;
+      this.hash = Arrays.hashCode(states);
+    }
+
+    public boolean equals(Object o) {
+      return (o instanceof StateKey) && Arrays.equals(states, ((StateKey)o).states);
+    }
+
+    public int hashCode() {
+      return hash;
+    }
+  }
+
+
+  /**
+   * The chars matched by a character class, literal, or '.'.
+   */
+  private static final class CharClass {
+
+    private final long[] ascii;  // final (case-folded, negated) membership of ASCII chars
+    private final int[] ranges;  // inclusive (lo, hi) pairs of raw members
+    private final boolean notDigit;
+    private final boolean notWord;
+    private final boolean notSpace;
+    private final boolean negated;
+
+    CharClass(List<Integer> rangeList, boolean notDigit, boolean notWord, boolean notSpace, boolean negated, boolean caseInsensitive) {
+      this.ranges = toArray(rangeList);
+      this.notDigit = notDigit;
+      this.notWord = notWord;
+      this.notSpace = notSpace;
+      this.negated = negated;
+      this.ascii = new long[2];
+
+      for (char c = 0; c < 128; ++c) {
+        boolean member = isRawMember(c);
+        if (!member && caseInsensitive) {
+          if (c >= 'a' && c <= 'z') member = isRawMember((char)(c - 'a' + 'A'));
+          else if (c >= 'A' && c <= 'Z') member = isRawMember((char)(c - 'A' + 'a'));
+        }
+        if (member != negated) ascii[c >> 6] |= (1L << c);
+      }
+    }
+
+    boolean matches(char c) {
+      if (c < 128) return (ascii[c >> 6] & (1L << c)) != 0;
+      return isRawMember(c) != negated;
+    }
+
+    private final boolean isRawMember(char c) {
+      for (int i = 0; i < ranges.length; i += 2) {
+        if (c >= ranges[i] && c <= ranges[i + 1]) return true;
+      }
+      return
+        (notDigit && !isDigit(c)) ||
+        (notWord && !isWord(c)) ||
+        (notSpace && !isSpace(c));
+    }
+
+    static final boolean isDigit(char c) {
+      return c >= '0' && c <= '9';
+    }
+
+    static final boolean isWord(char c) {
+      return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || c == '_';
+    }
+
+    static final boolean isSpace(char c) {
+      return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+    }
+  }
+
+  /**
+   * A parsed regex node.
+   */
+  private static final class Node {
+
+    static final int CLASS = 0;
+    static final int CONCAT = 1;
+    static final int ALT = 2;
+    static final int REPEAT = 3;
+
+    final int kind;
+    final CharClass charClass;
+    final List<Node> children;
+    final int min;
+    final int max;  // -1 for unbounded
+
+    Node(CharClass charClass) {
+      this(CLASS, charClass, null, 0, 0);
+    }
+
+    Node(int kind, List<Node> children) {
+      this(kind, null, children, 0, 0);
+    }
+
+    Node(Node child, int min, int max) {
+      this(REPEAT, null, new ArrayList<Node>(), min, max);
+      children.add(child);
+    }
+
+    private Node(int kind, CharClass charClass, List<Node> children, int min, int max) {
+      this.kind = kind;
+      this.charClass = charClass;
+      this.children = children;
+      this.min = min;
+      this.max = max;
+    }
+  }
+
+  /**
+   * Thrown while parsing or building a regex that isn't in the regular
+   * subset.
+   */
+  private static final class Unsupported extends RuntimeException {
+    Unsupported() {
+      super(null, null, false, false);
+    }
+  }
+
+  /**
+   * Parser for the regular subset of java.util.regex syntax.
+   * <p>
+   * Regexes are assumed to be valid (already compiled as Patterns), so
+   * anything unexpected is treated as unsupported.
+   */
+  private static final class Parser {
+
+    private final String regex;
+    private final boolean caseInsensitive;
+    private int pos;
+
+    boolean anchoredStart;  // regex starts with '^'
+    boolean anchoredEnd;    // regex ends with '$'
+
+    Parser(String regex, boolean caseInsensitive) {
+      this.regex = regex;
+      this.caseInsensitive = caseInsensitive;
+      this.pos = 0;
+    }
+
+    Node parse() {
+      final Node result = parseAlt();
+      if (pos != regex.length()) throw new Unsupported();
+
+      // anchors only apply to their alternative
+      if ((anchoredStart || anchoredEnd) && result.kind == Node.ALT) throw new Unsupported();
+
+      return result;
+    }
+
+    private final Node parseAlt() {
+      final List<Node> alts = new ArrayList<Node>();
+      alts.add(parseConcat());
+      while (pos < regex.length() && regex.charAt(pos) == '|') {
+        ++pos;
+        alts.add(parseConcat());
+      }
+      return (alts.size() == 1) ? alts.get(0) : new Node(Node.ALT, alts);
+    }
+
+    private final Node parseConcat() {
+      final List<Node> items = new ArrayList<Node>();
+      while (pos < regex.length()) {
+        final char c = regex.charAt(pos);
+        if (c == '|' || c == ')') break;
+        items.add(parseRepeat());
+      }
+      return (items.size() == 1) ? items.get(0) : new Node(Node.CONCAT, items);
+    }
+
+    private final Node parseRepeat() {
+      Node result = parseAtom();
+
+      if (pos < regex.length()) {
+        final char c = regex.charAt(pos);
+        int min = -1;
+        int max = -1;
+
+        if (c == '*') { min = 0; ++pos; }
+        else if (c == '+') { min = 1; ++pos; }
+        else if (c == '?') { min = 0; max = 1; ++pos; }
+        else if (c == '{') {
+          ++pos;
+          min = parseInt();
+          max = min;
+          if (pos < regex.length() && regex.charAt(pos) == ',') {
+            ++pos;
+            max = (pos < regex.length() && regex.charAt(pos) == '}') ? -1 : parseInt();
+          }
+          expect('}');
+          if (max >= 0 && max < min) throw new Unsupported();
+        }
+
+        if (min >= 0) {
+          if (pos < regex.length()) {
+            final char modifier = regex.charAt(pos);
+            if (modifier == '?') ++pos;                  // reluctant matches the same texts
+            else if (modifier == '+') throw new Unsupported();  // possessive
+          }
+          if (pos < regex.length() && isQuantifier(regex.charAt(pos))) throw new Unsupported();
+          result = new Node(result, min, max);
+        }
+      }
+
+      return result;
+    }
+
+    private final Node parseAtom() {
+      final char c = regex.charAt(pos++);
+      Node result = null;
+
+      switch (c) {
+        case '(' :
+          if (pos < regex.length() && regex.charAt(pos) == '?') {
+            // only non-capturing and named groups
+            ++pos;
+            if (pos < regex.length() && regex.charAt(pos) == ':') ++pos;
+            else if (pos + 1 < regex.length() && regex.charAt(pos) == '<' && Character.isLetter(regex.charAt(pos + 1))) {
+              final int end = regex.indexOf('>', pos);
+              if (end < 0) throw new Unsupported();
+              pos = end + 1;
+            }
+            else throw new Unsupported();
+          }
+          result = parseAlt();
+          expect(')');
+          break;
+        case '[' :
+          result = new Node(parseClass());
+          break;
+        case '.' :
+          result = new Node(newClass(new int[] { '\n', '\n', '\r', '\r', 0x85, 0x85, 0x2028, 0x2029 }, true));  // not line terminators
+          break;
+        case '\\' :
+          result = new Node(parseEscape());
+          break;
+        case '^' :
+          if (pos != 1) throw new Unsupported();
+          anchoredStart = true;
+          result = new Node(Node.CONCAT, new ArrayList<Node>());
+          break;
+        case '$' :
+          if (pos != regex.length()) throw new Unsupported();
+          anchoredEnd = true;
+          result = new Node(Node.CONCAT, new ArrayList<Node>());
+          break;
+        case '{' : case '*' : case '+' : case '?' : case ')' : case '|' :
+          throw new Unsupported();
+        default :
+          result = new Node(newClass(new int[] { checkChar(c), c }, false));
+      }
+
+      return result;
+    }
+
+    /**
+     * Parse a character class after its '['.
+     */
+    private final CharClass parseClass() {
+      final List<Integer> ranges = new ArrayList<Integer>();
+      final boolean[] nots = new boolean[3];  // \D, \W, \S
+      boolean negated = false;
+
+      if (pos < regex.length() && regex.charAt(pos) == '^') {
+        negated = true;
+        ++pos;
+      }
+      if (pos < regex.length() && regex.charAt(pos) == ']') throw new Unsupported();
+
+      while (true) {
+        if (pos >= regex.length()) throw new Unsupported();
+        char c = regex.charAt(pos++);
+        if (c == ']') break;
+        if (c == '[' || (c == '&' && pos < regex.length() && regex.charAt(pos) == '&')) throw new Unsupported();
+
+        int lo = -1;
+        if (c == '\\') {
+          final int predefined = getPredefined();
+          if (predefined >= 0) {
+            ++pos;
+            if (predefined >= 3) nots[predefined - 3] = true;
+            else for (int range : PREDEFINED_RANGES[predefined]) ranges.add(range);
+            continue;
+          }
+          lo = parseEscapedChar();
+        }
+        else {
+          lo = checkChar(c);
+        }
+
+        int hi = lo;
+        if (pos + 1 < regex.length() && regex.charAt(pos) == '-' && regex.charAt(pos + 1) != ']') {
+          ++pos;
+          c = regex.charAt(pos++);
+          if (c == '[') throw new Unsupported();
+          if (c == '\\') {
+            if (getPredefined() >= 0) throw new Unsupported();
+            hi = parseEscapedChar();
+          }
+          else {
+            hi = checkChar(c);
+          }
+          if (hi < lo) throw new Unsupported();
+        }
+
+        ranges.add(lo);
+        ranges.add(hi);
+      }
+
+      return new CharClass(ranges, nots[0], nots[1], nots[2], negated, caseInsensitive);
+    }
+
+    /**
+     * Parse an escape after its '\\'.
+     */
+    private final CharClass parseEscape() {
+      final int predefined = getPredefined();
+      if (predefined >= 0) {
+        ++pos;
+        return newClass(PREDEFINED_RANGES[predefined % 3], predefined >= 3);
+      }
+
+      final int c = parseEscapedChar();
+      return newClass(new int[] { c, c }, false);
+    }
+
+    /**
+     * Get the index (into "dwsDWS") of the predefined class escaped at pos,
+     * or -1.
+     */
+    private final int getPredefined() {
+      return (pos < regex.length()) ? "dwsDWS".indexOf(regex.charAt(pos)) : -1;
+    }
+
+    /**
+     * Parse an escaped char after its '\\'.
+     */
+    private final int parseEscapedChar() {
+      if (pos >= regex.length()) throw new Unsupported();
+      final char c = regex.charAt(pos++);
+
+      int result = -1;
+
+      switch (c) {
+        case 't' : result = '\t'; break;
+        case 'n' : result = '\n'; break;
+        case 'r' : result = '\r'; break;
+        case 'f' : result = '\f'; break;
+        case 'a' : result = 0x07; break;
+        case 'e' : result = 0x1B; break;
+        case 'x' : result = parseHex(2); break;
+        case 'u' : result = parseHex(4); break;
+        default :
+          // other letters and digits are classes, anchors, backreferences, etc.
+          if (Character.isLetterOrDigit(c)) throw new Unsupported();
+          result = c;
+      }
+
+      return checkChar((char)result);
+    }
+
+    private final int parseHex(int numDigits) {
+      if (pos + numDigits > regex.length()) throw new Unsupported();
+      int result = 0;
+      for (int i = 0; i < numDigits; ++i) {
+        final int digit = Character.digit(regex.charAt(pos++), 16);
+        if (digit < 0) throw new Unsupported();
+        result = result * 16 + digit;
+      }
+      return result;
+    }
+
+    private final int parseInt() {
+      final int start = pos;
+      while (pos < regex.length() && Character.isDigit(regex.charAt(pos))) ++pos;
+      if (pos == start || pos - start > 6) throw new Unsupported();
+      return Integer.parseInt(regex.substring(start, pos));
+    }
+
+    private final void expect(char c) {
+      if (pos >= regex.length() || regex.charAt(pos) != c) throw new Unsupported();
+      ++pos;
+    }
+
+    private final CharClass newClass(int[] ranges, boolean negated) {
+      final List<Integer> rangeList = new ArrayList<Integer>();
+      for (int range : ranges) rangeList.add(range);
+      return new CharClass(rangeList, false, false, false, negated, caseInsensitive);
+    }
+
+    private static final int checkChar(char c) {
+      if (Character.isSurrogate(c)) throw new Unsupported();
+      return c;
+    }
+
+    private static final boolean isQuantifier(char c) {
+      return c == '*' || c == '+' || c == '?' || c == '{';
+    }
+
+    private static final int[][] PREDEFINED_RANGES = new int[][] {
+      { '0', '9' },
+      { 'a', 'z', 'A', 'Z', '0', '9', '_', '_' },
+      { ' ', ' ', '\t', '\r' },  // tab through carriage return (\t \n \x0B \f \r)
+    };
+  }
+}
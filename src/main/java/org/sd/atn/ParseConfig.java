@@ -173,10 +173,12 @@ public class ParseConfig {
     return id2CompoundParser.values();
   }
   public void setCompoundParsers(List<CompoundParser> parsers) {
+    ++version;
     compoundParserIds = null;
     id2CompoundParser.clear();
     for (CompoundParser parser : parsers) {
       id2CompoundParser.put(parser.getId(), parser);
+      if (profile != null) applyProfile(parser);
     }
   }
 
@@ -197,6 +199,16 @@ public class ParseConfig {
     return resourceManager;
   }
 
+  private volatile int version;
+  /**
+   * Get a number that changes whenever this configuration's parsers are
+   * replaced or supplemented, for invalidating results cached under an
+   * earlier version.
+   */
+  public int getVersion() {
+    return version;
+  }
+
 
   public ParseConfig(String filename) throws IOException {
     if (GlobalConfig.verboseLoad()) {
@@ -266,8 +278,37 @@ public class ParseConfig {
     return traceflow;
   }
 
+  private AtnParseProfile profile;
+  /**
+   * Get the profile collecting counts for all parses through this config's
+   * parsers, or null.
+   */
+  public AtnParseProfile getProfile() {
+    return profile;
+  }
+  /**
+   * Set (or clear with null) the profile collecting counts for all parses
+   * through this config's parsers.
+   */
+  public void setProfile(AtnParseProfile profile) {
+    this.profile = profile;
+    for (CompoundParser compoundParser : id2CompoundParser.values()) {
+      applyProfile(compoundParser);
+    }
+  }
+
+  private final void applyProfile(CompoundParser compoundParser) {
+    for (AtnParserWrapper parserWrapper : compoundParser.getParserWrappers().values()) {
+      final AtnParseOptions parseOptions = parserWrapper.getParseOptions();
+      if (parseOptions != null) parseOptions.setProfile(profile);
+    }
+  }
+
 
   public void close() {
+    for (CompoundParser compoundParser : id2CompoundParser.values()) {
+      compoundParser.close();
+    }
     resourceManager.close();
   }
 
@@ -297,6 +338,7 @@ public class ParseConfig {
     // </supplement>
     //
 
+    ++version;
     if (supplementElements == null) supplementElements = new ArrayList<DomElement>();
     supplementElements.add(supplementElement);
 
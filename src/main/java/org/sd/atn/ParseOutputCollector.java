@@ -73,6 +73,9 @@ public class ParseOutputCollector {
 
   private ParseSourceInfo parseSourceInfo;
 
+  private boolean resultsOnly;   // true when collecting a concurrent flow's results
+  private int numPriorResults;   // number of parseResults preceding the flow's
+
   public ParseOutputCollector(DomElement outputsElement) {
     this.domDocuments = null;
     this.parseResults = null;
@@ -88,6 +91,46 @@ public class ParseOutputCollector {
     init(config);
   }
 
+  /**
+   * Construct an instance for collecting one flow's parse results while
+   * other flows run concurrently over the same prior output.
+   * <p>
+   * This instance starts with (a copy of) the prior output's parse results
+   * and input context, so the flow's parsers see what they would have seen
+   * running sequentially, but it only collects the flow's parse results
+   * (without markup) for merging back into the prior output through
+   * mergeFlowOutput.
+   */
+  ParseOutputCollector(ParseOutputCollector priorOutput) {
+    this.domDocuments = null;
+    this.parseResults = (priorOutput == null || priorOutput.parseResults == null) ? null : new ArrayList<AtnParseResult>(priorOutput.parseResults);
+    this.topParseInfos = new LinkedList<ParseInfo>();
+    this.inputContext = (priorOutput == null) ? null : priorOutput.inputContext;
+    this.outputTokenizer = null;
+    this.resultsOnly = true;
+    this.numPriorResults = (parseResults == null) ? 0 : parseResults.size();
+  }
+
+  /**
+   * Add the parse results collected by an instance constructed over this
+   * instance (as prior output) for a concurrently run flow.
+   */
+  void mergeFlowOutput(ParseOutputCollector flowOutput) {
+    if (!hasInputContext()) {
+      setInputContext(flowOutput.inputContext);
+    }
+
+    if (flowOutput.parseResults != null) {
+      for (int resultNum = flowOutput.numPriorResults; resultNum < flowOutput.parseResults.size(); ++resultNum) {
+        add(flowOutput.parseResults.get(resultNum));
+      }
+    }
+
+    if (flowOutput.outputTokenizer != null) {
+      this.outputTokenizer = flowOutput.outputTokenizer;
+    }
+  }
+
   private final void init(DataProperties config) {
 
     // expected format:
@@ -285,6 +328,7 @@ public class ParseOutputCollector {
    */
   public void add(AtnParseResult parseResult) {
     addParseResult(parseResult);
+    if (resultsOnly) return;
 
     boolean addedDomDocument = false;
     for (int parseNum = 0; parseNum < parseResult.getNumParses(); ++parseNum) {
@@ -0,0 +1,160 @@
+/*
+    Copyright 2011 Semantic Discovery, Inc. (www.semanticdiscovery.com)
+
+    This file is part of the Semantic Discovery Toolkit.
+
+    The Semantic Discovery Toolkit is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    The Semantic Discovery Toolkit is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with The Semantic Discovery Toolkit.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package org.sd.atn;
+
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Dependencies among parser flows for scheduling independent flows to run
+ * concurrently.
+ * <p>
+ * Earlier flows' parses change the tokenization that later flows see (the
+ * parse-based tokenizer breaks at and adds token info for those parses),
+ * so a flow depends on all earlier flows unless its compound parser
+ * declares it independent of them (see CompoundParser.isFlowIndependent).
+ * An independent flow still depends on an earlier flow when it consumes
+ * (as a rule step's category or as a require/unless category) any category
+ * the earlier flow's grammars produce (as rule or step categories), since
+ * the earlier flow's parses reach the later flow's parsers as token
+ * features. Flows over the same compound parser always depend on each
+ * other.
+ * <p>
+ * Flows are leveled into waves such that each flow follows all of the
+ * flows it depends on; the flows within a wave can run concurrently, each
+ * seeing the output of the waves before it.
+ *
+ * @author Spence Koehler
+ */
+public class ParserFlowGraph {
+
+  private List<ParserFlow> flows;
+  private List<Set<String>> produced;
+  private List<Set<String>> consumed;
+  private boolean[] independent;
+  private int[] levels;
+  private List<List<ParserFlow>> waves;
+
+  /**
+   * Construct with the flows (in their sequential order) to run through
+   * the parseConfig.
+   */
+  public ParserFlowGraph(ParseConfig parseConfig, List<ParserFlow> flows) {
+    this.flows = flows;
+    this.produced = new ArrayList<Set<String>>();
+    this.consumed = new ArrayList<Set<String>>();
+    this.independent = new boolean[flows.size()];
+    this.levels = new int[flows.size()];
+    this.waves = new ArrayList<List<ParserFlow>>();
+
+    for (int flowNum = 0; flowNum < flows.size(); ++flowNum) {
+      final ParserFlow flow = flows.get(flowNum);
+      final Set<String> flowProduced = new HashSet<String>();
+      final Set<String> flowConsumed = new HashSet<String>();
+      final CompoundParser compoundParser = parseConfig.getCompoundParser(flow.getFlowId());
+      if (compoundParser != null) {
+        independent[flowNum] = compoundParser.isFlowIndependent();
+        for (AtnParserWrapper wrapper : compoundParser.getParserWrappers(flow.getParserIds(true))) {
+          if (wrapper != null) {
+            addCategories(wrapper.getGrammar(), flowProduced, flowConsumed);
+          }
+        }
+      }
+      produced.add(flowProduced);
+      consumed.add(flowConsumed);
+    }
+
+    for (int flowNum = 0; flowNum < levels.length; ++flowNum) {
+      int level = 0;
+      for (int priorNum = 0; priorNum < flowNum; ++priorNum) {
+        if (levels[priorNum] >= level && dependsOn(flowNum, priorNum)) {
+          level = levels[priorNum] + 1;
+        }
+      }
+      levels[flowNum] = level;
+
+      while (waves.size() <= level) waves.add(new ArrayList<ParserFlow>());
+      waves.get(level).add(flows.get(flowNum));
+    }
+  }
+
+  /**
+   * Get the flows, grouped into waves to be run in order, where the flows
+   * within each wave are independent of each other and listed in their
+   * sequential order.
+   */
+  public List<List<ParserFlow>> getWaves() {
+    return waves;
+  }
+
+  /**
+   * Get the (0-based) wave number for the flowNum'th flow.
+   */
+  public int getLevel(int flowNum) {
+    return levels[flowNum];
+  }
+
+  /**
+   * Determine whether the flowNum'th flow depends on the priorNum'th flow.
+   */
+  public boolean dependsOn(int flowNum, int priorNum) {
+    if (!independent[flowNum]) return true;
+    if (flows.get(flowNum).getFlowId().equals(flows.get(priorNum).getFlowId())) return true;
+
+    final Set<String> flowConsumed = consumed.get(flowNum);
+    for (String category : produced.get(priorNum)) {
+      if (flowConsumed.contains(category)) return true;
+    }
+
+    return false;
+  }
+
+  private final void addCategories(AtnGrammar grammar, Set<String> flowProduced, Set<String> flowConsumed) {
+    for (List<AtnRule> rules : grammar.getCat2Rules().values()) {
+      for (AtnRule rule : rules) {
+        flowProduced.add(rule.getRuleName());
+        addCategories(rule.getSteps(), flowProduced, flowConsumed);
+        if (rule.getPopSteps() != null) {
+          addCategories(rule.getPopSteps(), flowProduced, flowConsumed);
+        }
+      }
+    }
+  }
+
+  private final void addCategories(List<AtnRuleStep> steps, Set<String> flowProduced, Set<String> flowConsumed) {
+    for (AtnRuleStep step : steps) {
+      flowProduced.add(step.getCategory());
+      flowProduced.add(step.getLabel());
+      flowConsumed.add(step.getCategory());
+      addCategories(step.getRequire(), flowConsumed);
+      addCategories(step.getUnless(), flowConsumed);
+    }
+  }
+
+  private final void addCategories(StepRequirement[] requirements, Set<String> flowConsumed) {
+    if (requirements != null) {
+      for (StepRequirement requirement : requirements) {
+        flowConsumed.add(requirement.getCategory());
+      }
+    }
+  }
+}
@@ -19,7 +19,6 @@
 package org.sd.atn;
 
 
-import java.util.List;
 import java.util.Map;
 import org.sd.atn.ResourceManager;
 import org.sd.token.Normalizer;
@@ -41,7 +40,7 @@ public class RegexClassifier extends AbstractAtnStateTokenClassifier {
   public static final String DEFAULT_REGEXES_NODE_NAME = "regexes";
 
 
-  private List<RegexData> regexes;
+  private RegexDataContainer regexes;
 
   public RegexClassifier(DomElement classifierIdElement, ResourceManager resourceManager, Map<String, Normalizer> id2Normalizer) {
     this(classifierIdElement, resourceManager, id2Normalizer, DEFAULT_REGEXES_NODE_NAME);
@@ -55,32 +54,28 @@ public class RegexClassifier extends AbstractAtnStateTokenClassifier {
 
   private final void init(DomElement classifierIdElement, String regexesNodeName) {
     final DomElement regexesNode = (DomElement)classifierIdElement.selectSingleNode(regexesNodeName);
-    this.regexes = RegexData.load(regexesNode);
+    this.regexes = new RegexDataContainer(regexesNode);
   }
 
   public boolean isEmpty() {
-    return regexes == null || regexes.size() == 0;
+    return regexes.size() == 0;
   }
 
   public boolean doClassify(Token token, AtnState atnState) {
     final String text = getTokenClassifierHelper().getNormalizedText(token);
-    return doClassification(text, token);
+    final AtnParseProfile profile = (atnState == null) ? null : atnState.getProfile();
+    return doClassification(text, token, profile);
   }
 
   protected Map<String, String> doClassify(String text) {
-    return doClassification(text, null) ? EMPTY_MAP : null;
+    return doClassification(text, null, null) ? EMPTY_MAP : null;
   }
 
-  private final boolean doClassification(String text, Token token) {
+  private final boolean doClassification(String text, Token token, AtnParseProfile profile) {
     boolean result = false;
 
     if (!isEmpty()) {
-      for (RegexData regexData : regexes) {
-        if (regexData.matches(text, token)) {
-          result = true;
-          break;
-        }
-      }
+      result = regexes.matchesAny(text, token, profile);
     }
     else {
       System.err.println("WARNING: RegexClassifier has no regexes. Probable initialization syntax error.");
@@ -110,6 +110,8 @@ public class RegexData {
   private boolean fullText;
   private boolean caseInsensitive;
   private boolean emptyResult;
+  private boolean wholeTextGroups;  // true if all attribute groups are group 0
+  private final ThreadLocal<Matcher> matchers = new ThreadLocal<Matcher>();
 
   /**
    * Load from a regex element having the form:
@@ -185,6 +187,30 @@ public class RegexData {
       // default to group0=classifierName (= regex.parent.parent.name)
       group2attr.put(0, regexElement.getParentNode().getParentNode().getLocalName());
     }
+
+    this.wholeTextGroups = true;
+    for (Integer group : group2attr.keySet()) {
+      if (group != 0) {
+        wholeTextGroups = false;
+        break;
+      }
+    }
+  }
+
+  public Pattern getPattern() {
+    return pattern;
+  }
+
+  public MatchType getMatchType() {
+    return matchType;
+  }
+
+  public boolean isCaseInsensitive() {
+    return caseInsensitive;
+  }
+
+  public boolean isReverse() {
+    return reverse;
   }
 
   public boolean isRequired() {
@@ -196,8 +222,152 @@ public class RegexData {
   }
 
   public boolean matches(String text, Token token, boolean addTokenFeature) {
+    return matches(text, token, addTokenFeature, null, -1, null);
+  }
+
+  /**
+   * Determine whether the text matches, taking the pattern's result from
+   * the scan (if non-null and it scanned this regex at regexIndex) instead
+   * of running the pattern, and timing pattern runs in the profile (if
+   * non-null).
+   * <p>
+   * The scan must be of the given text.
+   */
+  boolean matches(String text, Token token, boolean addTokenFeature, MultiRegex.Scan scan, int regexIndex, AtnParseProfile profile) {
+
+    final boolean useTokenText = token != null && usesTokenText();
+    if (useTokenText) {
+      text = getTokenText(text, token);
+    }
+
+    boolean result = false;
+
+    if ("".equals(text)) {
+      result = emptyResult;
+    }
+    else if (!useTokenText && scan != null && scan.isScanned(regexIndex)) {
+      result = scan.matched(regexIndex);
+
+      if (token != null && addTokenFeature) {
+        addFeatures(text, scan.matchedFully(regexIndex), token, profile);
+      }
+
+      if (reverse) {
+        result = !result;
+      }
+    }
+    else {
+      result = runPattern(text, profile);
+
+      if (token != null && addTokenFeature) {
+        // a failed "matches" pattern is known not to fully match
+        final boolean patternMatched = (result != reverse);
+        addFeatures(text, (matchType == MatchType.MATCHES && !patternMatched) ? 0 : -1, token, profile);
+      }
+    }
+
+    return result;
+  }
+
+  /**
+   * Set the token's features from the groups of a full match of the text,
+   * where matchedFully is 1 if the text is known to match fully, 0 if known
+   * not to, or -1 if unknown.
+   */
+  private final void addFeatures(String text, int matchedFully, Token token, AtnParseProfile profile) {
+    applyGroups(text, matchedFully, token, null, profile);
+  }
+
+  /**
+   * Populate the result with the features from the groups of a full match
+   * of the text, where matchedFully is as for addFeatures.
+   */
+  Map<String, String> getAttributes(String text, int matchedFully, Map<String, String> result, AtnParseProfile profile) {
+    return applyGroups(text, matchedFully, null, result, profile);
+  }
+
+  private final Map<String, String> applyGroups(String text, int matchedFully, Token token,
+                                                Map<String, String> result, AtnParseProfile profile) {
+    if (matchedFully == 0) return result;
+
+    if (matchedFully > 0 && wholeTextGroups) {
+      result = applyGroups(group2attr, null, text, token, this, result);
+    }
+    else {
+      final Matcher m = getMatcher(text);
+      if (matchFully(m, profile)) {
+        result = applyGroups(group2attr, m, text, token, this, result);
+      }
+      m.reset("");
+    }
+
+    return result;
+  }
+
+  /**
+   * Apply each group's value from the matcher (or the full text if the
+   * matcher is null) as a token feature from source if token is non-null,
+   * or else as a result attribute.
+   */
+  private static final Map<String, String> applyGroups(Map<Integer, String> group2attr, Matcher m, String text,
+                                                       Token token, Object source, Map<String, String> result) {
+    for (Map.Entry<Integer, String> entry : group2attr.entrySet()) {
+      final Integer group = entry.getKey();
+
+      final String value = (m == null) ? text : m.group(group);
+      if (value != null) {
+        final String attr = entry.getValue();
+        if (token != null) {
+          token.setFeature(attr, value, source);
+        }
+        else {
+          if (result == null) result = new HashMap<String, String>();
+          result.put(attr, value);
+        }
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Determine whether the matcher matches its full text, timing the match
+   * in the profile if non-null.
+   */
+  private final boolean matchFully(Matcher m, AtnParseProfile profile) {
+    final long starttime = (profile == null) ? 0L : System.nanoTime();
+    final boolean result = m.matches();
+    if (profile != null) profile.regexMatched(this, result, System.nanoTime() - starttime);
+    return result;
+  }
+
+  /**
+   * Get this thread's matcher, reset to the text.
+   * <p>
+   * Callers reset the matcher to empty text when done so that it doesn't
+   * hold on to the thread's last input.
+   */
+  private final Matcher getMatcher(String text) {
+    Matcher result = matchers.get();
+    if (result == null) {
+      result = pattern.matcher(text);
+      matchers.set(result);
+    }
+    else {
+      result.reset(text);
+    }
+    return result;
+  }
+
+  /**
+   * Determine whether the text this regex matches against depends on the
+   * token (through its delims or surrounding text).
+   */
+  boolean usesTokenText() {
+    return ldelim || rdelim || preText || postText || fullText;
+  }
 
-    if (token != null && (preText || postText || fullText)) {
+  private final String getTokenText(String text, Token token) {
+    if (preText || postText || fullText) {
       final StringBuilder theText = new StringBuilder();
       if (preText) {
         theText.append(token.getTokenizer().getPriorText(token));
@@ -216,7 +386,7 @@ public class RegexData {
       }
       text = theText.toString();
     }
-    else if (token != null && (ldelim || rdelim)) {
+    else if (ldelim || rdelim) {
       final StringBuilder delimText = new StringBuilder(text);
       if (ldelim) {
         delimText.insert(0, token.getPreDelim());
@@ -227,30 +397,7 @@ public class RegexData {
       text = delimText.toString();
     }
 
-    boolean result = false;
-
-    if ("".equals(text)) {
-      result = emptyResult;
-    }
-    else {
-      final MatchResult matches = patternMatches(text);
-
-      if (matches.m.matches() && token != null && addTokenFeature) {
-        for (Map.Entry<Integer, String> entry : group2attr.entrySet()) {
-          final Integer group = entry.getKey();
-
-          final String value = matches.m.group(group);
-          if (value != null) {
-            final String attr = entry.getValue();
-            token.setFeature(attr, value, this);
-          }
-        }
-      }
-
-      result = matches.matches;
-    }
-
-    return result;
+    return text;
   }
 
   /**
@@ -276,8 +423,33 @@ public class RegexData {
   }
 
   public MatchResult patternMatches(String text) {
-    boolean result = false;
     final Matcher m = pattern.matcher(text);
+    final boolean result = (applyPattern(m) != reverse);
+    return new MatchResult(m, result, group2attr);
+  }
+
+  /**
+   * Determine whether the text matches with this thread's matcher, timing
+   * the match in the profile if non-null.
+   */
+  private final boolean runPattern(String text, AtnParseProfile profile) {
+    final long starttime = (profile == null) ? 0L : System.nanoTime();
+
+    final Matcher m = getMatcher(text);
+    boolean result = applyPattern(m);
+    m.reset("");
+
+    if (profile != null) profile.regexMatched(this, result, System.nanoTime() - starttime);
+
+    if (reverse) {
+      result = !result;
+    }
+
+    return result;
+  }
+
+  private final boolean applyPattern(Matcher m) {
+    boolean result = false;
 
     switch (matchType) {
     case LOOKING_AT :
@@ -288,11 +460,7 @@ public class RegexData {
       result = m.matches();
     }
 
-    if (reverse) {
-      result = !result;
-    }
-
-    return new MatchResult(m, result, group2attr);
+    return result;
   }
 
   public static final class MatchResult {
@@ -311,16 +479,7 @@ public class RegexData {
      */
     public Map<String, String> getAttributes(Map<String, String> result) {
       if (m.matches() && group2attr != null) {
-        for (Map.Entry<Integer, String> entry : group2attr.entrySet()) {
-          final Integer group = entry.getKey();
-
-          final String value = m.group(group);
-          if (value != null) {
-            final String attr = entry.getValue();
-            if (result == null) result = new HashMap<String, String>();
-            result.put(attr, value);
-          }
-        }
+        result = applyGroups(group2attr, m, null, null, null, result);
       }
       return result;
     }
@@ -28,16 +28,22 @@ import org.sd.xml.DomElement;
 /**
  * Container for a sequence of RegexData instances.
  * <p>
+ * The regexes are compiled together (see MultiRegex) so that text is
+ * scanned once for all of those in the regular subset, while the others
+ * are matched with their own patterns.
+ * <p>
  * @author Spence Koehler
  */
 public class RegexDataContainer {
 
   private List<RegexData> regexes;
   private boolean hasRequired;
+  private MultiRegex multiRegex;
 
   public RegexDataContainer(DomElement regexesElement) {
     this.regexes = RegexData.load(regexesElement);
     this.hasRequired = false;
+    this.multiRegex = (regexes == null) ? null : new MultiRegex(regexes);
 
     if (regexes != null) {
       for (RegexData regex : regexes) {
@@ -61,16 +67,34 @@ public class RegexDataContainer {
     return hasRequired;
   }
 
+  /**
+   * Get the regexes compiled together for scanning, or null.
+   */
+  public MultiRegex getMultiRegex() {
+    return multiRegex;
+  }
+
   public boolean matches(String text, Token token) {
     return matches(text, token, true);
   }
 
   public boolean matches(String text, Token token, boolean addTokenFeature) {
+    return matches(text, token, addTokenFeature, null);
+  }
+
+  /**
+   * Determine whether the text matches (including all required), timing
+   * regex pattern runs in the profile if non-null.
+   */
+  public boolean matches(String text, Token token, boolean addTokenFeature, AtnParseProfile profile) {
     boolean result = false;
 
     if (regexes != null) {
-      for (RegexData regex : regexes) {
-        final boolean matches = regex.matches(text, token, addTokenFeature);
+      final MultiRegex.Scan scan = multiRegex.scan(text);
+
+      for (int i = 0; i < regexes.size(); ++i) {
+        final RegexData regex = regexes.get(i);
+        final boolean matches = regex.matches(text, token, addTokenFeature, scan, i, profile);
 
         if (matches) {
           result = true;
@@ -91,6 +115,28 @@ public class RegexDataContainer {
     return result;
   }
 
+  /**
+   * Determine whether the text matches any regex (disregarding whether
+   * regexes are required), timing regex pattern runs in the profile if
+   * non-null.
+   */
+  public boolean matchesAny(String text, Token token, AtnParseProfile profile) {
+    boolean result = false;
+
+    if (regexes != null) {
+      final MultiRegex.Scan scan = multiRegex.scan(text);
+
+      for (int i = 0; i < regexes.size(); ++i) {
+        if (regexes.get(i).matches(text, token, true, scan, i, profile)) {
+          result = true;
+          break;
+        }
+      }
+    }
+
+    return result;
+  }
+
   /**
    * Determine whether the key matches a regex (including all required).
    *
@@ -101,16 +147,31 @@ public class RegexDataContainer {
     Map<String, String> result = hasRequired ? new HashMap<String, String>() : null;
 
     if (regexes != null) {
-      for (RegexData regex : regexes) {
-        final RegexData.MatchResult matchResult = regex.patternMatches(key);
+      final MultiRegex.Scan scan = multiRegex.scan(key);
+
+      for (int i = 0; i < regexes.size(); ++i) {
+        final RegexData regex = regexes.get(i);
+        boolean regexMatches = false;
 
-        if (matchResult.matches) {
-          matches = true;
-          result = matchResult.getAttributes(result);
+        if (scan != null && scan.isScanned(i)) {
+          regexMatches = (scan.matched(i) != regex.isReverse());
+          if (regexMatches) {
+            matches = true;
+            result = regex.getAttributes(key, scan.matchedFully(i), result, null);
+          }
+        }
+        else {
+          final RegexData.MatchResult matchResult = regex.patternMatches(key);
+          regexMatches = matchResult.matches;
+
+          if (regexMatches) {
+            matches = true;
+            result = matchResult.getAttributes(result);
+          }
         }
 
         if (hasRequired) {
-          if (!matchResult.matches && regex.isRequired()) {
+          if (!regexMatches && regex.isRequired()) {
             matches = false;
             break;
           }
@@ -20,14 +20,23 @@ package org.sd.atn;
 
 
 import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 import org.sd.token.Normalizer;
 import org.sd.util.ReflectUtil;
+import org.sd.util.ThreadPoolUtil;
 import org.sd.xml.DataProperties;
 import org.sd.xml.DomElement;
 import org.sd.xml.DomNode;
@@ -44,6 +53,18 @@ import org.w3c.dom.NodeList;
  * <li>ResourceManager -- the resource manager being used to create and store
  *                        instances.</li>
  * </ol>
+ * <p>
+ * Named resources are looked up without locking. When a resources node's
+ * "resource" children are loaded, named resources are registered first,
+ * so that a resource referring (through a 'resource' attribute) to one
+ * defined later in the node gets it built on demand. When a node defines
+ * a name more than once, the last definition wins and earlier ones are
+ * not built. The children are
+ * then loaded in order on the calling thread (the default), over a thread
+ * pool (option "_loadThreads") in waves such that those referenced by
+ * others are built first, or (option "_lazyLoad") only as named resources
+ * are first looked up. Threads looking up a resource while another thread
+ * builds it wait for it to be built.
  *
  * @author Spence Koehler
  */
@@ -52,12 +73,19 @@ public class ResourceManager {
   private DataProperties options;
   private boolean disableLoad;        // disable EVERYTHING
   private boolean disableResources;   // disable just 'resources' node(s)
+  private int loadThreads;            // threads for loading resources nodes
+  private boolean lazyLoad;           // defer building named resources
 
   /**
    * Map to store named instances for reference by later instances.
    */
   private Map<String, Object> name2resource;
 
+  /**
+   * Map to store named resource elements whose building has been deferred.
+   */
+  private Map<String, Deferred> name2deferred;
+
   private Map<String, Normalizer> id2Normalizer;
 
   private LinkedHashSet<MetaData> metaData;
@@ -90,9 +118,12 @@ public class ResourceManager {
   
   private final void init(DataProperties options) {
     if (this.options == null) this.options = options;
-    this.name2resource = new HashMap<String, Object>();
+    this.name2resource = new ConcurrentHashMap<String, Object>();
+    this.name2deferred = new ConcurrentHashMap<String, Deferred>();
     this.disableLoad = options == null ? false : options.getBoolean("_disableLoad", false);
     this.disableResources = options == null ? false : options.getBoolean("_disableResources", false);
+    this.loadThreads = options == null ? 1 : options.getInt("_loadThreads", 1);
+    this.lazyLoad = options == null ? false : options.getBoolean("_lazyLoad", false);
 
     final DomElement resourceElement = (options == null) ? null : options.getDomElement();
     loadResources(resourceElement);
@@ -103,6 +134,37 @@ public class ResourceManager {
     this.disableLoad = disableLoad;
   }
 
+  /**
+   * Set the number of threads for loading resources nodes' resources, where
+   * 1 loads them in order on the calling thread.
+   */
+  public void setLoadThreads(int loadThreads) {
+    this.loadThreads = loadThreads;
+  }
+
+  public int getLoadThreads() {
+    return loadThreads;
+  }
+
+  /**
+   * Set whether to defer building named resources until they are first
+   * looked up.
+   */
+  public void setLazyLoad(boolean lazyLoad) {
+    this.lazyLoad = lazyLoad;
+  }
+
+  public boolean getLazyLoad() {
+    return lazyLoad;
+  }
+
+  /**
+   * Determine whether the named resource is waiting to be built.
+   */
+  public boolean isDeferred(String resourceName) {
+    return resourceName != null && name2deferred.containsKey(resourceName);
+  }
+
   public void setId2Normalizer(Map<String, Normalizer> id2Normalizer) {
     this.id2Normalizer = id2Normalizer;
   }
@@ -123,14 +185,188 @@ public class ResourceManager {
     if (resourcesElement != null && !disableLoad) {
       final NodeList resourceNodes = resourcesElement.selectNodes("resource");
       if (resourceNodes != null) {
+        final List<DomElement> allElements = new ArrayList<DomElement>();
+        final Map<String, DomElement> name2element = new HashMap<String, DomElement>();
         for (int i = 0; i < resourceNodes.getLength(); ++i) {
           final DomElement resourceElement = (DomElement)resourceNodes.item(i);
-          getResource(resourceElement);
+          allElements.add(resourceElement);
+
+          // defer named resources so that they're built when first needed
+          // (where the last definition of a name wins)
+          final String resourceName = getStorageName(resourceElement);
+          if (resourceName != null && !name2resource.containsKey(resourceName)) {
+            name2element.put(resourceName, resourceElement);
+          }
+        }
+        final Set<DomElement> deferredElements = Collections.newSetFromMap(new IdentityHashMap<DomElement, Boolean>());
+        for (Map.Entry<String, DomElement> entry : name2element.entrySet()) {
+          name2deferred.put(entry.getKey(), new Deferred(entry.getValue()));
+          deferredElements.add(entry.getValue());
+        }
+
+        // skip superseded definitions of deferred names
+        final List<DomElement> resourceElements = new ArrayList<DomElement>();
+        for (DomElement resourceElement : allElements) {
+          final String resourceName = getStorageName(resourceElement);
+          if (resourceName == null || deferredElements.contains(resourceElement) || !name2element.containsKey(resourceName)) {
+            resourceElements.add(resourceElement);
+          }
+        }
+
+        if (lazyLoad) {
+          // unnamed resources can't be looked up, so build them now
+          for (DomElement resourceElement : resourceElements) {
+            if (getStorageName(resourceElement) == null) {
+              getResource(resourceElement);
+            }
+          }
+        }
+        else if (loadThreads <= 1) {
+          for (DomElement resourceElement : resourceElements) {
+            loadResource(resourceElement, deferredElements);
+          }
+        }
+        else {
+          loadInParallel(resourceElements, deferredElements);
         }
       }
     }
   }
 
+  /**
+   * Load the resources on a pool in waves, where each wave holds the
+   * resources whose references to other resources in the list have been
+   * built by prior waves. Resources in reference cycles are loaded last,
+   * in order.
+   */
+  private final void loadInParallel(List<DomElement> resourceElements, final Set<DomElement> deferredElements) {
+    final Map<DomElement, Set<String>> element2refs = new IdentityHashMap<DomElement, Set<String>>();
+    final Set<String> pendingNames = new HashSet<String>();
+    for (DomElement resourceElement : resourceElements) {
+      final String resourceName = getStorageName(resourceElement);
+      if (resourceName != null) pendingNames.add(resourceName);
+    }
+    for (DomElement resourceElement : resourceElements) {
+      element2refs.put(resourceElement, getReferencedNames(resourceElement, pendingNames));
+    }
+
+    final ExecutorService threadPool = ThreadPoolUtil.createThreadPool("ResourceManager-", loadThreads);
+    try {
+      List<DomElement> remaining = resourceElements;
+      while (remaining.size() > 0) {
+        final List<DomElement> wave = new ArrayList<DomElement>();
+        final List<DomElement> waiting = new ArrayList<DomElement>();
+        for (DomElement resourceElement : remaining) {
+          final Set<String> refs = element2refs.get(resourceElement);
+          refs.retainAll(pendingNames);
+          if (refs.size() == 0) wave.add(resourceElement);
+          else waiting.add(resourceElement);
+        }
+
+        if (wave.size() == 0) {
+          // reference cycle
+          for (DomElement resourceElement : waiting) loadResource(resourceElement, deferredElements);
+          break;
+        }
+
+        final List<Future<?>> futures = new ArrayList<Future<?>>();
+        for (final DomElement resourceElement : wave) {
+          futures.add(threadPool.submit(new Runnable() {
+              public void run() {
+                loadResource(resourceElement, deferredElements);
+              }
+            }));
+        }
+        for (Future<?> future : futures) {
+          ThreadPoolUtil.waitFor(future);
+        }
+
+        for (DomElement resourceElement : wave) {
+          pendingNames.remove(getStorageName(resourceElement));
+        }
+        remaining = waiting;
+      }
+    }
+    finally {
+      ThreadPoolUtil.shutdownGracefully(threadPool, 1L);
+    }
+  }
+
+  /**
+   * Load the resource, building it through its deferral (unless already
+   * built on demand) if deferred.
+   */
+  private final void loadResource(DomElement resourceElement, Set<DomElement> deferredElements) {
+    if (deferredElements.contains(resourceElement)) {
+      getResource(getStorageName(resourceElement));
+    }
+    else {
+      getResource(resourceElement);
+    }
+  }
+
+  /**
+   * Get the names (among those given) referenced through 'resource'
+   * attributes at or under the resource element, excluding its own name.
+   */
+  private static final Set<String> getReferencedNames(DomElement resourceElement, Set<String> names) {
+    final Set<String> result = new HashSet<String>();
+
+    final NodeList descendants = resourceElement.getElementsByTagName("*");
+    for (int i = 0; i < descendants.getLength(); ++i) {
+      final DomElement descendant = (DomElement)descendants.item(i);
+      final String refName = descendant.getAttributeValue("resource", null);
+      if (refName != null && names.contains(refName)) {
+        result.add(refName);
+      }
+    }
+    result.remove(getStorageName(resourceElement));
+
+    return result;
+  }
+
+  /**
+   * Get the name under which the resource element's instance is stored.
+   */
+  private static final String getStorageName(DomElement resourceElement) {
+    String result = resourceElement.getAttributeValue("resource", null);
+    if (result == null) result = resourceElement.getAttributeValue("name", null);
+    return result;
+  }
+
+  /**
+   * Build the named resource if deferred, or wait for another thread's
+   * building of it to finish.
+   * <p>
+   * The deferral is dropped only after the resource has been stored, so
+   * that concurrent lookups find one or the other.
+   *
+   * @return the resource, or null if not deferred (or if referenced while
+   *         being built by this thread, i.e. through a reference cycle).
+   */
+  private final Object buildDeferred(String resourceName) {
+    Object result = null;
+
+    final Deferred deferred = name2deferred.get(resourceName);
+    if (deferred != null) {
+      synchronized (deferred) {
+        result = name2resource.get(resourceName);
+        if (result == null && !deferred.building && name2deferred.get(resourceName) == deferred) {
+          deferred.building = true;
+          try {
+            result = buildAndStore(deferred.resourceElement, null, resourceName);
+          }
+          finally {
+            deferred.building = false;
+            name2deferred.remove(resourceName);
+          }
+        }
+      }
+    }
+
+    return result;
+  }
+
   public void close() {
     for (Object resource : name2resource.values()) {
       ReflectUtil.invokeMethod(resource, "close", null, null);
@@ -156,7 +392,7 @@ public class ResourceManager {
     return getResource(resourceElement, null);
   }
 
-  public synchronized final Object getResource(DomElement resourceElement, Object[] extraArgs) {
+  public final Object getResource(DomElement resourceElement, Object[] extraArgs) {
     Object result = null;
 
     if (resourceElement == null) return null;
@@ -168,29 +404,39 @@ public class ResourceManager {
     }
 
     if (result == null && !disableLoad) {
-      result = buildInstance(resourceElement, extraArgs);
-
       // attribute 'name' (or 'resource') gives resource name for storage
       if (resourceName == null) {
         resourceName = resourceElement.getAttributeValue("name", null);
       }
 
-      if (result != null) {
-        if (resourceName != null) {
-          name2resource.put(resourceName, result);
-          if (GlobalConfig.verboseLoad()) {
-            System.out.println(new Date() + ": ResourceManager built/stored '" + resourceName + "' resource.");
-          }
+      result = buildAndStore(resourceElement, extraArgs, resourceName);
+    }
+
+    return result;
+  }
+
+  private final Object buildAndStore(DomElement resourceElement, Object[] extraArgs, String resourceName) {
+    final Object result = buildInstance(resourceElement, extraArgs);
 
-          if (metaData == null) metaData = new LinkedHashSet<MetaData>();
-          metaData.add(new XmlMetaData(resourceElement, extraArgs));
+    if (result != null) {
+      if (resourceName != null) {
+        name2resource.put(resourceName, result);
+        if (GlobalConfig.verboseLoad()) {
+          System.out.println(new Date() + ": ResourceManager built/stored '" + resourceName + "' resource.");
         }
+
+        addMetaData(new XmlMetaData(resourceElement, extraArgs));
       }
     }
 
     return result;
   }
 
+  private synchronized final void addMetaData(MetaData data) {
+    if (metaData == null) metaData = new LinkedHashSet<MetaData>();
+    metaData.add(data);
+  }
+
   public final Object getResourceByClass(String classPath) {
     return getResourceByClass(classPath, null);
   }
@@ -204,8 +450,7 @@ public class ResourceManager {
       result = ReflectUtil.constructInstance(theClass, args);
 
       if (result != null) {
-        if (metaData == null) metaData = new LinkedHashSet<MetaData>();
-        metaData.add(new ClassMetaData(classPath, extraArgs));
+        addMetaData(new ClassMetaData(classPath, extraArgs));
       }
     }
     catch (ClassNotFoundException e) {
@@ -215,18 +460,32 @@ public class ResourceManager {
     return result;
   }
 
+  /**
+   * Store the resource under the name, where a null resource clears the
+   * name's mapping.
+   */
   public final void addResource(String resourceName, Object resource) {
-    name2resource.put(resourceName, resource);
+    if (resourceName == null) return;
+
+    if (resource == null) {
+      name2resource.remove(resourceName);
+    }
+    else {
+      name2resource.put(resourceName, resource);
+    }
   }
 
   /**
-   * Get the named resource or null.
+   * Get the named resource (building it now if deferred) or null.
    */
   public final Object getResource(String resourceName) {
     Object result = null;
 
     if (resourceName != null) {
       result = name2resource.get(resourceName);
+      if (result == null && name2deferred.size() > 0) {
+        result = buildDeferred(resourceName);
+      }
 
       if (result != null) {
         if (GlobalConfig.verboseLoad()) {
@@ -261,8 +520,7 @@ public class ResourceManager {
       }
 
       if (result != null) {
-        if (metaData == null) metaData = new LinkedHashSet<MetaData>();
-        metaData.add(new FileMetaData(filename, result));
+        addMetaData(new FileMetaData(filename, result));
       }
     }
 
@@ -573,4 +831,18 @@ public class ResourceManager {
       return result;
     }
   }
+
+
+  /**
+   * A named resource element whose building has been deferred.
+   */
+  private static final class Deferred {
+    final DomElement resourceElement;
+    boolean building;  // guarded by this
+
+    Deferred(DomElement resourceElement) {
+      this.resourceElement = resourceElement;
+      this.building = false;
+    }
+  }
 }
@@ -30,10 +30,12 @@ import java.util.Map;
 import java.util.Set;
 import org.sd.io.FileUtil;
 import org.sd.atn.ResourceManager;
+import org.sd.nlp.NormalizerWorkspace;
 import org.sd.token.Feature;
 import org.sd.token.Normalizer;
 import org.sd.token.Token;
 import org.sd.token.TokenClassifierHelper;
+import org.sd.util.CharSequenceSet;
 import org.sd.util.Usage;
 import org.sd.xml.DomElement;
 import org.sd.xml.DomNamedNodeMap;
@@ -455,6 +457,7 @@ public class RoteListClassifier extends AbstractAtnStateTokenClassifier {
     private int userDefinedMaxWordCount;
     private int maxWordCount;
     private Map<String, Map<String, String>> term2attributes;
+    private volatile CharSequenceSet _termKeys;
     private RegexDataContainer regexes;
     private List<ClassifierContainer> classifiers;
     private Map<String, FeatureContainer> features;
@@ -512,6 +515,7 @@ public class RoteListClassifier extends AbstractAtnStateTokenClassifier {
 
     public void reset() {
       if (term2attributes != null) term2attributes.clear();
+      this._termKeys = null;
       this.regexes = null;
       this.classifiers = null;
       this.features = null;
@@ -576,7 +580,7 @@ public class RoteListClassifier extends AbstractAtnStateTokenClassifier {
 
       if (!exceedsMaxWordCount) {
         if (!caseSensitive) {
-          key = key.toLowerCase();
+          key = lowerCaseKey(key);
         }
 
         if (term2attributes.containsKey(key)) {
@@ -632,7 +636,8 @@ public class RoteListClassifier extends AbstractAtnStateTokenClassifier {
         }
 
         if (!result && regexes != null) {
-          if (regexes.matches(key, token, !isStopwords)) {
+          final AtnParseProfile profile = (atnState == null) ? null : atnState.getProfile();
+          if (regexes.matches(key, token, !isStopwords, profile)) {
             if (trace) {
               System.out.println("\tfound '" + key + "' in regexData");
             }
@@ -700,7 +705,7 @@ public class RoteListClassifier extends AbstractAtnStateTokenClassifier {
       String key = text;
 
       if (!caseSensitive) {
-        key = key.toLowerCase();
+        key = lowerCaseKey(key);
       }
 
       boolean matched = false;
@@ -1013,10 +1018,34 @@ public class RoteListClassifier extends AbstractAtnStateTokenClassifier {
       testContainer.addTestWrapper(testWrapper);
     }
 
+    /**
+     * Lowercase the text as String.toLowerCase does, but without building
+     * a new string when the text is already lowercase or lowercases to one
+     * of the terms.
+     */
+    private final String lowerCaseKey(String text) {
+      final NormalizerWorkspace workspace = NormalizerWorkspace.get();
+      if (!workspace.setLowerCase(text)) return text.toLowerCase();
+
+      final String term = getTermKeys().get(workspace);
+      return (term != null) ? term : workspace.contentEquals(text) ? text : workspace.toString();
+    }
+
+    private final CharSequenceSet getTermKeys() {
+      CharSequenceSet result = _termKeys;
+      if (result == null) {
+        result = new CharSequenceSet(term2attributes.size());
+        result.addAll(term2attributes.keySet());
+        _termKeys = result;
+      }
+      return result;
+    }
+
     private final void addTermAttributes(String term, Map<String, String> attributes) {
       Map<String, String> curAttributes = term2attributes.get(term);
       if (curAttributes == null) {
         term2attributes.put(term, attributes);
+        _termKeys = null;
       }
       else {
         if (attributes != null) {
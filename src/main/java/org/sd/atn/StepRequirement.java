@@ -47,6 +47,7 @@ public class StepRequirement {
 
   private IntegerRange levelRange;
   private String category;
+  private int categoryId;
 
   /**
    * Instantiate by parsing value of form C[:R], where C is a category
@@ -63,6 +64,7 @@ public class StepRequirement {
   public StepRequirement(String value, String defaultLevelRange) {
     final String[] pieces = value.split("\\s*:\\s*");
     this.category = pieces[0];
+    this.categoryId = -1;
     this.levelRange = null;
 
     if (pieces.length == 1) {
@@ -87,6 +89,36 @@ public class StepRequirement {
 
   public void setCategory(String category) {
     this.category = category;
+    this.categoryId = -1;
+  }
+
+  /**
+   * Get this requirement's category id in its grammar's compiled table, or
+   * -1 if not compiled.
+   */
+  public int getCategoryId() {
+    return categoryId;
+  }
+
+  void setCategoryId(int categoryId) {
+    this.categoryId = categoryId;
+  }
+
+  /**
+   * Check the given compiled category and label ids and level for match
+   * against this requirement's compiled category id.
+   * <p>
+   * If level (or levelRange) is null, then ignore any level restrictions;
+   * otherwise enforce level against the levelRange.
+   */
+  public boolean matches(int categoryId, int labelId, Integer level) {
+    boolean result = (this.categoryId >= 0) && (categoryId == this.categoryId || labelId == this.categoryId);
+
+    if (result && level != null && levelRange != null) {
+      result = levelRange.includes(level);
+    }
+
+    return result;
   }
 
   /**
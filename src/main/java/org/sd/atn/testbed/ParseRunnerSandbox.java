@@ -31,6 +31,7 @@ import java.util.Properties;
 import java.util.concurrent.atomic.AtomicBoolean;
 import org.sd.atn.AtnParse;
 import org.sd.atn.AtnParseBasedTokenizer;
+import org.sd.atn.AtnParseProfile;
 import org.sd.atn.AtnParseResult;;
 import org.sd.atn.AtnParseRunner;
 import org.sd.atn.AtnState;
@@ -856,6 +857,26 @@ public class ParseRunnerSandbox {
         }
         handled = true;
       }
+      else if (lineLC.equals("profile") || lineLC.startsWith("profile ")) {
+        final String arg = lineLC.substring(7).trim();
+        final AtnParseRunner parseRunner = getParseRunner();
+
+        if (parseRunner != null) {
+          if ("on".equals(arg) || "off".equals(arg)) {
+            parseRunner.setProfiling("on".equals(arg));
+            if (out != null) out.println("profiling is " + arg.toUpperCase());
+          }
+          else if ("reset".equals(arg)) {
+            if (parseRunner.getProfile() != null) parseRunner.getProfile().reset();
+          }
+          else if (out != null) {
+            final AtnParseProfile profile = parseRunner.getProfile();
+            out.println(profile == null ? "profiling is OFF" : profile.getReport());
+          }
+        }
+
+        handled = true;
+      }
       else if (lineLC.startsWith("parse ")) {
         final String text = line.substring(6);
 
@@ -1101,6 +1122,7 @@ public class ParseRunnerSandbox {
         out.println("\tverboseLoad [true/false]: enable/disable verbose loading");
         out.println("\treset: force reload of resources");
         out.println("\tparse <text to parse>: parse the text (no quotes or angle brackets) using the current parser");
+        out.println("\tprofile [on|off|reset]: show (when no args), enable, disable, or clear parse profile counts");
         out.println("\tinterp <text to parse and interpret>: parse and interpret the text using the current parser");
         out.println("\ttokenize <text to tokenize>: tokenize the text (no quotes or angle brackets) using the current tokenizer");
         out.println("\tsandbox reset: restore sandbox to initial state (from version controlled location)");
@@ -53,6 +53,22 @@ public class FileJoiner {
 
   public static final DefaultKeyGenerator DEFAULT_KEY_GENERATOR = new DefaultKeyGenerator();
 
+  /**
+   * Strategies for joining the files.
+   * <p>
+   * HASH loads the smaller file into memory and streams the other against
+   * it; SORT_MERGE externally sorts both files on their join keys and merges
+   * the sorted streams; AUTO chooses between them based on file sizes and
+   * the memory budget.
+   */
+  public static enum JoinStrategy { AUTO, HASH, SORT_MERGE }
+
+  /**
+   * Approximate factor by which a file's in-memory (hashed) form exceeds its
+   * size on disk, used when automatically choosing a join strategy.
+   */
+  public static final int HASH_EXPANSION_FACTOR = 6;
+
 
   private File[] inputFiles;
   private FieldRef[] fieldRefs;
@@ -63,6 +79,9 @@ public class FileJoiner {
   private boolean[] skipFirstLines;
   private File outputFile;
   private boolean verbose;
+  private JoinStrategy joinStrategy;
+  private long memoryBudget;
+  private File tmpDir;
 
   /**
    * Properties:
@@ -97,6 +116,15 @@ public class FileJoiner {
    *  outputFile -- path to the output file.
    *
    *  verbose -- "true" (default="true") to print debug info to stdout.
+   *
+   *  joinStrategy -- "hash", "sortMerge", or "auto" (default) to choose
+   *                  between loading the smaller file into memory and
+   *                  externally sorting both files on their join keys.
+   *
+   *  memoryBudget -- bytes of memory to use for loading (hash) or sorting
+   *                  (sortMerge) records (default=1/4 of max heap).
+   *
+   *  tmpDir -- directory for sort spill files (default=java.io.tmpdir).
    */
   public FileJoiner(Properties properties) {
     this.inputFiles = new File[2];
@@ -135,6 +163,17 @@ public class FileJoiner {
     this.outputFile = new File(properties.getProperty("outputFile"));
     this.verbose = "true".equals(properties.getProperty("verbose", "true"));
 
+    this.joinStrategy = parseJoinStrategy(properties.getProperty("joinStrategy", "auto"));
+
+    final String memoryBudgetString = properties.getProperty("memoryBudget");
+    this.memoryBudget = (memoryBudgetString != null) ?
+      Long.parseLong(memoryBudgetString) :
+      Runtime.getRuntime().maxMemory() / 4;
+
+    final String tmpDirString = properties.getProperty("tmpDir");
+    this.tmpDir = (tmpDirString != null) ? new File(tmpDirString) : null;
+    if (tmpDir != null && !tmpDir.exists()) tmpDir.mkdirs();
+
     if (verbose) {
       for (int i = 0; i < 2; ++i) {
         final char c = (char)('A' + i);
@@ -146,10 +185,61 @@ public class FileJoiner {
       }
       System.out.println("outputFile=" + outputFile);
       System.out.println("subtract=" + subtract);
+      System.out.println("joinStrategy=" + joinStrategy +
+                         " memoryBudget=" + memoryBudget +
+                         " tmpDir=" + tmpDir);
+    }
+  }
+
+  private static final JoinStrategy parseJoinStrategy(String joinStrategyString) {
+    JoinStrategy result = JoinStrategy.AUTO;
+
+    if ("hash".equalsIgnoreCase(joinStrategyString)) {
+      result = JoinStrategy.HASH;
+    }
+    else if ("sortMerge".equalsIgnoreCase(joinStrategyString) ||
+             "sort_merge".equalsIgnoreCase(joinStrategyString)) {
+      result = JoinStrategy.SORT_MERGE;
+    }
+    else if (!"auto".equalsIgnoreCase(joinStrategyString)) {
+      throw new IllegalArgumentException("Unknown joinStrategy '" + joinStrategyString + "'!");
+    }
+
+    return result;
+  }
+
+  /**
+   * Choose the strategy to use for the current files, resolving AUTO to
+   * HASH when the smaller file will comfortably fit within the memory
+   * budget and to SORT_MERGE otherwise.
+   */
+  public JoinStrategy chooseJoinStrategy() {
+    JoinStrategy result = joinStrategy;
+
+    if (result == JoinStrategy.AUTO) {
+      final long minLen = Math.min(inputFiles[0].length(), inputFiles[1].length());
+      result = (minLen * HASH_EXPANSION_FACTOR <= memoryBudget) ? JoinStrategy.HASH : JoinStrategy.SORT_MERGE;
     }
+
+    return result;
   }
 
   public void doJoin() throws IOException {
+    final JoinStrategy strategy = chooseJoinStrategy();
+
+    if (verbose) {
+      System.out.println("strategy=" + strategy);
+    }
+
+    if (strategy == JoinStrategy.SORT_MERGE) {
+      doSortMergeJoin();
+    }
+    else {
+      doHashJoin();
+    }
+  }
+
+  private void doHashJoin() throws IOException {
 
     final long lenA = inputFiles[0].length();
     final long lenB = inputFiles[1].length();
@@ -209,7 +299,6 @@ public class FileJoiner {
             ++writeCount;
             writer.write(record.toString());
             writer.newLine();
-            writer.flush();
           }
         }
       }
@@ -219,7 +308,6 @@ public class FileJoiner {
         ++writeCount;
         writer.write(emptyRecord.toString());
         writer.newLine();
-        writer.flush();
       }
     }
     reader.close();
@@ -233,7 +321,6 @@ public class FileJoiner {
           final Record emptyRecord = getEmptyRecord(loadIndex, loadRecord);
           writer.write(emptyRecord.toString());
           writer.newLine();
-          writer.flush();
         }
       }
     }
@@ -247,6 +334,142 @@ public class FileJoiner {
     }
   }
 
+  /**
+   * Join by externally sorting both files on their join keys and merging the
+   * sorted streams, so that neither file needs to fit in memory.
+   * <p>
+   * Output is in key order rather than in the order of either input.
+   */
+  private void doSortMergeJoin() throws IOException {
+    final long sortBudget = Math.max(1L, memoryBudget / 2);  // each side sorts independently
+    final KeyedLineSorter.KeyedLineIterator[] iters = new KeyedLineSorter.KeyedLineIterator[2];
+
+    int joinCount = 0;
+    int writeCount = 0;
+
+    final BufferedWriter writer = FileUtil.getWriter(outputFile);
+    try {
+      for (int i = 0; i < 2; ++i) {
+        iters[i] = sortFile(i, sortBudget);
+      }
+
+      final List<KeyedLineSorter.KeyedLine> groupA = new ArrayList<KeyedLineSorter.KeyedLine>();
+      final List<KeyedLineSorter.KeyedLine> groupB = new ArrayList<KeyedLineSorter.KeyedLine>();
+      final KeyedLineSorter.KeyedLine[] nexts = new KeyedLineSorter.KeyedLine[] {
+        iters[0].next(), iters[1].next(),
+      };
+
+      while (nexts[0] != null || nexts[1] != null) {
+        final int cmp =
+          (nexts[0] == null) ? 1 :
+          (nexts[1] == null) ? -1 :
+          nexts[0].getKey().compareTo(nexts[1].getKey());
+
+        if (cmp == 0) {
+          nexts[0] = readGroup(iters[0], nexts[0], groupA);
+          nexts[1] = readGroup(iters[1], nexts[1], groupB);
+          ++joinCount;
+
+          if (!subtract) {
+            for (KeyedLineSorter.KeyedLine lineA : groupA) {
+              final Record recordA = new Record(lineA.getLine());
+              for (KeyedLineSorter.KeyedLine lineB : groupB) {
+                final Record joinedRecord = doJoin(0, recordA, 1, new Record(lineB.getLine()));
+                if (joinedRecord != null) {
+                  ++writeCount;
+                  writer.write(joinedRecord.toString());
+                  writer.newLine();
+                }
+              }
+            }
+          }
+        }
+        else {
+          // the lesser side's group has no match on the other side
+          final int index = (cmp < 0) ? 0 : 1;
+          final List<KeyedLineSorter.KeyedLine> group = (index == 0) ? groupA : groupB;
+          nexts[index] = readGroup(iters[index], nexts[index], group);
+
+          if (keepEmpties[index]) {
+            for (KeyedLineSorter.KeyedLine keyedLine : group) {
+              final Record emptyRecord = getEmptyRecord(index, new Record(keyedLine.getLine()));
+              ++writeCount;
+              writer.write(emptyRecord.toString());
+              writer.newLine();
+            }
+          }
+        }
+      }
+    }
+    finally {
+      for (KeyedLineSorter.KeyedLineIterator iter : iters) {
+        if (iter != null) iter.close();
+      }
+      writer.close();
+    }
+
+    if (verbose) {
+      System.out.println("joinCount=" + joinCount);
+      System.out.println("writeCount=" + writeCount);
+    }
+  }
+
+  /**
+   * Collect the run of lines sharing first's key into group, returning the
+   * first line of the following run (or null).
+   */
+  private static final KeyedLineSorter.KeyedLine readGroup(KeyedLineSorter.KeyedLineIterator iter,
+                                                           KeyedLineSorter.KeyedLine first,
+                                                           List<KeyedLineSorter.KeyedLine> group) throws IOException {
+    group.clear();
+    group.add(first);
+
+    KeyedLineSorter.KeyedLine result = null;
+    while ((result = iter.next()) != null && result.getKey().equals(first.getKey())) {
+      group.add(result);
+    }
+
+    return result;
+  }
+
+  /**
+   * Externally sort the non-empty, non-comment lines of the indexed file by
+   * their generated (non-empty) keys.
+   */
+  private final KeyedLineSorter.KeyedLineIterator sortFile(int index, long sortBudget) throws IOException {
+    final int joinCol = joinCols[index];
+    final KeyGenerator keyGenerator = keyGenerators[index];
+    final KeyedLineSorter sorter = new KeyedLineSorter(sortBudget, tmpDir);
+
+    final BufferedReader reader = FileUtil.getReader(inputFiles[index]);
+    try {
+      String line = skipFirstLines[index] ? reader.readLine() : null;
+      while ((line = reader.readLine()) != null) {
+        if ("".equals(line) || line.charAt(0) == '#') continue;
+
+        final Record record = new Record(line);
+        final String key = keyGenerator.generateKey(record.getField(joinCol));
+        if (key == null || "".equals(key)) continue;
+
+        sorter.add(key, line);
+      }
+    }
+    catch (IOException e) {
+      sorter.close();
+      throw e;
+    }
+    finally {
+      reader.close();
+    }
+
+    if (verbose) {
+      System.out.println((char)('A' + index) + ": sortCount=" + sorter.getCount() +
+                         " spills=" + sorter.getNumSpills());
+    }
+
+    return sorter.sort();
+  }
+
   private final List<Record> doJoin(int iterIndex, Record iterRecord, int loadIndex, List<Record> loadRecords) {
     final List<Record> result = new ArrayList<Record>();
 
@@ -478,6 +701,12 @@ public class FileJoiner {
     //
     //  verbose -- "true" (default="true") to print debug info to stdout.
     //
+    //  joinStrategy -- "hash", "sortMerge", or "auto" (default).
+    //
+    //  memoryBudget -- bytes of memory for loading/sorting (default=1/4 max heap).
+    //
+    //  tmpDir -- directory for sort spill files (default=java.io.tmpdir).
+    //
     final PropertiesParser pp = new PropertiesParser(args);
     final Properties properties = pp.getProperties();
 
@@ -0,0 +1,377 @@
+/*
+    Copyright 2009 Semantic Discovery, Inc. (www.semanticdiscovery.com)
+
+    This file is part of the Semantic Discovery Toolkit.
+
+    The Semantic Discovery Toolkit is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    The Semantic Discovery Toolkit is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with The Semantic Discovery Toolkit.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package org.sd.cio;
+
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.sd.io.Publishable;
+
+/**
+ * Writer that appends publishables from many threads to a single file in
+ * batches ("group commit").
+ * <p>
+ * Callers serialize their publishables with MessageHelper.writePublishable
+ * as they enqueue them, so later changes to a publishable don't reach the
+ * file, and return immediately (write) or wait until their record has
+ * been forced to disk (writeAndSync). A single background thread drains
+ * the queue, appends each batch as one buffer under an OS-level lock on
+ * the channel (so that writers in other processes don't interleave), and
+ * forces the channel at most once per sync interval or whenever a caller
+ * is waiting for durability.
+ * <p>
+ * The resulting file holds consecutive publishables readable through
+ * MessageHelper.readPublishable.
+ * <p>
+ * Use a single instance per file within a JVM; the OS-level lock excludes
+ * other processes, not other channels in the same process.
+ * <p>
+ * If the background thread fails (or dies), the failure is reported to
+ * all waiting and subsequent callers and nothing more is written.
+ *
+ * @author Spence Koehler
+ */
+public class GroupCommitWriter {
+
+  public static final long DEFAULT_SYNC_INTERVAL_MILLIS = 100;
+  public static final int DEFAULT_MAX_BATCH_SIZE = 1024;
+
+
+  private File file;
+  private long syncIntervalMillis;
+  private int maxBatchSize;
+
+  private FileChannel channel;
+  private LinkedBlockingQueue<Entry> queue;
+  private Thread writerThread;
+  private volatile boolean closed;
+  private volatile boolean terminated;  // writer thread has exited
+  private Throwable error;              // guarded by syncMonitor
+
+  private final AtomicLong enqueuedSeq;
+  private final Object syncMonitor = new Object();
+  private long writtenSeq;  // guarded by syncMonitor
+  private long syncedSeq;   // guarded by syncMonitor
+
+  private final AtomicLong numBatches;
+  private final AtomicLong numSyncs;
+
+  public GroupCommitWriter(File file) throws IOException {
+    this(file, DEFAULT_SYNC_INTERVAL_MILLIS, DEFAULT_MAX_BATCH_SIZE);
+  }
+
+  /**
+   * Construct to append to the given file.
+   *
+   * @param file  the file to append to (created if necessary).
+   * @param syncIntervalMillis  the maximum time between forcing written
+   *                            data to disk.
+   * @param maxBatchSize  the maximum number of publishables per write.
+   */
+  public GroupCommitWriter(File file, long syncIntervalMillis, int maxBatchSize) throws IOException {
+    this.file = file;
+    this.syncIntervalMillis = syncIntervalMillis;
+    this.maxBatchSize = Math.max(1, maxBatchSize);
+
+    final File parent = file.getAbsoluteFile().getParentFile();
+    if (parent != null && !parent.exists()) parent.mkdirs();
+
+    this.channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    this.queue = new LinkedBlockingQueue<Entry>();
+    this.closed = false;
+    this.terminated = false;
+    this.error = null;
+    this.enqueuedSeq = new AtomicLong(0L);
+    this.writtenSeq = 0L;
+    this.syncedSeq = 0L;
+    this.numBatches = new AtomicLong(0L);
+    this.numSyncs = new AtomicLong(0L);
+
+    this.writerThread = new Thread(new Runnable() {
+        public void run() {
+          runWriter();
+        }
+      }, "GroupCommitWriter-" + file.getName());
+    writerThread.setDaemon(true);
+    writerThread.start();
+  }
+
+  public File getFile() {
+    return file;
+  }
+
+  /**
+   * Enqueue the publishable for writing, returning immediately.
+   *
+   * @return the publishable's sequence number, which can be passed to
+   *         waitForSync.
+   */
+  public long write(Publishable publishable) throws IOException {
+    return enqueue(publishable, false);
+  }
+
+  /**
+   * Enqueue the publishable and wait until it has been forced to disk.
+   */
+  public void writeAndSync(Publishable publishable) throws IOException {
+    waitForSync(enqueue(publishable, true));
+  }
+
+  /**
+   * Wait until everything enqueued so far has been forced to disk.
+   */
+  public void flush() throws IOException {
+    long seq = 0L;
+
+    synchronized (queue) {
+      seq = enqueuedSeq.get();
+      if (seq > 0) {
+        queue.add(new Entry(null, seq, true, true));  // marker to request a sync
+      }
+    }
+
+    if (seq > 0) {
+      waitForSync(seq);
+    }
+  }
+
+  /**
+   * Wait until the publishable with the given sequence number has been
+   * forced to disk.
+   */
+  public void waitForSync(long seq) throws IOException {
+    synchronized (syncMonitor) {
+      while (syncedSeq < seq) {
+        checkError();
+        if (terminated) {
+          throw new IOException("GroupCommitWriter stopped before sync!");
+        }
+        try {
+          syncMonitor.wait(syncIntervalMillis);
+        }
+        catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          throw new IOException("Interrupted waiting for sync!");
+        }
+      }
+    }
+  }
+
+  /**
+   * Write and sync everything enqueued, then close the file. Writes after
+   * (or racing) close are rejected.
+   */
+  public void close() throws IOException {
+    long seq = 0L;
+
+    synchronized (queue) {
+      if (closed) return;
+      seq = enqueuedSeq.get();
+      if (seq > 0) {
+        queue.add(new Entry(null, seq, true, true));  // marker to request a sync
+      }
+      this.closed = true;  // writer thread exits once the queue is drained
+    }
+
+    try {
+      if (seq > 0) {
+        waitForSync(seq);
+      }
+    }
+    finally {
+      try {
+        writerThread.join();
+      }
+      catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      finally {
+        channel.close();
+      }
+    }
+
+    checkError();
+  }
+
+  public long getNumWritten() {
+    synchronized (syncMonitor) {
+      return writtenSeq;
+    }
+  }
+
+  public long getNumBatches() {
+    return numBatches.get();
+  }
+
+  public long getNumSyncs() {
+    return numSyncs.get();
+  }
+
+  private final long enqueue(Publishable publishable, boolean sync) throws IOException {
+    checkError();
+    if (terminated) throw new IOException("GroupCommitWriter has stopped!");
+
+    final byte[] bytes = serialize(publishable);
+
+    // sequence numbers must be enqueued in order
+    synchronized (queue) {
+      if (closed) throw new IOException("GroupCommitWriter is closed!");
+      final long seq = enqueuedSeq.incrementAndGet();
+      queue.add(new Entry(bytes, seq, sync, false));
+      return seq;
+    }
+  }
+
+  private static final byte[] serialize(Publishable publishable) throws IOException {
+    final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    final DataOutputStream dataOut = new DataOutputStream(bytes);
+    MessageHelper.writePublishable(dataOut, publishable);
+    dataOut.flush();
+    return bytes.toByteArray();
+  }
+
+  private final void checkError() throws IOException {
+    synchronized (syncMonitor) {
+      if (error != null) throw new IOException("GroupCommitWriter failed", error);
+    }
+  }
+
+  private final void runWriter() {
+    final List<Entry> batch = new ArrayList<Entry>();
+    final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+    long lastSync = System.currentTimeMillis();
+    long lastWrittenSeq = 0L;
+    long lastSyncedSeq = 0L;
+
+    try {
+      while (!closed || !queue.isEmpty()) {
+        batch.clear();
+
+        Entry first = null;
+        try {
+          first = queue.poll(syncIntervalMillis, TimeUnit.MILLISECONDS);
+        }
+        catch (InterruptedException e) {
+          break;
+        }
+
+        boolean syncRequested = false;
+        if (first != null) {
+          batch.add(first);
+          queue.drainTo(batch, maxBatchSize - 1);
+
+          bytes.reset();
+          for (Entry entry : batch) {
+            if (!entry.marker) {
+              bytes.write(entry.bytes, 0, entry.bytes.length);
+              lastWrittenSeq = entry.seq;
+            }
+            syncRequested |= entry.sync;
+          }
+
+          if (bytes.size() > 0) {
+            appendLocked(ByteBuffer.wrap(bytes.toByteArray(), 0, bytes.size()));
+            numBatches.incrementAndGet();
+          }
+
+          synchronized (syncMonitor) {
+            writtenSeq = lastWrittenSeq;
+          }
+        }
+
+        final long now = System.currentTimeMillis();
+        if (lastWrittenSeq > lastSyncedSeq && (syncRequested || closed || now - lastSync >= syncIntervalMillis)) {
+          channel.force(false);
+          numSyncs.incrementAndGet();
+          lastSync = now;
+          lastSyncedSeq = lastWrittenSeq;
+        }
+
+        // flush markers carry the latest enqueued seq, which is synced once
+        // everything before it has been written and forced.
+        long synced = lastSyncedSeq;
+        for (Entry entry : batch) {
+          if (entry.marker && lastSyncedSeq == lastWrittenSeq) {
+            synced = Math.max(synced, entry.seq);
+          }
+        }
+
+        synchronized (syncMonitor) {
+          if (synced > syncedSeq) {
+            syncedSeq = synced;
+            syncMonitor.notifyAll();
+          }
+        }
+      }
+    }
+    catch (Throwable t) {
+      synchronized (syncMonitor) {
+        this.error = t;
+      }
+    }
+    finally {
+      synchronized (syncMonitor) {
+        this.terminated = true;
+        syncMonitor.notifyAll();
+      }
+    }
+  }
+
+  /**
+   * Append the buffer while holding an exclusive OS-level lock on the file.
+   */
+  private final void appendLocked(ByteBuffer buffer) throws IOException {
+    final FileLock lock = channel.lock();
+    try {
+      while (buffer.hasRemaining()) {
+        channel.write(buffer);
+      }
+    }
+    finally {
+      lock.release();
+    }
+  }
+
+
+  private static final class Entry {
+    final byte[] bytes;    // the serialized publishable
+    final long seq;
+    final boolean sync;
+    final boolean marker;  // flush marker rather than a publishable
+
+    Entry(byte[] bytes, long seq, boolean sync, boolean marker) {
+      this.bytes = bytes;
+      this.seq = seq;
+      this.sync = sync;
+      this.marker = marker;
+    }
+  }
+}
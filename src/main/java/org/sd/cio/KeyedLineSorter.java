@@ -0,0 +1,347 @@
+/*
+    Copyright 2009 Semantic Discovery, Inc. (www.semanticdiscovery.com)
+
+    This file is part of the Semantic Discovery Toolkit.
+
+    The Semantic Discovery Toolkit is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    The Semantic Discovery Toolkit is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with The Semantic Discovery Toolkit.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package org.sd.cio;
+
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Utility to sort (key, line) pairs by key within a memory budget.
+ * <p>
+ * Pairs are accumulated in memory until the budget is exhausted, at which
+ * point the sorted buffer is spilled to a temporary file. The final sorted
+ * stream is produced by a k-way merge over the spill files and whatever
+ * remains in memory.
+ * <p>
+ * Pairs with equal keys are returned in no particular order.
+ *
+ * @author Spence Koehler
+ */
+public class KeyedLineSorter {
+
+  /**
+   * Rough per-entry overhead (object headers, references, array slots) used
+   * when estimating buffer memory.
+   */
+  private static final int ENTRY_OVERHEAD = 64;
+
+  private static final int IO_BUFFER_SIZE = 64 * 1024;
+
+
+  private long memoryBudget;
+  private File tmpDir;
+  private List<KeyedLine> buffer;
+  private long bufferBytes;
+  private List<File> spillFiles;
+  private long count;
+  private boolean sorted;
+
+  /**
+   * Construct with the given memory budget (in bytes) for buffering entries
+   * and the directory in which to write spill files (null for the system's
+   * default temporary directory).
+   */
+  public KeyedLineSorter(long memoryBudget, File tmpDir) {
+    this.memoryBudget = memoryBudget;
+    this.tmpDir = tmpDir;
+    this.buffer = new ArrayList<KeyedLine>();
+    this.bufferBytes = 0L;
+    this.spillFiles = new ArrayList<File>();
+    this.count = 0L;
+    this.sorted = false;
+  }
+
+  /**
+   * Add a key and its line, spilling to disk if the memory budget has been
+   * exceeded.
+   */
+  public void add(String key, String line) throws IOException {
+    if (sorted) {
+      throw new IllegalStateException("Can't add after sorting!");
+    }
+
+    buffer.add(new KeyedLine(key, line));
+    bufferBytes += estimateBytes(key, line);
+    ++count;
+
+    if (bufferBytes >= memoryBudget) {
+      spill();
+    }
+  }
+
+  /**
+   * Get the number of entries added.
+   */
+  public long getCount() {
+    return count;
+  }
+
+  /**
+   * Get the number of spill files written so far.
+   */
+  public int getNumSpills() {
+    return spillFiles.size();
+  }
+
+  /**
+   * Finish adding and get an iterator over all entries in key order.
+   * <p>
+   * The returned iterator must be closed (which also closes this sorter)
+   * to release and delete the spill files.
+   */
+  public KeyedLineIterator sort() throws IOException {
+    this.sorted = true;
+
+    KeyedLineIterator result = null;
+
+    Collections.sort(buffer);
+
+    if (spillFiles.size() == 0) {
+      result = new BufferIterator(buffer);
+    }
+    else {
+      if (buffer.size() > 0) spill();
+      result = new MergeIterator(spillFiles, this);
+    }
+
+    return result;
+  }
+
+  /**
+   * Delete any spill files.
+   */
+  public void close() {
+    for (File spillFile : spillFiles) {
+      spillFile.delete();
+    }
+    spillFiles.clear();
+    buffer.clear();
+    bufferBytes = 0L;
+  }
+
+  private final void spill() throws IOException {
+    Collections.sort(buffer);
+
+    final File spillFile = File.createTempFile("keyedLineSorter.", ".spill", tmpDir);
+    spillFile.deleteOnExit();
+    spillFiles.add(spillFile);
+
+    final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(spillFile), IO_BUFFER_SIZE));
+    try {
+      for (KeyedLine keyedLine : buffer) {
+        writeString(out, keyedLine.getKey());
+        writeString(out, keyedLine.getLine());
+      }
+    }
+    finally {
+      out.close();
+    }
+
+    buffer.clear();
+    bufferBytes = 0L;
+  }
+
+  private static final long estimateBytes(String key, String line) {
+    // java chars are 2 bytes; the line is usually the dominant term.
+    return ENTRY_OVERHEAD + 2L * (key.length() + line.length());
+  }
+
+  private static final void writeString(DataOutputStream out, String string) throws IOException {
+    final byte[] bytes = string.getBytes("UTF-8");
+    out.writeInt(bytes.length);
+    out.write(bytes);
+  }
+
+  /**
+   * Read the next string, returning null at a clean end of stream.
+   */
+  private static final String readString(DataInputStream in, byte[][] scratch) throws IOException {
+    final int len;
+    try {
+      len = in.readInt();
+    }
+    catch (EOFException e) {
+      return null;
+    }
+
+    if (scratch[0].length < len) scratch[0] = new byte[Math.max(len, scratch[0].length * 2)];
+    in.readFully(scratch[0], 0, len);
+    return new String(scratch[0], 0, len, "UTF-8");
+  }
+
+
+  /**
+   * Container for a key and the line it was generated from.
+   */
+  public static final class KeyedLine implements Comparable<KeyedLine> {
+
+    private String key;
+    private String line;
+
+    public KeyedLine(String key, String line) {
+      this.key = key;
+      this.line = line;
+    }
+
+    public String getKey() {
+      return key;
+    }
+
+    public String getLine() {
+      return line;
+    }
+
+    public int compareTo(KeyedLine other) {
+      return key.compareTo(other.key);
+    }
+
+    public String toString() {
+      return key + " -> " + line;
+    }
+  }
+
+  /**
+   * Iterator over sorted keyed lines.
+   */
+  public static interface KeyedLineIterator {
+
+    /**
+     * Get the next keyed line in key order, or null if there are no more.
+     */
+    public KeyedLine next() throws IOException;
+
+    /**
+     * Release resources held by this iterator.
+     */
+    public void close() throws IOException;
+  }
+
+
+  private static final class BufferIterator implements KeyedLineIterator {
+
+    private Iterator<KeyedLine> iter;
+
+    BufferIterator(List<KeyedLine> buffer) {
+      this.iter = buffer.iterator();
+    }
+
+    public KeyedLine next() {
+      return iter.hasNext() ? iter.next() : null;
+    }
+
+    public void close() {
+    }
+  }
+
+  private static final class SpillCursor implements Comparable<SpillCursor> {
+
+    private DataInputStream in;
+    private byte[][] scratch;
+    private KeyedLine current;
+
+    SpillCursor(File spillFile) throws IOException {
+      this.in = new DataInputStream(new BufferedInputStream(new FileInputStream(spillFile), IO_BUFFER_SIZE));
+      this.scratch = new byte[][]{new byte[1024]};
+      this.current = null;
+    }
+
+    /**
+     * Advance to the next entry, returning false (and closing) at the end.
+     */
+    boolean advance() throws IOException {
+      final String key = readString(in, scratch);
+      if (key == null) {
+        current = null;
+        in.close();
+        return false;
+      }
+      final String line = readString(in, scratch);
+      if (line == null) {
+        throw new EOFException("Truncated spill file!");
+      }
+      current = new KeyedLine(key, line);
+      return true;
+    }
+
+    KeyedLine getCurrent() {
+      return current;
+    }
+
+    void close() throws IOException {
+      in.close();
+    }
+
+    public int compareTo(SpillCursor other) {
+      return current.compareTo(other.current);
+    }
+  }
+
+  private static final class MergeIterator implements KeyedLineIterator {
+
+    private PriorityQueue<SpillCursor> queue;
+    private KeyedLineSorter sorter;
+
+    MergeIterator(List<File> spillFiles, KeyedLineSorter sorter) throws IOException {
+      this.queue = new PriorityQueue<SpillCursor>(Math.max(1, spillFiles.size()));
+      this.sorter = sorter;
+
+      for (File spillFile : spillFiles) {
+        final SpillCursor cursor = new SpillCursor(spillFile);
+        if (cursor.advance()) {
+          queue.add(cursor);
+        }
+      }
+    }
+
+    public KeyedLine next() throws IOException {
+      KeyedLine result = null;
+
+      final SpillCursor cursor = queue.poll();
+      if (cursor != null) {
+        result = cursor.getCurrent();
+        if (cursor.advance()) {
+          queue.add(cursor);
+        }
+      }
+
+      return result;
+    }
+
+    public void close() throws IOException {
+      for (SpillCursor cursor : queue) {
+        cursor.close();
+      }
+      queue.clear();
+      sorter.close();
+    }
+  }
+}
@@ -27,6 +27,9 @@ import org.sd.io.FileLock;
  * An operation to write a publishable message to a file while
  * locking that file so that other processes don't read
  * <p>
+ * For many small records appended to one file from many threads, see
+ * GroupCommitWriter, which batches writes instead of locking per record.
+ * <p>
  * @author asanderson
  */
 public class LockWhileWritingOperation
@@ -22,6 +22,7 @@ package org.sd.cio;
 import org.sd.io.DataHelper;
 import org.sd.io.Publishable;
 import org.sd.io.FileLock;
+import org.sd.io.PublishableCodec;
 import org.sd.util.ReflectUtil;
 import org.sd.util.tree.Tree;
 import org.sd.xml.XmlFactory;
@@ -43,6 +44,7 @@ import java.io.ObjectOutputStream;
 import java.io.OutputStream;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 /**
@@ -56,7 +58,10 @@ public class MessageHelper extends DataHelper {
   public static final int MAX_CLASSPATH_LEN = 1024;
 
   public static void writePublishable(DataOutput dataOutput, Publishable publishable) throws IOException {
-    if (publishable == null) {
+    if (dataOutput instanceof PublishableCodec.Output) {
+      ((PublishableCodec.Output)dataOutput).getCodec().writePublishable(dataOutput, publishable);
+    }
+    else if (publishable == null) {
       dataOutput.writeBoolean(false);
     }
     else {
@@ -114,6 +119,10 @@ public class MessageHelper extends DataHelper {
   }
 
   public static Publishable readPublishable(DataInput dataInput) throws IOException {
+    if (dataInput instanceof PublishableCodec.Input) {
+      return ((PublishableCodec.Input)dataInput).getCodec().readPublishable(dataInput);
+    }
+
     Publishable result = null;
     final boolean hasPublishable = dataInput.readBoolean();
     if (hasPublishable) {
@@ -165,9 +174,101 @@ public class MessageHelper extends DataHelper {
     else {
       dataOutput.writeBoolean(true);   // hasData=true
       dataOutput.writeBoolean(htmlFlag);
-      final String string = XmlLite.asXml(xmlTree, false);
-      writeString(dataOutput, string);
+
+      if (dataOutput instanceof PublishableCodec.Output) {
+        writeXmlTreeNode((PublishableCodec.Output)dataOutput, xmlTree);
+      }
+      else {
+        final String string = XmlLite.asXml(xmlTree, false);
+        writeString(dataOutput, string);
+      }
+    }
+  }
+
+  // node kinds for compactly encoded xml trees
+  private static final int XML_TAG = 0;
+  private static final int XML_TEXT = 1;
+  private static final int XML_COMMENT = 2;
+  private static final int XML_SCRIPT = 3;
+  private static final int XML_STYLE = 4;
+
+  /**
+   * Write the xml node directly (without rendering and re-parsing xml),
+   * sharing repeated tag and attribute names.
+   */
+  private static final void writeXmlTreeNode(PublishableCodec.Output dataOutput, Tree<XmlLite.Data> node) throws IOException {
+    final XmlLite.Data data = node.getData();
+    final XmlLite.Tag tag = data.asTag();
+
+    if (tag != null) {
+      dataOutput.writeByte(XML_TAG);
+      dataOutput.writeName(tag.name);
+      PublishableCodec.writeVarInt(dataOutput, tag.attributes.size());
+      for (Map.Entry<String, String> entry : tag.attributes.entrySet()) {
+        dataOutput.writeName(entry.getKey());
+        writeString(dataOutput, entry.getValue());
+      }
+      dataOutput.writeBoolean(tag.isSelfTerminating());
+    }
+    else if (data.asText() != null) {
+      dataOutput.writeByte(XML_TEXT);
+      writeString(dataOutput, data.asText().text);
+    }
+    else if (data.asComment() != null) {
+      dataOutput.writeByte(XML_COMMENT);
+      writeString(dataOutput, data.asComment().text);
+    }
+    else if (data.asScript() != null) {
+      dataOutput.writeByte(XML_SCRIPT);
+      writeString(dataOutput, data.asScript().text);
+    }
+    else {
+      dataOutput.writeByte(XML_STYLE);
+      writeString(dataOutput, data.asStyle().text);
+    }
+
+    PublishableCodec.writeVarInt(dataOutput, node.numChildren());
+    if (node.hasChildren()) {
+      for (Tree<XmlLite.Data> child : node.getChildren()) {
+        writeXmlTreeNode(dataOutput, child);
+      }
+    }
+  }
+
+  private static final Tree<XmlLite.Data> readXmlTreeNode(PublishableCodec.Input dataInput, boolean htmlFlag) throws IOException {
+    Tree<XmlLite.Data> result = null;
+
+    final int kind = dataInput.readByte();
+    switch (kind) {
+      case XML_TAG :
+        final XmlLite.Tag tag = new XmlLite.Tag(dataInput.readName(), htmlFlag);
+        final int numAttributes = PublishableCodec.readVarInt(dataInput);
+        for (int i = 0; i < numAttributes; ++i) {
+          final String att = dataInput.readName();
+          tag.attributes.put(att, readString(dataInput));
+        }
+        tag.setSelfTerminating(dataInput.readBoolean());
+        result = new Tree<XmlLite.Data>(tag);
+        tag.setContainer(result);
+        break;
+      case XML_TEXT :
+        result = XmlLite.createTextNode(readString(dataInput)); break;
+      case XML_COMMENT :
+        result = XmlLite.createCommentNode(readString(dataInput)); break;
+      case XML_SCRIPT :
+        result = XmlLite.createScriptNode(readString(dataInput)); break;
+      case XML_STYLE :
+        result = XmlLite.createStyleNode(readString(dataInput)); break;
+      default :
+        throw new IOException("Bad xml node kind " + kind + "!");
     }
+
+    final int numChildren = PublishableCodec.readVarInt(dataInput);
+    for (int childNum = 0; childNum < numChildren; ++childNum) {
+      result.addChild(readXmlTreeNode(dataInput, htmlFlag));
+    }
+
+    return result;
   }
 
   /**
@@ -179,8 +280,14 @@ public class MessageHelper extends DataHelper {
 
     if (hasData) {
       final boolean htmlFlag = dataInput.readBoolean();
-      final String string = readString(dataInput);
-      result = XmlFactory.buildXmlTree(string, false, htmlFlag);
+
+      if (dataInput instanceof PublishableCodec.Input) {
+        result = readXmlTreeNode((PublishableCodec.Input)dataInput, htmlFlag);
+      }
+      else {
+        final String string = readString(dataInput);
+        result = XmlFactory.buildXmlTree(string, false, htmlFlag);
+      }
     }
 
     return result;
@@ -200,8 +307,15 @@ public class MessageHelper extends DataHelper {
   }
 
   private static final void writeStringTreeNode(DataOutput dataOutput, Tree<String> node) throws IOException {
-    writeString(dataOutput, node.getData());
-    dataOutput.writeInt(node.numChildren());
+    if (dataOutput instanceof PublishableCodec.Output) {
+      // share repeated labels; varint child counts
+      ((PublishableCodec.Output)dataOutput).writeName(node.getData());
+      PublishableCodec.writeVarInt(dataOutput, node.numChildren());
+    }
+    else {
+      writeString(dataOutput, node.getData());
+      dataOutput.writeInt(node.numChildren());
+    }
 
     if (node.hasChildren()) {
       for (Tree<String> child : node.getChildren()) {
@@ -225,8 +339,17 @@ public class MessageHelper extends DataHelper {
   }
 
   private static final Tree<String> readStringTreeNode(DataInput dataInput) throws IOException {
-    final String data = readString(dataInput);
-    final int numChildren = dataInput.readInt();
+    String data = null;
+    int numChildren = 0;
+
+    if (dataInput instanceof PublishableCodec.Input) {
+      data = ((PublishableCodec.Input)dataInput).readName();
+      numChildren = PublishableCodec.readVarInt(dataInput);
+    }
+    else {
+      data = readString(dataInput);
+      numChildren = dataInput.readInt();
+    }
 
     final Tree<String> result = new Tree<String>(data);
 
@@ -19,127 +19,327 @@ package org.sd.image;
 import java.awt.image.BufferedImage;
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.List;
 import java.util.concurrent.Callable;
 import java.util.concurrent.CancellationException;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 import org.sd.util.ThreadPoolUtil;
 import org.sd.xml.DataProperties;
 
 /**
  * Class for processing images, controlling for resources allocation.
  * <p>
+ * Resizing is performed either in the calling thread or concurrently on a
+ * fixed pool of worker threads; either way, each thread reuses its own
+ * ImageResizer (readers, writer and scratch buffers) across images.
+ * <p>
+ * The shared instance resizes in the calling thread so that it doesn't
+ * hold pool threads that would keep the JVM alive; construct an instance
+ * with worker threads for pooled resizing. Its owner must close it to
+ * release the worker threads.
+ * <p>
  * @author Spencer Koehler
  */
 public class ImageProcessor {
   
-  public static final int DEFAULT_NUM_THREADS = 1;
+  public static final int DEFAULT_NUM_THREADS = Runtime.getRuntime().availableProcessors();
   public static final boolean USE_THREAD_POOL = false;
+  public static final long DEFAULT_TIMEOUT_MILLIS = 10000;
 
 
-  private static final ImageProcessor INSTANCE = new ImageProcessor();
+  private static final ImageProcessor INSTANCE = new ImageProcessor(USE_THREAD_POOL ? DEFAULT_NUM_THREADS : 0);
   public static final ImageProcessor getInstance() { return INSTANCE; }
 
 
+  private int numThreads;
   private ExecutorService threadPool;
-  private final Object mutex = new Object();
+  private long timeoutMillis;
+  private final ThreadLocal<ImageResizer> resizers;
+  private final Metrics metrics;
+
+  /**
+   * Construct with the given number of worker threads (0 to resize in the
+   * calling thread).
+   */
+  public ImageProcessor(int numThreads) {
+    this(numThreads, ImageResizer.DEFAULT_MIN_SUBSAMPLE_RATIO, DEFAULT_TIMEOUT_MILLIS);
+  }
 
-  private ImageProcessor() {
-    this.threadPool = USE_THREAD_POOL ? ThreadPoolUtil.createThreadPool("ImageProcessor-", DEFAULT_NUM_THREADS) : null;
-    registerShutdownHook();
+  /**
+   * Construct with the given number of worker threads (0 to resize in the
+   * calling thread), minimum source to target size ratio for subsampling
+   * on decode (0 to never subsample), and per-image timeout.
+   */
+  public ImageProcessor(int numThreads, final int minSubsampleRatio, long timeoutMillis) {
+    this.numThreads = numThreads;
+    this.threadPool = (numThreads > 0) ? ThreadPoolUtil.createThreadPool("ImageProcessor-", numThreads) : null;
+    this.timeoutMillis = timeoutMillis;
+    this.resizers = new ThreadLocal<ImageResizer>() {
+        protected ImageResizer initialValue() {
+          return new ImageResizer(minSubsampleRatio);
+        }
+      };
+    this.metrics = new Metrics();
+  }
+
+  public int getNumThreads() {
+    return numThreads;
+  }
+
+  public Metrics getMetrics() {
+    return metrics;
   }
 
   public byte[] resizeImage(byte[] imageBytes, int targetWidth, int targetHeight) {
     byte[] result = null;
 
     if (this.threadPool != null) {
-      final Future<byte[]> future = this.threadPool.submit(new Resizer(imageBytes, targetWidth, targetHeight));
-      ThreadPoolUtil.waitUntilDone(new Future<?>[]{future}, 1, 10000);
-      if (future.isDone()) {
-        try {
-          result = future.get();
-        }
-        catch (InterruptedException ie) {
-          System.err.println("ERROR: ImageProcessor.resizeImage(" + imageBytes.length + ") " + ie);
-          result = null;
-        }
-        catch (ExecutionException ee) {
-          System.err.println("ERROR: ImageProcessor.resizeImage(" + imageBytes.length + ") " + ee);
-          result = null;
-        }
-        catch (CancellationException ce) {
-          System.err.println("ERROR: ImageProcessor.resizeImage(" + imageBytes.length + ") " + ce);
-          result = null;
-        }
+      final Resizer resizer = new Resizer(this, imageBytes, targetWidth, targetHeight);
+      result = getResult(this.threadPool.submit(resizer), resizer, System.nanoTime() + timeoutMillis * 1000000L);
+    }
+    else {
+      result = doResize(imageBytes, targetWidth, targetHeight);
+    }      
+
+    return result;
+  }
+
+  /**
+   * Resize each of the images concurrently, returning the resized bytes in
+   * the same order as the input, with nulls for images that failed or that
+   * didn't finish within the timeout of the call.
+   */
+  public List<byte[]> resizeImages(List<byte[]> images, int targetWidth, int targetHeight) {
+    final List<byte[]> result = new ArrayList<byte[]>(images.size());
+
+    if (this.threadPool != null) {
+      final List<Resizer> tasks = new ArrayList<Resizer>(images.size());
+      final List<Future<byte[]>> futures = new ArrayList<Future<byte[]>>(images.size());
+      for (byte[] imageBytes : images) {
+        final Resizer resizer = new Resizer(this, imageBytes, targetWidth, targetHeight);
+        tasks.add(resizer);
+        futures.add(this.threadPool.submit(resizer));
       }
-      else {
-        System.err.println("WARNING: ImageProcessor.resizeImage(" + imageBytes.length + ") failed to complete resize");
+
+      final long deadline = System.nanoTime() + timeoutMillis * 1000000L;
+      for (int index = 0; index < futures.size(); ++index) {
+        result.add(getResult(futures.get(index), tasks.get(index), deadline));
       }
     }
     else {
-      try {
-        synchronized (mutex) {
-          result = ImageUtil.getResizedBytes(imageBytes, targetWidth, targetHeight);
-        }
-      }
-      catch (IOException ioe) {
-        System.err.println("ERROR: ImageProcessor.resizeImage(" + imageBytes.length + ") " + ioe);
-        result =  null;
+      for (byte[] imageBytes : images) {
+        result.add(doResize(imageBytes, targetWidth, targetHeight));
       }
-    }      
+    }
 
     return result;
   }
 
+  /**
+   * Shut down this instance's worker threads, if any.
+   */
   public void close() {
     if (threadPool != null) {
       ThreadPoolUtil.shutdownGracefully(threadPool, 1L);
     }
   }
 
-  private final void registerShutdownHook() {
-    Runtime.getRuntime().addShutdownHook(
-      new Thread(
-        new Runnable() {
-          public void run() {
-            try {
-              close();
-            }
-            catch (Exception e) {
-              //ignore
-            }
-          }
-        },
-        "ImageProcessor.ShutdownThread"));
+  /**
+   * Wait until the deadline (System.nanoTime) for the resizer's result,
+   * recording it as a failure if it doesn't complete in time.
+   */
+  private final byte[] getResult(Future<byte[]> future, Resizer resizer, long deadline) {
+    byte[] result = null;
+    final byte[] imageBytes = resizer.imageBytes;
+
+    try {
+      result = future.get(Math.max(0L, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+    }
+    catch (TimeoutException te) {
+      System.err.println("WARNING: ImageProcessor.resizeImage(" + imageBytes.length + ") failed to complete resize");
+      future.cancel(true);
+      resizer.recordFailure(timeoutMillis * 1000000L);
+      result = null;
+    }
+    catch (InterruptedException ie) {
+      System.err.println("ERROR: ImageProcessor.resizeImage(" + imageBytes.length + ") " + ie);
+      Thread.currentThread().interrupt();
+      result = null;
+    }
+    catch (ExecutionException ee) {
+      System.err.println("ERROR: ImageProcessor.resizeImage(" + imageBytes.length + ") " + ee);
+      resizer.recordFailure(0L);
+      result = null;
+    }
+    catch (CancellationException ce) {
+      System.err.println("ERROR: ImageProcessor.resizeImage(" + imageBytes.length + ") " + ce);
+      resizer.recordFailure(0L);
+      result = null;
+    }
+
+    return result;
   }
 
+  /**
+   * Resize in the current thread using its resizer, recording metrics.
+   */
+  private final byte[] doResize(byte[] imageBytes, int targetWidth, int targetHeight) {
+    final long starttime = System.nanoTime();
+    final byte[] result = resize(imageBytes, targetWidth, targetHeight);
+    metrics.record(imageBytes, result, resizers.get().lastSubsampled(), System.nanoTime() - starttime);
+    return result;
+  }
+
+  /**
+   * Resize in the current thread using its resizer.
+   */
+  private final byte[] resize(byte[] imageBytes, int targetWidth, int targetHeight) {
+    byte[] result = null;
 
+    final ImageResizer resizer = resizers.get();
+
+    try {
+      result = resizer.getResizedBytes(imageBytes, targetWidth, targetHeight);
+    }
+    catch (IOException ioe) {
+      System.err.println("ERROR: ImageProcessor.resizeImage(" + imageBytes.length + ") " + ioe);
+      result =  null;
+    }
+    catch (RuntimeException re) {
+      // e.g., unsupported image types; don't let one image kill a batch
+      System.err.println("ERROR: ImageProcessor.resizeImage(" + imageBytes.length + ") " + re);
+      result =  null;
+    }
+
+    return result;
+  }
+
+  /**
+   * Task to resize an image in a worker thread.
+   * <p>
+   * Each task's outcome is recorded in its processor's metrics exactly once:
+   * by the worker when it finishes, or by the waiting caller if the task
+   * times out (or fails) first.
+   */
   public static final class Resizer implements Callable<byte[]> {
     public final byte[] imageBytes;
     public final int targetWidth;
     public final int targetHeight;
-    private IOException error;
+    private final ImageProcessor processor;
+    private final AtomicBoolean recorded;
 
+    /**
+     * Construct to resize through the shared instance.
+     */
     public Resizer(byte[] imageBytes, int targetWidth, int targetHeight) {
+      this(INSTANCE, imageBytes, targetWidth, targetHeight);
+    }
+
+    Resizer(ImageProcessor processor, byte[] imageBytes, int targetWidth, int targetHeight) {
       this.imageBytes = imageBytes;
       this.targetWidth = targetWidth;
       this.targetHeight = targetHeight;
-      this.error = null;
+      this.processor = processor;
+      this.recorded = new AtomicBoolean(false);
     }
 
     public byte[] call() {
-      byte[] result = null;
-
-      try {
-        result = ImageUtil.getResizedBytes(imageBytes, targetWidth, targetHeight);
+      final long starttime = System.nanoTime();
+      final byte[] result = processor.resize(imageBytes, targetWidth, targetHeight);
+      if (recorded.compareAndSet(false, true)) {
+        processor.metrics.record(imageBytes, result, processor.resizers.get().lastSubsampled(), System.nanoTime() - starttime);
       }
-      catch (IOException ioe) {
-        this.error = ioe;
+      return result;
+    }
+
+    void recordFailure(long nanos) {
+      if (recorded.compareAndSet(false, true)) {
+        processor.metrics.record(imageBytes, null, false, nanos);
       }
+    }
+  }
 
-      return result;
+  /**
+   * Throughput metrics across all resizes.
+   */
+  public static final class Metrics {
+
+    private final long starttime;
+    private final AtomicLong images;
+    private final AtomicLong failures;
+    private final AtomicLong subsampled;
+    private final AtomicLong inputBytes;
+    private final AtomicLong outputBytes;
+    private final AtomicLong workNanos;
+
+    Metrics() {
+      this.starttime = System.currentTimeMillis();
+      this.images = new AtomicLong(0L);
+      this.failures = new AtomicLong(0L);
+      this.subsampled = new AtomicLong(0L);
+      this.inputBytes = new AtomicLong(0L);
+      this.outputBytes = new AtomicLong(0L);
+      this.workNanos = new AtomicLong(0L);
+    }
+
+    void record(byte[] input, byte[] output, boolean wasSubsampled, long nanos) {
+      images.incrementAndGet();
+      if (output == null) failures.incrementAndGet();
+      if (wasSubsampled) subsampled.incrementAndGet();
+      if (input != null) inputBytes.addAndGet(input.length);
+      if (output != null) outputBytes.addAndGet(output.length);
+      workNanos.addAndGet(nanos);
+    }
+
+    /** Number of images processed (including failures). */
+    public long getImages() { return images.get(); }
+
+    /** Number of images that failed or timed out. */
+    public long getFailures() { return failures.get(); }
+
+    /** Number of images decoded with subsampling. */
+    public long getSubsampled() { return subsampled.get(); }
+
+    public long getInputBytes() { return inputBytes.get(); }
+
+    public long getOutputBytes() { return outputBytes.get(); }
+
+    /** Total time spent resizing, summed across worker threads. */
+    public long getWorkMillis() { return workNanos.get() / 1000000L; }
+
+    /** Images per second of wall-clock time since construction. */
+    public double getImagesPerSecond() {
+      final long elapsed = Math.max(1L, System.currentTimeMillis() - starttime);
+      return (images.get() * 1000.0) / elapsed;
+    }
+
+    /** Mean time (in millis) spent resizing each image. */
+    public double getMeanMillisPerImage() {
+      final long n = images.get();
+      return (n == 0) ? 0.0 : (workNanos.get() / 1000000.0) / n;
+    }
+
+    public String toString() {
+      final StringBuilder result = new StringBuilder();
+
+      result.
+        append("images=").append(getImages()).
+        append(" failures=").append(getFailures()).
+        append(" subsampled=").append(getSubsampled()).
+        append(" inBytes=").append(getInputBytes()).
+        append(" outBytes=").append(getOutputBytes()).
+        append(String.format(" images/sec=%.2f", getImagesPerSecond())).
+        append(String.format(" ms/image=%.2f", getMeanMillisPerImage()));
+
+      return result.toString();
     }
   }
 
@@ -156,6 +356,8 @@ public class ImageProcessor {
     //     newSize -- the new width and height
     //
     //   iters -- number of iterations to run instead of writing the image
+    //   numThreads -- number of resizing threads (default=number of processors)
+    //   batchSize -- number of images to resize per batch when iterating (default=numThreads)
     //
     final DataProperties dataProperties = new DataProperties(args);
     args = dataProperties.getRemainingArgs();
@@ -167,27 +369,37 @@ public class ImageProcessor {
     final int newWidth = dataProperties.getInt("newWidth", newSize);
     final int newHeight = dataProperties.getInt("newHeight", newWidth);
     final int iters = dataProperties.getInt("iters", 1);
+    final int numThreads = dataProperties.getInt("numThreads", DEFAULT_NUM_THREADS);
+    final int batchSize = Math.max(1, dataProperties.getInt("batchSize", numThreads));
 
-    final ImageProcessor imageProcessor = ImageProcessor.getInstance();
+    final ImageProcessor imageProcessor = new ImageProcessor(numThreads);
 
     if (newWidth > 0 && newHeight > 0) {
-      for (int iter = 0; iter < iters; ++iter) {
+      if (iters == 1) {
         // take the long way around for testing:
         final byte[] imageBytes = ImageUtil.getImageBytes(inputImage);
         final byte[] resizedBytes = imageProcessor.resizeImage(imageBytes, newWidth, newHeight);
 
         final BufferedImage resizedImage = ImageUtil.createImage(resizedBytes);
-        if (iters == 1) {
-          ImageUtil.writeImage(resizedImage, outputType, outputImage);
-        }
-        else {
-          if ((iter % 1000) == 0) {
-            System.out.println(new Date() + ": resized image " + iter + " times.");
+        ImageUtil.writeImage(resizedImage, outputType, outputImage);
+      }
+      else {
+        final byte[] imageBytes = ImageUtil.getImageBytes(inputImage);
+        final List<byte[]> batch = new ArrayList<byte[]>();
+        for (int i = 0; i < batchSize; ++i) batch.add(imageBytes);
+
+        for (int iter = 0; iter < iters; iter += batchSize) {
+          imageProcessor.resizeImages(batch, newWidth, newHeight);
+          if ((iter % 1000) < batchSize) {
+            System.out.println(new Date() + ": resized image " + iter + " times. " + imageProcessor.getMetrics());
           }
         }
       }
     }
 
+    System.out.println(imageProcessor.getMetrics());
+    imageProcessor.close();
+
     System.exit(0);
   }
 }
@@ -0,0 +1,249 @@
+/*
+   Copyright 2008-2016 Semantic Discovery, Inc.
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+package org.sd.image;
+
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriter;
+import javax.imageio.spi.ImageReaderSpi;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import javax.imageio.stream.MemoryCacheImageOutputStream;
+import java.awt.AlphaComposite;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * Single-threaded image resizer that reuses its image readers, jpeg writer,
+ * destination image and output buffer across calls.
+ * <p>
+ * Instances are not thread-safe; the ImageProcessor keeps one per worker
+ * thread.
+ * <p>
+ * When the source is much larger than the target, the source is decoded
+ * with subsampling so that only about twice the target's pixels are read.
+ *
+ * @author Spencer Koehler
+ */
+public class ImageResizer {
+
+  /**
+   * Minimum ratio of source to target size (in each dimension) before
+   * subsampling on decode.
+   */
+  public static final int DEFAULT_MIN_SUBSAMPLE_RATIO = 4;
+
+
+  private int minSubsampleRatio;
+  private Map<String, ImageReader> readers;  // reader class name -> reader
+  private ImageWriter jpegWriter;
+  private BufferedImage scratchImage;
+  private ByteArrayOutputStream outputBuffer;
+  private boolean lastSubsampled;
+
+  public ImageResizer() {
+    this(DEFAULT_MIN_SUBSAMPLE_RATIO);
+  }
+
+  /**
+   * Construct with the given minimum source to target size ratio for
+   * subsampling on decode (0 to never subsample).
+   */
+  public ImageResizer(int minSubsampleRatio) {
+    this.minSubsampleRatio = minSubsampleRatio;
+    this.readers = new HashMap<String, ImageReader>();
+    this.jpegWriter = null;
+    this.scratchImage = null;
+    this.outputBuffer = new ByteArrayOutputStream();
+    this.lastSubsampled = false;
+  }
+
+  /**
+   * Determine whether the last decoded image was subsampled.
+   */
+  public boolean lastSubsampled() {
+    return lastSubsampled;
+  }
+
+  /**
+   * Resize the image, returning jpeg bytes or null if the image could not
+   * be decoded.
+   */
+  public byte[] getResizedBytes(byte[] imageBytes, int newWidth, int newHeight) throws IOException {
+    byte[] result = null;
+
+    final BufferedImage image = decode(imageBytes, newWidth, newHeight);
+    if (image != null) {
+      final BufferedImage resized = resize(image, newWidth, newHeight);
+      result = encode(resized);
+    }
+
+    return result;
+  }
+
+  /**
+   * Decode the image, subsampling if it is much larger than the target.
+   */
+  public BufferedImage decode(byte[] imageBytes, int targetWidth, int targetHeight) throws IOException {
+    BufferedImage result = null;
+    this.lastSubsampled = false;
+
+    if (imageBytes == null || imageBytes.length == 0) return result;
+
+    final ImageInputStream stream = ImageIO.createImageInputStream(new ByteArrayInputStream(imageBytes));
+    try {
+      final ImageReader reader = getReader(stream);
+      if (reader != null) {
+        reader.setInput(stream, true, true);
+
+        try {
+          final ImageReadParam param = reader.getDefaultReadParam();
+          final int subsample = computeSubsampling(reader.getWidth(0), reader.getHeight(0), targetWidth, targetHeight);
+          if (subsample > 1) {
+            param.setSourceSubsampling(subsample, subsample, 0, 0);
+            this.lastSubsampled = true;
+          }
+          result = reader.read(0, param);
+        }
+        finally {
+          reader.setInput(null);
+        }
+      }
+    }
+    finally {
+      stream.close();
+    }
+
+    return result;
+  }
+
+  /**
+   * Resize the image into this instance's scratch image, which is only
+   * valid until the next call.
+   */
+  public BufferedImage resize(BufferedImage img, int newWidth, int newHeight) {
+    int type = img.getType();
+    if (type == BufferedImage.TYPE_CUSTOM) type = BufferedImage.TYPE_INT_RGB;
+
+    if (scratchImage == null || scratchImage.getWidth() != newWidth ||
+        scratchImage.getHeight() != newHeight || scratchImage.getType() != type) {
+      this.scratchImage = new BufferedImage(newWidth, newHeight, type);
+    }
+
+    final Graphics2D g = scratchImage.createGraphics();
+    try {
+      g.setComposite(AlphaComposite.Src);  // overwrite prior contents
+      g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+      g.drawImage(img, 0, 0, newWidth, newHeight, 0, 0, img.getWidth(), img.getHeight(), null);
+    }
+    finally {
+      g.dispose();
+    }
+
+    return scratchImage;
+  }
+
+  /**
+   * Encode the image as jpeg bytes.
+   */
+  public byte[] encode(BufferedImage image) throws IOException {
+    if (jpegWriter == null) {
+      final Iterator<ImageWriter> iter = ImageIO.getImageWritersByFormatName("jpeg");
+      if (!iter.hasNext()) throw new IOException("No jpeg writer available!");
+      this.jpegWriter = iter.next();
+    }
+
+    outputBuffer.reset();
+    final ImageOutputStream out = new MemoryCacheImageOutputStream(outputBuffer);
+    try {
+      jpegWriter.setOutput(out);
+      jpegWriter.write(image);
+    }
+    finally {
+      jpegWriter.setOutput(null);
+      out.close();
+    }
+
+    return outputBuffer.toByteArray();
+  }
+
+  /**
+   * Release the cached readers and writer.
+   */
+  public void close() {
+    for (ImageReader reader : readers.values()) {
+      reader.dispose();
+    }
+    readers.clear();
+
+    if (jpegWriter != null) {
+      jpegWriter.dispose();
+      jpegWriter = null;
+    }
+
+    scratchImage = null;
+  }
+
+  /**
+   * Compute the subsampling factor to decode a srcWidth x srcHeight image
+   * for a targetWidth x targetHeight result, keeping about twice the target
+   * resolution for interpolation quality.
+   */
+  int computeSubsampling(int srcWidth, int srcHeight, int targetWidth, int targetHeight) {
+    int result = 1;
+
+    if (minSubsampleRatio > 0 && targetWidth > 0 && targetHeight > 0) {
+      final int ratio = Math.min(srcWidth / targetWidth, srcHeight / targetHeight);
+      if (ratio >= minSubsampleRatio) {
+        result = ratio / 2;
+      }
+    }
+
+    return result;
+  }
+
+  /**
+   * Get a reader for the stream, preferring an already created reader whose
+   * provider accepts the input over creating a new one.
+   */
+  private final ImageReader getReader(ImageInputStream stream) throws IOException {
+    for (ImageReader reader : readers.values()) {
+      final ImageReaderSpi spi = reader.getOriginatingProvider();
+      if (spi != null && spi.canDecodeInput(stream)) {
+        return reader;
+      }
+    }
+
+    ImageReader result = null;
+
+    final Iterator<ImageReader> iter = ImageIO.getImageReaders(stream);
+    if (iter.hasNext()) {
+      result = iter.next();
+      readers.put(result.getClass().getName(), result);
+    }
+
+    return result;
+  }
+}
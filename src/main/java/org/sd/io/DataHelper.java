@@ -163,7 +163,12 @@ public class DataHelper {
    * Write the byte array to the data output to be read in by readBytes.
    */
   public static final void writeBytes(DataOutput dataOutput, byte[] bytes) throws IOException {
-    if (bytes == null) {
+    if (dataOutput instanceof PublishableCodec.Output) {
+      // varint (length + 1), 0 for null
+      PublishableCodec.writeVarInt(dataOutput, (bytes == null) ? 0 : bytes.length + 1);
+      if (bytes != null) dataOutput.write(bytes);
+    }
+    else if (bytes == null) {
       dataOutput.writeInt(-1);
     }
     else {
@@ -178,7 +183,7 @@ public class DataHelper {
   public static final byte[] readBytes(DataInput dataInput) throws IOException {
     byte[] result = null;
 
-    final int len = dataInput.readInt();
+    final int len = readBytesLength(dataInput);
     if (len >= 0) {
       result = new byte[len];
       dataInput.readFully(result);
@@ -195,7 +200,7 @@ public class DataHelper {
   public static final byte[] readBytes(DataInput dataInput, int maxLen) throws IOException {
     byte[] result = null;
 
-    final int len = dataInput.readInt();
+    final int len = readBytesLength(dataInput);
     if (len >= 0 && len <= maxLen) {
       result = new byte[len];
       dataInput.readFully(result);
@@ -204,8 +209,20 @@ public class DataHelper {
     return result;
   }
 
+  /**
+   * Read the length written by writeBytes, -1 for null.
+   */
+  private static final int readBytesLength(DataInput dataInput) throws IOException {
+    return (dataInput instanceof PublishableCodec.Input) ?
+      PublishableCodec.readVarInt(dataInput) - 1 :
+      dataInput.readInt();
+  }
+
   public static void writeSerializable(DataOutput dataOutput, Serializable serializable) throws IOException {
-    if (serializable == null) {
+    if (dataOutput instanceof PublishableCodec.Output) {
+      ((PublishableCodec.Output)dataOutput).getCodec().writeValue(dataOutput, serializable);
+    }
+    else if (serializable == null) {
       dataOutput.writeBoolean(false);
     }
     else {
@@ -216,6 +233,10 @@ public class DataHelper {
   }
 
   public static Serializable readSerializable(DataInput dataInput) throws IOException {
+    if (dataInput instanceof PublishableCodec.Input) {
+      return ((PublishableCodec.Input)dataInput).getCodec().readValue(dataInput);
+    }
+
     Serializable result = null;
     final boolean hasSerializable = dataInput.readBoolean();
     if (hasSerializable) {
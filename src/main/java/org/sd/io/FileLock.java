@@ -21,17 +21,79 @@ package org.sd.io;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.channels.ClosedByInterruptException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.OverlappingFileLockException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
  
 /**
  * A class to encapsulate locking a file while reading/writing.
  * <p>
+ * Threads within a JVM first contend for one of a fixed set of in-process
+ * locks (striped by lock file), then the holder takes an OS-level lock on
+ * the lock file's channel to exclude other processes. Neither step polls;
+ * waiting threads are woken when the lock is released or the timeout
+ * expires.
+ * <p>
+ * Locking is reentrant within a thread: a nested FileLock on the same lock
+ * file shares the outer holder's OS-level lock, which is released (and its
+ * file closed) only when the outermost holder releases.
+ * <p>
+ * The lock file ("_LOCK_" in the locked file's directory) is intentionally
+ * left in place after use. Deleting it could let another process lock a
+ * new file while a third still holds the old one, so processes would no
+ * longer exclude each other.
+ * <p>
  * @author Spence Koehler
  */
 public class FileLock <T> {
   
+  /** Number of in-process lock stripes shared by all file locks. */
+  public static final int NUM_STRIPES = 64;
+
+  private static final ReentrantLock[] STRIPES = new ReentrantLock[NUM_STRIPES];
+  static {
+    for (int i = 0; i < NUM_STRIPES; ++i) {
+      STRIPES[i] = new ReentrantLock();
+    }
+  }
+
+  /** OS-level locks held in this jvm by lock file, guarded by the file's stripe. */
+  private static final Map<String, HeldLock> HELD = new HashMap<String, HeldLock>();
+
+  /** Timer used to interrupt threads blocked on OS-level locks at timeout. */
+  private static final ScheduledExecutorService ALARMS = createAlarms();
+
+  private static final ScheduledExecutorService createAlarms() {
+    final ScheduledThreadPoolExecutor result =
+      new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+          public Thread newThread(Runnable r) {
+            final Thread thread = new Thread(r, "FileLock.Alarm");
+            thread.setDaemon(true);
+            return thread;
+          }
+        });
+    result.setRemoveOnCancelPolicy(true);
+    return result;
+  }
+
+
   private String filename;
   private int lockWaitTimeout;
   private String lockfile;
+  private ReentrantLock stripe;
+
+  // state while locked
+  private HeldLock held;
+  private boolean heldStripe;
 
   /**
    * Construct a file lock for the given filename.
@@ -44,6 +106,7 @@ public class FileLock <T> {
     this.filename = filename;
     this.lockWaitTimeout = lockWaitTimeout;
     this.lockfile = buildLockFilename();
+    this.stripe = STRIPES[(lockfile.hashCode() & 0x7FFFFFFF) % NUM_STRIPES];
   }
 
   private final String buildLockFilename() {
@@ -59,6 +122,9 @@ public class FileLock <T> {
     return lockWaitTimeout;
   }
 
+  /**
+   * Get the name of the lock file, which is left in place after use.
+   */
   public String getLockFile() {
     return lockfile;
   }
@@ -66,6 +132,10 @@ public class FileLock <T> {
   /**
    * Obtain a lock for the file, perform the operation while locked, then
    * release the lock.
+   * <p>
+   * Instances are not reentrant and should not be shared across threads;
+   * create a FileLock per operation (they are cheap), including for nested
+   * operations on the same file.
    *
    * @param lockOperation  the operation to perform while locked.
    *
@@ -102,33 +172,111 @@ public class FileLock <T> {
    * @return true if lock was obtained; otherwise, false.
    */
   private final boolean obtainLock(int timeout) throws IOException {
+    final long starttime = System.currentTimeMillis();
+
+    // exclude other threads in this jvm
+    try {
+      heldStripe = stripe.tryLock(timeout, TimeUnit.MILLISECONDS);
+    }
+    catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return false;
+    }
+    if (!heldStripe) return false;
+
+    // holding the stripe, any held lock for the file is this thread's (nested)
+    synchronized (HELD) {
+      held = HELD.get(lockfile);
+    }
+    if (held != null) {
+      ++held.count;
+      return true;
+    }
+
+    // exclude other processes
     final File file = new File(lockfile);
-    
     createDirIfNeeded(file);
 
-    boolean gotLock = false;
-    final long starttime = System.currentTimeMillis();
+    final RandomAccessFile lockRaf = new RandomAccessFile(file, "rw");
+    final FileChannel channel = lockRaf.getChannel();
+    java.nio.channels.FileLock osLock = null;
 
-    while (!gotLock && System.currentTimeMillis() - starttime < timeout) {
-      gotLock = file.createNewFile();
+    try {
+      osLock = channel.tryLock();
 
-      if (!gotLock) {
-        try {
-          Thread.sleep(50);
-        }
-        catch (InterruptedException e) {
-          break;
+      if (osLock == null) {
+        final long remaining = timeout - (System.currentTimeMillis() - starttime);
+        if (remaining > 0) {
+          osLock = waitForOsLock(channel, remaining);
         }
       }
     }
-    
-    return gotLock;
+    catch (OverlappingFileLockException e) {
+      // locked in this jvm through some other channel
+      osLock = null;
+    }
+    finally {
+      if (osLock == null) lockRaf.close();
+    }
+
+    if (osLock != null) {
+      held = new HeldLock(lockRaf, osLock);
+      synchronized (HELD) {
+        HELD.put(lockfile, held);
+      }
+    }
+
+    return osLock != null;
+  }
+
+  /**
+   * Block on the channel's lock, interrupting ourselves if it isn't granted
+   * within the remaining time.
+   */
+  private final java.nio.channels.FileLock waitForOsLock(FileChannel channel, long remaining) throws IOException {
+    java.nio.channels.FileLock result = null;
+
+    final Alarm alarm = new Alarm(Thread.currentThread());
+    final ScheduledFuture<?> alarmFuture = ALARMS.schedule(alarm, remaining, TimeUnit.MILLISECONDS);
+
+    try {
+      result = channel.lock();
+    }
+    catch (ClosedByInterruptException e) {
+      // timed out (the channel is now closed and holds no lock)
+      result = null;
+    }
+    finally {
+      alarm.disarm();
+      alarmFuture.cancel(false);
+    }
+
+    return result;
   }
 
   private final void releaseLock() throws IOException {
-    final File file = new File(lockfile);
-    file.delete();
-//todo: if !file.delete() log a message that we couldn't delete the lock
+    try {
+      if (held != null && --held.count == 0) {
+        // outermost holder; closing the file earlier would drop the lock
+        synchronized (HELD) {
+          HELD.remove(lockfile);
+        }
+        try {
+          if (held.osLock.isValid()) held.osLock.release();
+        }
+        finally {
+          held.raf.close();
+        }
+      }
+      held = null;
+    }
+    finally {
+      // the lock file itself is left in place (see class comment)
+      if (heldStripe) {
+        heldStripe = false;
+        stripe.unlock();
+      }
+    }
   }
 
   private final void createDirIfNeeded(File file) throws IOException {
@@ -141,4 +289,54 @@ public class FileLock <T> {
   public static interface LockOperation <T> {
     public T operate(String filename) throws IOException;
   }
+
+
+  /**
+   * Timeout alarm that interrupts a thread waiting on an OS-level lock.
+   * <p>
+   * The interrupt is delivered while holding this alarm's monitor, so once
+   * the waiter disarms the alarm no interrupt from it can still arrive.
+   */
+  private static final class Alarm implements Runnable {
+    private final Thread waiter;
+    private boolean waiting;
+    private boolean fired;
+
+    Alarm(Thread waiter) {
+      this.waiter = waiter;
+      this.waiting = true;
+      this.fired = false;
+    }
+
+    public synchronized void run() {
+      if (waiting) {
+        fired = true;
+        waiter.interrupt();
+      }
+    }
+
+    /**
+     * Stop waiting, clearing the alarm's interrupt if it fired. Called by
+     * the waiting thread.
+     */
+    synchronized void disarm() {
+      waiting = false;
+      if (fired) Thread.interrupted();
+    }
+  }
+
+  /**
+   * An OS-level lock held in this jvm and its number of (nested) holders.
+   */
+  private static final class HeldLock {
+    final RandomAccessFile raf;
+    final java.nio.channels.FileLock osLock;
+    int count;
+
+    HeldLock(RandomAccessFile raf, java.nio.channels.FileLock osLock) {
+      this.raf = raf;
+      this.osLock = osLock;
+      this.count = 1;
+    }
+  }
 }
@@ -0,0 +1,504 @@
+/*
+    Copyright 2009 Semantic Discovery, Inc. (www.semanticdiscovery.com)
+
+    This file is part of the Semantic Discovery Toolkit.
+
+    The Semantic Discovery Toolkit is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    The Semantic Discovery Toolkit is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with The Semantic Discovery Toolkit.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package org.sd.io;
+
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Compact binary codec for publishables whose types are registered with
+ * small integer ids.
+ * <p>
+ * A registered publishable is written as its varint type id followed by its
+ * data and is reconstructed through its registered Factory, avoiding both the
+ * class name string and reflection used by MessageHelper. Unregistered
+ * publishables fall back to a class name (and reflective construction).
+ * <p>
+ * PersistablePublishable instances are written as a varint version followed
+ * by writeCurrentVersion's data and are read back through readVersion, so
+ * existing version handling carries over unchanged.
+ * <p>
+ * Data is written through this codec's Output (and read through its Input)
+ * streams. MessageHelper and DataHelper recognize these streams so that
+ * nested publishables, strings, byte arrays, serializables and trees written
+ * from within a publishable's write method are also compactly encoded.
+ * Streams produced by this codec are therefore NOT readable through plain
+ * MessageHelper.readPublishable, and vice versa.
+ * <p>
+ * Type ids are part of the encoded format: once assigned, an id must always
+ * refer to the same type and must never be reused.
+ *
+ * @author Spence Koehler
+ */
+public class PublishableCodec {
+
+  /** Header identifying codec-encoded bytes ("SDC"). */
+  public static final int MAGIC = 0x534443;
+
+  /** Version of the codec's own framing. */
+  public static final int FORMAT_VERSION = 1;
+
+  public static final int NULL_TAG = 0;
+  public static final int NAMED_TAG = 1;
+  public static final int MIN_TYPE_ID = 2;
+
+  // value tags for writeValue/readValue
+  private static final int VALUE_NULL = 0;
+  private static final int VALUE_STRING = 1;
+  private static final int VALUE_INT = 2;
+  private static final int VALUE_LONG = 3;
+  private static final int VALUE_DOUBLE = 4;
+  private static final int VALUE_BOOLEAN = 5;
+  private static final int VALUE_PUBLISHABLE = 6;
+  private static final int VALUE_SERIALIZED = 7;
+
+
+  /**
+   * Factory for reflection-free construction of registered publishables.
+   */
+  public static interface Factory {
+    public Publishable newInstance();
+  }
+
+
+  private final Map<Class<?>, Integer> class2id;
+  private Factory[] factories;
+  private Class<?>[] classes;
+  private final ThreadLocal<Output> outputs;
+
+  public PublishableCodec() {
+    this.class2id = new ConcurrentHashMap<Class<?>, Integer>();
+    this.factories = new Factory[16];
+    this.classes = new Class<?>[16];
+    this.outputs = new ThreadLocal<Output>() {
+        protected Output initialValue() {
+          return new Output(new ByteArrayOutputStream(1024), PublishableCodec.this);
+        }
+      };
+  }
+
+  /**
+   * Register the type with the given id.
+   * <p>
+   * Note that registration must be complete before the codec is used across
+   * threads.
+   *
+   * @return this codec for chaining.
+   */
+  public synchronized PublishableCodec register(int typeId, Class<? extends Publishable> type, Factory factory) {
+    if (typeId < MIN_TYPE_ID) {
+      throw new IllegalArgumentException("Type ids must be >= " + MIN_TYPE_ID + " (got " + typeId + ")!");
+    }
+
+    if (typeId >= factories.length) {
+      final int newLen = Math.max(typeId + 1, factories.length * 2);
+      final Factory[] newFactories = new Factory[newLen];
+      final Class<?>[] newClasses = new Class<?>[newLen];
+      System.arraycopy(factories, 0, newFactories, 0, factories.length);
+      System.arraycopy(classes, 0, newClasses, 0, classes.length);
+      this.factories = newFactories;
+      this.classes = newClasses;
+    }
+
+    if (classes[typeId] != null && classes[typeId] != type) {
+      throw new IllegalArgumentException("Type id " + typeId + " already registered to " + classes[typeId].getName() + "!");
+    }
+    final Integer priorId = class2id.get(type);
+    if (priorId != null && priorId != typeId) {
+      throw new IllegalArgumentException(type.getName() + " already registered with id " + priorId + "!");
+    }
+
+    factories[typeId] = factory;
+    classes[typeId] = type;
+    class2id.put(type, typeId);
+
+    return this;
+  }
+
+  /**
+   * Get the type id registered for the class, or -1.
+   */
+  public int getTypeId(Class<?> type) {
+    final Integer result = class2id.get(type);
+    return (result == null) ? -1 : result;
+  }
+
+  /**
+   * Create an output stream for writing codec-encoded data, writing the
+   * codec header.
+   */
+  public Output newOutput(OutputStream outputStream) throws IOException {
+    final Output result = new Output(outputStream, this);
+    writeHeader(result);
+    return result;
+  }
+
+  /**
+   * Create an input stream for reading codec-encoded data, verifying the
+   * codec header.
+   */
+  public Input newInput(InputStream inputStream) throws IOException {
+    final Input result = new Input(inputStream, this);
+    readHeader(result);
+    return result;
+  }
+
+  /**
+   * Serialize the publishable, with a header, into bytes.
+   * <p>
+   * Uses a per-thread reusable buffer.
+   */
+  public byte[] serialize(Publishable publishable) throws IOException {
+    final Output output = outputs.get();
+    final ByteArrayOutputStream bytes = (ByteArrayOutputStream)output.getOutputStream();
+
+    bytes.reset();  // retains its buffer
+    output.reset();
+    writeHeader(output);
+    writePublishable(output, publishable);
+    output.flush();
+
+    return bytes.toByteArray();
+  }
+
+  /**
+   * Deserialize bytes written by serialize.
+   */
+  public Publishable deserialize(byte[] bytes) throws IOException {
+    final Input input = newInput(new ByteArrayInputStream(bytes));
+    return readPublishable(input);
+  }
+
+  /**
+   * Write the publishable (which may be null).
+   */
+  public void writePublishable(DataOutput dataOutput, Publishable publishable) throws IOException {
+    if (publishable == null) {
+      writeVarInt(dataOutput, NULL_TAG);
+    }
+    else {
+      final int typeId = getTypeId(publishable.getClass());
+      if (typeId >= MIN_TYPE_ID) {
+        writeVarInt(dataOutput, typeId);
+      }
+      else {
+        writeVarInt(dataOutput, NAMED_TAG);
+        DataHelper.writeString(dataOutput, publishable.getClass().getName());
+      }
+
+      if (publishable instanceof PersistablePublishable) {
+        final PersistablePublishable pp = (PersistablePublishable)publishable;
+        writeVarInt(dataOutput, pp.getCurrentVersion());
+        pp.writeCurrentVersion(dataOutput);
+      }
+      else {
+        publishable.write(dataOutput);
+      }
+    }
+  }
+
+  /**
+   * Read a publishable written by writePublishable.
+   */
+  public Publishable readPublishable(DataInput dataInput) throws IOException {
+    Publishable result = null;
+
+    final int tag = readVarInt(dataInput);
+    if (tag == NAMED_TAG) {
+      final String classname = DataHelper.readString(dataInput);
+      result = newInstance(classname);
+    }
+    else if (tag >= MIN_TYPE_ID) {
+      final Factory factory = (tag < factories.length) ? factories[tag] : null;
+      if (factory == null) {
+        throw new IOException("Unregistered publishable type id " + tag + "!");
+      }
+      result = factory.newInstance();
+    }
+
+    if (result != null) {
+      if (result instanceof PersistablePublishable) {
+        final PersistablePublishable pp = (PersistablePublishable)result;
+        pp.readVersion(readVarInt(dataInput), dataInput);
+      }
+      else {
+        result.read(dataInput);
+      }
+    }
+
+    return result;
+  }
+
+  /**
+   * Write a serializable value, encoding common scalar types and registered
+   * publishables directly and falling back to java serialization otherwise.
+   */
+  public void writeValue(DataOutput dataOutput, Serializable value) throws IOException {
+    if (value == null) {
+      writeVarInt(dataOutput, VALUE_NULL);
+    }
+    else if (value instanceof String) {
+      writeVarInt(dataOutput, VALUE_STRING);
+      DataHelper.writeString(dataOutput, (String)value);
+    }
+    else if (value instanceof Integer) {
+      writeVarInt(dataOutput, VALUE_INT);
+      writeVarLong(dataOutput, zigZag((Integer)value));
+    }
+    else if (value instanceof Long) {
+      writeVarInt(dataOutput, VALUE_LONG);
+      writeVarLong(dataOutput, zigZag((Long)value));
+    }
+    else if (value instanceof Double) {
+      writeVarInt(dataOutput, VALUE_DOUBLE);
+      dataOutput.writeDouble((Double)value);
+    }
+    else if (value instanceof Boolean) {
+      writeVarInt(dataOutput, VALUE_BOOLEAN);
+      dataOutput.writeBoolean((Boolean)value);
+    }
+    else if (value instanceof Publishable && getTypeId(value.getClass()) >= MIN_TYPE_ID) {
+      writeVarInt(dataOutput, VALUE_PUBLISHABLE);
+      writePublishable(dataOutput, (Publishable)value);
+    }
+    else {
+      writeVarInt(dataOutput, VALUE_SERIALIZED);
+      DataHelper.writeBytes(dataOutput, DataHelper.asBytes(value));
+    }
+  }
+
+  /**
+   * Read a value written by writeValue.
+   */
+  public Serializable readValue(DataInput dataInput) throws IOException {
+    Serializable result = null;
+
+    final int tag = readVarInt(dataInput);
+    switch (tag) {
+      case VALUE_NULL :
+        break;
+      case VALUE_STRING :
+        result = DataHelper.readString(dataInput); break;
+      case VALUE_INT :
+        result = (int)unZigZag(readVarLong(dataInput)); break;
+      case VALUE_LONG :
+        result = unZigZag(readVarLong(dataInput)); break;
+      case VALUE_DOUBLE :
+        result = dataInput.readDouble(); break;
+      case VALUE_BOOLEAN :
+        result = dataInput.readBoolean(); break;
+      case VALUE_PUBLISHABLE :
+        result = (Serializable)readPublishable(dataInput); break;
+      case VALUE_SERIALIZED :
+        result = DataHelper.fromBytes(DataHelper.readBytes(dataInput)); break;
+      default :
+        throw new IOException("Bad value tag " + tag + "!");
+    }
+
+    return result;
+  }
+
+
+  private final void writeHeader(DataOutput dataOutput) throws IOException {
+    writeVarInt(dataOutput, MAGIC);
+    writeVarInt(dataOutput, FORMAT_VERSION);
+  }
+
+  private final void readHeader(DataInput dataInput) throws IOException {
+    final int magic = readVarInt(dataInput);
+    if (magic != MAGIC) {
+      throw new IOException("Not codec-encoded data!");
+    }
+    final int formatVersion = readVarInt(dataInput);
+    if (formatVersion != FORMAT_VERSION) {
+      throw new IOException("Unsupported codec format version " + formatVersion + "!");
+    }
+  }
+
+  private final Publishable newInstance(String classname) throws IOException {
+    try {
+      return Class.forName(classname).asSubclass(Publishable.class).getDeclaredConstructor().newInstance();
+    }
+    catch (ReflectiveOperationException e) {
+      // missing class or no-arg constructor, or the constructor failed
+      throw new IOException("Can't construct publishable '" + classname + "'", e);
+    }
+    catch (ClassCastException e) {
+      throw new IOException("Class '" + classname + "' is not a publishable", e);
+    }
+  }
+
+
+  ////////
+  //
+  // Varint utilities
+  //
+
+  /**
+   * Write a non-negative int in 1 to 5 bytes (7 bits per byte, low first).
+   */
+  public static final void writeVarInt(DataOutput dataOutput, int value) throws IOException {
+    while ((value & ~0x7F) != 0) {
+      dataOutput.writeByte((value & 0x7F) | 0x80);
+      value >>>= 7;
+    }
+    dataOutput.writeByte(value);
+  }
+
+  public static final int readVarInt(DataInput dataInput) throws IOException {
+    int result = 0;
+
+    for (int shift = 0; shift < 35; shift += 7) {
+      final int b = dataInput.readByte();
+      result |= (b & 0x7F) << shift;
+      if ((b & 0x80) == 0) return result;
+    }
+
+    throw new IOException("Malformed varint!");
+  }
+
+  public static final void writeVarLong(DataOutput dataOutput, long value) throws IOException {
+    while ((value & ~0x7FL) != 0L) {
+      dataOutput.writeByte((int)((value & 0x7F) | 0x80));
+      value >>>= 7;
+    }
+    dataOutput.writeByte((int)value);
+  }
+
+  public static final long readVarLong(DataInput dataInput) throws IOException {
+    long result = 0L;
+
+    for (int shift = 0; shift < 70; shift += 7) {
+      final int b = dataInput.readByte();
+      result |= (long)(b & 0x7F) << shift;
+      if ((b & 0x80) == 0) return result;
+    }
+
+    throw new IOException("Malformed varlong!");
+  }
+
+  /** Map signed values to unsigned so that small magnitudes stay small. */
+  public static final long zigZag(long value) {
+    return (value << 1) ^ (value >> 63);
+  }
+
+  public static final long unZigZag(long value) {
+    return (value >>> 1) ^ -(value & 1);
+  }
+
+
+  /**
+   * Data output for codec-encoded data.
+   * <p>
+   * Keeps a table of names (e.g. xml tag and attribute names) so that
+   * repeated names are written as small back-references.
+   */
+  public static final class Output extends DataOutputStream {
+
+    private PublishableCodec codec;
+    private Map<String, Integer> names;
+
+    Output(OutputStream outputStream, PublishableCodec codec) {
+      super(outputStream);
+      this.codec = codec;
+      this.names = new HashMap<String, Integer>();
+    }
+
+    public PublishableCodec getCodec() {
+      return codec;
+    }
+
+    OutputStream getOutputStream() {
+      return out;
+    }
+
+    void reset() {
+      names.clear();
+      written = 0;
+    }
+
+    /**
+     * Write a frequently repeated name: a varint (index + 1) for names
+     * already written to this stream, or 0 followed by the name.
+     */
+    public void writeName(String name) throws IOException {
+      final Integer index = names.get(name);
+      if (index != null) {
+        writeVarInt(this, index + 1);
+      }
+      else {
+        writeVarInt(this, 0);
+        DataHelper.writeString(this, name);
+        names.put(name, names.size());
+      }
+    }
+  }
+
+  /**
+   * Data input for codec-encoded data.
+   */
+  public static final class Input extends DataInputStream {
+
+    private PublishableCodec codec;
+    private List<String> names;
+
+    Input(InputStream inputStream, PublishableCodec codec) {
+      super(inputStream);
+      this.codec = codec;
+      this.names = new ArrayList<String>();
+    }
+
+    public PublishableCodec getCodec() {
+      return codec;
+    }
+
+    /**
+     * Read a name written by Output.writeName.
+     */
+    public String readName() throws IOException {
+      String result = null;
+
+      final int ref = readVarInt(this);
+      if (ref == 0) {
+        result = DataHelper.readString(this);
+        names.add(result);
+      }
+      else {
+        if (ref > names.size()) throw new IOException("Bad name reference " + ref + "!");
+        result = names.get(ref - 1);
+      }
+
+      return result;
+    }
+  }
+}
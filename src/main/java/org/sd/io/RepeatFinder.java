@@ -19,59 +19,95 @@ package org.sd.io;
 import java.io.File;
 import java.io.IOException;
 import java.io.PrintStream;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.FileVisitOption;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.TreeMap;
 import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.RecursiveAction;
+import java.util.zip.CRC32;
 import org.sd.xml.DataProperties;
 
 /**
  * Utility to find repeat files under two different directories.
  * <p>
+ * Files are grouped both by name (base name without extension, then size)
+ * and by content. Content duplicates are found by narrowing candidates
+ * first by size, then by a partial hash of each file's first and last
+ * blocks, and finally by a full (memory-mapped) digest, so that most files
+ * are never fully read.
+ * <p>
+ * Directories are walked and files hashed in parallel on a work-stealing
+ * pool.
+ * <p>
  * @author Spencer Koehler
  */
 public class RepeatFinder {
   
+  /** Number of bytes hashed from each end of a file for the partial hash. */
+  public static final int PARTIAL_BLOCK_SIZE = 4096;
+
+  /** Maximum number of bytes mapped at once for the full digest. */
+  public static final long MAX_MAP_SIZE = 64L * 1024 * 1024;
+
+
   private List<File> dirs;
   private Map<String, DuplicateContainer> name2files;
+  private ForkJoinPool pool;
+  private List<FileInfo> fileInfos;
+  private Map<String, ContentDuplicates> content2files;
 
   public RepeatFinder(List<File> dirs) {
+    this(dirs, Runtime.getRuntime().availableProcessors());
+  }
+
+  public RepeatFinder(List<File> dirs, int numThreads) {
     this.dirs = dirs;
     this.name2files = new TreeMap<String, DuplicateContainer>();
+    this.pool = new ForkJoinPool(Math.max(1, numThreads));
+    this.content2files = null;
 
+    final ConcurrentLinkedQueue<FileInfo> found = new ConcurrentLinkedQueue<FileInfo>();
     for (File dir : dirs) {
-      init(dir);
+      pool.invoke(new WalkTask(dir.toPath(), found));
     }
-  }
+    this.fileInfos = new ArrayList<FileInfo>(found);
 
-  private final void init(File dir) {
-    if (dir.isDirectory()) {  // recurse
-      final File[] files = dir.listFiles();
-      for (File file : files) {
-        init(file);
-      }
-    }
-    else {
-      final String name = getName(dir);
-
-      if (name != null) {
-        DuplicateContainer dups = name2files.get(name);
-        if (dups == null) {
-          dups = new DuplicateContainer();
-          name2files.put(name, dups);
-        }
-        dups.add(dir);
+    for (FileInfo fileInfo : fileInfos) {
+      DuplicateContainer dups = name2files.get(fileInfo.name);
+      if (dups == null) {
+        dups = new DuplicateContainer();
+        name2files.put(fileInfo.name, dups);
       }
+      dups.add(fileInfo.file, fileInfo.size);
     }
   }
 
-  private final String getName(File file) {
+  private static final String getName(File file) {
     String result = null;
 
     final String name = file.getName();
-    if (name.charAt(0) == '.') return result;
+    if (name.length() == 0 || name.charAt(0) == '.') return result;
 
     final int lastDotPos = name.lastIndexOf(".");
 
@@ -85,6 +121,13 @@ public class RepeatFinder {
     return result;
   }
 
+  /**
+   * Get the number of (non-hidden) files found.
+   */
+  public int getNumFiles() {
+    return fileInfos.size();
+  }
+
   public void showAll(PrintStream out) {
     for (DuplicateContainer dupContainer : name2files.values()) {
       dupContainer.showAll(out);
@@ -97,6 +140,56 @@ public class RepeatFinder {
     }
   }
 
+  /**
+   * Get the groups of files (by name) that have the same name and size.
+   */
+  public Map<String, DuplicateContainer> getNameDuplicates() {
+    return name2files;
+  }
+
+  /**
+   * Get the groups of 2 or more files with identical content, keyed by
+   * content digest.
+   */
+  public Map<String, ContentDuplicates> getContentDuplicates() {
+    if (content2files == null) {
+      content2files = findContentDuplicates();
+    }
+    return content2files;
+  }
+
+  /**
+   * Show each group of files with identical content (regardless of name).
+   */
+  public void showContentDuplicates(PrintStream out) {
+    for (ContentDuplicates dups : getContentDuplicates().values()) {
+      dups.showAll(out);
+    }
+  }
+
+  /**
+   * Copy all files whose content is not repeated, and one of each set of
+   * files with repeated content, to the new root (keeping the longest
+   * path of each set as with copyOneOfEach).
+   */
+  public void copyOneOfEachByContent(File newRoot) {
+    final Set<File> repeats = new HashSet<File>();
+    for (ContentDuplicates dups : getContentDuplicates().values()) {
+      repeats.addAll(dups.files);
+      copyToRoot(dups.files.last(), newRoot);
+    }
+
+    for (FileInfo fileInfo : fileInfos) {
+      if (!repeats.contains(fileInfo.file)) {
+        copyToRoot(fileInfo.file, newRoot);
+      }
+    }
+  }
+
+  public void close() {
+    pool.shutdown();
+  }
+
   public final File findRootDir(File file) {
     File result = null;
 
@@ -110,6 +203,266 @@ public class RepeatFinder {
     return result;
   }
 
+  private final void copyToRoot(File file, File newRoot) {
+    // get the old root
+    final File oldRoot = findRootDir(file);
+
+    // change to the new root
+    final File newFile = FileUtil.changeRoot(oldRoot, newRoot, file);
+
+    // make directories
+    if (!newFile.getParentFile().exists()) newFile.getParentFile().mkdirs();
+
+    // copy old file to new location
+    FileUtil.copyFile(file, newFile);
+  }
+
+  private final Map<String, ContentDuplicates> findContentDuplicates() {
+    final Map<String, ContentDuplicates> result = new TreeMap<String, ContentDuplicates>();
+
+    // group by size (empty files have no content to repeat)
+    final Map<Long, List<FileInfo>> bySize = new HashMap<Long, List<FileInfo>>();
+    for (FileInfo fileInfo : fileInfos) {
+      if (fileInfo.size == 0) continue;
+      List<FileInfo> infos = bySize.get(fileInfo.size);
+      if (infos == null) {
+        infos = new ArrayList<FileInfo>();
+        bySize.put(fileInfo.size, infos);
+      }
+      infos.add(fileInfo);
+    }
+
+    // partial hash of candidates sharing a size
+    final List<FileInfo> candidates = new ArrayList<FileInfo>();
+    for (List<FileInfo> infos : bySize.values()) {
+      if (infos.size() > 1) candidates.addAll(infos);
+    }
+    hashAll(candidates, false);
+
+    // full digest of candidates sharing a size and partial hash
+    final Map<String, List<FileInfo>> byPartial = group(candidates);
+    candidates.clear();
+    for (List<FileInfo> infos : byPartial.values()) {
+      if (infos.size() > 1) candidates.addAll(infos);
+    }
+    hashAll(candidates, true);
+
+    for (Map.Entry<String, List<FileInfo>> entry : group(candidates).entrySet()) {
+      final List<FileInfo> infos = entry.getValue();
+      if (infos.size() > 1) {
+        final ContentDuplicates dups = new ContentDuplicates(infos.get(0).size, entry.getKey());
+        for (FileInfo info : infos) dups.files.add(info.file);
+        result.put(entry.getKey(), dups);
+      }
+    }
+
+    return result;
+  }
+
+  /**
+   * Group the (hashed) infos by size and current hash, dropping any that
+   * couldn't be read.
+   */
+  private static final Map<String, List<FileInfo>> group(List<FileInfo> infos) {
+    final Map<String, List<FileInfo>> result = new HashMap<String, List<FileInfo>>();
+
+    for (FileInfo info : infos) {
+      if (info.hash == null) continue;
+      final String key = info.size + ":" + info.hash;
+      List<FileInfo> group = result.get(key);
+      if (group == null) {
+        group = new ArrayList<FileInfo>();
+        result.put(key, group);
+      }
+      group.add(info);
+    }
+
+    return result;
+  }
+
+  private final void hashAll(List<FileInfo> infos, final boolean full) {
+    final List<Callable<Void>> tasks = new ArrayList<Callable<Void>>(infos.size());
+    for (final FileInfo info : infos) {
+      tasks.add(new Callable<Void>() {
+          public Void call() {
+            try {
+              info.hash = full ? fullDigest(info) : partialHash(info);
+            }
+            catch (IOException e) {
+              System.err.println("WARNING: RepeatFinder couldn't read " + info.file + ": " + e);
+              info.hash = null;
+            }
+            return null;
+          }
+        });
+    }
+
+    for (Future<Void> future : pool.invokeAll(tasks)) {
+      try {
+        future.get();
+      }
+      catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        break;
+      }
+      catch (ExecutionException e) {
+        throw new IllegalStateException(e.getCause());
+      }
+    }
+  }
+
+  /**
+   * Hash the first and last blocks of the file.
+   */
+  static final String partialHash(FileInfo info) throws IOException {
+    final CRC32 crc = new CRC32();
+    final byte[] block = new byte[PARTIAL_BLOCK_SIZE];
+
+    final RandomAccessFile raf = new RandomAccessFile(info.file, "r");
+    try {
+      final long len = raf.length();
+      final int headLen = (int)Math.min(len, PARTIAL_BLOCK_SIZE);
+      raf.readFully(block, 0, headLen);
+      crc.update(block, 0, headLen);
+
+      if (len > PARTIAL_BLOCK_SIZE) {
+        final long tailStart = Math.max(headLen, len - PARTIAL_BLOCK_SIZE);
+        final int tailLen = (int)(len - tailStart);
+        raf.seek(tailStart);
+        raf.readFully(block, 0, tailLen);
+        crc.update(block, 0, tailLen);
+      }
+    }
+    finally {
+      raf.close();
+    }
+
+    return Long.toHexString(crc.getValue());
+  }
+
+  /**
+   * Compute the file's full content digest, reading through memory-mapped
+   * regions.
+   */
+  static final String fullDigest(FileInfo info) throws IOException {
+    final MessageDigest digest;
+    try {
+      digest = MessageDigest.getInstance("SHA-1");
+    }
+    catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+
+    final RandomAccessFile raf = new RandomAccessFile(info.file, "r");
+    try {
+      final FileChannel channel = raf.getChannel();
+      final long len = channel.size();
+      for (long pos = 0; pos < len; pos += MAX_MAP_SIZE) {
+        final MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, pos, Math.min(MAX_MAP_SIZE, len - pos));
+        digest.update(buffer);
+      }
+    }
+    finally {
+      raf.close();
+    }
+
+    final StringBuilder result = new StringBuilder();
+    for (byte b : digest.digest()) {
+      result.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+    }
+    return result.toString();
+  }
+
+
+  /**
+   * A found file with its name (for grouping), size and latest hash.
+   */
+  static final class FileInfo {
+    final File file;
+    final String name;
+    final long size;
+    String hash;
+
+    FileInfo(File file, String name, long size) {
+      this.file = file;
+      this.name = name;
+      this.size = size;
+      this.hash = null;
+    }
+  }
+
+  /**
+   * Task to visit a directory's entries, forking a task for each
+   * subdirectory.
+   */
+  private static final class WalkTask extends RecursiveAction {
+
+    private final Path dir;
+    private final ConcurrentLinkedQueue<FileInfo> found;
+
+    WalkTask(Path dir, ConcurrentLinkedQueue<FileInfo> found) {
+      this.dir = dir;
+      this.found = found;
+    }
+
+    protected void compute() {
+      final List<WalkTask> subtasks = new ArrayList<WalkTask>();
+      final Path root = dir;
+
+      try {
+        // follow links so that linked directories and files are found, as
+        // through File.isDirectory
+        Files.walkFileTree(root, EnumSet.of(FileVisitOption.FOLLOW_LINKS), 1, new SimpleFileVisitor<Path>() {
+            public FileVisitResult visitFile(Path path, BasicFileAttributes attrs) throws IOException {
+              if (attrs.isDirectory()) {
+                if (!path.equals(root)) subtasks.add(new WalkTask(path, found));
+              }
+              else if (attrs.isRegularFile()) {
+                final File file = path.toFile();
+                final String name = getName(file);
+                if (name != null) {
+                  found.add(new FileInfo(file, name, attrs.size()));
+                }
+              }
+              return FileVisitResult.CONTINUE;
+            }
+
+            public FileVisitResult visitFileFailed(Path path, IOException e) {
+              System.err.println("WARNING: RepeatFinder couldn't visit " + path + ": " + e);
+              return FileVisitResult.CONTINUE;
+            }
+          });
+      }
+      catch (IOException e) {
+        System.err.println("WARNING: RepeatFinder couldn't walk " + dir + ": " + e);
+      }
+
+      invokeAll(subtasks);
+    }
+  }
+
+  /**
+   * Container for files with identical content.
+   */
+  public static final class ContentDuplicates {
+    public final long size;
+    public final String digest;
+    public final TreeSet<File> files;
+
+    public ContentDuplicates(long size, String digest) {
+      this.size = size;
+      this.digest = digest;
+      this.files = new TreeSet<File>(FileUtil.getPathLengthComparator());
+    }
+
+    public void showAll(PrintStream out) {
+      for (File file : files) {
+        out.println(size + "\t" + digest + "\t" + file.getAbsolutePath());
+      }
+      out.println();
+    }
+  }
+
 
   public static final class DuplicateContainer {
     public final Map<Long, TreeSet<File>> duplicates;
@@ -119,7 +472,10 @@ public class RepeatFinder {
     }
 
     public void add(File file) {
-      final long size = FileUtil.size(file);
+      add(file, FileUtil.size(file));
+    }
+
+    public void add(File file, long size) {
       TreeSet<File> dups = duplicates.get(size);
       if (dups == null) {
         dups = new TreeSet<File>(FileUtil.getPathLengthComparator());
@@ -163,6 +519,10 @@ public class RepeatFinder {
   public static void main(String[] args) {
     // properties:
     //   uniquesDir -- (optional) copy unique files to the given dir if specified.
+    //   byContent -- (optional, default=false) "true" to find duplicates by
+    //                content instead of by name.
+    //   numThreads -- (optional, default=num processors) number of threads
+    //                 for walking and hashing.
     //
     // args: directories to compare
     //
@@ -176,14 +536,28 @@ public class RepeatFinder {
       files.add(new File(arg));
     }
 
-    final RepeatFinder finder = new RepeatFinder(files);
+    final boolean byContent = options.getBoolean("byContent", false);
+    final int numThreads = options.getInt("numThreads", Runtime.getRuntime().availableProcessors());
+    final RepeatFinder finder = new RepeatFinder(files, numThreads);
 
     final String uniquesDir = options.getString("uniquesDir", null);
     if (uniquesDir == null) {
-      finder.showAll(System.out);
+      if (byContent) {
+        finder.showContentDuplicates(System.out);
+      }
+      else {
+        finder.showAll(System.out);
+      }
     }
     else {
-      finder.copyOneOfEach(new File(uniquesDir));
+      if (byContent) {
+        finder.copyOneOfEachByContent(new File(uniquesDir));
+      }
+      else {
+        finder.copyOneOfEach(new File(uniquesDir));
+      }
     }
+
+    finder.close();
   }
 }
@@ -19,6 +19,8 @@
 package org.sd.nlp;
 
 
+import java.util.Arrays;
+
 /**
  * A general break strategy implementation suitable for most applications.
  * <p>
@@ -57,11 +59,24 @@ public class GeneralBreakStrategy implements BreakStrategy {
   }
 
   public Break[] computeBreaks(int[] codePoints) {
-    final Break[] result = new Break[codePoints.length];
+    return computeBreaks(codePoints, codePoints.length, new Break[codePoints.length]);
+  }
+
+  /**
+   * Compute the breaks for the first length code points into the given
+   * result array, which must hold at least length entries.
+   * <p>
+   * This allows reusable (oversized) buffers to be used instead of
+   * allocating exact-size arrays for each string.
+   *
+   * @return the result array.
+   */
+  public Break[] computeBreaks(int[] codePoints, int length, Break[] result) {
+    Arrays.fill(result, 0, length, null);
 
-    for (int i = 0; i < codePoints.length; ++i) {
-      final Integer nextIndex = setBreak(i, codePoints, result);
-      if (nextIndex != null) i = nextIndex;
+    for (int i = 0; i < length; ++i) {
+      final int nextIndex = setBreak(i, codePoints, length, result);
+      if (nextIndex >= 0) i = nextIndex;
     }
     return result;
   }
@@ -72,6 +87,17 @@ public class GeneralBreakStrategy implements BreakStrategy {
    * @return null if the next index will be index + 1; otherwise, return nextIndex - 1.
    */
   protected Integer setBreak(int index, int[] codePoints, Break[] result) {
+    final int nextIndex = setBreak(index, codePoints, codePoints.length, result);
+    return (nextIndex < 0) ? null : nextIndex;
+  }
+
+  /**
+   * Set result[index] to the appropriate value, considering only the first
+   * length code points.
+   *
+   * @return -1 if the next index will be index + 1; otherwise, return nextIndex - 1.
+   */
+  protected int setBreak(int index, int[] codePoints, int length, Break[] result) {
     Break curBreak = Break.HARD;
 
     final int cp = codePoints[index];
@@ -79,9 +105,9 @@ public class GeneralBreakStrategy implements BreakStrategy {
       curBreak = Break.SOFT_FULL;
     }
     else if (cp == '-') {
-      if ((index + 1) < codePoints.length && (codePoints[index + 1] == '-' /*|| codePoints[index + 1] == ' '*/) /*||
+      if ((index + 1) < length && (codePoints[index + 1] == '-' /*|| codePoints[index + 1] == ' '*/) /*||
                                                                                                                   (index - 1) >= 0 && (codePoints[index - 1] == ' ')*/) {
-        while (index < codePoints.length && codePoints[index] == '-') result[index++] = Break.HARD;
+        while (index < length && codePoints[index] == '-') result[index++] = Break.HARD;
         return index - 1;  // reset for next go 'round
       }
       else {
@@ -89,7 +115,7 @@ public class GeneralBreakStrategy implements BreakStrategy {
       }
     }
     else if (cp == ':') {
-      if (isChar(index + 1, codePoints, ' ')) {
+      if (isChar(index + 1, codePoints, length, ' ')) {
         curBreak = Break.HARD;
       }
       else {
@@ -97,16 +123,16 @@ public class GeneralBreakStrategy implements BreakStrategy {
       }
     }
     else if (cp == '.') {
-      if (isChar(index + 1, codePoints, ' ')) {
-        if (isChar(index + 2, codePoints, '-')) {
+      if (isChar(index + 1, codePoints, length, ' ')) {
+        if (isChar(index + 2, codePoints, length, '-')) {
           curBreak = Break.SOFT_FULL;
         }
         else {
           curBreak = Break.HARD;
         }
       }
-      else if (((index == 0 || result[index - 1] == null || result[index - 1].breaks()) && isDigit(index + 1, codePoints)) ||
-               (isDigit(index - 1, codePoints) && isDigit(index + 1, codePoints))) {
+      else if (((index == 0 || result[index - 1] == null || result[index - 1].breaks()) && isDigit(index + 1, codePoints, length)) ||
+               (isDigit(index - 1, codePoints, length) && isDigit(index + 1, codePoints, length))) {
         curBreak = Break.NONE;
       }
       else {
@@ -114,15 +140,15 @@ public class GeneralBreakStrategy implements BreakStrategy {
       }
     }
     else if (cp == '\'') {  // no break if between letters; otherwise, hard.
-      if (isLetter(index - 1, codePoints, result) && isLetter(index + 1, codePoints, null)) {
+      if (isLetter(index - 1, codePoints, length, result) && isLetter(index + 1, codePoints, length, null)) {
         curBreak = Break.NONE;
       }
     }
     else if (cp == '/' || cp == '\\') {  // no break or soft break.
       curBreak = Break.SOFT_FULL;
-      if (isDigit(index - 1, codePoints) || isDigit(index + 1, codePoints) ||
-          isLetter(index - 1, codePoints, result) && isLetter(index + 1, codePoints, null) &&
-          isBreak(index - 2, codePoints, result) && isBreak(index + 2, codePoints, null)) {
+      if (isDigit(index - 1, codePoints, length) || isDigit(index + 1, codePoints, length) ||
+          isLetter(index - 1, codePoints, length, result) && isLetter(index + 1, codePoints, length, null) &&
+          isBreak(index - 2, codePoints, length, result) && isBreak(index + 2, codePoints, length, null)) {
         curBreak = Break.NONE;
       }
     }
@@ -142,17 +168,21 @@ public class GeneralBreakStrategy implements BreakStrategy {
       }
     }
     else {  // isa symbol. soft if we're between letters and/or digits; otherwise, hard
-      if (isLetterOrDigit(index - 1, codePoints, result) && isLetterOrDigit(index + 1, codePoints, null)) {
+      if (isLetterOrDigit(index - 1, codePoints, length, result) && isLetterOrDigit(index + 1, codePoints, length, null)) {
         result[index]  = Break.SOFT_FULL;
       }
     }
 
     result[index] = curBreak;
-    return null;
+    return -1;
   }
 
   protected final boolean isDigit(int index, int[] codePoints) {
-    if (index >= 0 && index < codePoints.length) {
+    return isDigit(index, codePoints, codePoints.length);
+  }
+
+  protected final boolean isDigit(int index, int[] codePoints, int length) {
+    if (index >= 0 && index < length) {
       final int cp = codePoints[index];
       return (cp <= '9' && cp >= '0');
     }
@@ -160,9 +190,13 @@ public class GeneralBreakStrategy implements BreakStrategy {
   }
 
   protected final boolean isSpace(int index, int[] codePoints) {
+    return isSpace(index, codePoints, codePoints.length);
+  }
+
+  protected final boolean isSpace(int index, int[] codePoints, int length) {
     boolean result = false;
 
-    if (index >= 0 && index < codePoints.length && codePoints[index] == ' ') {
+    if (index >= 0 && index < length && codePoints[index] == ' ') {
       result = true;
     }
 
@@ -170,7 +204,11 @@ public class GeneralBreakStrategy implements BreakStrategy {
   }
 
   protected final boolean isLetter(int index, int[] codePoints, Break[] breaks) {
-    if (index >= 0 && index < codePoints.length) {
+    return isLetter(index, codePoints, codePoints.length, breaks);
+  }
+
+  protected final boolean isLetter(int index, int[] codePoints, int length, Break[] breaks) {
+    if (index >= 0 && index < length) {
       if (breaks != null && breaks[index] != null && !breaks[index].skip()) {
         return true;
       }
@@ -183,7 +221,11 @@ public class GeneralBreakStrategy implements BreakStrategy {
   }
 
   protected boolean isLetterOrDigit(int index, int[] codePoints, Break[] breaks) {
-    if (index >= 0 && index < codePoints.length) {
+    return isLetterOrDigit(index, codePoints, codePoints.length, breaks);
+  }
+
+  protected boolean isLetterOrDigit(int index, int[] codePoints, int length, Break[] breaks) {
+    if (index >= 0 && index < length) {
       if (breaks != null && breaks[index] != null && !breaks[index].skip()) {
         return true;
       }
@@ -196,14 +238,22 @@ public class GeneralBreakStrategy implements BreakStrategy {
   }
 
   protected boolean isBreak(int index, int[] codePoints, Break[] breaks) {
-    if (index < 0 || index >= codePoints.length) return true;
+    return isBreak(index, codePoints, codePoints.length, breaks);
+  }
+
+  protected boolean isBreak(int index, int[] codePoints, int length, Break[] breaks) {
+    if (index < 0 || index >= length) return true;
     if (breaks != null && breaks[index].breaks()) return true;
     final int cp = codePoints[index];
     return !Character.isLetterOrDigit(cp);
   }
 
   protected boolean isChar(int index, int[] codePoints, char c) {
-    if (index >= 0 && index < codePoints.length) {
+    return isChar(index, codePoints, codePoints.length, c);
+  }
+
+  protected boolean isChar(int index, int[] codePoints, int length, char c) {
+    if (index >= 0 && index < length) {
       return codePoints[index] == c;
     }
     return false;
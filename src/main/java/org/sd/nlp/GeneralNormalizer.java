@@ -19,9 +19,6 @@
 package org.sd.nlp;
 
 
-import java.util.ArrayList;
-import java.util.List;
-
 import java.io.IOException;
 
 /**
@@ -49,6 +46,15 @@ public class GeneralNormalizer extends AbstractNormalizer {
   private static final GeneralNormalizer CASE_SENSITIVE_INSTANCE = new GeneralNormalizer(false);
   private static final GeneralNormalizer CASE_INSENSITIVE_INSTANCE = new GeneralNormalizer(true);
 
+  // buffers for building NormalizedStrings, kept apart from the shared
+  // workspace so that normalizing doesn't clobber a caller's workspace view
+  private static final ThreadLocal<NormalizerWorkspace> SCRATCH =
+    new ThreadLocal<NormalizerWorkspace>() {
+      protected NormalizerWorkspace initialValue() {
+        return new NormalizerWorkspace();
+      }
+    };
+
   public static final GeneralNormalizer getCaseSensitiveInstance() {
     return CASE_SENSITIVE_INSTANCE;
   }
@@ -68,19 +74,49 @@ public class GeneralNormalizer extends AbstractNormalizer {
   public NormalizedString normalize(StringWrapper.SubString subString) {
     if (subString == null) return GeneralNormalizedString.EMPTY;
 
-    final StringBuilder normalized = new StringBuilder();
-    final List<Integer> n2oIndexList = new ArrayList<Integer>();
+    final StringWrapper sw = subString.stringWrapper;
+    final NormalizerWorkspace workspace = SCRATCH.get();
+    workspace.clear();
+    normalize(sw.getCodePoints(), sw.length(), sw.getBreaks(), subString.startPos, subString.endPos, workspace);
+
+    return new GeneralNormalizedString(sw, workspace.toString(), workspace.copyN2OIndexes(), true);
+  }
+
+  /**
+   * Normalize the string into the workspace without building a
+   * NormalizedString.
+   * <p>
+   * The result is the same as normalize(string).getNormalized() and the
+   * workspace's n2o indexes are those of the corresponding NormalizedString.
+   *
+   * @return the workspace as a view of the normalized chars.
+   */
+  public CharSequence normalize(String string, NormalizerWorkspace workspace) {
+    if (string == null || string.length() == 0) {
+      workspace.clear();
+      return workspace;
+    }
+
+    workspace.setOriginal(string);
+    final int numCodePoints = workspace.getNumCodePoints();
+    final Break[] breaks = workspace.computeBreaks(GeneralBreakStrategy.getInstance());
+    normalize(workspace.getCodePoints(), numCodePoints, breaks, 0, numCodePoints, workspace);
+
+    return workspace;
+  }
 
+  /**
+   * Append the normalized form of codePoints[startPos, endPos) to the
+   * workspace.
+   */
+  private final void normalize(int[] codePoints, int numCodePoints, Break[] breaks, int startPos, int endPos, NormalizerWorkspace workspace) {
     int prev = 0;
     int needSpace = -1;
     int expectAsianAmPmMarker = -1;
     boolean willNeedSpace = false;
 
-    final StringWrapper sw = subString.stringWrapper;
-    final Break[] breaks = sw.getBreaks();
-
-    for (int i = subString.startPos; i < subString.endPos; ++i) {
-      int cp = sw.getCodePoint(i);
+    for (int i = startPos; i < endPos; ++i) {
+      int cp = getCodePoint(codePoints, numCodePoints, i);
       if (cp == ' ') {
         if (prev > 0 && prev != '-') {
           prev = cp;
@@ -90,10 +126,10 @@ public class GeneralNormalizer extends AbstractNormalizer {
       }
       else if (cp == '.') {
         boolean keep = false;
-        if ((i + 1) < subString.endPos) {
-          int next = sw.getCodePoint(i + 1);
+        if ((i + 1) < endPos) {
+          int next = getCodePoint(codePoints, numCodePoints, i + 1);
           if (next <= '9' && next >= '0') {
-            if (i == subString.startPos) keep = true;
+            if (i == startPos) keep = true;
             else {
               keep = (prev == ' ') || (prev == '+') || (prev == '-') || (prev <= '9' && prev >= '0');
             }
@@ -106,8 +142,8 @@ public class GeneralNormalizer extends AbstractNormalizer {
       }
       else if (cp == ':') {
         boolean keep = false;
-        if ((prev <= '9' && prev >= '0') && ((i + 1) < subString.endPos) && breaks[i + 1] == Break.NONE) {
-          int next = sw.getCodePoint(i + 1);
+        if ((prev <= '9' && prev >= '0') && ((i + 1) < endPos) && breaks[i + 1] == Break.NONE) {
+          int next = getCodePoint(codePoints, numCodePoints, i + 1);
           keep = (next <= '9' && next >= '0');
         }
         if (!keep) {
@@ -119,15 +155,15 @@ public class GeneralNormalizer extends AbstractNormalizer {
         needSpace = -1;
       }
       else if (cp == '\'') {
-        if ((i == subString.startPos) || ((i + 1) == subString.endPos) || (breaks[i - 1] != Break.NONE) || (breaks[i + 1] != Break.NONE) ||
-            !Character.isLetter(sw.getCodePoint(i - 1)) || !Character.isLetter(sw.getCodePoint(i + 1))) {
+        if ((i == startPos) || ((i + 1) == endPos) || (breaks[i - 1] != Break.NONE) || (breaks[i + 1] != Break.NONE) ||
+            !Character.isLetter(getCodePoint(codePoints, numCodePoints, i - 1)) || !Character.isLetter(getCodePoint(codePoints, numCodePoints, i + 1))) {
           prev = cp;
           continue;
         }
       }
       else if (cp == '/') {
-        if (((i >= subString.startPos + 2) && breaks[i - 1] == Break.NONE && breaks[i - 2] == Break.NONE) ||
-            (((i + 2) < subString.endPos) && breaks[i + 1] == Break.NONE && breaks[i + 2] == Break.NONE)) {
+        if (((i >= startPos + 2) && breaks[i - 1] == Break.NONE && breaks[i - 2] == Break.NONE) ||
+            (((i + 2) < endPos) && breaks[i + 1] == Break.NONE && breaks[i + 2] == Break.NONE)) {
           if (prev > 0 && prev != '-') {
             needSpace = i;
             prev = ' ';
@@ -150,8 +186,8 @@ public class GeneralNormalizer extends AbstractNormalizer {
         needSpace = i;
         continue;
       }
-      else if ((cp == 19978 || cp == 19979) && (i + 1) < subString.endPos) {  // asian "a" and "p" (semantically) in am/pm
-        final int next = sw.getCodePoint(i + 1);
+      else if ((cp == 19978 || cp == 19979) && (i + 1) < endPos) {  // asian "a" and "p" (semantically) in am/pm
+        final int next = getCodePoint(codePoints, numCodePoints, i + 1);
         if (next == 21320) {  // asian am/pm marker
           cp = (cp == 19978) ? 'a' : 'p';
           expectAsianAmPmMarker = i + 1;
@@ -169,14 +205,12 @@ public class GeneralNormalizer extends AbstractNormalizer {
       }
 
       if (needSpace >= 0) {
-        if (normalized.length() > 0) {
-          normalized.append(' ');
-          n2oIndexList.add(needSpace);
+        if (workspace.length() > 0) {
+          workspace.append(' ', needSpace);
         }
         needSpace = -1;
       }
-      normalized.appendCodePoint(cp);
-      n2oIndexList.add(i);
+      workspace.append(cp, i);
       prev = cp;
 
       if (willNeedSpace) {
@@ -184,14 +218,10 @@ public class GeneralNormalizer extends AbstractNormalizer {
         willNeedSpace = false;
       }
     }
+  }
 
-    final int[] n2oIndexes = new int[n2oIndexList.size()];
-    int pos = 0;
-    for (Integer n2oIndex : n2oIndexList) {
-      n2oIndexes[pos++] = n2oIndex;
-    }
-
-    return new GeneralNormalizedString(subString.stringWrapper, normalized.toString(), n2oIndexes, true);
+  private static final int getCodePoint(int[] codePoints, int numCodePoints, int index) {
+    return index < numCodePoints ? codePoints[index] : 0;
   }
 
   public boolean equals(Object o) {
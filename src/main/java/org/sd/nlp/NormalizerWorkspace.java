@@ -0,0 +1,244 @@
+/*
+    Copyright 2009 Semantic Discovery, Inc. (www.semanticdiscovery.com)
+
+    This file is part of the Semantic Discovery Toolkit.
+
+    The Semantic Discovery Toolkit is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    The Semantic Discovery Toolkit is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with The Semantic Discovery Toolkit.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package org.sd.nlp;
+
+
+import java.util.Locale;
+
+/**
+ * Reusable buffers for normalizing strings without allocating per string.
+ * <p>
+ * A workspace holds the original string's code points and breaks, the
+ * normalized chars, and the normalized-to-original (n2o) index map in
+ * primitive arrays that grow as needed and are kept between uses. The
+ * workspace is itself a CharSequence view of the normalized chars so that
+ * lookups (e.g., in a CharSequenceSet) can hash and compare the normalized
+ * text without building a String.
+ * <p>
+ * Instances are not thread-safe. Use get to obtain the current thread's
+ * workspace, whose contents are valid only until the next normalization
+ * on that thread.
+ *
+ * @author Spence Koehler
+ */
+public final class NormalizerWorkspace implements CharSequence {
+
+  private static final int INITIAL_CAPACITY = 64;
+
+  private static final ThreadLocal<NormalizerWorkspace> WORKSPACE =
+    new ThreadLocal<NormalizerWorkspace>() {
+      protected NormalizerWorkspace initialValue() {
+        return new NormalizerWorkspace();
+      }
+    };
+
+  /**
+   * Get the current thread's workspace.
+   */
+  public static NormalizerWorkspace get() {
+    return WORKSPACE.get();
+  }
+
+
+  private int[] codePoints;
+  private int numCodePoints;
+  private Break[] breaks;
+
+  private char[] chars;
+  private int length;
+  private int[] n2o;
+  private int n2oLength;
+
+  public NormalizerWorkspace() {
+    this.codePoints = new int[INITIAL_CAPACITY];
+    this.numCodePoints = 0;
+    this.breaks = new Break[INITIAL_CAPACITY];
+    this.chars = new char[INITIAL_CAPACITY];
+    this.length = 0;
+    this.n2o = new int[INITIAL_CAPACITY];
+    this.n2oLength = 0;
+  }
+
+  /**
+   * Clear the normalized chars and n2o indexes, keeping the original's
+   * code points and breaks.
+   */
+  public void clear() {
+    this.length = 0;
+    this.n2oLength = 0;
+  }
+
+  /**
+   * Load the string's code points as the original text to normalize,
+   * clearing any prior original and normalized contents.
+   */
+  public void setOriginal(String string) {
+    clear();
+    this.numCodePoints = 0;
+
+    final int len = string.length();
+    if (codePoints.length < len) {
+      codePoints = new int[Math.max(len, codePoints.length * 2)];
+    }
+    for (int i = 0; i < len; ) {
+      final int cp = string.codePointAt(i);
+      codePoints[numCodePoints++] = cp;
+      i += Character.charCount(cp);
+    }
+  }
+
+  /**
+   * Get the original's code points, of which only the first
+   * getNumCodePoints are valid.
+   */
+  public int[] getCodePoints() {
+    return codePoints;
+  }
+
+  public int getNumCodePoints() {
+    return numCodePoints;
+  }
+
+  /**
+   * Compute the original's breaks into this workspace's break buffer.
+   *
+   * @return the breaks, of which only the first getNumCodePoints are valid.
+   */
+  public Break[] computeBreaks(GeneralBreakStrategy breakStrategy) {
+    if (breaks.length < numCodePoints) {
+      breaks = new Break[Math.max(numCodePoints, breaks.length * 2)];
+    }
+    return breakStrategy.computeBreaks(codePoints, numCodePoints, breaks);
+  }
+
+  /**
+   * Append the normalized code point, mapped to the given original index.
+   */
+  public void append(int cp, int originalIndex) {
+    if (chars.length < length + 2) {
+      final char[] newChars = new char[chars.length * 2];
+      System.arraycopy(chars, 0, newChars, 0, length);
+      chars = newChars;
+    }
+    length += Character.toChars(cp, chars, length);
+    appendN2O(originalIndex);
+  }
+
+  private final void appendN2O(int originalIndex) {
+    if (n2o.length == n2oLength) {
+      final int[] newN2O = new int[n2o.length * 2];
+      System.arraycopy(n2o, 0, newN2O, 0, n2oLength);
+      n2o = newN2O;
+    }
+    n2o[n2oLength++] = originalIndex;
+  }
+
+  /**
+   * Get the number of n2o indexes, which is the number of normalized code
+   * points.
+   */
+  public int getN2OLength() {
+    return n2oLength;
+  }
+
+  /**
+   * Get the original index of the normalized code point.
+   */
+  public int getN2OIndex(int n2oPos) {
+    return n2o[n2oPos];
+  }
+
+  /**
+   * Copy the n2o indexes into an exact-size array.
+   */
+  public int[] copyN2OIndexes() {
+    final int[] result = new int[n2oLength];
+    System.arraycopy(n2o, 0, result, 0, n2oLength);
+    return result;
+  }
+
+  /**
+   * Load the text's lowercased chars (as String.toLowerCase would produce
+   * them) as this workspace's normalized contents, mapping each char to its
+   * own index.
+   *
+   * @return true if loaded; false if the text holds chars whose lowercase
+   *         depends on context or locale, leaving this workspace cleared.
+   */
+  public boolean setLowerCase(CharSequence text) {
+    clear();
+
+    final String language = Locale.getDefault().getLanguage();
+    if ("tr".equals(language) || "az".equals(language) || "lt".equals(language)) {
+      return false;
+    }
+
+    final int len = text.length();
+    if (chars.length < len) {
+      chars = new char[Math.max(len, chars.length * 2)];
+    }
+    for (int i = 0; i < len; ++i) {
+      final char c = text.charAt(i);
+      if (c == '\u0130' || c == '\u03A3' || Character.isSurrogate(c)) {
+        clear();
+        return false;
+      }
+      chars[length++] = Character.toLowerCase(c);
+      appendN2O(i);
+    }
+
+    return true;
+  }
+
+  /**
+   * Determine whether the normalized chars are the same as the text's.
+   */
+  public boolean contentEquals(CharSequence text) {
+    if (text.length() != length) return false;
+    for (int i = 0; i < length; ++i) {
+      if (chars[i] != text.charAt(i)) return false;
+    }
+    return true;
+  }
+
+  public int length() {
+    return length;
+  }
+
+  public char charAt(int index) {
+    if (index < 0 || index >= length) {
+      throw new IndexOutOfBoundsException("index=" + index + " length=" + length);
+    }
+    return chars[index];
+  }
+
+  public CharSequence subSequence(int start, int end) {
+    if (start < 0 || end > length || start > end) {
+      throw new IndexOutOfBoundsException("start=" + start + " end=" + end + " length=" + length);
+    }
+    return new String(chars, start, end - start);
+  }
+
+  /**
+   * Build a String of the normalized chars.
+   */
+  public String toString() {
+    return new String(chars, 0, length);
+  }
+}
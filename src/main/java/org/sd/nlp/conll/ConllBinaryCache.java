@@ -0,0 +1,364 @@
+/*
+   Copyright 2008-2016 Semantic Discovery, Inc.
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+package org.sd.nlp.conll;
+
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import org.sd.io.FileUtil;
+import org.sd.xml.DataProperties;
+
+/**
+ * Compact binary form of parsed CoNLL sentences that is memory-mapped for
+ * reading.
+ * <p>
+ * Every distinct field value is stored once in a string dictionary and
+ * each token is a row of int codes, one per ConllField (-1 for a missing
+ * field). Values are read through getCode and getValue without allocating
+ * strings, and whole sentences are rebuilt through getSentence or
+ * iteration with tokens that share the dictionary's strings.
+ * <p>
+ * File layout (big-endian):
+ * <pre>
+ *   header:     magic, version, numColumns, numSentences (ints),
+ *               numTokens, sentencesOffset, dictionaryOffset (longs)
+ *   rows:       numTokens x numColumns int codes
+ *   sentences:  numSentences + 1 token offsets (longs)
+ *   dictionary: numStrings (int), then per string its UTF-8 byte length
+ *               (int) and bytes
+ * </pre>
+ * Fields past the last ConllField (PDEPREL) are not kept.
+ * <p>
+ * Instances are thread-safe.
+ *
+ * @author Spencer Koehler
+ */
+public class ConllBinaryCache implements Iterable<ConllSentence> {
+  
+  public static final String EXTENSION = ".conll.bin";
+
+  private static final int MAGIC = 0x434f4e4c;  // "CONL"
+  private static final int VERSION = 1;
+  private static final int HEADER_SIZE = 40;
+  private static final ConllField[] FIELDS = ConllField.values();
+  private static final int NUM_COLUMNS = FIELDS.length;
+  private static final int ROW_BYTES = NUM_COLUMNS * 4;
+  private static final int SEGMENT_ROWS = (1 << 30) / ROW_BYTES;  // rows per mapped segment
+  private static final int MISSING = -1;
+  private static final Charset UTF8 = Charset.forName("UTF-8");
+
+
+  private File file;
+  private int numSentences;
+  private long numTokens;
+  private long[] sentenceStarts;
+  private String[] dictionary;
+  private IntBuffer[] segments;
+  private volatile Map<String, Integer> _codes;
+
+  /**
+   * Open (memory-map) the cache file.
+   */
+  public ConllBinaryCache(File file) throws IOException {
+    this.file = file;
+
+    final RandomAccessFile raf = new RandomAccessFile(file, "r");
+    try {
+      final FileChannel channel = raf.getChannel();
+
+      final ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE);
+      if (header.getInt(0) != MAGIC || header.getInt(4) != VERSION || header.getInt(8) != NUM_COLUMNS) {
+        throw new IOException("Not a (version " + VERSION + ") CoNLL cache file: " + file);
+      }
+      this.numSentences = header.getInt(12);
+      this.numTokens = header.getLong(16);
+      final long sentencesOffset = header.getLong(24);
+
+      // map rows in segments to stay within a mapped buffer's size limit
+      final int numSegments = (int)((numTokens + SEGMENT_ROWS - 1) / SEGMENT_ROWS);
+      this.segments = new IntBuffer[numSegments];
+      for (int i = 0; i < numSegments; ++i) {
+        final long firstRow = (long)i * SEGMENT_ROWS;
+        final long numRows = Math.min(SEGMENT_ROWS, numTokens - firstRow);
+        segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, HEADER_SIZE + firstRow * ROW_BYTES, numRows * ROW_BYTES).asIntBuffer();
+      }
+
+      channel.position(sentencesOffset);
+      final DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel), 1 << 16));
+
+      this.sentenceStarts = new long[numSentences + 1];
+      for (int i = 0; i <= numSentences; ++i) {
+        sentenceStarts[i] = in.readLong();
+      }
+
+      this.dictionary = new String[in.readInt()];
+      byte[] bytes = new byte[256];
+      for (int i = 0; i < dictionary.length; ++i) {
+        final int len = in.readInt();
+        if (len > bytes.length) bytes = new byte[Math.max(len, bytes.length * 2)];
+        in.readFully(bytes, 0, len);
+        dictionary[i] = new String(bytes, 0, len, UTF8);
+      }
+    }
+    finally {
+      // mappings remain valid after the channel is closed
+      raf.close();
+    }
+
+    this._codes = null;
+  }
+
+  public File getFile() {
+    return file;
+  }
+
+  public int getNumSentences() {
+    return numSentences;
+  }
+
+  public long getNumTokens() {
+    return numTokens;
+  }
+
+  /**
+   * Get the (corpus-wide) token number of the sentence's first token.
+   */
+  public long getSentenceStart(int sentenceNum) {
+    return sentenceStarts[sentenceNum];
+  }
+
+  /**
+   * Get the number of tokens in the sentence.
+   */
+  public int getSentenceLength(int sentenceNum) {
+    return (int)(sentenceStarts[sentenceNum + 1] - sentenceStarts[sentenceNum]);
+  }
+
+  /**
+   * Get the dictionary code of the token's field value, or -1 if the
+   * token doesn't have the field.
+   */
+  public int getCode(long tokenNum, ConllField field) {
+    return segments[(int)(tokenNum / SEGMENT_ROWS)].get((int)(tokenNum % SEGMENT_ROWS) * NUM_COLUMNS + field.getIdx());
+  }
+
+  /**
+   * Get the token's field value (a dictionary string), or null if the
+   * token doesn't have the field.
+   */
+  public String getValue(long tokenNum, ConllField field) {
+    final int code = getCode(tokenNum, field);
+    return (code < 0) ? null : dictionary[code];
+  }
+
+  /**
+   * Get the dictionary code for the value, or -1 if no field has the value.
+   * <p>
+   * Comparing codes from getCode with this lets callers test field values
+   * without building strings.
+   */
+  public int getCode(String value) {
+    final Integer result = getCodes().get(value);
+    return (result == null) ? MISSING : result;
+  }
+
+  public int getDictionarySize() {
+    return dictionary.length;
+  }
+
+  public String getString(int code) {
+    return dictionary[code];
+  }
+
+  /**
+   * Rebuild the sentence's tokens.
+   */
+  public ConllSentence getSentence(int sentenceNum) {
+    final ConllSentence result = new ConllSentence();
+
+    final long end = sentenceStarts[sentenceNum + 1];
+    for (long tokenNum = sentenceStarts[sentenceNum]; tokenNum < end; ++tokenNum) {
+      int numFields = NUM_COLUMNS;
+      while (numFields > 0 && getCode(tokenNum, FIELDS[numFields - 1]) < 0) --numFields;
+
+      final String[] fields = new String[numFields];
+      for (int i = 0; i < numFields; ++i) {
+        final int code = getCode(tokenNum, FIELDS[i]);
+        fields[i] = (code < 0) ? "" : dictionary[code];
+      }
+      result.addToken(new ConllToken(fields));
+    }
+
+    return result;
+  }
+
+  public Iterator<ConllSentence> iterator() {
+    return new Iterator<ConllSentence>() {
+      private int sentenceNum = 0;
+
+      public boolean hasNext() {
+        return sentenceNum < numSentences;
+      }
+
+      public ConllSentence next() {
+        if (sentenceNum >= numSentences) throw new NoSuchElementException();
+        return getSentence(sentenceNum++);
+      }
+
+      public void remove() {
+        throw new UnsupportedOperationException("Not supported.");
+      }
+    };
+  }
+
+  private final Map<String, Integer> getCodes() {
+    Map<String, Integer> result = _codes;
+    if (result == null) {
+      synchronized (this) {
+        result = _codes;
+        if (result == null) {
+          result = new HashMap<String, Integer>(dictionary.length * 2);
+          for (int i = 0; i < dictionary.length; ++i) {
+            result.put(dictionary[i], i);
+          }
+          _codes = result;
+        }
+      }
+    }
+    return result;
+  }
+
+
+  /**
+   * Write the sentences to a cache file.
+   *
+   * @return the number of sentences written.
+   */
+  public static int write(Iterator<ConllSentence> sentences, File file) throws IOException {
+    final Map<String, Integer> codes = new HashMap<String, Integer>();
+    final List<String> strings = new ArrayList<String>();
+    long[] starts = new long[1024];
+    int numSentences = 0;
+    long numTokens = 0;
+
+    final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), 1 << 16));
+    try {
+      out.write(new byte[HEADER_SIZE]);  // filled in below
+
+      while (sentences.hasNext()) {
+        final ConllSentence sentence = sentences.next();
+        if (sentence == null) continue;
+
+        if (numSentences + 1 >= starts.length) starts = Arrays.copyOf(starts, starts.length * 2);
+        starts[numSentences++] = numTokens;
+
+        for (ConllToken token : sentence.getTokens()) {
+          for (ConllField field : FIELDS) {
+            final String value = token.getData(field);
+            out.writeInt(value == null ? MISSING : encode(value, codes, strings));
+          }
+          ++numTokens;
+        }
+      }
+      starts[numSentences] = numTokens;
+
+      for (int i = 0; i <= numSentences; ++i) {
+        out.writeLong(starts[i]);
+      }
+
+      out.writeInt(strings.size());
+      for (String string : strings) {
+        final byte[] bytes = string.getBytes(UTF8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+      }
+    }
+    finally {
+      out.close();
+    }
+
+    final long sentencesOffset = HEADER_SIZE + numTokens * ROW_BYTES;
+    final long dictionaryOffset = sentencesOffset + (numSentences + 1) * 8L;
+
+    final RandomAccessFile raf = new RandomAccessFile(file, "rw");
+    try {
+      raf.writeInt(MAGIC);
+      raf.writeInt(VERSION);
+      raf.writeInt(NUM_COLUMNS);
+      raf.writeInt(numSentences);
+      raf.writeLong(numTokens);
+      raf.writeLong(sentencesOffset);
+      raf.writeLong(dictionaryOffset);
+    }
+    finally {
+      raf.close();
+    }
+
+    return numSentences;
+  }
+
+  private static final int encode(String value, Map<String, Integer> codes, List<String> strings) {
+    Integer result = codes.get(value);
+    if (result == null) {
+      result = strings.size();
+      strings.add(value);
+      codes.put(value, result);
+    }
+    return result;
+  }
+
+
+  public static void main(String[] args) throws IOException {
+    // Properties:
+    //   inFile -- (required) path to input conll file
+    //   outFile -- (optional, default is inFile + EXTENSION) path to output cache file
+    //   numThreads -- (optional, default=1) number of threads for decoding the input
+    final DataProperties dataProperties = new DataProperties(args);
+    final String inFile = dataProperties.getString("inFile");
+    final String outFile = dataProperties.getString("outFile", inFile + EXTENSION);
+    final int numThreads = dataProperties.getInt("numThreads", 1);
+
+    final InputStream inputStream = FileUtil.getInputStream(inFile);
+    final Iterator<ConllSentence> sentences = (numThreads > 1) ?
+      new ParallelConllReader(inputStream, numThreads) : new ConllReader(inputStream);
+    try {
+      final int numSentences = write(sentences, new File(outFile));
+      System.out.println("Wrote " + numSentences + " sentences to " + outFile);
+    }
+    finally {
+      inputStream.close();
+    }
+  }
+}
@@ -17,6 +17,7 @@ package org.sd.nlp.conll;
 
 
 import java.util.ArrayList;
+import java.util.EnumMap;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -26,19 +27,30 @@ import org.sd.util.tree.Tree;
 /**
  * Container for a CoNLL formatted sentence.
  * <p>
+ * Token lookups by field value are answered from per-field indexes of
+ * token positions that are built on first use and discarded when a token
+ * is added. The HEAD field's index serves as the head to children
+ * adjacency, so child and parent lookups don't scan the sentence.
+ * <p>
  * @author Spencer Koehler
  */
 public class ConllSentence {
   
+  // index key for empty field values, which match each other
+  private static final String EMPTY_KEY = "_";
+
+
   private List<ConllToken> tokens;
   private Tree<ConllNodeData> _tree;
   private Map<Integer, ConllToken> _id2token;
+  private Map<ConllField, Map<String, int[]>> _fieldIndexes;
   private StringBuilder text;
     
   public ConllSentence() {
     this.tokens = new ArrayList<ConllToken>();
     this._tree = null;
     this._id2token = null;
+    this._fieldIndexes = null;
     this.text = new StringBuilder();
   }
 
@@ -62,6 +74,7 @@ public class ConllSentence {
         token.setEndPos(text.length());
       }
       this.tokens.add(token);
+      this._fieldIndexes = null;
     }
   }
 
@@ -213,25 +226,26 @@ public class ConllSentence {
   }
 
   public ConllToken getFirstToken(ConllField field, String value) {
-    ConllToken result = null;
-
-    for (ConllToken token : tokens) {
-      if (token.matches(field, value)) {
-        result = token;
-        break;
-      }
-    }
-
-    return result;
+    final int[] positions = getPositions(field, value);
+    return (positions == null) ? null : tokens.get(positions[0]);
   }
 
   public ConllToken getFirstToken(ConllField[] fields, String[] values) {
     ConllToken result = null;
 
-    for (ConllToken token : tokens) {
-      if (token.matches(fields, values)) {
-        result = token;
-        break;
+    if (fields.length == 0) {
+      if (tokens.size() > 0) result = tokens.get(0);
+    }
+    else {
+      final int[] positions = getPositions(fields[0], values.length > 0 ? values[0] : null);
+      if (positions != null) {
+        for (int position : positions) {
+          final ConllToken token = tokens.get(position);
+          if (token.matches(fields, values)) {
+            result = token;
+            break;
+          }
+        }
       }
     }
 
@@ -241,10 +255,11 @@ public class ConllSentence {
   public List<ConllToken> getAllTokens(ConllField field, String value) {
     List<ConllToken> result = null;
 
-    for (ConllToken token : tokens) {
-      if (token.matches(field, value)) {
-        if (result == null) result = new ArrayList<ConllToken>();
-        result.add(token);
+    final int[] positions = getPositions(field, value);
+    if (positions != null) {
+      result = new ArrayList<ConllToken>(positions.length);
+      for (int position : positions) {
+        result.add(tokens.get(position));
       }
     }
 
@@ -254,10 +269,19 @@ public class ConllSentence {
   public List<ConllToken> getAllTokens(ConllField[] fields, String[] values) {
     List<ConllToken> result = null;
 
-    for (ConllToken token : tokens) {
-      if (token.matches(fields, values)) {
-        if (result == null) result = new ArrayList<ConllToken>();
-        result.add(token);
+    if (fields.length == 0) {
+      if (tokens.size() > 0) result = new ArrayList<ConllToken>(tokens);
+    }
+    else {
+      final int[] positions = getPositions(fields[0], values.length > 0 ? values[0] : null);
+      if (positions != null) {
+        for (int position : positions) {
+          final ConllToken token = tokens.get(position);
+          if (token.matches(fields, values)) {
+            if (result == null) result = new ArrayList<ConllToken>();
+            result.add(token);
+          }
+        }
       }
     }
 
@@ -336,6 +360,64 @@ public class ConllSentence {
     return result;
   }
 
+  /**
+   * Get the positions (in token order) of the tokens whose field matches
+   * the value, or null if none do.
+   */
+  private final int[] getPositions(ConllField field, String value) {
+    if (field == null) {
+      // no token has data for a null field, so all match an empty value
+      int[] result = null;
+      if (indexKey(value) == EMPTY_KEY && tokens.size() > 0) {
+        result = new int[tokens.size()];
+        for (int i = 0; i < result.length; ++i) result[i] = i;
+      }
+      return result;
+    }
+
+    if (_fieldIndexes == null) {
+      _fieldIndexes = new EnumMap<ConllField, Map<String, int[]>>(ConllField.class);
+    }
+
+    Map<String, int[]> fieldIndex = _fieldIndexes.get(field);
+    if (fieldIndex == null) {
+      fieldIndex = buildFieldIndex(field);
+      _fieldIndexes.put(field, fieldIndex);
+    }
+
+    return fieldIndex.get(indexKey(value));
+  }
+
+  private final Map<String, int[]> buildFieldIndex(ConllField field) {
+    final int numTokens = tokens.size();
+    final String[] keys = new String[numTokens];
+    final Map<String, int[]> counts = new HashMap<String, int[]>();
+
+    for (int i = 0; i < numTokens; ++i) {
+      keys[i] = indexKey(tokens.get(i).getData(field));
+      final int[] count = counts.get(keys[i]);
+      if (count == null) counts.put(keys[i], new int[]{1});
+      else ++count[0];
+    }
+
+    final Map<String, int[]> result = new HashMap<String, int[]>(counts.size() * 2);
+    for (Map.Entry<String, int[]> entry : counts.entrySet()) {
+      result.put(entry.getKey(), new int[entry.getValue()[0]]);
+      entry.getValue()[0] = 0;  // reuse as fill position
+    }
+
+    for (int i = 0; i < numTokens; ++i) {
+      final int[] count = counts.get(keys[i]);
+      result.get(keys[i])[count[0]++] = i;
+    }
+
+    return result;
+  }
+
+  private static final String indexKey(String value) {
+    return (value == null || "".equals(value) || EMPTY_KEY.equals(value)) ? EMPTY_KEY : value;
+  }
+
   private final ConllField[] fieldsArray(ConllField field, ConllField[] fields) {
     final ConllField[] result = new ConllField[fields.length + 1];
     int idx = 0;
@@ -16,6 +16,8 @@
 package org.sd.nlp.conll;
 
 
+import java.util.concurrent.ConcurrentHashMap;
+
 /**
  * Container for a CoNLL formatted token.
  * <p>
@@ -23,6 +25,16 @@ package org.sd.nlp.conll;
  */
 public class ConllToken implements Comparable<ConllToken> {
   
+  // shared instances of the values of the tag and relation columns, whose
+  // small closed vocabularies would otherwise be copied into every token
+  private static final ConcurrentHashMap<String, String> SHARED_VALUES = new ConcurrentHashMap<String, String>();
+
+  private static final String shareValue(String value) {
+    final String result = SHARED_VALUES.putIfAbsent(value, value);
+    return (result == null) ? value : result;
+  }
+
+
   private String[] fields;
   private int id;
   private int startPos;  // char position of start in sentence, inclusive
@@ -30,6 +42,26 @@ public class ConllToken implements Comparable<ConllToken> {
 
   public ConllToken(String tokenLine) {
     this.fields = tokenLine.split("\\t");
+    shareField(ConllField.CPOSTAG);
+    shareField(ConllField.POSTAG);
+    shareField(ConllField.DEPREL);
+    this.id = 0;
+    this.startPos = -1;
+    this.endPos = -1;
+  }
+
+  private final void shareField(ConllField field) {
+    final int idx = field.getIdx();
+    if (idx < fields.length) {
+      fields[idx] = shareValue(fields[idx]);
+    }
+  }
+
+  /**
+   * Construct with already split (and shared) field values.
+   */
+  ConllToken(String[] fields) {
+    this.fields = fields;
     this.id = 0;
     this.startPos = -1;
     this.endPos = -1;
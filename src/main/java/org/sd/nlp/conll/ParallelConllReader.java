@@ -0,0 +1,230 @@
+/*
+   Copyright 2008-2016 Semantic Discovery, Inc.
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+package org.sd.nlp.conll;
+
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import org.sd.util.ThreadPoolUtil;
+
+/**
+ * Utility to iterate over sentences in CoNLL format, decoding chunks of
+ * the input in parallel.
+ * <p>
+ * The input is read as bytes on the calling thread and cut into chunks at
+ * blank-line (sentence) boundaries. Chunks are decoded into sentences on a
+ * thread pool while sentences are delivered in input order. The number of
+ * chunks read ahead is bounded.
+ * <p>
+ * Unlike ConllReader, which stops at the first empty sentence (two blank
+ * lines in a row), this reader skips extra blank lines.
+ * <p>
+ * Input is assumed to be UTF-8. Close the reader to release its threads
+ * and stream when not iterating to the end.
+ *
+ * @author Spencer Koehler
+ */
+public class ParallelConllReader implements Iterator<ConllSentence> {
+  
+  public static final int DEFAULT_CHUNK_SIZE = 4 * 1024 * 1024;
+
+  private static final Charset UTF8 = Charset.forName("UTF-8");
+
+
+  private InputStream inputStream;
+  private int chunkSize;
+  private int maxPending;
+  private ExecutorService threadPool;
+
+  private LinkedList<Future<List<ConllSentence>>> pending;
+  private byte[] carry;        // bytes of an incomplete sentence from the last read
+  private int carryLen;
+  private boolean eof;
+
+  private List<ConllSentence> curSentences;
+  private int curIdx;
+
+  public ParallelConllReader(InputStream inputStream, int numThreads) {
+    this(inputStream, numThreads, DEFAULT_CHUNK_SIZE);
+  }
+
+  public ParallelConllReader(InputStream inputStream, int numThreads, int chunkSize) {
+    this.inputStream = inputStream;
+    this.chunkSize = chunkSize < 1024 ? 1024 : chunkSize;
+    this.maxPending = (numThreads < 1 ? 1 : numThreads) * 2;
+    this.threadPool = ThreadPoolUtil.createThreadPool("ParallelConllReader-", numThreads < 1 ? 1 : numThreads);
+
+    this.pending = new LinkedList<Future<List<ConllSentence>>>();
+    this.carry = new byte[0];
+    this.carryLen = 0;
+    this.eof = false;
+
+    this.curSentences = null;
+    this.curIdx = 0;
+  }
+
+  public boolean hasNext() {
+    while (curSentences == null || curIdx >= curSentences.size()) {
+      fill();
+      if (pending.isEmpty()) {
+        close();
+        return false;
+      }
+      this.curSentences = ThreadPoolUtil.waitFor(pending.removeFirst());
+      this.curIdx = 0;
+    }
+    return true;
+  }
+
+  public ConllSentence next() {
+    if (!hasNext()) throw new NoSuchElementException();
+    return curSentences.get(curIdx++);
+  }
+
+  public void remove() {
+    throw new UnsupportedOperationException("Not supported.");
+  }
+
+  /**
+   * Release this reader's threads and close its stream.
+   */
+  public void close() {
+    if (threadPool != null) {
+      for (Future<List<ConllSentence>> future : pending) future.cancel(true);
+      pending.clear();
+      ThreadPoolUtil.shutdownGracefully(threadPool, 1L);
+      this.threadPool = null;
+      try {
+        inputStream.close();
+      }
+      catch (IOException ioe) {
+        // ignore
+      }
+      this.eof = true;
+    }
+  }
+
+  /**
+   * Read and submit chunks until the read-ahead limit or end of input.
+   */
+  private final void fill() {
+    while (!eof && pending.size() < maxPending) {
+      final byte[] chunk = readChunk();
+      if (chunk == null) break;
+      pending.addLast(threadPool.submit(new Callable<List<ConllSentence>>() {
+          public List<ConllSentence> call() {
+            return decode(chunk);
+          }
+        }));
+    }
+  }
+
+  /**
+   * Read the next chunk, ending just after a blank line (or at end of
+   * input), or null if there is no more input.
+   */
+  private final byte[] readChunk() {
+    byte[] buffer = Arrays.copyOf(carry, carryLen + chunkSize);
+    int len = carryLen;
+    int searchFrom = carryLen;  // carry holds no complete blank line
+    int cut = -1;
+
+    try {
+      while (cut < 0) {
+        if (len == buffer.length) buffer = Arrays.copyOf(buffer, buffer.length * 2);
+        final int numRead = inputStream.read(buffer, len, buffer.length - len);
+        if (numRead < 0) {
+          this.eof = true;
+          cut = len;
+        }
+        else {
+          len += numRead;
+          if (len - carryLen >= chunkSize || len == buffer.length) {
+            cut = findCut(buffer, searchFrom, len);
+            searchFrom = len;
+          }
+        }
+      }
+    }
+    catch (IOException ioe) {
+      throw new IllegalStateException(ioe);
+    }
+
+    this.carryLen = len - cut;
+    this.carry = Arrays.copyOfRange(buffer, cut, len);
+
+    return cut == 0 ? null : Arrays.copyOf(buffer, cut);
+  }
+
+  /**
+   * Find the position just after the last blank line in buffer[0,len)
+   * whose terminating line end is at or after from, or -1.
+   */
+  private static final int findCut(byte[] buffer, int from, int len) {
+    for (int i = len - 1; i > 0 && i >= from; --i) {
+      if (buffer[i] == '\n') {
+        if (buffer[i - 1] == '\n' || (i > 1 && buffer[i - 1] == '\r' && buffer[i - 2] == '\n')) {
+          return i + 1;
+        }
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Decode the sentences in a chunk.
+   */
+  static final List<ConllSentence> decode(byte[] chunk) {
+    final List<ConllSentence> result = new ArrayList<ConllSentence>();
+    final String text = new String(chunk, UTF8);
+    final int len = text.length();
+
+    ConllSentence sentence = null;
+    int lineStart = 0;
+    while (lineStart < len) {
+      int lineEnd = text.indexOf('\n', lineStart);
+      if (lineEnd < 0) lineEnd = len;
+      final int nextStart = lineEnd + 1;
+      if (lineEnd > lineStart && text.charAt(lineEnd - 1) == '\r') --lineEnd;
+
+      if (lineEnd == lineStart) {
+        if (sentence != null) {
+          result.add(sentence);
+          sentence = null;
+        }
+      }
+      else {
+        if (sentence == null) sentence = new ConllSentence();
+        sentence.addTokenLine(text.substring(lineStart, lineEnd));
+      }
+
+      lineStart = nextStart;
+    }
+    if (sentence != null) result.add(sentence);
+
+    return result;
+  }
+}
@@ -181,6 +181,13 @@ public abstract class AbstractPatternFinder implements PatternFinder {
     return result;
   }
 
+  /**
+   * Get this instance's normalizer.
+   */
+  public Normalizer getNormalizer() {
+    return normalizer;
+  }
+
   /**
    * Normalize the string using this instance's normalizer.
    */
@@ -20,17 +20,32 @@ package org.sd.text;
 
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.PriorityQueue;
 import java.util.Set;
 
 /**
  * Utility for storing/retrieving multi-word (phrase) sequences associated
  * with one or more values (e.g., ambiguity allowed).
  * <p>
+ * Retrieval runs against a compiled form of the index, built on the first
+ * retrieval after the index changes, which holds each word's items as a
+ * sorted list of integer item ids and each phrase as integer word ids.
+ * Items with the highest word intersection count are found by visiting
+ * posting lists from rarest to most common, stopping as soon as items not
+ * yet seen can no longer reach the best count. Phrases whose edit distance
+ * lower bound can't improve on an item's best phrase (or, when limiting the
+ * number of results, can't beat the current top results) aren't aligned.
+ * <p>
+ * Changes made directly to the maps returned by getWord2Items or
+ * getItem2Words aren't seen by retrieval until invalidateIndex is called.
+ * <p>
  * @author Spence Koehler
  */
 public class PhraseIndex <T> {
@@ -38,11 +53,13 @@ public class PhraseIndex <T> {
   private Map<String, Set<T>> word2items;
   private Map<T, List<String[]>> item2words;
   private Set<String> mandatoryWords;
+  private volatile CompiledIndex<T> _compiled;
 
   public PhraseIndex() {
     this.word2items = new HashMap<String, Set<T>>();
     this.item2words = new HashMap<T, List<String[]>>();
     this.mandatoryWords = new HashSet<String>();
+    this._compiled = null;
   }
 
   public Map<String, Set<T>> getWord2Items() {
@@ -61,6 +78,15 @@ public class PhraseIndex <T> {
     this.word2items.clear();
     this.item2words.clear();
     this.mandatoryWords.clear();
+    this._compiled = null;
+  }
+
+  /**
+   * Discard the compiled form of this index so that it is rebuilt (from
+   * the word2items and item2words maps) on the next retrieval.
+   */
+  public void invalidateIndex() {
+    this._compiled = null;
   }
 
   /**
@@ -93,6 +119,8 @@ public class PhraseIndex <T> {
       }
       items.add(value);
     }
+
+    this._compiled = null;
   }
 
   /**
@@ -105,6 +133,24 @@ public class PhraseIndex <T> {
    * @return retrieval results.
    */
   public List<RetrievalResult<T>> get(String inputString, String[] words) {
+    return get(inputString, words, 0);
+  }
+
+  /**
+   * Get the top ranked (from lowest to highest distance) retrieval results
+   * for the given string.
+   * <p>
+   * Results are as from get(inputString, words) but limited to the best
+   * maxResults, where among equally scored results those kept are
+   * arbitrary.
+   *
+   * @param inputString  Original input string (for reference).
+   * @param words  Normalized words (for lookup).
+   * @param maxResults  Maximum number of results to keep (0 for all).
+   *
+   * @return retrieval results.
+   */
+  public List<RetrievalResult<T>> get(String inputString, String[] words, int maxResults) {
     List<RetrievalResult<T>> result = null;
 
     // Algorithm:
@@ -134,102 +180,61 @@ public class PhraseIndex <T> {
     //         poor matches.
     //   - Return matching results in sorted order from best (highest) to worst (lowest).
 
-    Map<T, Integer> values = null;  // values w/inst freq across words
-    int maxIxCount = 0;
-    int minCardinality = Integer.MAX_VALUE;
+    final CompiledIndex<T> compiled = getCompiledIndex();
 
     // map each input word to the number of phrases it participates in in the index
     final Map<String, Integer> word2cardinality = new HashMap<String, Integer>();
-    for (String word : words) {
-      final Set<T> items = word2items.get(word);
-      if (items != null) {
-        final int numItems = items.size();
-        word2cardinality.put(word, numItems);
+    final int[] inputIds = new int[words.length];
+    final int[][] postings = new int[words.length][];
+    int numPostings = 0;
+    int minCardinality = Integer.MAX_VALUE;
 
-        if (numItems < minCardinality) {
-          minCardinality = numItems;
-        }
-        if (values == null) {
-          values = new HashMap<T, Integer>();
-        }
-        for (T item : items) {
-          final Integer count = values.get(item);
-          final int ucount = (count == null) ? 1 : count + 1;
-          values.put(item, ucount);
-          if (ucount > maxIxCount) {
-            maxIxCount = ucount;
-          }
-        }
+    for (int i = 0; i < words.length; ++i) {
+      final Integer wordId = compiled.word2id.get(words[i]);
+      inputIds[i] = (wordId == null) ? -1 : wordId;
+      if (wordId != null) {
+        final int[] posting = compiled.postings[wordId];
+        word2cardinality.put(words[i], posting.length);
+        if (posting.length < minCardinality) minCardinality = posting.length;
+        postings[numPostings++] = posting;
       }
     }
 
+    final Candidates candidates = findCandidates(postings, numPostings);
+    final int maxIxCount = candidates.count;
+
     if (maxIxCount > 0) {
       result = new ArrayList<RetrievalResult<T>>();
 
+      final Map<T, Integer> values = new HashMap<T, Integer>();
+      for (int i = 0; i < candidates.size; ++i) {
+        values.put(compiled.items.get(candidates.itemIds[i]), maxIxCount);
+      }
+
       // hook to bypass default matching for injecting special treatment
       if (!bypassDefaultMatching(result, inputString, words, word2cardinality, values, maxIxCount)) {
 
-        final CharDictionary dictionary = new CharDictionary();
-        final char[] inputChars = dictionary.lookup(words);
-
         // Identify words that must be present in retrieved phrase
-        final Set<String> mustHaveWords = new HashSet<String>();
-        for (String word : words) {
-          final Integer cardinality = word2cardinality.get(word);
-          if (mandatoryWords.contains(word) || (cardinality != null && cardinality == minCardinality)) {
-            mustHaveWords.add(word);
+        final Set<Integer> mustHaveIds = new HashSet<Integer>();
+        for (int i = 0; i < words.length; ++i) {
+          if (inputIds[i] < 0) continue;  // not in any stored phrase
+          final Integer cardinality = word2cardinality.get(words[i]);
+          if (mandatoryWords.contains(words[i]) || cardinality == minCardinality) {
+            mustHaveIds.add(inputIds[i]);
           }
         }
-        final Set<Character> mustHaveWordChars = new HashSet<Character>();
-        for (String mustHaveWord : mustHaveWords) {
-          mustHaveWordChars.add(dictionary.lookup(mustHaveWord));
-        }
 
-        for (Map.Entry<T, Integer> entry : values.entrySet()) {
-          final T item = entry.getKey();
-          final Integer count = entry.getValue();
-          if (count < maxIxCount) continue;  // consider only most frequent values
-
-          final List<String[]> wordLists = item2words.get(item);
-          if (wordLists != null) {
-            String[] bestWords = null;
-            int bestDist = Integer.MAX_VALUE;
-            for (String[] wordList : wordLists) {
-              //final char[] storedChars = dictionary.lookup(wordList);
-
-              boolean hasMustHave = false;
-              final char[] storedChars = new char[wordList.length];
-              for (int i = 0; i < wordList.length; ++i) {
-                final String word = wordList[i];
-                final char wordChar = dictionary.lookup(word);
-                storedChars[i] = wordChar;
-                if (mustHaveWordChars.contains(wordChar)) {
-                  // currently: true if *any* (not necessarily *all*) are present.
-                  // note that this allows for loose alternatives, probably with
-                  // lower scores, to be considered.
-                  hasMustHave = true;
-                }
-              }
-              if (!hasMustHave) continue;
-
-
-              final int dist = getEditDistance(item, storedChars, inputChars);
-              if (dist < bestDist) {
-                bestDist = dist;
-                bestWords = wordList;
-
-                if (dist == 0) break;
-              }
-            }
-            if (bestDist < Integer.MAX_VALUE) {
-              result.add(new RetrievalResult<T>(item, maxIxCount - bestDist, bestWords, words));
-            }
-          }
-        }
+        final Matcher<T> matcher = new Matcher<T>(this, compiled, words, inputIds, mustHaveIds);
+        matcher.match(candidates, maxIxCount, maxResults, result);
       }
     }
 
-    if (result != null) Collections.sort(result);
+    if (result != null) {
+      Collections.sort(result);
+      if (maxResults > 0 && result.size() > maxResults) {
+        result = new ArrayList<RetrievalResult<T>>(result.subList(0, maxResults));
+      }
+    }
     return result;
   }
 
@@ -240,7 +245,8 @@ public class PhraseIndex <T> {
    * @param inputString  Original input string.
    * @param words  Normalized input words.
    * @param word2cardinality  Cardinality of retrieved values for each word.
-   * @param values  Values retrieved w/inst freq across words.
+   * @param values  Values retrieved w/inst freq across words (only those
+   *                with the maximum intersection count are included).
    * @param maxIxCount  Maximum intersection count (freq) of values across words
    *                    (note: this is the highest value in values for any key)
    *
@@ -257,6 +263,69 @@ public class PhraseIndex <T> {
     return EditDistance.lev(storedChars, inputChars);
   }
 
+  /**
+   * Get a lower bound for getEditDistance between a stored phrase and the
+   * input given their lengths and the number of (multiset) common words.
+   * <p>
+   * Phrases whose bound shows they can't improve on results at hand are
+   * not aligned. Extenders overriding getEditDistance with a measure that
+   * this bound doesn't hold for should override this to return 0.
+   */
+  protected int getEditDistanceLowerBound(int storedLength, int inputLength, int numCommonWords) {
+    final int maxLength = Math.max(storedLength, inputLength);
+    return Math.max(Math.abs(storedLength - inputLength), maxLength - numCommonWords);
+  }
+
+  private final CompiledIndex<T> getCompiledIndex() {
+    CompiledIndex<T> result = _compiled;
+    if (result == null) {
+      synchronized (this) {
+        result = _compiled;
+        if (result == null) {
+          result = new CompiledIndex<T>(word2items, item2words);
+          _compiled = result;
+        }
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Find the items having the highest count of memberships across the
+   * posting lists.
+   */
+  private static final Candidates findCandidates(int[][] postings, int numPostings) {
+    final Candidates result = new Candidates();
+
+    // rarest first
+    Arrays.sort(postings, 0, numPostings, new Comparator<int[]>() {
+        public int compare(int[] a, int[] b) {
+          return a.length - b.length;
+        }
+      });
+
+    // items first seen in posting j (absent from postings before j) can
+    // appear in at most numPostings - j postings
+    for (int j = 0; j < numPostings && result.count <= numPostings - j; ++j) {
+      for (int itemId : postings[j]) {
+        boolean seen = false;
+        for (int k = 0; k < j && !seen; ++k) {
+          seen = Arrays.binarySearch(postings[k], itemId) >= 0;
+        }
+        if (seen) continue;
+
+        int count = 1;
+        for (int k = j + 1; k < numPostings; ++k) {
+          if (count + (numPostings - k) < result.count) break;  // can't reach best
+          if (Arrays.binarySearch(postings[k], itemId) >= 0) ++count;
+        }
+
+        result.add(itemId, count);
+      }
+    }
+
+    return result;
+  }
 
   public static final class RetrievalResult <T> implements Comparable<RetrievalResult<T>> {
     private T value;
@@ -301,28 +370,265 @@ public class PhraseIndex <T> {
     }
   }
 
-  private static final class CharDictionary {
+  /**
+   * Items (by id) having the highest count.
+   */
+  private static final class Candidates {
+    int count;
+    int size;
+    int[] itemIds;
+
+    Candidates() {
+      this.count = 0;
+      this.size = 0;
+      this.itemIds = new int[8];
+    }
+
+    void add(int itemId, int itemCount) {
+      if (itemCount > count) {
+        this.count = itemCount;
+        this.size = 0;
+      }
+      if (itemCount == count) {
+        if (size == itemIds.length) itemIds = Arrays.copyOf(itemIds, size * 2);
+        itemIds[size++] = itemId;
+      }
+    }
+  }
+
+  /**
+   * Integer form of the index.
+   */
+  private static final class CompiledIndex <T> {
+    final Map<String, Integer> word2id;
+    final int[][] postings;         // wordId -> sorted itemIds
+    final List<T> items;            // itemId -> item
+    final String[][][] phrases;     // itemId -> phrases
+    final int[][][] phraseIds;      // itemId -> phrase -> wordIds
+    final int[][][] sortedPhraseIds; // itemId -> phrase -> sorted wordIds
+
+    CompiledIndex(Map<String, Set<T>> word2items, Map<T, List<String[]>> item2words) {
+      this.items = new ArrayList<T>(item2words.keySet());
+      final Map<T, Integer> item2id = new HashMap<T, Integer>();
+      for (int i = 0; i < items.size(); ++i) {
+        item2id.put(items.get(i), i);
+      }
+
+      this.word2id = new HashMap<String, Integer>();
+      this.postings = new int[word2items.size()][];
+      for (Map.Entry<String, Set<T>> entry : word2items.entrySet()) {
+        final int wordId = word2id.size();
+        word2id.put(entry.getKey(), wordId);
+
+        final int[] posting = new int[entry.getValue().size()];
+        int numItems = 0;
+        for (T item : entry.getValue()) {
+          final Integer itemId = item2id.get(item);
+          if (itemId != null) posting[numItems++] = itemId;
+        }
+        postings[wordId] = Arrays.copyOf(posting, numItems);
+        Arrays.sort(postings[wordId]);
+      }
+
+      this.phrases = new String[items.size()][][];
+      this.phraseIds = new int[items.size()][][];
+      this.sortedPhraseIds = new int[items.size()][][];
+      for (int itemId = 0; itemId < items.size(); ++itemId) {
+        final List<String[]> wordLists = item2words.get(items.get(itemId));
+        final int numPhrases = (wordLists == null) ? 0 : wordLists.size();
+        phrases[itemId] = new String[numPhrases][];
+        phraseIds[itemId] = new int[numPhrases][];
+        sortedPhraseIds[itemId] = new int[numPhrases][];
+        for (int p = 0; p < numPhrases; ++p) {
+          final String[] wordList = wordLists.get(p);
+          final int[] ids = new int[wordList.length];
+          for (int i = 0; i < wordList.length; ++i) {
+            final Integer wordId = word2id.get(wordList[i]);
+            ids[i] = (wordId == null) ? Integer.MIN_VALUE : wordId;  // distinct from input keys
+          }
+          phrases[itemId][p] = wordList;
+          phraseIds[itemId][p] = ids;
+          sortedPhraseIds[itemId][p] = Arrays.copyOf(ids, ids.length);
+          Arrays.sort(sortedPhraseIds[itemId][p]);
+        }
+      }
+    }
+  }
+
+  /**
+   * Per-retrieval state for aligning candidate phrases with the input.
+   */
+  private static final class Matcher <T> {
+    private PhraseIndex<T> phraseIndex;
+    private CompiledIndex<T> compiled;
+    private String[] words;
+    private int[] sortedInputIds;   // sorted ids of indexed input words
+    private Set<Integer> mustHaveIds;
+    private Map<Integer, Character> id2char;
     private char nextC;
-    private Map<String, Character> map;
-    public CharDictionary() {
-      this.map = new HashMap<String, Character>();
+    private char[] inputChars;
+
+    Matcher(PhraseIndex<T> phraseIndex, CompiledIndex<T> compiled, String[] words, int[] inputIds, Set<Integer> mustHaveIds) {
+      this.phraseIndex = phraseIndex;
+      this.compiled = compiled;
+      this.words = words;
+      this.mustHaveIds = mustHaveIds;
+      this.id2char = new HashMap<Integer, Character>();
       this.nextC = 'A';
+
+      // each distinct word is a distinct char; unindexed input words
+      // (without ids) are keyed by negative indexes of their first occurrence
+      this.inputChars = new char[words.length];
+      int numIndexed = 0;
+      for (int i = 0; i < words.length; ++i) {
+        int key = inputIds[i];
+        if (key < 0) {
+          key = -(i + 1);
+          for (int j = 0; j < i; ++j) {
+            if (inputIds[j] < 0 && words[j].equals(words[i])) {
+              key = -(j + 1);
+              break;
+            }
+          }
+        }
+        else {
+          ++numIndexed;
+        }
+        inputChars[i] = lookup(key);
+      }
+
+      this.sortedInputIds = new int[numIndexed];
+      numIndexed = 0;
+      for (int inputId : inputIds) {
+        if (inputId >= 0) sortedInputIds[numIndexed++] = inputId;
+      }
+      Arrays.sort(sortedInputIds);
     }
-    public char[] lookup(String[] words) {
-      final int n = words.length;
-      char[] result = new char[n];
 
-      for (int i = 0; i < n; ++i) {
-        result[i] = lookup(words[i]);
+    /**
+     * Collect results for the candidates, keeping only the best maxResults
+     * (if positive).
+     */
+    void match(Candidates candidates, int maxIxCount, int maxResults, List<RetrievalResult<T>> result) {
+      // order candidate items by their best possible distance
+      final int numCandidates = candidates.size;
+      final long[] bounds = new long[numCandidates];  // (minBound << 32) | candidate index
+      int numBounded = 0;
+      for (int c = 0; c < numCandidates; ++c) {
+        final int minBound = getMinBound(candidates.itemIds[c]);
+        if (minBound < Integer.MAX_VALUE) {
+          bounds[numBounded++] = ((long)minBound << 32) | c;
+        }
       }
+      if (maxResults > 0) Arrays.sort(bounds, 0, numBounded);
 
+      final PriorityQueue<RetrievalResult<T>> top = (maxResults > 0) ?
+        new PriorityQueue<RetrievalResult<T>>(maxResults + 1, Collections.reverseOrder()) : null;
+
+      for (int b = 0; b < numBounded; ++b) {
+        final int itemId = candidates.itemIds[(int)(bounds[b] & 0xFFFFFFFFL)];
+
+        // stop once no remaining item can beat the current top results
+        int distLimit = Integer.MAX_VALUE;
+        if (top != null && top.size() == maxResults) {
+          distLimit = maxIxCount - top.peek().getScore();
+          if ((int)(bounds[b] >>> 32) >= distLimit) break;
+        }
+
+        final RetrievalResult<T> itemResult = matchItem(itemId, maxIxCount, distLimit);
+        if (itemResult != null) {
+          if (top == null) {
+            result.add(itemResult);
+          }
+          else {
+            top.add(itemResult);
+            if (top.size() > maxResults) top.poll();
+          }
+        }
+      }
+
+      if (top != null) result.addAll(top);
+    }
+
+    /**
+     * Get the lowest distance bound across the item's phrases having a
+     * must-have word, or Integer.MAX_VALUE if none.
+     */
+    private final int getMinBound(int itemId) {
+      int result = Integer.MAX_VALUE;
+      final int[][] sortedIds = compiled.sortedPhraseIds[itemId];
+      for (int p = 0; p < sortedIds.length; ++p) {
+        if (hasMustHave(sortedIds[p])) {
+          final int bound = getBound(sortedIds[p]);
+          if (bound < result) result = bound;
+        }
+      }
       return result;
     }
-    public char lookup(String word) {
-      Character result = map.get(word);
+
+    /**
+     * Align the item's phrases, considering only those that could have a
+     * distance below distLimit.
+     */
+    private final RetrievalResult<T> matchItem(int itemId, int maxIxCount, int distLimit) {
+      final T item = compiled.items.get(itemId);
+      final int[][] ids = compiled.phraseIds[itemId];
+      final int[][] sortedIds = compiled.sortedPhraseIds[itemId];
+
+      String[] bestWords = null;
+      int bestDist = Integer.MAX_VALUE;
+      for (int p = 0; p < ids.length; ++p) {
+        // currently: true if *any* (not necessarily *all*) are present.
+        // note that this allows for loose alternatives, probably with
+        // lower scores, to be considered.
+        if (!hasMustHave(sortedIds[p])) continue;
+
+        final int bound = getBound(sortedIds[p]);
+        if (bound >= bestDist || bound >= distLimit) continue;  // can't improve
+
+        final int dist = phraseIndex.getEditDistance(item, lookup(ids[p]), inputChars);
+        if (dist < bestDist) {
+          bestDist = dist;
+          bestWords = compiled.phrases[itemId][p];
+
+          if (dist == 0) break;
+        }
+      }
+
+      return (bestWords == null) ? null : new RetrievalResult<T>(item, maxIxCount - bestDist, bestWords, words);
+    }
+
+    private final boolean hasMustHave(int[] sortedIds) {
+      for (Integer mustHaveId : mustHaveIds) {
+        if (Arrays.binarySearch(sortedIds, mustHaveId) >= 0) return true;
+      }
+      return false;
+    }
+
+    private final int getBound(int[] sortedIds) {
+      // count (multiset) common words by merging sorted ids
+      int numCommon = 0;
+      for (int i = 0, j = 0; i < sortedIds.length && j < sortedInputIds.length; ) {
+        if (sortedIds[i] < sortedInputIds[j]) ++i;
+        else if (sortedIds[i] > sortedInputIds[j]) ++j;
+        else { ++numCommon; ++i; ++j; }
+      }
+      return phraseIndex.getEditDistanceLowerBound(sortedIds.length, words.length, numCommon);
+    }
+
+    private final char[] lookup(int[] ids) {
+      final char[] result = new char[ids.length];
+      for (int i = 0; i < ids.length; ++i) {
+        result[i] = lookup(ids[i]);
+      }
+      return result;
+    }
+
+    private final char lookup(int key) {
+      Character result = id2char.get(key);
       if (result == null) {
         result = nextC++;
-        map.put(word, result);
+        id2char.put(key, result);
       }
       return result;
     }
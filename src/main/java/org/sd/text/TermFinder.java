@@ -24,6 +24,8 @@ import org.sd.nlp.GeneralNormalizer;
 import org.sd.nlp.GeneralNormalizedString;
 import org.sd.nlp.NormalizedString;
 import org.sd.nlp.Normalizer;
+import org.sd.nlp.NormalizerWorkspace;
+import org.sd.util.CharSequenceSet;
 
 import java.io.BufferedReader;
 import java.io.DataInputStream;
@@ -62,6 +64,7 @@ public class TermFinder extends AbstractPatternFinder {
 
   private Set<String> terms;
   private RobinKarpStringSearch _rkSearch;
+  private volatile CharSequenceSet _termSet;
 
   /**
    * Construct with a general normalizer.
@@ -93,6 +96,7 @@ public class TermFinder extends AbstractPatternFinder {
 
     this.terms = new HashSet<String>();
     this._rkSearch = null;
+    this._termSet = null;
 
     if (terms != null) {
       loadTerms(terms);
@@ -108,6 +112,7 @@ public class TermFinder extends AbstractPatternFinder {
    */
   public void loadTerms(File resourceFile) throws IOException {
     _rkSearch = null;
+    _termSet = null;
 
     final BufferedReader reader = FileUtil.getReader(resourceFile);
     String line = null;
@@ -147,6 +152,7 @@ public class TermFinder extends AbstractPatternFinder {
    */
   public void loadTerms(String[] terms) {
     _rkSearch = null;
+    _termSet = null;
     
     for (String term : terms) {
 //      this.terms.add(normalize(term).getNormalized());
@@ -189,6 +195,12 @@ public class TermFinder extends AbstractPatternFinder {
    * Determine whether this finder find the given term, normalizing as appropriate.
    */
   public boolean hasTerm(String term) {
+    final Normalizer normalizer = getNormalizer();
+    if (term != null && term.length() > 0 && normalizer instanceof GeneralNormalizer) {
+      // normalize into this thread's workspace and look up its chars
+      final CharSequence normalized = ((GeneralNormalizer)normalizer).normalize(term, NormalizerWorkspace.get());
+      return getTermSet().contains(normalized);
+    }
     return hasTerm(normalize(term));
   }
 
@@ -206,6 +218,16 @@ public class TermFinder extends AbstractPatternFinder {
     return terms;
   }
 
+  private final CharSequenceSet getTermSet() {
+    CharSequenceSet result = _termSet;
+    if (result == null) {
+      result = new CharSequenceSet(terms.size());
+      result.addAll(terms);
+      _termSet = result;
+    }
+    return result;
+  }
+
   private final RobinKarpStringSearch getRobinKarpSearch() {
     if (_rkSearch == null) {
       final String[] searchTerms = terms.toArray(new String[terms.size()]);
@@ -48,6 +48,7 @@ public class StandardTokenizer implements Tokenizer {
   private StandardTokenizerOptions options;
   private boolean computedWordCount;
   private int _wordCount;
+  private TokenLattice tokenLattice;
 
   /**
    * Construct with a StandardBreakMaker with the given text and options.
@@ -65,6 +66,7 @@ public class StandardTokenizer implements Tokenizer {
     this.sourceTokenizer = null;
     this.computedWordCount = false;
     this._wordCount = 0;
+    this.tokenLattice = (options != null && options.getUseTokenLattice()) ? new TokenLattice() : null;
   }
 
   public StandardBreakMaker getBreakMaker() {
@@ -77,6 +79,9 @@ public class StandardTokenizer implements Tokenizer {
       this.text = breakMaker.getText();
       this.options = breakMaker.getOptions();
     }
+    if (tokenLattice != null) {
+      tokenLattice.clear();
+    }
   }
 
   public TokenFeatureAdder getTokenFeatureAdder() {
@@ -104,6 +109,9 @@ public class StandardTokenizer implements Tokenizer {
     if (breakMaker != null) {
       breakMaker.setOptions(options);
     }
+    if (options != null && options.getUseTokenLattice()) {
+      setUseTokenLattice(true);
+    }
     this.reset();
   }
 
@@ -115,6 +123,28 @@ public class StandardTokenizer implements Tokenizer {
       this.breakMaker.reset();
     }
     this.computedWordCount = false;
+    if (this.tokenLattice != null) {
+      this.tokenLattice.clear();
+    }
+  }
+
+  /**
+   * Get this tokenizer's token lattice, or null if not using a lattice.
+   */
+  public TokenLattice getTokenLattice() {
+    return tokenLattice;
+  }
+
+  /**
+   * Set whether to cache tokens and their features in a token lattice.
+   */
+  public void setUseTokenLattice(boolean useTokenLattice) {
+    if (!useTokenLattice) {
+      this.tokenLattice = null;
+    }
+    else if (this.tokenLattice == null) {
+      this.tokenLattice = new TokenLattice();
+    }
   }
 
 
@@ -136,9 +166,7 @@ public class StandardTokenizer implements Tokenizer {
 
   public Token getToken(int startPosition) {
     startPosition = skipImmediateBreaks(startPosition);
-    final Token result = doGetToken(options.getRevisionStrategy(), startPosition, 0);
-    addTokenFeatures(result);
-    return result;
+    return getFirstToken(options.getRevisionStrategy(), startPosition, 0);
   }
 
   public Token getNextSmallestToken(Token token) {
@@ -218,6 +246,52 @@ public class StandardTokenizer implements Tokenizer {
 
     Token result = null;
 
+    if (tokenLattice != null) {
+      final TokenLattice.RevisionChain chain = tokenLattice.getChain(token.getStartIndex(), token.getRevisionStrategy());
+      if (chain.holds(token)) {
+        final int nextRevisionNumber = token.getRevisionNumber() + 1;
+        if (chain.knows(nextRevisionNumber)) {
+          tokenLattice.recordHit();
+        }
+        else {
+          tokenLattice.recordMiss();
+          chain.add(computeRevision(token));
+        }
+        final TokenLattice.TokenSpan span = chain.getSpan(nextRevisionNumber);
+        if (span != null) {
+          result = span.buildToken(getSourceTokenizer(), token.getRevisionStrategy(), nextRevisionNumber, token.getSequenceNumber());
+        }
+        return result;
+      }
+    }
+
+    result = computeRevision(token);
+
+    return result;
+  }
+
+  /**
+   * Get all revisions of the token starting at the given position (in
+   * revision order) under this tokenizer's revision strategy.
+   * <p>
+   * When using a token lattice, the revisions are computed only once.
+   */
+  public List<Token> getCandidateTokens(int startPosition) {
+    final List<Token> result = new ArrayList<Token>();
+
+    for (Token token = getToken(startPosition); token != null; token = revise(token)) {
+      result.add(token);
+    }
+
+    return result;
+  }
+
+  /**
+   * Compute the revision of the token, adding its features.
+   */
+  private final Token computeRevision(Token token) {
+    Token result = null;
+
     if (token.getRevisionStrategy() != TokenRevisionStrategy.LO && token.getRevisionStrategy() != TokenRevisionStrategy.SO) {
       // revising possible
       int nextRevisionNumber = token.getRevisionNumber() + 1;
@@ -286,14 +360,40 @@ public class StandardTokenizer implements Tokenizer {
   public Token getNextToken(Token token) {
     int startPosition = findEndBreakForward(token.getEndIndex(), false);
     if (startPosition < 0) startPosition = token.getEndIndex();
-    final Token result = doGetToken(token.getRevisionStrategy(), startPosition, token.getSequenceNumber() + 1);
-    addTokenFeatures(result);
-    return result;
+    return getFirstToken(token.getRevisionStrategy(), startPosition, token.getSequenceNumber() + 1);
   }
 
   public Token getPriorToken(Token token) {
     Token result = null;
 
+    if (tokenLattice != null) {
+      final int tokenStart = token.getStartIndex();
+      final TokenRevisionStrategy revStrategy = token.getRevisionStrategy();
+      if (tokenLattice.hasPriorSpan(tokenStart, revStrategy)) {
+        tokenLattice.recordHit();
+      }
+      else {
+        tokenLattice.recordMiss();
+        tokenLattice.setPriorToken(tokenStart, revStrategy, computePriorToken(token));
+      }
+      final TokenLattice.TokenSpan span = tokenLattice.getPriorSpan(tokenStart, revStrategy);
+      if (span != null) {
+        result = span.buildToken(getSourceTokenizer(), revStrategy, 0, Math.max(token.getSequenceNumber() - 1, 0));
+      }
+    }
+    else {
+      result = computePriorToken(token);
+    }
+
+    return result;
+  }
+
+  /**
+   * Compute the token prior to the given token, adding its features.
+   */
+  private final Token computePriorToken(Token token) {
+    Token result = null;
+
     final int tokenStart = token.getStartIndex();
     int breakCount = 0;
 
@@ -471,6 +571,37 @@ public class StandardTokenizer implements Tokenizer {
     return result;
   }
 
+  /**
+   * Get the first (unrevised) token at the start position with its features,
+   * through the token lattice if present.
+   */
+  private final Token getFirstToken(TokenRevisionStrategy revisionStrategy, int startPosition, int sequenceNumber) {
+    Token result = null;
+
+    if (tokenLattice != null) {
+      final TokenLattice.RevisionChain chain = tokenLattice.getChain(startPosition, revisionStrategy);
+      if (chain.knows(0)) {
+        tokenLattice.recordHit();
+      }
+      else {
+        tokenLattice.recordMiss();
+        final Token token = doGetToken(revisionStrategy, startPosition, sequenceNumber);
+        addTokenFeatures(token);
+        chain.add(token);
+      }
+      final TokenLattice.TokenSpan span = chain.getSpan(0);
+      if (span != null) {
+        result = span.buildToken(getSourceTokenizer(), revisionStrategy, 0, sequenceNumber);
+      }
+    }
+    else {
+      result = doGetToken(revisionStrategy, startPosition, sequenceNumber);
+      addTokenFeatures(result);
+    }
+
+    return result;
+  }
+
   private final Token doGetToken(TokenRevisionStrategy revisionStrategy, int startPosition, int sequenceNumber) {
     final BreakType breakToFind = getBreakToFind(revisionStrategy);
     return doGetNextToken(startPosition, breakToFind, revisionStrategy, 0, sequenceNumber);
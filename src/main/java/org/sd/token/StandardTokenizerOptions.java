@@ -65,6 +65,21 @@ public class StandardTokenizerOptions {
     return tokenBreakLimit != 0 && count >= tokenBreakLimit;
   }
 
+  /**
+   * Specifies whether tokenizers should cache tokens and their features in
+   * a TokenLattice instead of recomputing them on each request.
+   * <p>
+   * This doesn't change the tokens produced, so it isn't considered in
+   * equals or hashCode.
+   */
+  private boolean useTokenLattice;
+  public boolean getUseTokenLattice() {
+    return useTokenLattice;
+  }
+  public void setUseTokenLattice(boolean useTokenLattice) {
+    this.useTokenLattice = useTokenLattice;
+  }
+
   /**
    * Specifies the break between a lowercase letter immediately followed
    * by an uppercase letter.
@@ -370,6 +385,7 @@ public class StandardTokenizerOptions {
   public StandardTokenizerOptions() {
     this.revisionStrategy = TokenRevisionStrategy.LSL;
     this.tokenBreakLimit = DEFAULT_TOKEN_BREAK_LIMIT;
+    this.useTokenLattice = false;
 
     this.lowerUpperBreak = Break.ZERO_WIDTH_SOFT_BREAK;
     this.upperLowerBreak = Break.NO_BREAK;
@@ -407,6 +423,7 @@ public class StandardTokenizerOptions {
     this.options = other.options;
     this.revisionStrategy = other.revisionStrategy;
     this.tokenBreakLimit = other.tokenBreakLimit;
+    this.useTokenLattice = other.useTokenLattice;
 
     this.lowerUpperBreak = other.lowerUpperBreak;
     this.upperLowerBreak = other.upperLowerBreak;
@@ -491,6 +508,7 @@ public class StandardTokenizerOptions {
     // set RevisionStrategy
     this.revisionStrategy = translateRevisionStrategy(revisionStrategy);
     this.tokenBreakLimit = options.getInt("tokenBreakLimit", 0);
+    this.useTokenLattice = options.getBoolean("useTokenLattice", false);
 
     // set Breaks
     this.lowerUpperBreak = translateBreak(lowerUpperBreak);
@@ -654,6 +672,7 @@ public class StandardTokenizerOptions {
 
     result.addTagAndText("revisionStrategy", revisionStrategy.toString());
     result.addTagAndText("tokenBreakLimit", Integer.toString(tokenBreakLimit));
+    if (useTokenLattice) result.addTagAndText("useTokenLattice", "true");
     result.addTagAndText("lowerUpperBreak", lowerUpperBreak.getBLongName());
     result.addTagAndText("upperLowerBreak", upperLowerBreak.getBLongName());
     result.addTagAndText("upperDigitBreak", upperDigitBreak.getBLongName());
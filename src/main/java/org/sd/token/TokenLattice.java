@@ -0,0 +1,282 @@
+/*
+    Copyright 2009 Semantic Discovery, Inc. (www.semanticdiscovery.com)
+
+    This file is part of the Semantic Discovery Toolkit.
+
+    The Semantic Discovery Toolkit is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    The Semantic Discovery Toolkit is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with The Semantic Discovery Toolkit.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package org.sd.token;
+
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Cache of a tokenizer's token spans by start position and revision chain.
+ * <p>
+ * Each span records a token's boundaries, word and break counts, and the
+ * features added by the tokenizer's TokenFeatureAdder, so that asking for
+ * the same token again (e.g., from another parse branch) costs neither
+ * break scans nor feature lookups.
+ * <p>
+ * Tokens handed out from the lattice are always new instances holding the
+ * cached features, so callers are free to mutate them.
+ *
+ * @author Spence Koehler
+ */
+public class TokenLattice {
+
+  private Map<Integer, EnumMap<TokenRevisionStrategy, RevisionChain>> chains;
+  private Map<Integer, EnumMap<TokenRevisionStrategy, TokenSpan>> priorSpans;
+  private long numHits;
+  private long numMisses;
+
+  public TokenLattice() {
+    this.chains = new HashMap<Integer, EnumMap<TokenRevisionStrategy, RevisionChain>>();
+    this.priorSpans = new HashMap<Integer, EnumMap<TokenRevisionStrategy, TokenSpan>>();
+    this.numHits = 0L;
+    this.numMisses = 0L;
+  }
+
+  /**
+   * Get (creating if necessary) the revision chain of tokens starting at
+   * the given position under the given revision strategy.
+   */
+  public RevisionChain getChain(int startPosition, TokenRevisionStrategy revisionStrategy) {
+    EnumMap<TokenRevisionStrategy, RevisionChain> strategy2chain = chains.get(startPosition);
+    if (strategy2chain == null) {
+      strategy2chain = new EnumMap<TokenRevisionStrategy, RevisionChain>(TokenRevisionStrategy.class);
+      chains.put(startPosition, strategy2chain);
+    }
+
+    RevisionChain result = strategy2chain.get(revisionStrategy);
+    if (result == null) {
+      result = new RevisionChain(startPosition, revisionStrategy);
+      strategy2chain.put(revisionStrategy, result);
+    }
+
+    return result;
+  }
+
+  /**
+   * Determine whether the prior token for a token starting at the given
+   * position has been recorded.
+   */
+  public boolean hasPriorSpan(int tokenStart, TokenRevisionStrategy revisionStrategy) {
+    final EnumMap<TokenRevisionStrategy, TokenSpan> strategy2span = priorSpans.get(tokenStart);
+    return strategy2span != null && strategy2span.containsKey(revisionStrategy);
+  }
+
+  /**
+   * Get the recorded prior span for a token starting at the given position,
+   * which is null if there is no prior token or if it hasn't been recorded.
+   */
+  public TokenSpan getPriorSpan(int tokenStart, TokenRevisionStrategy revisionStrategy) {
+    final EnumMap<TokenRevisionStrategy, TokenSpan> strategy2span = priorSpans.get(tokenStart);
+    return strategy2span == null ? null : strategy2span.get(revisionStrategy);
+  }
+
+  /**
+   * Record the prior token (possibly null) for a token starting at the given
+   * position.
+   */
+  public void setPriorToken(int tokenStart, TokenRevisionStrategy revisionStrategy, Token priorToken) {
+    EnumMap<TokenRevisionStrategy, TokenSpan> strategy2span = priorSpans.get(tokenStart);
+    if (strategy2span == null) {
+      strategy2span = new EnumMap<TokenRevisionStrategy, TokenSpan>(TokenRevisionStrategy.class);
+      priorSpans.put(tokenStart, strategy2span);
+    }
+    strategy2span.put(revisionStrategy, priorToken == null ? null : new TokenSpan(priorToken));
+  }
+
+  /**
+   * Get the start positions having revision chains.
+   */
+  public List<Integer> getStartPositions() {
+    return new ArrayList<Integer>(chains.keySet());
+  }
+
+  /**
+   * Forget all cached tokens.
+   */
+  public void clear() {
+    chains.clear();
+    priorSpans.clear();
+  }
+
+  public long getNumHits() {
+    return numHits;
+  }
+
+  public long getNumMisses() {
+    return numMisses;
+  }
+
+  void recordHit() {
+    ++numHits;
+  }
+
+  void recordMiss() {
+    ++numMisses;
+  }
+
+
+  /**
+   * A token's boundaries, counts, and features.
+   */
+  public static final class TokenSpan {
+
+    private String text;
+    private int startIndex;
+    private int wordCount;
+    private int breakCount;
+    private Features features;
+
+    TokenSpan(Token token) {
+      this.text = token.getText();
+      this.startIndex = token.getStartIndex();
+      this.wordCount = token.getWordCount();
+      this.breakCount = token.getBreakCount();
+      this.features = token.hasFeatures() ? token.getFeatures() : null;
+    }
+
+    public String getText() {
+      return text;
+    }
+
+    public int getStartIndex() {
+      return startIndex;
+    }
+
+    public int getEndIndex() {
+      return startIndex + text.length();
+    }
+
+    public int getWordCount() {
+      return wordCount;
+    }
+
+    public int getBreakCount() {
+      return breakCount;
+    }
+
+    public Features getFeatures() {
+      return features;
+    }
+
+    /**
+     * Build a new token for this span.
+     */
+    public Token buildToken(Tokenizer tokenizer, TokenRevisionStrategy revisionStrategy, int revisionNumber, int sequenceNumber) {
+      final Token result = new Token(tokenizer, text, startIndex, revisionStrategy, revisionNumber, sequenceNumber, wordCount, breakCount);
+      result.addFeatures(features);
+      return result;
+    }
+
+    public String toString() {
+      return text + "@" + startIndex;
+    }
+  }
+
+  /**
+   * The tokens starting at a position under a revision strategy, indexed
+   * by revision number.
+   */
+  public static final class RevisionChain {
+
+    private int startPosition;
+    private TokenRevisionStrategy revisionStrategy;
+    private List<TokenSpan> spans;
+    private boolean complete;
+
+    RevisionChain(int startPosition, TokenRevisionStrategy revisionStrategy) {
+      this.startPosition = startPosition;
+      this.revisionStrategy = revisionStrategy;
+      this.spans = new ArrayList<TokenSpan>();
+      this.complete = false;
+    }
+
+    public int getStartPosition() {
+      return startPosition;
+    }
+
+    public TokenRevisionStrategy getRevisionStrategy() {
+      return revisionStrategy;
+    }
+
+    /**
+     * Get the number of revisions found so far.
+     */
+    public int size() {
+      return spans.size();
+    }
+
+    /**
+     * Determine whether all revisions have been found.
+     */
+    public boolean isComplete() {
+      return complete;
+    }
+
+    /**
+     * Determine whether the span for the given revision number is known,
+     * either because it has been found or because the chain is complete.
+     */
+    public boolean knows(int revisionNumber) {
+      return revisionNumber < spans.size() || complete;
+    }
+
+    /**
+     * Get the span for the given revision number, or null if unknown or
+     * past the last revision.
+     */
+    public TokenSpan getSpan(int revisionNumber) {
+      return revisionNumber < spans.size() ? spans.get(revisionNumber) : null;
+    }
+
+    /**
+     * Get the spans found so far, in revision order.
+     */
+    public List<TokenSpan> getSpans() {
+      return spans;
+    }
+
+    /**
+     * Determine whether the token is this chain's revision for its
+     * revision number.
+     */
+    public boolean holds(Token token) {
+      final int revisionNumber = token.getRevisionNumber();
+      return token.getRevisionStrategy() == revisionStrategy &&
+        token.getStartIndex() == startPosition &&
+        revisionNumber < spans.size() &&
+        spans.get(revisionNumber).getEndIndex() == token.getEndIndex();
+    }
+
+    /**
+     * Append the next revision, or mark the chain complete if null.
+     */
+    void add(Token token) {
+      if (token == null) {
+        complete = true;
+      }
+      else {
+        spans.add(new TokenSpan(token));
+      }
+    }
+  }
+}
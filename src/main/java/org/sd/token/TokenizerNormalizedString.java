@@ -20,9 +20,7 @@ package org.sd.token;
 
 
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 import java.util.Set;
 import java.util.TreeSet;
 import org.sd.nlp.NormalizedString;
@@ -550,7 +548,8 @@ public class TokenizerNormalizedString implements NormalizedString {
     private StandardTokenizer tokenizer;
     private boolean lowerCaseFlag;
     private StringBuilder normalized;
-    private Map<Integer, Integer> norm2orig;
+    private int[] norm2orig;  // normalized index to original index (-1 at breaks)
+    private int norm2origLength;
     private TreeSet<Integer> breaks;
     private char[] _nchars;
 
@@ -558,7 +557,8 @@ public class TokenizerNormalizedString implements NormalizedString {
       this.tokenizer = tokenizer;
       this.lowerCaseFlag = lowerCaseFlag;
       this.normalized = new StringBuilder();
-      this.norm2orig = new HashMap<Integer, Integer>();
+      this.norm2orig = new int[16];
+      this.norm2origLength = 0;
       this.breaks = new TreeSet<Integer>();
       this._nchars = null;
     }
@@ -593,20 +593,16 @@ public class TokenizerNormalizedString implements NormalizedString {
     }
 
     public final int getOriginalIndex(int normalizedIndex) {
-      final Integer result =
-        (normalizedIndex == normalized.length()) ?
-        tokenizer.getText().length() :
-        norm2orig.get(normalizedIndex);
-
-      return result == null ? -1 : result;
+      if (normalizedIndex == normalized.length()) return tokenizer.getText().length();
+      return (normalizedIndex >= 0 && normalizedIndex < norm2origLength) ? norm2orig[normalizedIndex] : -1;
     }
 
     public final int getNormalizedIndex(int originalIndex) {
       int result = -1;
 
-      for (Map.Entry<Integer, Integer> entry : norm2orig.entrySet()) {
-        final int normIdx = entry.getKey();
-        final int origIdx = entry.getValue();
+      for (int normIdx = 0; normIdx < norm2origLength; ++normIdx) {
+        final int origIdx = norm2orig[normIdx];
+        if (origIdx < 0) continue;  // break
 
         if (originalIndex == origIdx) {
           // maps to normalized char
@@ -627,7 +623,7 @@ public class TokenizerNormalizedString implements NormalizedString {
      * Determine whether there is a break at the given index.
      */
     public final boolean isBreak(int normalizedIndex) {
-      return !norm2orig.containsKey(normalizedIndex);
+      return normalizedIndex < 0 || normalizedIndex >= norm2origLength || norm2orig[normalizedIndex] < 0;
     }
 
     /** Get the normalized break positions (not including string start or end). */
@@ -678,13 +674,24 @@ public class TokenizerNormalizedString implements NormalizedString {
       int normIdx = normalized.length();
       if (normIdx > 0 && addWhite) {
         normalized.append(' ');
+        setOriginalIndex(normIdx, -1);
         breaks.add(normIdx++);
       }
-      norm2orig.put(normIdx, origIdx);
+      setOriginalIndex(normIdx, origIdx);
       normalized.append(c);
       _nchars = null;
     }
 
+    private final void setOriginalIndex(int normIdx, int origIdx) {
+      if (normIdx >= norm2orig.length) {
+        final int[] newNorm2orig = new int[Math.max(normIdx + 1, norm2orig.length * 2)];
+        System.arraycopy(norm2orig, 0, newNorm2orig, 0, norm2orig.length);
+        norm2orig = newNorm2orig;
+      }
+      norm2orig[normIdx] = origIdx;
+      if (normIdx >= norm2origLength) norm2origLength = normIdx + 1;
+    }
+
     /**
      * Append the normalized characters all expanding from the originalIdx.
      */
@@ -20,6 +20,7 @@ package org.sd.util;
 
 
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
@@ -32,6 +33,11 @@ import org.sd.util.GeneralUtil;
 /**
  * Utility to generate varying length anagrams for a word.
  * <p>
+ * With an AnagramIndex, anagrams are looked up among the index's words by
+ * letter signature (and then validated, if there is a word validator);
+ * otherwise, each permutation of the word's letters is generated and
+ * validated.
+ * <p>
  * @author Spence Koehler
  */
 public class AnagramGenerator {
@@ -42,13 +48,19 @@ public class AnagramGenerator {
 
 
   private WordValidator wordValidator;
+  private AnagramIndex anagramIndex;
 
   public AnagramGenerator() {
-    this(null);
+    this(null, null);
   }
 
   public AnagramGenerator(WordValidator wordValidator) {
+    this(wordValidator, null);
+  }
+
+  public AnagramGenerator(WordValidator wordValidator, AnagramIndex anagramIndex) {
     this.wordValidator = wordValidator;
+    this.anagramIndex = anagramIndex;
   }
 
 
@@ -60,6 +72,18 @@ public class AnagramGenerator {
     this.wordValidator = wordValidator;
   }
 
+  public AnagramIndex getAnagramIndex() {
+    return anagramIndex;
+  }
+
+  /**
+   * Set the index of words to find anagrams among, or null to generate
+   * permutations.
+   */
+  public void setAnagramIndex(AnagramIndex anagramIndex) {
+    this.anagramIndex = anagramIndex;
+  }
+
 
   /**
    * Get the anagrams of the word of all lengths.
@@ -79,6 +103,10 @@ public class AnagramGenerator {
    * Get the anagrams of the word of all lengths from minLen to maxLen.
    */
   public final Map<Integer, Set<String>> getAnagrams(String word, int minLen, int maxLen) {
+    if (anagramIndex != null) {
+      return getIndexedAnagrams(word, minLen, maxLen);
+    }
+
     final Map<Integer, Set<String>> result = new TreeMap<Integer, Set<String>>();
 
     final char[] letters = word.toCharArray();
@@ -93,6 +121,20 @@ public class AnagramGenerator {
   }
 
 
+  private final Map<Integer, Set<String>> getIndexedAnagrams(String word, int minLen, int maxLen) {
+    final Map<Integer, Set<String>> result = anagramIndex.getAnagrams(word, minLen, maxLen);
+
+    if (wordValidator != null) {
+      for (Set<String> anagrams : result.values()) {
+        for (Iterator<String> iter = anagrams.iterator(); iter.hasNext(); ) {
+          if (!wordValidator.isValid(iter.next())) iter.remove();
+        }
+      }
+    }
+
+    return result;
+  }
+
   private final void addPermutations(Set<String> result, char[] letters, int numLetters) {
     final List<Character> chars = new ArrayList<Character>();
     for (char letter : letters) chars.add(letter);
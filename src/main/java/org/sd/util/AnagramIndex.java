@@ -0,0 +1,185 @@
+/*
+    Copyright 2011 Semantic Discovery, Inc. (www.semanticdiscovery.com)
+
+    This file is part of the Semantic Discovery Toolkit.
+
+    The Semantic Discovery Toolkit is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    The Semantic Discovery Toolkit is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with The Semantic Discovery Toolkit.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package org.sd.util;
+
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Index of words by their letters for finding (sub-)anagrams without
+ * enumerating permutations.
+ * <p>
+ * Each word's signature is its (lowercased) characters in sorted order,
+ * and signatures are held in a trie. Finding the words that can be spelled
+ * from some letters walks only the trie paths whose letters remain
+ * available, so the cost depends on the size of the dictionary's matching
+ * region rather than the factorial of the number of letters.
+ *
+ * @author Spence Koehler
+ */
+public class AnagramIndex {
+
+  private Node root;
+  private int numWords;
+
+  public AnagramIndex() {
+    this.root = new Node();
+    this.numWords = 0;
+  }
+
+  /**
+   * Construct with the given words.
+   */
+  public AnagramIndex(Collection<String> words) {
+    this();
+    for (String word : words) {
+      add(word);
+    }
+  }
+
+  /**
+   * Add the word to this index.
+   */
+  public void add(String word) {
+    if (word == null || "".equals(word)) return;
+
+    Node node = root;
+    for (char c : getSignature(word)) {
+      node = node.getOrCreateChild(c);
+    }
+
+    if (node.addWord(word)) ++numWords;
+  }
+
+  /**
+   * Get the number of (distinct) words in this index.
+   */
+  public int size() {
+    return numWords;
+  }
+
+  /**
+   * Get the indexed words spelled by exactly the given letters.
+   */
+  public Set<String> getAnagrams(String letters) {
+    final Set<String> result = getAnagrams(letters, letters.length(), letters.length()).get(letters.length());
+    return result == null ? new TreeSet<String>() : result;
+  }
+
+  /**
+   * Get the indexed words of each length from minLen to maxLen that can be
+   * spelled from (a subset of) the given letters, with a (possibly empty)
+   * set for every length in the range.
+   */
+  public Map<Integer, Set<String>> getAnagrams(String letters, int minLen, int maxLen) {
+    final Map<Integer, Set<String>> result = new TreeMap<Integer, Set<String>>();
+    for (int len = minLen; len <= maxLen; ++len) {
+      result.put(len, new TreeSet<String>());
+    }
+
+    // group the available letters as sorted distinct chars with counts
+    final char[] signature = getSignature(letters);
+    final char[] chars = new char[signature.length];
+    final int[] counts = new int[signature.length];
+    int numChars = 0;
+    for (char c : signature) {
+      if (numChars > 0 && chars[numChars - 1] == c) {
+        ++counts[numChars - 1];
+      }
+      else {
+        chars[numChars] = c;
+        counts[numChars] = 1;
+        ++numChars;
+      }
+    }
+
+    if (maxLen > 0) {
+      collect(root, 0, 0, chars, counts, numChars, minLen, Math.min(maxLen, signature.length), result);
+    }
+
+    return result;
+  }
+
+  private final void collect(Node node, int depth, int fromChar, char[] chars, int[] counts, int numChars,
+                             int minLen, int maxLen, Map<Integer, Set<String>> result) {
+    final int childDepth = depth + 1;
+
+    // signatures are sorted, so a path never revisits an earlier char
+    for (int charNum = fromChar; charNum < numChars; ++charNum) {
+      if (counts[charNum] == 0) continue;
+
+      final Node child = node.getChild(chars[charNum]);
+      if (child == null) continue;
+
+      if (childDepth >= minLen && child.words != null) {
+        result.get(childDepth).addAll(child.words);
+      }
+
+      if (childDepth < maxLen && child.children != null) {
+        --counts[charNum];
+        collect(child, childDepth, charNum, chars, counts, numChars, minLen, maxLen, result);
+        ++counts[charNum];
+      }
+    }
+  }
+
+  private static final char[] getSignature(String word) {
+    final char[] result = word.toLowerCase().toCharArray();
+    Arrays.sort(result);
+    return result;
+  }
+
+
+  private static final class Node {
+
+    Map<Character, Node> children;
+    List<String> words;
+
+    Node getChild(char c) {
+      return (children == null) ? null : children.get(c);
+    }
+
+    Node getOrCreateChild(char c) {
+      if (children == null) children = new HashMap<Character, Node>();
+
+      Node result = children.get(c);
+      if (result == null) {
+        result = new Node();
+        children.put(c, result);
+      }
+
+      return result;
+    }
+
+    boolean addWord(String word) {
+      if (words == null) words = new ArrayList<String>(1);
+      if (words.contains(word)) return false;
+      words.add(word);
+      return true;
+    }
+  }
+}
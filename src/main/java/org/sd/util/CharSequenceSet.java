@@ -0,0 +1,186 @@
+/*
+    Copyright 2009 Semantic Discovery, Inc. (www.semanticdiscovery.com)
+
+    This file is part of the Semantic Discovery Toolkit.
+
+    The Semantic Discovery Toolkit is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    The Semantic Discovery Toolkit is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with The Semantic Discovery Toolkit.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package org.sd.util;
+
+
+/**
+ * Set of strings that can be queried with any CharSequence.
+ * <p>
+ * Membership is determined by content (as String.equals would), so a
+ * reusable CharSequence (e.g., a StringBuilder or a NormalizerWorkspace)
+ * can be looked up without first building a String from it.
+ * <p>
+ * Strings are held in an open-addressing (linear probing) table along with
+ * their hash codes, which are computed as String.hashCode computes them.
+ * <p>
+ * Instances are not thread-safe for modification, but may be queried
+ * concurrently once loaded.
+ *
+ * @author Spence Koehler
+ */
+public class CharSequenceSet {
+
+  private static final int MIN_CAPACITY = 16;
+
+
+  private String[] strings;
+  private int[] hashes;
+  private int size;
+
+  public CharSequenceSet() {
+    this(MIN_CAPACITY);
+  }
+
+  /**
+   * Construct with room for the expected number of strings.
+   */
+  public CharSequenceSet(int expectedSize) {
+    init(tableSize(expectedSize));
+  }
+
+  private final void init(int capacity) {
+    this.strings = new String[capacity];
+    this.hashes = new int[capacity];
+    this.size = 0;
+  }
+
+  /**
+   * Compute the hash code of the chars as String.hashCode would.
+   */
+  public static final int hashCode(CharSequence chars) {
+    int result = 0;
+    final int len = chars.length();
+    for (int i = 0; i < len; ++i) {
+      result = 31 * result + chars.charAt(i);
+    }
+    return result;
+  }
+
+  public int size() {
+    return size;
+  }
+
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  public void clear() {
+    init(MIN_CAPACITY);
+  }
+
+  /**
+   * Add the string.
+   *
+   * @return true if added; false if already present.
+   */
+  public boolean add(String string) {
+    final int hash = string.hashCode();
+    int pos = find(string, hash);
+    if (strings[pos] != null) return false;
+
+    if ((size + 1) * 2 > strings.length) {
+      rehash(strings.length * 2);
+      pos = find(string, hash);
+    }
+
+    strings[pos] = string;
+    hashes[pos] = hash;
+    ++size;
+
+    return true;
+  }
+
+  /**
+   * Add all of the strings.
+   */
+  public void addAll(Iterable<String> strings) {
+    for (String string : strings) {
+      add(string);
+    }
+  }
+
+  /**
+   * Determine whether this set holds a string with the given chars.
+   */
+  public boolean contains(CharSequence chars) {
+    return get(chars) != null;
+  }
+
+  /**
+   * Get this set's string with the given chars, or null.
+   */
+  public String get(CharSequence chars) {
+    if (chars == null) return null;
+    return strings[find(chars, hashCode(chars))];
+  }
+
+  /**
+   * Find the position of the chars or of the empty slot where they belong.
+   */
+  private final int find(CharSequence chars, int hash) {
+    final int mask = strings.length - 1;
+    int pos = mix(hash) & mask;
+
+    while (true) {
+      final String string = strings[pos];
+      if (string == null || (hashes[pos] == hash && matches(string, chars))) break;
+      pos = (pos + 1) & mask;
+    }
+
+    return pos;
+  }
+
+  private final void rehash(int capacity) {
+    final String[] oldStrings = strings;
+    final int[] oldHashes = hashes;
+    final int oldSize = size;
+
+    init(capacity);
+
+    final int mask = capacity - 1;
+    for (int i = 0; i < oldStrings.length; ++i) {
+      if (oldStrings[i] != null) {
+        int pos = mix(oldHashes[i]) & mask;
+        while (strings[pos] != null) pos = (pos + 1) & mask;
+        strings[pos] = oldStrings[i];
+        hashes[pos] = oldHashes[i];
+      }
+    }
+    this.size = oldSize;
+  }
+
+  private static final boolean matches(String string, CharSequence chars) {
+    final int len = string.length();
+    if (len != chars.length()) return false;
+    for (int i = 0; i < len; ++i) {
+      if (string.charAt(i) != chars.charAt(i)) return false;
+    }
+    return true;
+  }
+
+  private static final int mix(int hash) {
+    return hash ^ (hash >>> 16);
+  }
+
+  private static final int tableSize(int expectedSize) {
+    int result = MIN_CAPACITY;
+    while (result < expectedSize * 2) result <<= 1;
+    return result;
+  }
+}
@@ -19,6 +19,7 @@ package org.sd.util;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
@@ -214,6 +215,33 @@ public class ThreadPoolUtil {
     return result;
   }
 
+  /**
+   * Wait for the future's result, rethrowing its task's unchecked exception
+   * (or error) in the calling thread.
+   *
+   * @param future  The future to wait for
+   *
+   * @return the future's result
+   *
+   * @throws IllegalStateException if interrupted (preserving the interrupt
+   *         status) or if the task threw a checked exception.
+   */
+  public static final <T> T waitFor(Future<T> future) {
+    try {
+      return future.get();
+    }
+    catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException(e);
+    }
+    catch (ExecutionException e) {
+      final Throwable cause = e.getCause();
+      if (cause instanceof RuntimeException) throw (RuntimeException)cause;
+      if (cause instanceof Error) throw (Error)cause;
+      throw new IllegalStateException(cause);
+    }
+  }
+
   /**
    * Remove finished tasks from the list of futures.
    *
@@ -0,0 +1,192 @@
+/*
+    Copyright 2009 Semantic Discovery, Inc. (www.semanticdiscovery.com)
+
+    This file is part of the Semantic Discovery Toolkit.
+
+    The Semantic Discovery Toolkit is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    The Semantic Discovery Toolkit is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with The Semantic Discovery Toolkit.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package org.sd.util.tree;
+
+
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.NoSuchElementException;
+
+/**
+ * Immutable path of tree nodes from a root to a node.
+ * <p>
+ * Each path links to its parent's path, so siblings share their common
+ * prefix and holding a path for every node in a tree costs constant space
+ * per node instead of space proportional to its depth.
+ * <p>
+ * Iteration runs from the root to the node.
+ *
+ * @author Spence Koehler
+ */
+public final class RootPath<T> implements Iterable<Tree<T>> {
+
+  private final Tree<T> node;
+  private final RootPath<T> parentPath;
+  private final int depth;
+
+  /**
+   * Construct the path to a root node.
+   */
+  public RootPath(Tree<T> node) {
+    this(node, null);
+  }
+
+  /**
+   * Construct the path to the node by extending its parent's path.
+   */
+  public RootPath(Tree<T> node, RootPath<T> parentPath) {
+    this.node = node;
+    this.parentPath = parentPath;
+    this.depth = (parentPath == null) ? 0 : parentPath.depth + 1;
+  }
+
+  /**
+   * Get the last node on this path.
+   */
+  public Tree<T> getNode() {
+    return node;
+  }
+
+  /**
+   * Get the path to this path's node's parent, or null if at the root.
+   */
+  public RootPath<T> getParentPath() {
+    return parentPath;
+  }
+
+  /**
+   * Get the depth of this path's node, where the root is at depth 0.
+   */
+  public int depth() {
+    return depth;
+  }
+
+  /**
+   * Get the number of nodes on this path.
+   */
+  public int size() {
+    return depth + 1;
+  }
+
+  /**
+   * Get the first (root) node on this path.
+   */
+  public Tree<T> getRoot() {
+    return getAncestorPath(0).node;
+  }
+
+  /**
+   * Get the node at the given index, where index 0 is the root.
+   * <p>
+   * This walks up from the end of the path, so iterate instead when
+   * visiting all nodes.
+   */
+  public Tree<T> get(int index) {
+    if (index < 0 || index > depth) {
+      throw new IndexOutOfBoundsException("index=" + index + " size=" + size());
+    }
+    return getAncestorPath(index).node;
+  }
+
+  /**
+   * Get the prefix of this path ending at the given depth.
+   */
+  public RootPath<T> getAncestorPath(int ancestorDepth) {
+    RootPath<T> result = this;
+    while (result != null && result.depth > ancestorDepth) {
+      result = result.parentPath;
+    }
+    return result;
+  }
+
+  /**
+   * Get the longest common prefix of this and the other path, or null if
+   * the paths don't share a root.
+   */
+  public RootPath<T> getCommonPath(RootPath<T> other) {
+    RootPath<T> mine = this;
+    RootPath<T> theirs = other;
+
+    if (mine.depth > theirs.depth) mine = mine.getAncestorPath(theirs.depth);
+    else if (theirs.depth > mine.depth) theirs = theirs.getAncestorPath(mine.depth);
+
+    while (mine != null && mine.node != theirs.node) {
+      mine = mine.parentPath;
+      theirs = theirs.parentPath;
+    }
+
+    return mine;
+  }
+
+  /**
+   * Iterate over the nodes from the root to this path's node.
+   */
+  public Iterator<Tree<T>> iterator() {
+    return new PathIterator<T>(this);
+  }
+
+  /**
+   * Copy this path's nodes into a new list (root first).
+   */
+  public LinkedList<Tree<T>> toList() {
+    final LinkedList<Tree<T>> result = new LinkedList<Tree<T>>();
+    for (RootPath<T> path = this; path != null; path = path.parentPath) {
+      result.addFirst(path.node);
+    }
+    return result;
+  }
+
+  public String toString() {
+    final StringBuilder result = new StringBuilder();
+    for (Tree<T> pathNode : this) {
+      if (result.length() > 0) result.append('.');
+      result.append(pathNode.getData());
+    }
+    return result.toString();
+  }
+
+
+  private static final class PathIterator<T> implements Iterator<Tree<T>> {
+
+    private final Object[] nodes;
+    private int index;
+
+    PathIterator(RootPath<T> path) {
+      this.nodes = new Object[path.size()];
+      for (RootPath<T> p = path; p != null; p = p.parentPath) {
+        nodes[p.depth] = p.node;
+      }
+      this.index = 0;
+    }
+
+    public boolean hasNext() {
+      return index < nodes.length;
+    }
+
+    @SuppressWarnings("unchecked")
+    public Tree<T> next() {
+      if (index >= nodes.length) throw new NoSuchElementException();
+      return (Tree<T>)nodes[index++];
+    }
+
+    public void remove() {
+      throw new UnsupportedOperationException();
+    }
+  }
+}
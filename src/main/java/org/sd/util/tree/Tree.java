@@ -44,11 +44,9 @@ public class Tree<T> {
   private List<Tree<T>> children;
   private Tree<T> parent;
   private int transientId;
-  private LinkedList<Tree<T>> rootPath;
+  private RootPath<T> rootPath;
   private Map<String, Object> attributes;
 
-
-  private LinkedList<Tree<T>> _path;
   private boolean gotHashCode;
   private int _hashCode;
 
@@ -349,17 +347,50 @@ public class Tree<T> {
 
   /**
    * The RootPath holds tree nodes from the root to this node (inclusive).
+   * <p>
+   * This is a fresh copy of getSharedRootPath's nodes; prefer the shared
+   * path when just iterating.
    */
   public LinkedList<Tree<T>> getRootPath() {
-    if (this.rootPath == null) {
-      this.rootPath = new LinkedList<Tree<T>>();
-      Tree<T> curNode = this;
-      while (curNode != null) {
-        this.rootPath.addFirst(curNode);
-        curNode = curNode.parent;
-      }
+    return getSharedRootPath().toList();
+  }
+
+  /**
+   * Get the path from the root to this node (inclusive), which shares its
+   * prefix with the paths of this node's ancestors.
+   * <p>
+   * Paths are cached on each node, costing constant space per node.
+   */
+  public RootPath<T> getSharedRootPath() {
+    if (hasCurrentRootPath()) return rootPath;
+
+    // collect nodes (bottom up) back to the nearest node with a current path
+    final List<Tree<T>> pending = new ArrayList<Tree<T>>();
+    Tree<T> curNode = this;
+    while (curNode != null && !curNode.hasCurrentRootPath()) {
+      pending.add(curNode);
+      curNode = curNode.parent;
+    }
+
+    // extend paths top down
+    RootPath<T> path = (curNode == null) ? null : curNode.rootPath;
+    for (int i = pending.size() - 1; i >= 0; --i) {
+      final Tree<T> node = pending.get(i);
+      path = new RootPath<T>(node, path);
+      node.rootPath = path;
     }
-    return this.rootPath;
+
+    return path;
+  }
+
+  /**
+   * Determine whether this node's cached root path still extends its
+   * current parent's cached root path.
+   */
+  private final boolean hasCurrentRootPath() {
+    if (rootPath == null) return false;
+    final RootPath<T> parentPath = rootPath.getParentPath();
+    return (parent == null) ? parentPath == null : (parentPath != null && parentPath == parent.rootPath);
   }
 
   public boolean isAncestor(Tree<T> other, boolean selfIsAncestor) {
@@ -536,17 +567,7 @@ public class Tree<T> {
    * Get the path of nodes from the root to this node.
    */
   public List<Tree<T>> getPath() {
-    if (_path == null) {
-      _path = new LinkedList<Tree<T>>();
-
-      Tree<T> curNode = this;
-      while (curNode != null) {
-        _path.addFirst(curNode);
-        curNode = curNode.getParent();
-      }
-    }
-
-    return _path;
+    return getSharedRootPath().toList();
   }
 
   public List<List<T>> getPaths() {
@@ -734,24 +755,8 @@ public class Tree<T> {
     if (other == null) return null;
     if (this == other) return this;
 
-    Tree<T> result = null;
-
-    final Iterator<Tree<T>> myPathIter = getPath().iterator();
-    final Iterator<Tree<T>> otherPathIter = other.getPath().iterator();
-
-    while (myPathIter.hasNext() && otherPathIter.hasNext()) {
-      final Tree<T> myNode = myPathIter.next();
-      final Tree<T> otherNode = otherPathIter.next();
-
-      if (myNode != otherNode) {
-        break;  // diverged.
-      }
-      else {
-        result = myNode;
-      }
-    }
-
-    return result;
+    final RootPath<T> commonPath = getSharedRootPath().getCommonPath(other.getSharedRootPath());
+    return (commonPath == null) ? null : commonPath.getNode();
   }
 
 /**
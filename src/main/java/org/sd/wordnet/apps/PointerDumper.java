@@ -21,6 +21,7 @@ import java.util.Map;
 import org.sd.atnexec.ConfigUtil;
 import org.sd.wordnet.lex.LexDictionary;
 import org.sd.wordnet.lex.PointerDefinition;
+import org.sd.wordnet.lex.PointerGraph;
 import org.sd.wordnet.lex.Synset;
 import org.sd.wordnet.lex.Word;
 import org.sd.wordnet.loader.WordNetLoader;
@@ -35,6 +36,7 @@ public class PointerDumper {
   
   public static void main(String[] args) {
     // Properties:
+    //   resolved -- (optional, default=false) dump the compiled pointer graph's resolved targets
     //   ...
 
     final ConfigUtil configUtil = new ConfigUtil(args);
@@ -47,6 +49,20 @@ public class PointerDumper {
 
     // OUTPUT: symbol \t sourceWord  \t  targetWord
 
+    if (dataProperties.getBoolean("resolved", false)) {
+      final PointerGraph pointerGraph = lexDictionary.getPointerGraph();
+      for (int wordId = 0; wordId < pointerGraph.getNumWords(); ++wordId) {
+        final String sourceName = pointerGraph.getWord(wordId).getQualifiedWordName();
+        for (int edge = pointerGraph.getForwardStart(wordId); edge < pointerGraph.getForwardEnd(wordId); ++edge) {
+          System.out.println(String.format("%s\t%s\t%s",
+                                           pointerGraph.getSymbol(pointerGraph.getEdgeSymbol(edge)),
+                                           sourceName,
+                                           pointerGraph.getWord(pointerGraph.getTarget(edge)).getQualifiedWordName()));
+        }
+      }
+      return;
+    }
+
     for (List<Synset> synsetsList : synsets.values()) {
       for (Synset synset : synsetsList) {
         final boolean synsetHasPointers = synset.hasPointerDefinitions();
@@ -22,6 +22,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import org.sd.util.AnagramGenerator;
+import org.sd.util.AnagramIndex;
 import org.sd.wordnet.lex.LexDictionary;
 import org.sd.wordnet.lex.FileLexLoader;
 import org.sd.wordnet.lex.Synset;
@@ -70,13 +71,33 @@ public class WordUnscrambler implements AnagramGenerator.WordValidator {
     return synsets;
   }
 
+  /**
+   * Build an index of the dictionary's (normalized) word names for finding
+   * anagrams by letter signature.
+   * <p>
+   * Note that inflected forms recognized by isValid only through morphology
+   * are not in the index.
+   */
+  public AnagramIndex buildAnagramIndex() {
+    final AnagramIndex result = new AnagramIndex();
+
+    final Map<String, ?> names = (lexDictionary.getLexNames() != null) ? lexDictionary.getLexNames() : lexDictionary.getSynsets();
+    if (names != null) {
+      for (String name : names.keySet()) {
+        result.add(name);
+      }
+    }
+
+    return result;
+  }
+
 
   public static void main(String[] args) throws IOException {
     //arg0: dbFileDir
     //args1+: strings for anagrams
     final WordUnscrambler descrambler = new WordUnscrambler(new File(args[0]));
     final AnagramGenerator agen = new AnagramGenerator();
-    agen.setWordValidator(descrambler);
+    agen.setAnagramIndex(descrambler.buildAnagramIndex());
 
     agen.doMain(args, 1);
   }
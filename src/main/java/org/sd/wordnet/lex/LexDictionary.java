@@ -20,12 +20,15 @@ import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import org.sd.wordnet.util.NormalizeUtil;
 
 /**
@@ -49,8 +52,14 @@ public class LexDictionary {
   private Map<String, List<ReversePointer>> revPtrs; // simpleWord.name -> reversePointer
 
   // for morphological derivations
-  private Map<String, List<Synset>> dsynsets;
-  private Map<String, Set<String>> dlexNames;
+  private ConcurrentMap<String, List<Synset>> dsynsets;
+  private ConcurrentMap<String, Set<String>> dlexNames;
+
+  // limit derivations to base forms that exist
+  private MorphTool.BaseFormFilter synsetFilter;
+  private MorphTool.BaseFormFilter lexNameFilter;
+
+  private volatile PointerGraph pointerGraph;
 
   public LexDictionary(LexLoader lexLoader) {
     this(lexLoader, true, true, true, true);
@@ -70,8 +79,12 @@ public class LexDictionary {
     this.lexNames = loadLexNames ? new HashMap<String, Set<String>>() : null;
     this.revPtrs = loadReversePointers ? new HashMap<String, List<ReversePointer>>() : null;
 
-    this.dsynsets = null;
-    this.dlexNames = null;
+    // derived lookups are cached concurrently for multi-threaded callers
+    this.dsynsets = new ConcurrentHashMap<String, List<Synset>>();
+    this.dlexNames = new ConcurrentHashMap<String, Set<String>>();
+
+    this.synsetFilter = (synsets == null) ? null : new KeyFilter(synsets);
+    this.lexNameFilter = (lexNames == null) ? null : new KeyFilter(lexNames);
 
     init();
   }
@@ -81,6 +94,34 @@ public class LexDictionary {
   public Map<String, Set<String>> getLexNames() { return lexNames; }
   public Map<String, List<ReversePointer>> getRevPtrs() { return revPtrs; }
 
+  /**
+   * Get this dictionary's compiled pointer graph, building it on first
+   * request.
+   * <p>
+   * Once built, ExpandedWord instances traverse the graph instead of
+   * resolving pointers.
+   */
+  public PointerGraph getPointerGraph() {
+    PointerGraph result = pointerGraph;
+    if (result == null) {
+      synchronized (this) {
+        result = pointerGraph;
+        if (result == null) {
+          result = new PointerGraph(this);
+          pointerGraph = result;
+        }
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Determine whether this dictionary's pointer graph has been built.
+   */
+  public boolean hasPointerGraph() {
+    return pointerGraph != null;
+  }
+
   private final void init() {
     final DictionaryEntryHandler handler = new DictionaryEntryHandler(synsets, adjClusters, lexNames, revPtrs);
     lexLoader.load(handler);
@@ -147,15 +188,14 @@ public class LexDictionary {
   }
 
   public Set<String> lookupDerivedLexNames(String normInput) {
-    Set<String> result = dlexNames == null ? null : dlexNames.get(normInput);
+    Set<String> result = dlexNames.get(normInput);
 
-    if (result == null) {
-      final Collection<MorphTool.Derivation> derivations = morphTool.deriveBaseForms(normInput);
+    if (result == null && morphTool != null) {
+      final Collection<MorphTool.Derivation> derivations = morphTool.deriveBaseForms(normInput, lexNameFilter);
       if (derivations != null) {
         for (MorphTool.Derivation derivation : derivations) {
           final Set<String> dLexNames = lexNames.get(derivation.baseForm);
           if (dLexNames != null) {
-            if (result != null) result = new HashSet<String>(result);
             for (String dLexName : dLexNames) {
               // only add valid, if we have the synsets to verify; else add all
               if (synsets == null || synsets.containsKey(dLexName)) {
@@ -163,15 +203,16 @@ public class LexDictionary {
                 result.add(dLexName);
               }
             }
-
-            if (result != null) {
-              // preserve computation for subsequent lookups
-              if (dlexNames == null) dlexNames = new HashMap<String, Set<String>>();
-              dlexNames.put(normInput, result);
-            }
           }
         }
       }
+
+      if (result != null) {
+        // preserve computation for subsequent lookups, sharing the first computed
+        result = Collections.unmodifiableSet(result);
+        final Set<String> prior = dlexNames.putIfAbsent(normInput, result);
+        if (prior != null) result = prior;
+      }
     }
 
     return result;
@@ -204,10 +245,10 @@ public class LexDictionary {
   }
 
   public List<Synset> lookupDerivedSynsets(String normInput) {
-    List<Synset> result = dsynsets == null ? null : dsynsets.get(normInput);
+    List<Synset> result = dsynsets.get(normInput);
 
     if (result == null && morphTool != null) {
-      final Collection<MorphTool.Derivation> derivations = morphTool.deriveBaseForms(normInput);
+      final Collection<MorphTool.Derivation> derivations = morphTool.deriveBaseForms(normInput, synsetFilter);
       if (derivations != null) {
         for (MorphTool.Derivation derivation : derivations) {
           final List<Synset> dSynsets = synsets.get(derivation.baseForm);
@@ -218,15 +259,16 @@ public class LexDictionary {
                 result.add(dSynset);
               }
             }
-
-            if (result != null) {
-              // preserve computation for subsequent lookups
-              if (dsynsets == null) dsynsets = new HashMap<String, List<Synset>>();
-              dsynsets.put(normInput, result);
-            }
           }
         }
       }
+
+      if (result != null) {
+        // preserve computation for subsequent lookups, sharing the first computed
+        result = Collections.unmodifiableList(result);
+        final List<Synset> prior = dsynsets.putIfAbsent(normInput, result);
+        if (prior != null) result = prior;
+      }
     }
     
     return result;
@@ -650,6 +692,19 @@ public class LexDictionary {
   }
 
 
+  private static final class KeyFilter implements MorphTool.BaseFormFilter {
+
+    private Map<String, ?> map;
+
+    KeyFilter(Map<String, ?> map) {
+      this.map = map;
+    }
+
+    public boolean accept(String baseForm) {
+      return map.containsKey(baseForm);
+    }
+  }
+
   private static final class DictionaryEntryHandler implements LexLoader.EntryHandler {
     private Map<String, List<Synset>> synsets;
     private Map<String, List<AdjectiveCluster>> adjClusters;
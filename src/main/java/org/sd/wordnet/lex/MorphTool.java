@@ -22,6 +22,7 @@ import java.io.FilenameFilter;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
@@ -33,6 +34,10 @@ import org.sd.wordnet.util.NormalizeUtil;
 /**
  * Utility for morphological analysis and mutation.
  * <p>
+ * Suffix rules are compiled into an automaton over reversed suffixes, so
+ * deriving base forms reads each input's trailing chars once and builds
+ * only the candidate strings that its matching rules produce.
+ * <p>
  * @author Spencer Koehler
  */
 public class MorphTool {
@@ -53,6 +58,46 @@ public class MorphTool {
     POS_MAP.put("adv", ADV_BIT);
   }
 
+  /**
+   * Suffix rules as (suffix, chars to strip, replacement, pos), held by
+   * reversed suffix.
+   */
+  private static final SuffixNode SUFFIX_RULES = new SuffixNode();
+  static {
+    SUFFIX_RULES.add(new SuffixRule("s", 1, "", NOUN_BIT | VERB_BIT));
+
+    SUFFIX_RULES.add(new SuffixRule("es", 2, "", VERB_BIT));
+    SUFFIX_RULES.add(new SuffixRule("es", 2, "e", VERB_BIT));
+    SUFFIX_RULES.add(new SuffixRule("ed", 2, "", VERB_BIT));
+    SUFFIX_RULES.add(new SuffixRule("ed", 2, "e", VERB_BIT));
+    SUFFIX_RULES.add(new SuffixRule("er", 2, "", ADJ_BIT));
+    SUFFIX_RULES.add(new SuffixRule("er", 2, "e", ADJ_BIT));
+
+    SUFFIX_RULES.add(new SuffixRule("ses", 2, "", NOUN_BIT));
+    SUFFIX_RULES.add(new SuffixRule("xes", 2, "", NOUN_BIT));
+    SUFFIX_RULES.add(new SuffixRule("zes", 2, "", NOUN_BIT));
+    SUFFIX_RULES.add(new SuffixRule("ies", 3, "y", NOUN_BIT | VERB_BIT));
+    SUFFIX_RULES.add(new SuffixRule("ches", 2, "", NOUN_BIT | VERB_BIT));
+    SUFFIX_RULES.add(new SuffixRule("shes", 2, "", NOUN_BIT | VERB_BIT));
+
+    SUFFIX_RULES.add(new SuffixRule("ing", 3, "", VERB_BIT));
+    SUFFIX_RULES.add(new SuffixRule("ing", 3, "e", VERB_BIT));
+    SUFFIX_RULES.add(new SuffixRule("ings", 4, "", VERB_BIT));  // e.g., "prophesyings"
+    SUFFIX_RULES.add(new SuffixRule("ings", 4, "e", VERB_BIT));
+
+    SUFFIX_RULES.add(new SuffixRule("est", 3, "", ADJ_BIT));
+    SUFFIX_RULES.add(new SuffixRule("est", 3, "e", ADJ_BIT));
+
+    SUFFIX_RULES.add(new SuffixRule("men", 3, "man", NOUN_BIT));
+  }
+
+  /**
+   * Filter for candidate base forms, applied before a derivation is built.
+   */
+  public static interface BaseFormFilter {
+    public boolean accept(String baseForm);
+  }
+
   public static final boolean isNoun(int bitmask) {
     return (bitmask & NOUN_BIT) == NOUN_BIT;
   }
@@ -120,6 +165,18 @@ public class MorphTool {
    * actual existing words.
    */
   public Collection<Derivation> deriveBaseForms(String normInput) {
+    return deriveBaseForms(normInput, null);
+  }
+
+  /**
+   * Get potential derived base forms according to exceptions lists and
+   * morphology rules, keeping only those (with their particle) accepted by
+   * the filter (if non-null).
+   * <p>
+   * Filtering happens as candidates are generated, so no derivation is
+   * built for a rejected base form.
+   */
+  public Collection<Derivation> deriveBaseForms(String normInput, BaseFormFilter filter) {
     final String originalInput = normInput;
     final int spacePos = normInput.indexOf(' ');
     String particle = "";
@@ -128,145 +185,75 @@ public class MorphTool {
       normInput = normInput.substring(0, spacePos);
     }
 
-    Map<String, Derivation> base2derivation = new HashMap<String, Derivation>();
+    final DerivationCollector collector = new DerivationCollector(particle, filter);
 
     // add derivations from exceptions lists and morphology rules
-    doAddDerivations(base2derivation, normInput, particle, -1);
+    doAddDerivations(collector, normInput, -1);
 
     // test for archaic "Old English" forms
     if (archaic) {
-      doArchaicDerivations(base2derivation, normInput, particle);
+      doArchaicDerivations(collector, normInput);
     }
 
-    return base2derivation == null ? null : base2derivation.values();
+    return collector.getDerivations();
+  }
+
+  /**
+   * Get the potential derived base forms for each of the inputs.
+   */
+  public List<Collection<Derivation>> deriveBaseForms(String[] normInputs) {
+    return deriveBaseForms(normInputs, null);
   }
 
-  final void doAddDerivations(Map<String, Derivation> base2derivation, String normInput, String particle, int posMask) {
+  /**
+   * Get the potential derived base forms accepted by the filter (if
+   * non-null) for each of the inputs.
+   */
+  public List<Collection<Derivation>> deriveBaseForms(String[] normInputs, BaseFormFilter filter) {
+    final List<Collection<Derivation>> result = new ArrayList<Collection<Derivation>>(normInputs.length);
+    for (String normInput : normInputs) {
+      result.add(deriveBaseForms(normInput, filter));
+    }
+    return result;
+  }
+
+  private final void doAddDerivations(DerivationCollector collector, String normInput, int posMask) {
     // add derivations from exceptions lists
-    addDerivationsFromExceptions(base2derivation, normInput, particle, posMask);
+    addDerivationsFromExceptions(collector, normInput, posMask);
 
     // compute derivations from morphology rules
-    addMorphologicalDerivations(base2derivation, normInput, particle, posMask);
+    addMorphologicalDerivations(collector, normInput, posMask);
   }
 
-  final Map<String, Derivation> addDerivationsFromExceptions(Map<String, Derivation> base2derivation, String normInput, String particle, int posMask) {
-    if (base2derivation == null) base2derivation = new HashMap<String, Derivation>();
-
-    // add derivations from exceptions lists
+  private final void addDerivationsFromExceptions(DerivationCollector collector, String normInput, int posMask) {
     final List<BaseForm> exceptionsList = exceptions.get(normInput);
     if (exceptionsList != null) {
       for (BaseForm baseForm : exceptionsList) {
-        addDerivation(base2derivation, normInput, particle, baseForm.base, "", baseForm.posBit & posMask);
+        collector.add(normInput, baseForm.base, "", baseForm.posBit & posMask);
       }
     }    
-
-    return base2derivation;
   }
 
-  final Map<String, Derivation> addMorphologicalDerivations(Map<String, Derivation> base2derivation, String normInput, String particle, int posMask) {
-    if (base2derivation == null) base2derivation = new HashMap<String, Derivation>();
-
-    // compute derivations from morphology rules
-    final int len = normInput.length();
-    char lm0 = (char)0;  // last minus 0
-    char lm1 = (char)0;  // last minus 1
-    char lm2 = (char)0;  // last minus 2
-
-    if (len > 1) {
-      lm0 = normInput.charAt(len - 1);
-
-      // apply all suffix changes of length 1: "s"->""(noun,verb)
-      if (lm0 == 's') {
-        final String stem = normInput.substring(0, len - 1);
-        addDerivation(base2derivation, normInput, particle, stem, "s", (NOUN_BIT | VERB_BIT) & posMask);
-      }
-    }
-
-    if (len > 2) {
-      lm1 = normInput.charAt(len - 2);
-
-      // apply all suffix changes of length 2:
-      //   "es"->"e"(verb), "es"->""(verb), "ed"->"e"(verb), "ed"->""(verb), "er"->""(adj), "er"->"e"(adj)
-      if (lm1 == 'e') {
-        if (lm0 == 's' || lm0 == 'd' || lm0 == 'r') {
-          final String stem = normInput.substring(0, len - 2);
-          final String suffix = normInput.substring(len - 2);
-          final int pos = (lm0 == 'r') ? ADJ_BIT : VERB_BIT;
-          addDerivation(base2derivation, normInput, particle, stem, suffix, pos & posMask);
-          addDerivation(base2derivation, normInput, particle, stem + "e", suffix, pos & posMask);
-        }
-      }
-    }
-
-    if (len > 3) {
-      lm2 = normInput.charAt(len - 3);
-
-      // apply all suffix changes of length 3 and 4:
-      //   "ses"->"s"(noun), "xes"-"x"(noun), "zes"->"z"(noun), "ies"->"y"(noun,verb), "ches"->"ch"(noun), "shes"->"sh"(noun)
-      if (lm1 == 'e' && lm0 == 's') { // "es"
-        if (lm2 == 's' || lm2 == 'x' || lm2 == 'z') {  // "ses", "xes", "zes"
-          final String suffix = normInput.substring(len - 3);
-          final String stem = normInput.substring(0, len - 2);  // actually, this is the base form
-          addDerivation(base2derivation, normInput, particle, stem, suffix, NOUN_BIT & posMask);
-        }
-        else if (lm2 == 'i') {  // "ies"->"y"(noun,verb)
-          final String suffix = normInput.substring(len - 3);
-          final String stem = normInput.substring(0, len - 3);
-          addDerivation(base2derivation, normInput, particle, stem + "y", suffix, (NOUN_BIT | VERB_BIT) & posMask);
-        }
-        else if (lm2 == 'h' && len > 4) {  // "hes"
-          final char lm3 = normInput.charAt(len - 4);
-          // apply all suffix changes of length 4:
-          //  "ches"->"ch"(noun,verb), "shes"->"sh"(noun,verb)
-
-          if (lm3 == 'c' || lm3 == 's') {  // "ches", "shes"
-            final String suffix = normInput.substring(len - 4);
-            final String stem = normInput.substring(0, len - 2);  // actually, this is the base form
-            addDerivation(base2derivation, normInput, particle, stem, suffix, (NOUN_BIT | VERB_BIT) & posMask);
+  private final void addMorphologicalDerivations(DerivationCollector collector, String normInput, int posMask) {
+    // walk the input's suffixes (leaving at least one char) back through the
+    // reversed-suffix rules
+    SuffixNode node = SUFFIX_RULES;
+    for (int pos = normInput.length() - 1; pos > 0; --pos) {
+      node = node.getChild(normInput.charAt(pos));
+      if (node == null) break;
+
+      if (node.rules != null) {
+        for (SuffixRule rule : node.rules) {
+          final int rulePos = rule.posBit & posMask;
+          if (rulePos != 0) {
+            collector.add(normInput, rule.getBase(normInput), rule.suffix, rulePos);
           }
         }
       }
-
-      //   "ing"->""(verb), "ing"->"e"(verb)
-      else if (lm0 == 'g' && lm1 == 'n' && lm2 == 'i') {  // "ing"
-        final String suffix = normInput.substring(len - 3);
-        final String stem = normInput.substring(0, len - 3);
-        addDerivation(base2derivation, normInput, particle, stem, suffix, VERB_BIT & posMask);
-        addDerivation(base2derivation, normInput, particle, stem + "e", suffix, VERB_BIT & posMask);
-      }
-
-      //   "est"->""(adj), "est"->"e"(adj)
-      else if (lm0 == 't' && lm1 == 's' && lm2 == 'e') {  // "est"
-        final String suffix = normInput.substring(len - 3);
-        final String stem = normInput.substring(0, len - 3);
-        addDerivation(base2derivation, normInput, particle, stem, suffix, ADJ_BIT & posMask);
-        addDerivation(base2derivation, normInput, particle, stem + "e", suffix, ADJ_BIT & posMask);
-      }
-
-      //   "men"->"man"(noun)
-      else if (lm0 == 'n' && lm1 == 'e' && lm2 == 'm') { // "men"
-        final String suffix = normInput.substring(len - 3);
-        final String stem = normInput.substring(0, len - 3);
-        addDerivation(base2derivation, normInput, particle, stem + "man", suffix, NOUN_BIT & posMask);
-      }
-    }
-
-    if (len > 4) {
-      final char lm3 = normInput.charAt(len - 4);
-
-      //   "ings"->""(verb), "ings"->"e"(verb)  e.g., "prophesyings"
-      if (lm0 == 's' && lm1 == 'g' && lm2 == 'n' && lm3 == 'i') {
-        final String suffix = normInput.substring(len - 4);
-        final String stem = normInput.substring(0, len - 4);
-        addDerivation(base2derivation, normInput, particle, stem, suffix, VERB_BIT & posMask);
-        addDerivation(base2derivation, normInput, particle, stem + "e", suffix, VERB_BIT & posMask);
-      }
     }
-
-    return base2derivation;
   }
 
-  private final void doArchaicDerivations(Map<String, Derivation> base2derivation, String normInput, String particle) {
+  private final void doArchaicDerivations(DerivationCollector collector, String normInput) {
 
     final int len = normInput.length();
     String stem = normInput;
@@ -280,12 +267,12 @@ public class MorphTool {
         // if results in ending in double consonant, remove one and add "s"
         // else add "es"
         stem = normInput.substring(0, len - 2);
-        doAddDerivations(base2derivation, stem, particle, VERB_BIT);
-        addDerivationsFromExceptions(base2derivation, stem, particle, VERB_BIT);
-        addDerivation(base2derivation, normInput, particle, stem, "th", VERB_BIT);
+        doAddDerivations(collector, stem, VERB_BIT);
+        addDerivationsFromExceptions(collector, stem, VERB_BIT);
+        collector.add(normInput, stem, "th", VERB_BIT);
 
         stem = stem + "s";
-        doAddDerivations(base2derivation, stem, particle, VERB_BIT);  // constrain to verbs only
+        doAddDerivations(collector, stem, VERB_BIT);  // constrain to verbs only
 
 
         if (lm2 == 'e') {  // ends in "est"  -- add more potential bases
@@ -302,21 +289,21 @@ public class MorphTool {
 
           stem = normInput.substring(0, clipAt);
 
-          doAddDerivations(base2derivation, stem + "s", particle, VERB_BIT); // constrain to verbs only
+          doAddDerivations(collector, stem + "s", VERB_BIT); // constrain to verbs only
 
-          addDerivationsFromExceptions(base2derivation, stem, particle, VERB_BIT);
-          addDerivation(base2derivation, normInput, particle, stem, "eth", VERB_BIT);
+          addDerivationsFromExceptions(collector, stem, VERB_BIT);
+          collector.add(normInput, stem, "eth", VERB_BIT);
         }
       }
       else if (lm1 == 's' && lm0 == 't') {  // ends in "st"
         // -[e]st (e.g., "canst") -- if results in ending in double consonant, remove one
         stem = normInput.substring(0, len - 1);
-        doAddDerivations(base2derivation, stem, particle, VERB_BIT);  // constrain to verbs only
+        doAddDerivations(collector, stem, VERB_BIT);  // constrain to verbs only
 
         stem = normInput.substring(0, len - 2); // take off the 's'
-        doAddDerivations(base2derivation, stem, particle, VERB_BIT);
-        addDerivationsFromExceptions(base2derivation, stem, particle, VERB_BIT);
-        addDerivation(base2derivation, normInput, particle, stem, "st", VERB_BIT);
+        doAddDerivations(collector, stem, VERB_BIT);
+        addDerivationsFromExceptions(collector, stem, VERB_BIT);
+        collector.add(normInput, stem, "st", VERB_BIT);
 
         if (lm2 == 'e') {  // ends in "est"  -- add more potential bases
           // remove "est", if result ends in repeated consonant, remove one.
@@ -332,26 +319,15 @@ public class MorphTool {
 
           stem = normInput.substring(0, clipAt);
 
-          doAddDerivations(base2derivation, stem + "s", particle, VERB_BIT); // constrain to verbs only
+          doAddDerivations(collector, stem + "s", VERB_BIT); // constrain to verbs only
 
-          addDerivationsFromExceptions(base2derivation, stem, particle, VERB_BIT);
-          addDerivation(base2derivation, normInput, particle, stem, "est", VERB_BIT);
+          addDerivationsFromExceptions(collector, stem, VERB_BIT);
+          collector.add(normInput, stem, "est", VERB_BIT);
         }
       }
     }
   }
 
-  private final void addDerivation(Map<String, Derivation> base2derivation, String normInput, String particle, String base, String suffix, int posMask) {
-    if (posMask != 0) {
-      Derivation derivation = base2derivation.get(base);
-      if (derivation == null) {
-        derivation = new Derivation(normInput, base, particle);
-        base2derivation.put(base, derivation);
-      }
-      derivation.updateWith(posMask, suffix);
-    }
-  }
-
   private final void loadExceptions() throws IOException {
     final File[] exceptionFiles = dictDir == null ? null : this.dictDir.listFiles(new FilenameFilter() {
         public boolean accept(File dir, String name) {
@@ -395,6 +371,91 @@ public class MorphTool {
   }
 
 
+  /**
+   * Collects (filtered) derivations by base form for one input.
+   */
+  private static final class DerivationCollector {
+
+    private final String particle;
+    private final BaseFormFilter filter;
+    private Map<String, Derivation> base2derivation;
+
+    DerivationCollector(String particle, BaseFormFilter filter) {
+      this.particle = particle;
+      this.filter = filter;
+      this.base2derivation = null;
+    }
+
+    void add(String normInput, String base, String suffix, int posMask) {
+      if (posMask == 0) return;
+
+      final String baseForm = "".equals(particle) ? base : base + particle;
+      Derivation derivation = (base2derivation == null) ? null : base2derivation.get(baseForm);
+      if (derivation == null) {
+        if (filter != null && !filter.accept(baseForm)) return;
+
+        if (base2derivation == null) base2derivation = new HashMap<String, Derivation>();
+        derivation = new Derivation(normInput, baseForm, "");
+        base2derivation.put(baseForm, derivation);
+      }
+      derivation.updateWith(posMask, suffix);
+    }
+
+    Collection<Derivation> getDerivations() {
+      return (base2derivation == null) ? Collections.<Derivation>emptyList() : base2derivation.values();
+    }
+  }
+
+  private static final class SuffixRule {
+
+    final String suffix;
+    final int stripLen;
+    final String replacement;
+    final int posBit;
+
+    SuffixRule(String suffix, int stripLen, String replacement, int posBit) {
+      this.suffix = suffix;
+      this.stripLen = stripLen;
+      this.replacement = replacement;
+      this.posBit = posBit;
+    }
+
+    String getBase(String normInput) {
+      final int stemLen = normInput.length() - stripLen;
+      if ("".equals(replacement)) return normInput.substring(0, stemLen);
+
+      final StringBuilder result = new StringBuilder(stemLen + replacement.length());
+      result.append(normInput, 0, stemLen).append(replacement);
+      return result.toString();
+    }
+  }
+
+  /**
+   * Node in the automaton of reversed suffixes ('a' through 'z').
+   */
+  private static final class SuffixNode {
+
+    private SuffixNode[] children;
+    List<SuffixRule> rules;
+
+    SuffixNode getChild(char c) {
+      return (children == null || c < 'a' || c > 'z') ? null : children[c - 'a'];
+    }
+
+    void add(SuffixRule rule) {
+      SuffixNode node = this;
+      for (int pos = rule.suffix.length() - 1; pos >= 0; --pos) {
+        final int index = rule.suffix.charAt(pos) - 'a';
+        if (node.children == null) node.children = new SuffixNode[26];
+        if (node.children[index] == null) node.children[index] = new SuffixNode();
+        node = node.children[index];
+      }
+      if (node.rules == null) node.rules = new ArrayList<SuffixRule>();
+      node.rules.add(rule);
+    }
+  }
+
+
   public static final class BaseForm {
     public int posBit;
     public String base;
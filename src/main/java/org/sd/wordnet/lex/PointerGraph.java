@@ -0,0 +1,378 @@
+/*
+   Copyright 2008-2016 Semantic Discovery, Inc.
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+package org.sd.wordnet.lex;
+
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A dictionary's resolved word-to-word pointers compiled into
+ * compressed-sparse-row arrays for both directions.
+ * <p>
+ * Words and pointer symbols are assigned dense ids. A word's forward edges
+ * (from its synset's and its own pointers to their specific targets) are
+ * the range [getForwardStart(wordId), getForwardEnd(wordId)) of edge ids,
+ * and its reverse edges are likewise a range of reverse edge ids. Edges
+ * with a symbol are visited without allocation through nextForwardEdge and
+ * nextReverseEdge:
+ * <pre>
+ *   for (int edge = graph.nextForwardEdge(wordId, graph.getForwardStart(wordId), symbolId);
+ *        edge >= 0;
+ *        edge = graph.nextForwardEdge(wordId, edge + 1, symbolId)) {
+ *     final int targetId = graph.getTarget(edge);
+ *     ...
+ *   }
+ * </pre>
+ * Only pointers whose targets resolve to dictionary words are included.
+ * <p>
+ * Instances are immutable and safe to share across threads.
+ *
+ * @author Spence Koehler
+ */
+public class PointerGraph {
+
+  /** Symbol id matching edges with any symbol. */
+  public static final int ANY_SYMBOL = -1;
+
+  /** Symbol id for a symbol not in the graph, which matches no edges. */
+  public static final int UNKNOWN_SYMBOL = -2;
+
+
+  private Map<Word, Integer> word2id;
+  private Word[] words;
+
+  private Map<String, Integer> symbol2id;
+  private String[] symbols;
+
+  private int[] forwardStart;    // wordId -> first forward edge
+  private int[] edgeTarget;      // edge -> target wordId
+  private int[] edgeSymbol;      // edge -> symbolId
+  private PointerDefinition[] edgePointers;  // edge -> pointer definition
+
+  private int[] reverseStart;    // wordId -> first reverse edge
+  private int[] reverseSource;   // reverse edge -> source wordId
+  private int[] reverseEdge;     // reverse edge -> forward edge
+
+  private final ThreadLocal<Workspace> workspaces;
+
+  /**
+   * Compile the dictionary's pointers.
+   */
+  public PointerGraph(LexDictionary dict) {
+    this.word2id = new IdentityHashMap<Word, Integer>();
+    this.symbol2id = new HashMap<String, Integer>();
+
+    // assign ids to the words of distinct synsets
+    final Map<Synset, Boolean> seen = new IdentityHashMap<Synset, Boolean>();
+    final List<Word> wordList = new ArrayList<Word>();
+    for (List<Synset> wordSynsets : dict.getSynsets().values()) {
+      for (Synset synset : wordSynsets) {
+        if (seen.put(synset, Boolean.TRUE) == null && synset.hasWords()) {
+          for (Word word : synset.getWords()) {
+            if (!word2id.containsKey(word)) {
+              word2id.put(word, wordList.size());
+              wordList.add(word);
+            }
+          }
+        }
+      }
+    }
+    this.words = wordList.toArray(new Word[wordList.size()]);
+    final int numWords = words.length;
+
+    // resolve forward edges
+    final List<String> symbolList = new ArrayList<String>();
+    final int[][] targets = new int[numWords][];
+    final int[][] symbolIds = new int[numWords][];
+    final PointerDefinition[][] pointers = new PointerDefinition[numWords][];
+    int numEdges = 0;
+    for (int wordId = 0; wordId < numWords; ++wordId) {
+      final List<PointerInstance> ptrs = dict.getForwardPointers(null, words[wordId]);
+      final int[] wordTargets = new int[ptrs.size()];
+      final int[] wordSymbols = new int[ptrs.size()];
+      final PointerDefinition[] wordPointers = new PointerDefinition[ptrs.size()];
+      int count = 0;
+      for (PointerInstance ptr : ptrs) {
+        final Integer targetId = word2id.get(ptr.getSpecificTarget());
+        if (targetId == null) continue;
+
+        final PointerDefinition ptrDef = ptr.getPointerDef();
+        final String symbol = ptrDef.getPointerSymbol();
+        Integer symbolId = symbol2id.get(symbol);
+        if (symbolId == null) {
+          symbolId = symbolList.size();
+          symbolList.add(symbol);
+          symbol2id.put(symbol, symbolId);
+        }
+
+        wordTargets[count] = targetId;
+        wordSymbols[count] = symbolId;
+        wordPointers[count] = ptrDef;
+        ++count;
+      }
+      targets[wordId] = Arrays.copyOf(wordTargets, count);
+      symbolIds[wordId] = Arrays.copyOf(wordSymbols, count);
+      pointers[wordId] = Arrays.copyOf(wordPointers, count);
+      numEdges += count;
+    }
+    this.symbols = symbolList.toArray(new String[symbolList.size()]);
+
+    // pack forward edges, counting reverse edges per target
+    this.forwardStart = new int[numWords + 1];
+    this.edgeTarget = new int[numEdges];
+    this.edgeSymbol = new int[numEdges];
+    this.edgePointers = new PointerDefinition[numEdges];
+    this.reverseStart = new int[numWords + 1];
+    int edge = 0;
+    for (int wordId = 0; wordId < numWords; ++wordId) {
+      forwardStart[wordId] = edge;
+      final int count = targets[wordId].length;
+      System.arraycopy(targets[wordId], 0, edgeTarget, edge, count);
+      System.arraycopy(symbolIds[wordId], 0, edgeSymbol, edge, count);
+      System.arraycopy(pointers[wordId], 0, edgePointers, edge, count);
+      for (int i = 0; i < count; ++i) {
+        ++reverseStart[targets[wordId][i] + 1];
+      }
+      edge += count;
+    }
+    forwardStart[numWords] = edge;
+
+    // transpose into reverse edges
+    for (int wordId = 0; wordId < numWords; ++wordId) {
+      reverseStart[wordId + 1] += reverseStart[wordId];
+    }
+    this.reverseSource = new int[numEdges];
+    this.reverseEdge = new int[numEdges];
+    final int[] fill = new int[numWords];
+    for (int wordId = 0; wordId < numWords; ++wordId) {
+      for (edge = forwardStart[wordId]; edge < forwardStart[wordId + 1]; ++edge) {
+        final int targetId = edgeTarget[edge];
+        final int pos = reverseStart[targetId] + fill[targetId]++;
+        reverseSource[pos] = wordId;
+        reverseEdge[pos] = edge;
+      }
+    }
+
+    this.workspaces = new ThreadLocal<Workspace>() {
+        protected Workspace initialValue() {
+          return new Workspace(PointerGraph.this.words.length);
+        }
+      };
+  }
+
+  public int getNumWords() {
+    return words.length;
+  }
+
+  public int getNumEdges() {
+    return edgeTarget.length;
+  }
+
+  /**
+   * Get the word's id, or -1 if it is not in the graph.
+   */
+  public int getWordId(Word word) {
+    final Integer result = (word == null) ? null : word2id.get(word);
+    return (result == null) ? -1 : result;
+  }
+
+  public Word getWord(int wordId) {
+    return words[wordId];
+  }
+
+  /**
+   * Get the id of the pointer symbol: ANY_SYMBOL for a null symbol, or
+   * UNKNOWN_SYMBOL if no edge has the symbol.
+   */
+  public int getSymbolId(String symbol) {
+    if (symbol == null) return ANY_SYMBOL;
+    final Integer result = symbol2id.get(symbol);
+    return (result == null) ? UNKNOWN_SYMBOL : result;
+  }
+
+  public String getSymbol(int symbolId) {
+    return symbols[symbolId];
+  }
+
+  public int getForwardStart(int wordId) {
+    return forwardStart[wordId];
+  }
+
+  public int getForwardEnd(int wordId) {
+    return forwardStart[wordId + 1];
+  }
+
+  /**
+   * Get the first of the word's forward edges at or after fromEdge having
+   * the symbol, or -1.
+   */
+  public int nextForwardEdge(int wordId, int fromEdge, int symbolId) {
+    final int end = forwardStart[wordId + 1];
+    for (int edge = fromEdge; edge < end; ++edge) {
+      if (symbolId == ANY_SYMBOL || edgeSymbol[edge] == symbolId) return edge;
+    }
+    return -1;
+  }
+
+  public int getTarget(int edge) {
+    return edgeTarget[edge];
+  }
+
+  public int getEdgeSymbol(int edge) {
+    return edgeSymbol[edge];
+  }
+
+  public PointerDefinition getPointerDefinition(int edge) {
+    return edgePointers[edge];
+  }
+
+  public int getReverseStart(int wordId) {
+    return reverseStart[wordId];
+  }
+
+  public int getReverseEnd(int wordId) {
+    return reverseStart[wordId + 1];
+  }
+
+  /**
+   * Get the first of the word's reverse edges at or after fromReverseEdge
+   * whose pointer has the symbol, or -1.
+   */
+  public int nextReverseEdge(int wordId, int fromReverseEdge, int symbolId) {
+    final int end = reverseStart[wordId + 1];
+    for (int reverse = fromReverseEdge; reverse < end; ++reverse) {
+      if (symbolId == ANY_SYMBOL || edgeSymbol[reverseEdge[reverse]] == symbolId) return reverse;
+    }
+    return -1;
+  }
+
+  /**
+   * Get the source word of the reverse edge.
+   */
+  public int getSource(int reverse) {
+    return reverseSource[reverse];
+  }
+
+  /**
+   * Get the forward edge corresponding to the reverse edge.
+   */
+  public int getForwardEdge(int reverse) {
+    return reverseEdge[reverse];
+  }
+
+  /**
+   * Get the fewest hops along (forward or reverse) edges having the symbol
+   * from one word to another, or -1 if not reachable within maxDist hops
+   * (unlimited if maxDist &lt;= 0).
+   */
+  public int getDistance(int fromWordId, int toWordId, boolean reverse, int maxDist, int symbolId) {
+    if (fromWordId == toWordId) return 0;
+    return search(workspaces.get(), fromWordId, toWordId, reverse, maxDist, symbolId);
+  }
+
+  /**
+   * Get the ids of the words reachable from the word along (forward or
+   * reverse) edges having the symbol within maxDist hops (unlimited if
+   * maxDist &lt;= 0), in breadth-first order and excluding the word itself.
+   */
+  public int[] getReachable(int wordId, boolean reverse, int maxDist, int symbolId) {
+    final Workspace workspace = workspaces.get();
+    search(workspace, wordId, -1, reverse, maxDist, symbolId);
+    return Arrays.copyOfRange(workspace.queue, 1, workspace.size);
+  }
+
+  /**
+   * Breadth-first search from a word, stopping early if toWordId is found.
+   *
+   * @return the distance to toWordId, or -1 if not found (the visited
+   *         words being workspace.queue[0, workspace.size))
+   */
+  private final int search(Workspace workspace, int fromWordId, int toWordId, boolean reverse, int maxDist, int symbolId) {
+    final int mark = workspace.nextMark();
+    final int[] marks = workspace.marks;
+    final int[] queue = workspace.queue;
+    final int[] dists = workspace.dists;
+
+    int head = 0;
+    int tail = 0;
+    queue[tail++] = fromWordId;
+    dists[fromWordId] = 0;
+    marks[fromWordId] = mark;
+
+    int result = -1;
+    while (head < tail && result < 0) {
+      final int wordId = queue[head++];
+      final int dist = dists[wordId] + 1;
+      if (maxDist > 0 && dist > maxDist) break;
+
+      final int end = reverse ? reverseStart[wordId + 1] : forwardStart[wordId + 1];
+      for (int pos = reverse ? reverseStart[wordId] : forwardStart[wordId]; pos < end; ++pos) {
+        final int edge = reverse ? reverseEdge[pos] : pos;
+        if (symbolId != ANY_SYMBOL && edgeSymbol[edge] != symbolId) continue;
+
+        final int nextId = reverse ? reverseSource[pos] : edgeTarget[edge];
+        if (marks[nextId] == mark) continue;
+
+        marks[nextId] = mark;
+        dists[nextId] = dist;
+        queue[tail++] = nextId;
+
+        if (nextId == toWordId) {
+          result = dist;
+          break;
+        }
+      }
+    }
+
+    workspace.size = tail;
+    return result;
+  }
+
+
+  /**
+   * Per-thread traversal state, reused across searches by marking visited
+   * words with a fresh stamp.
+   */
+  private static final class Workspace {
+
+    final int[] marks;
+    final int[] dists;
+    final int[] queue;
+    int size;
+    private int mark;
+
+    Workspace(int numWords) {
+      this.marks = new int[numWords];
+      this.dists = new int[numWords];
+      this.queue = new int[numWords];
+      this.size = 0;
+      this.mark = 0;
+    }
+
+    int nextMark() {
+      if (++mark == Integer.MAX_VALUE) {
+        Arrays.fill(marks, 0);
+        mark = 1;
+      }
+      return mark;
+    }
+  }
+}
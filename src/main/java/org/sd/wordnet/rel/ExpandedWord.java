@@ -32,6 +32,7 @@ import org.sd.util.tree.TreeAnalyzer;
 import org.sd.util.tree.Tree2Dot;
 import org.sd.wordnet.lex.LexDictionary;
 import org.sd.wordnet.lex.PointerDefinition;
+import org.sd.wordnet.lex.PointerGraph;
 import org.sd.wordnet.lex.PointerInstance;
 import org.sd.wordnet.lex.Synset;
 import org.sd.wordnet.lex.Word;
@@ -40,6 +41,9 @@ import org.sd.wordnet.lex.Word;
  * Container for a word with all of its relationships.
  * <p>
  * Modeled as a tree with words mapped to nodes.
+ * <p>
+ * Pointers are followed through the dictionary's PointerGraph when it has
+ * been built (or one is given), and are otherwise resolved word by word.
  *
  * @author Spence Koehler
  */
@@ -51,15 +55,26 @@ public class ExpandedWord {
   private DotWriter _dotWriter;
   private int maxDepth;
   private String symbolConstraint;
+  private PointerGraph pointerGraph;
+  private int symbolId;
 
   public ExpandedWord(Word rootWord, LexDictionary dict) {
     this(rootWord, dict, -1, null);
   }
 
   public ExpandedWord(Word rootWord, LexDictionary dict, int maxDepth, String symbolConstraint) {
+    this(rootWord, dict, maxDepth, symbolConstraint, dict.hasPointerGraph() ? dict.getPointerGraph() : null);
+  }
+
+  /**
+   * Construct, following pointers through the given graph if non-null.
+   */
+  public ExpandedWord(Word rootWord, LexDictionary dict, int maxDepth, String symbolConstraint, PointerGraph pointerGraph) {
     this.dict = dict;
     this.maxDepth = maxDepth;
     this.symbolConstraint = symbolConstraint;
+    this.pointerGraph = pointerGraph;
+    this.symbolId = (pointerGraph == null) ? PointerGraph.ANY_SYMBOL : pointerGraph.getSymbolId(symbolConstraint);
     this.nodeMap = new HashMap<String, Tree<PointerData>>();
     this.tree = doAddNode(new PointerData(rootWord, null), null, dict);
   }
@@ -103,12 +118,23 @@ public class ExpandedWord {
 
         if (existing == null && (maxDepth <= 0 || nextDepth < maxDepth)) {
           final Word word = childNode.getData().word;
-          for (PointerInstance ptr : dict.getForwardPointers(null, word)) {
-            final PointerDefinition ptrDef = ptr.getPointerDef();
-            if (symbolConstraint == null || symbolConstraint.equals(ptrDef.getPointerSymbol())) {
-              final Word child = ptr.getSpecificTarget();
-              if (child != null) {
-                queue.add(new Bundle(new PointerData(child, ptrDef), childNode));
+          final int wordId = (pointerGraph == null) ? -1 : pointerGraph.getWordId(word);
+          if (wordId >= 0) {
+            for (int edge = pointerGraph.nextForwardEdge(wordId, pointerGraph.getForwardStart(wordId), symbolId);
+                 edge >= 0;
+                 edge = pointerGraph.nextForwardEdge(wordId, edge + 1, symbolId)) {
+              final Word child = pointerGraph.getWord(pointerGraph.getTarget(edge));
+              queue.add(new Bundle(new PointerData(child, pointerGraph.getPointerDefinition(edge)), childNode));
+            }
+          }
+          else {
+            for (PointerInstance ptr : dict.getForwardPointers(null, word)) {
+              final PointerDefinition ptrDef = ptr.getPointerDef();
+              if (symbolConstraint == null || symbolConstraint.equals(ptrDef.getPointerSymbol())) {
+                final Word child = ptr.getSpecificTarget();
+                if (child != null) {
+                  queue.add(new Bundle(new PointerData(child, ptrDef), childNode));
+                }
               }
             }
           }
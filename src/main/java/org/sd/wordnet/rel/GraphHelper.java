@@ -22,6 +22,7 @@ import java.util.Set;
 import java.util.TreeSet;
 import org.sd.wordnet.lex.LexDictionary;
 import org.sd.wordnet.lex.PointerInstance;
+import org.sd.wordnet.lex.Synset;
 import org.sd.wordnet.lex.Word;
 import org.sd.wordnet.lex.WordGraph;
 
@@ -41,8 +42,17 @@ public class GraphHelper {
   private List<PointerInstance> _revPointers;
   private ExpandedWord _hyperWord;
   private List<PointerInstance> _hypoPointers;
+  private HypernymIndex hypernymIndex;
 
   public GraphHelper(LexDictionary dict, Word word) {
+    this(dict, word, null);
+  }
+
+  /**
+   * Construct with an (optional) hypernym index for answering ancestry
+   * queries without expanding pointers.
+   */
+  public GraphHelper(LexDictionary dict, Word word, HypernymIndex hypernymIndex) {
     this.dict = dict;
     this.word = word;
     this._expandedWord = null;
@@ -52,6 +62,7 @@ public class GraphHelper {
     this._revPointers = null;
     this._hyperWord = null;
     this._hypoPointers = null;
+    this.hypernymIndex = hypernymIndex;
   }
 
   public LexDictionary getDictionary() {
@@ -62,6 +73,14 @@ public class GraphHelper {
     return word;
   }
 
+  public HypernymIndex getHypernymIndex() {
+    return hypernymIndex;
+  }
+
+  public void setHypernymIndex(HypernymIndex hypernymIndex) {
+    this.hypernymIndex = hypernymIndex;
+  }
+
   public ExpandedWord getExpandedWord() {
     if (_expandedWord == null) {
       // build unconstrained expanded word
@@ -78,6 +97,26 @@ public class GraphHelper {
     return _hypernyms;
   }
 
+  /**
+   * Determine whether this word's synset is a hypernym ancestor of the
+   * other word's synset.
+   * <p>
+   * This requires a hypernym index.
+   */
+  public boolean isHypernymOf(Word otherWord) {
+    return getRequiredHypernymIndex().isAncestor(word.getSynset(), otherWord.getSynset());
+  }
+
+  /**
+   * Get the lowest common hypernym subsumer of this word's and the other
+   * word's synsets, or null.
+   * <p>
+   * This requires a hypernym index.
+   */
+  public Synset getLowestCommonSubsumer(Word otherWord) {
+    return getRequiredHypernymIndex().getLowestCommonSubsumer(word.getSynset(), otherWord.getSynset());
+  }
+
   public Set<String> getHyponyms() {
     if (_hyponyms == null) {
       final List<PointerInstance> hypoPointers = getHypoPointers();
@@ -220,6 +259,13 @@ public class GraphHelper {
     return result;
   }
 
+  private final HypernymIndex getRequiredHypernymIndex() {
+    if (hypernymIndex == null) {
+      throw new IllegalStateException("GraphHelper has no HypernymIndex!");
+    }
+    return hypernymIndex;
+  }
+
   private final ExpandedWord getExpandedWord(int maxDepth, String symbolConstraint) {
     ExpandedWord expandedWord = null;
 
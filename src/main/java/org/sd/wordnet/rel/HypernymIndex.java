@@ -0,0 +1,339 @@
+/*
+   Copyright 2008-2016 Semantic Discovery, Inc.
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+package org.sd.wordnet.rel;
+
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import org.sd.wordnet.lex.LexDictionary;
+import org.sd.wordnet.lex.PointerDefinition;
+import org.sd.wordnet.lex.PointerInstance;
+import org.sd.wordnet.lex.Synset;
+
+/**
+ * Precomputed ancestry over a dictionary's hypernym graph.
+ * <p>
+ * Every synset is labeled with its ancestors (including itself) as sorted
+ * synset ids with their hypernym distances. Whether one synset is an
+ * ancestor of another is then a binary search in the other's label. The
+ * lowest common subsumer of two synsets is found by merging their two
+ * labels, whose lengths are bounded by the depth and fan-in of the
+ * hypernym graph rather than by the size of the expansion.
+ * <p>
+ * Pointer trees are walked only once, when the index is built.
+ *
+ * @author Spence Koehler
+ */
+public class HypernymIndex {
+
+  public static final String[] DEFAULT_SYMBOLS = new String[] {"@", "@i"};
+
+
+  private Map<Synset, Integer> synset2id;
+  private Synset[] synsets;
+  private int[] depths;         // id -> min hypernym distance to a root
+  private int maxDepth;
+
+  private int[] labelStart;     // id -> start of its label in labelIds/labelDists
+  private int[] labelIds;       // ancestor ids (sorted within each label)
+  private int[] labelDists;     // distance to each ancestor
+
+  /**
+   * Build the index over the dictionary's "@" and "@i" pointers.
+   */
+  public HypernymIndex(LexDictionary dict) {
+    this(dict, DEFAULT_SYMBOLS);
+  }
+
+  /**
+   * Build the index over the dictionary's pointers with the given symbols.
+   */
+  public HypernymIndex(LexDictionary dict, String[] hypernymSymbols) {
+    this.synset2id = new IdentityHashMap<Synset, Integer>();
+
+    // assign ids to distinct synsets
+    final List<Synset> synsetList = new ArrayList<Synset>();
+    for (List<Synset> wordSynsets : dict.getSynsets().values()) {
+      for (Synset synset : wordSynsets) {
+        if (!synset2id.containsKey(synset)) {
+          synset2id.put(synset, synsetList.size());
+          synsetList.add(synset);
+        }
+      }
+    }
+    this.synsets = synsetList.toArray(new Synset[synsetList.size()]);
+
+    // collect each synset's hypernyms (through synset or word pointers)
+    final Set<String> symbols = new HashSet<String>(Arrays.asList(hypernymSymbols));
+    final int[][] parents = new int[synsets.length][];
+    for (int id = 0; id < synsets.length; ++id) {
+      final Set<Integer> parentIds = new LinkedHashSet<Integer>();
+      for (PointerInstance ptr : dict.getForwardPointers(null, synsets[id])) {
+        final PointerDefinition ptrDef = ptr.getPointerDef();
+        if (ptrDef != null && symbols.contains(ptrDef.getPointerSymbol()) && ptr.hasTargetSynset()) {
+          final Integer parentId = synset2id.get(ptr.getTargetSynset());
+          if (parentId != null && parentId != id) parentIds.add(parentId);
+        }
+      }
+      parents[id] = toArray(parentIds);
+    }
+
+    // label each synset with its ancestors
+    final int[][] ancestors = new int[synsets.length][];
+    final int[][] distances = new int[synsets.length][];
+    final byte[] states = new byte[synsets.length];
+    this.depths = new int[synsets.length];
+    this.maxDepth = 0;
+    int labelSize = 0;
+    for (int id = 0; id < synsets.length; ++id) {
+      buildLabel(id, parents, ancestors, distances, states);
+      labelSize += ancestors[id].length;
+      if (depths[id] > maxDepth) maxDepth = depths[id];
+    }
+
+    // pack the labels
+    this.labelStart = new int[synsets.length + 1];
+    this.labelIds = new int[labelSize];
+    this.labelDists = new int[labelSize];
+    int pos = 0;
+    for (int id = 0; id < synsets.length; ++id) {
+      labelStart[id] = pos;
+      System.arraycopy(ancestors[id], 0, labelIds, pos, ancestors[id].length);
+      System.arraycopy(distances[id], 0, labelDists, pos, distances[id].length);
+      pos += ancestors[id].length;
+    }
+    labelStart[synsets.length] = pos;
+  }
+
+  /**
+   * Get the number of synsets in this index.
+   */
+  public int size() {
+    return synsets.length;
+  }
+
+  /**
+   * Get the synset's id in this index, or -1 if it is not indexed.
+   */
+  public int getId(Synset synset) {
+    final Integer result = (synset == null) ? null : synset2id.get(synset);
+    return (result == null) ? -1 : result;
+  }
+
+  public Synset getSynset(int id) {
+    return synsets[id];
+  }
+
+  /**
+   * Get the synset's shortest hypernym distance to a root, or -1 if the
+   * synset is not indexed.
+   */
+  public int getDepth(Synset synset) {
+    final int id = getId(synset);
+    return (id < 0) ? -1 : depths[id];
+  }
+
+  /**
+   * Get the greatest depth of any synset.
+   */
+  public int getMaxDepth() {
+    return maxDepth;
+  }
+
+  /**
+   * Get the ancestors of the synset (including itself), or null if the
+   * synset is not indexed.
+   */
+  public List<Synset> getAncestors(Synset synset) {
+    List<Synset> result = null;
+
+    final int id = getId(synset);
+    if (id >= 0) {
+      result = new ArrayList<Synset>(labelStart[id + 1] - labelStart[id]);
+      for (int pos = labelStart[id]; pos < labelStart[id + 1]; ++pos) {
+        result.add(synsets[labelIds[pos]]);
+      }
+    }
+
+    return result;
+  }
+
+  /**
+   * Get the shortest hypernym distance from the synset up to the ancestor,
+   * or -1 if the ancestor is not an ancestor of (or equal to) the synset.
+   */
+  public int getDistance(Synset synset, Synset ancestor) {
+    final int id = getId(synset);
+    final int ancestorId = getId(ancestor);
+    if (id < 0 || ancestorId < 0) return -1;
+
+    final int pos = Arrays.binarySearch(labelIds, labelStart[id], labelStart[id + 1], ancestorId);
+    return (pos < 0) ? -1 : labelDists[pos];
+  }
+
+  /**
+   * Determine whether the ancestor is a (proper) hypernym ancestor of the
+   * synset.
+   */
+  public boolean isAncestor(Synset ancestor, Synset synset) {
+    return ancestor != synset && getDistance(synset, ancestor) > 0;
+  }
+
+  /**
+   * Get the common ancestor of the synsets on the shortest hypernym path
+   * between them (preferring the deeper when tied), or null if they share
+   * no ancestor.
+   */
+  public Synset getLowestCommonSubsumer(Synset synset1, Synset synset2) {
+    final long subsumer = findSubsumer(getId(synset1), getId(synset2));
+    return (subsumer < 0) ? null : synsets[(int)subsumer];
+  }
+
+  /**
+   * Get the length of the shortest path between the synsets through a
+   * common ancestor, or -1 if they share no ancestor.
+   */
+  public int getPathDistance(Synset synset1, Synset synset2) {
+    final long subsumer = findSubsumer(getId(synset1), getId(synset2));
+    return (subsumer < 0) ? -1 : (int)(subsumer >>> 32);
+  }
+
+  /**
+   * Get 1 / (1 + pathDistance), or 0 if the synsets share no ancestor.
+   */
+  public double getPathSimilarity(Synset synset1, Synset synset2) {
+    final int distance = getPathDistance(synset1, synset2);
+    return (distance < 0) ? 0.0 : 1.0 / (1.0 + distance);
+  }
+
+  /**
+   * Get the Wu-Palmer similarity, 2 * depth(lcs) / (len1 + len2) where
+   * depths count nodes from the root and len1, len2 are the synsets'
+   * depths through the lowest common subsumer; or 0 if the synsets share
+   * no ancestor.
+   */
+  public double getWuPalmerSimilarity(Synset synset1, Synset synset2) {
+    final long subsumer = findSubsumer(getId(synset1), getId(synset2));
+    if (subsumer < 0) return 0.0;
+
+    final int lcsDepth = depths[(int)subsumer] + 1;
+    final int distance = (int)(subsumer >>> 32);
+    return (2.0 * lcsDepth) / (distance + 2.0 * lcsDepth);
+  }
+
+  /**
+   * Get the Leacock-Chodorow similarity, -log((pathDistance + 1) / (2 * D))
+   * where D is the taxonomy depth (in nodes); or 0 if the synsets share no
+   * ancestor.
+   */
+  public double getLeacockChodorowSimilarity(Synset synset1, Synset synset2) {
+    final int distance = getPathDistance(synset1, synset2);
+    return (distance < 0) ? 0.0 : -Math.log((distance + 1.0) / (2.0 * (maxDepth + 1)));
+  }
+
+  /**
+   * Find the lowest common subsumer of the synsets with the given ids.
+   *
+   * @return (pathDistance << 32 | subsumerId), or -1 if none
+   */
+  private final long findSubsumer(int id1, int id2) {
+    if (id1 < 0 || id2 < 0) return -1L;
+
+    int bestId = -1;
+    int bestDistance = Integer.MAX_VALUE;
+
+    // merge the sorted labels
+    int pos1 = labelStart[id1];
+    int pos2 = labelStart[id2];
+    final int end1 = labelStart[id1 + 1];
+    final int end2 = labelStart[id2 + 1];
+    while (pos1 < end1 && pos2 < end2) {
+      final int ancestor1 = labelIds[pos1];
+      final int ancestor2 = labelIds[pos2];
+      if (ancestor1 < ancestor2) {
+        ++pos1;
+      }
+      else if (ancestor2 < ancestor1) {
+        ++pos2;
+      }
+      else {
+        final int distance = labelDists[pos1] + labelDists[pos2];
+        if (distance < bestDistance || (distance == bestDistance && depths[ancestor1] > depths[bestId])) {
+          bestId = ancestor1;
+          bestDistance = distance;
+        }
+        ++pos1;
+        ++pos2;
+      }
+    }
+
+    return (bestId < 0) ? -1L : (((long)bestDistance) << 32) | bestId;
+  }
+
+  /**
+   * Build the label (and depth) for the synset, first building those of its
+   * hypernyms. A hypernym still being labeled (i.e., in a cycle) is ignored.
+   */
+  private final void buildLabel(int id, int[][] parents, int[][] ancestors, int[][] distances, byte[] states) {
+    if (states[id] != 0) return;
+    states[id] = 1;  // labeling
+
+    // merge the parents' labels, one further away
+    final TreeMap<Integer, Integer> label = new TreeMap<Integer, Integer>();
+    label.put(id, 0);
+    int depth = -1;
+
+    for (int parentId : parents[id]) {
+      buildLabel(parentId, parents, ancestors, distances, states);
+      if (states[parentId] != 2) continue;  // cycle
+
+      if (depth < 0 || depths[parentId] + 1 < depth) depth = depths[parentId] + 1;
+
+      for (int i = 0; i < ancestors[parentId].length; ++i) {
+        final int ancestorId = ancestors[parentId][i];
+        final int distance = distances[parentId][i] + 1;
+        final Integer existing = label.get(ancestorId);
+        if (existing == null || distance < existing) label.put(ancestorId, distance);
+      }
+    }
+
+    ancestors[id] = new int[label.size()];
+    distances[id] = new int[label.size()];
+    int i = 0;
+    for (Map.Entry<Integer, Integer> entry : label.entrySet()) {
+      ancestors[id][i] = entry.getKey();
+      distances[id][i] = entry.getValue();
+      ++i;
+    }
+
+    depths[id] = (depth < 0) ? 0 : depth;
+    states[id] = 2;  // labeled
+  }
+
+  private static final int[] toArray(Set<Integer> values) {
+    final int[] result = new int[values.size()];
+    int i = 0;
+    for (Integer value : values) result[i++] = value;
+    return result;
+  }
+}
@@ -21,6 +21,7 @@ import java.util.List;
 import java.util.Set;
 import org.sd.atnexec.ConfigUtil;
 import org.sd.wordnet.lex.LexDictionary;
+import org.sd.wordnet.lex.PointerGraph;
 import org.sd.util.Histogram;
 import org.sd.util.LRU;
 import org.sd.wordnet.lex.Synset;
@@ -39,10 +40,20 @@ public class RelatedWordPicker {
   
   private LexDictionary dict;
   private LRU<String, ExpandedWord> cache;
+  private PointerGraph pointerGraph;
 
   public RelatedWordPicker(LexDictionary dict) {
+    this(dict, false);
+  }
+
+  /**
+   * Construct, optionally comparing words by searching the dictionary's
+   * (built on demand) pointer graph instead of expanding each word.
+   */
+  public RelatedWordPicker(LexDictionary dict, boolean usePointerGraph) {
     this.dict = dict;
     this.cache = new LRU<String, ExpandedWord>(100);
+    this.pointerGraph = usePointerGraph ? dict.getPointerGraph() : null;
   }
 
   /**
@@ -148,6 +159,28 @@ public class RelatedWordPicker {
 
     // Find the words from each with the lowest comparison (depth),
     // meaning most closely related with fewest relationship hops
+    if (pointerGraph != null) {
+      for (int idx1 = 0; idx1 < len1; ++idx1) {
+        final Word word1 = words1[idx1];
+        final int wordId1 = pointerGraph.getWordId(word1);
+        if (wordId1 < 0) continue;
+        for (int idx2 = idx1; idx2 < len2; ++idx2) {
+          final Word word2 = words2[idx2];
+          final int wordId2 = pointerGraph.getWordId(word2);
+          if (wordId2 < 0) continue;
+          final int depth1 = pointerGraph.getDistance(wordId1, wordId2, false, -1, PointerGraph.ANY_SYMBOL);
+          final int depth2 = pointerGraph.getDistance(wordId2, wordId1, false, -1, PointerGraph.ANY_SYMBOL);
+          final WordComparison wcmp = new WordComparison(word1, word2, depth1, depth2);
+          if (wcmp.hasResult()) {
+            if (result == null || result.getMinDepth() > wcmp.getMinDepth()) {
+              result = wcmp;
+            }
+          }
+        }
+      }
+      return result;
+    }
+
     for (int idx1 = 0; idx1 < len1; ++idx1) {
       final Word word1 = words1[idx1];
       final ExpandedWord eword1 = getExpandedWord(word1);
@@ -204,6 +237,19 @@ public class RelatedWordPicker {
       this.words = (word1 != null && word2 != null) ? new Word[]{word1.getRootWord(), word2.getRootWord()} : null;
     }
 
+    /**
+     * Construct from depths found without expanded words, which are left
+     * null.
+     */
+    public WordComparison(Word word1, Word word2, int depth1, int depth2) {
+      this.word1 = null;
+      this.word2 = null;
+      this.depth1 = depth1;
+      this.depth2 = depth2;
+      this.minDepth = depth1 <= depth2 ? depth1 : depth2;
+      this.words = new Word[]{word1, word2};
+    }
+
     public boolean hasResult() {
       return minDepth >= 0;
     }
@@ -285,6 +331,7 @@ public class RelatedWordPicker {
 
   public static void main(String[] args) {
     // Properties:
+    //   usePointerGraph -- (optional, default=true) compare words through the compiled pointer graph
     //   ...
     // Args: words to compare
 
@@ -309,7 +356,7 @@ public class RelatedWordPicker {
     args = dataProperties.getRemainingArgs();
 
     final LexDictionary lexDictionary = WordNetLoader.loadLexDictionary(dataProperties);
-    final RelatedWordPicker picker = new RelatedWordPicker(lexDictionary);
+    final RelatedWordPicker picker = new RelatedWordPicker(lexDictionary, dataProperties.getBoolean("usePointerGraph", true));
     final Histogram<String> histogram = new Histogram<String>();
 
     for (int i = 1; i < args.length; ++i) {
@@ -0,0 +1,194 @@
+/*
+   Copyright 2008-2016 Semantic Discovery, Inc.
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+package org.sd.wordnet.senti;
+
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import org.sd.util.ThreadPoolUtil;
+
+/**
+ * Pipeline that groups items read on the calling thread into batches and
+ * hands each batch to one of a fixed set of workers on a thread pool.
+ * <p>
+ * Each worker is used by only one thread at a time, so workers may keep
+ * unsynchronized state (parsers, accumulators). Output that a worker
+ * writes for a batch is buffered and emitted on the calling thread, either
+ * in input order or in order of completion.
+ * <p>
+ * The number of outstanding batches, including those finished but held
+ * for in-order output, is bounded so that reading does not run arbitrarily
+ * far ahead of processing or output.
+ *
+ * @author Spencer Koehler
+ */
+class BatchPipeline <T> {
+
+  interface BatchWorker <T> {
+    public void process(List<T> batch, PrintStream out);
+  }
+
+
+  private BlockingQueue<BatchWorker<T>> idleWorkers;
+  private int batchSize;
+  private boolean preserveOrder;
+  private PrintStream out;
+
+  private ExecutorService threadPool;
+  private CompletionService<Batch<T>> completionService;
+  private int maxPending;
+  private int numPending;
+  private List<T> curItems;
+  private int nextSeqNum;
+  private int nextEmitNum;
+  private Map<Integer, Batch<T>> completed;
+
+  BatchPipeline(String threadPrefix, List<? extends BatchWorker<T>> workers, int batchSize, boolean preserveOrder, PrintStream out) {
+    this.idleWorkers = new ArrayBlockingQueue<BatchWorker<T>>(workers.size(), false, workers);
+    this.batchSize = batchSize < 1 ? 1 : batchSize;
+    this.preserveOrder = preserveOrder;
+    this.out = out;
+
+    this.threadPool = ThreadPoolUtil.createThreadPool(threadPrefix, workers.size());
+    this.completionService = new ExecutorCompletionService<Batch<T>>(threadPool);
+    this.maxPending = workers.size() * 2;
+    this.numPending = 0;
+    this.curItems = new ArrayList<T>(this.batchSize);
+    this.nextSeqNum = 0;
+    this.nextEmitNum = 0;
+    this.completed = new HashMap<Integer, Batch<T>>();
+  }
+
+  /**
+   * Add the next item, submitting a batch when full.
+   */
+  void add(T item) {
+    curItems.add(item);
+    if (curItems.size() >= batchSize) {
+      submit();
+    }
+  }
+
+  /**
+   * Submit the last partial batch, emit all remaining output, and shut
+   * down the pipeline's threads.
+   */
+  void finish() {
+    try {
+      if (curItems.size() > 0) submit();
+      while (numPending > 0) {
+        collect();
+      }
+    }
+    finally {
+      ThreadPoolUtil.shutdownGracefully(threadPool, 1L);
+    }
+  }
+
+  private final void submit() {
+    // batches held for in-order output wait on a pending batch, so there is
+    // always a pending batch to collect while over the limit
+    while (numPending + completed.size() >= maxPending) {
+      collect();
+    }
+
+    final Batch<T> batch = new Batch<T>(nextSeqNum++, curItems);
+    this.curItems = new ArrayList<T>(batchSize);
+
+    completionService.submit(new Callable<Batch<T>>() {
+        public Batch<T> call() throws Exception {
+          final BatchWorker<T> worker = idleWorkers.take();
+          try {
+            batch.run(worker);
+          }
+          finally {
+            idleWorkers.put(worker);
+          }
+          return batch;
+        }
+      });
+    ++numPending;
+  }
+
+  private final void collect() {
+    final Batch<T> batch = waitFor(completionService);
+    --numPending;
+
+    if (preserveOrder) {
+      completed.put(batch.seqNum, batch);
+      for (Batch<T> next = completed.remove(nextEmitNum); next != null; next = completed.remove(nextEmitNum)) {
+        next.emit(out);
+        ++nextEmitNum;
+      }
+    }
+    else {
+      batch.emit(out);
+    }
+  }
+
+  private static final <T> Batch<T> waitFor(CompletionService<Batch<T>> completionService) {
+    Future<Batch<T>> future = null;
+    try {
+      future = completionService.take();
+    }
+    catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException(e);
+    }
+    return ThreadPoolUtil.waitFor(future);
+  }
+
+
+  private static final class Batch <T> {
+
+    final int seqNum;
+    private List<T> items;
+    private ByteArrayOutputStream output;
+
+    Batch(int seqNum, List<T> items) {
+      this.seqNum = seqNum;
+      this.items = items;
+      this.output = null;
+    }
+
+    void run(BatchWorker<T> worker) {
+      this.output = new ByteArrayOutputStream();
+      final PrintStream batchOut = new PrintStream(output);
+      worker.process(items, batchOut);
+      batchOut.flush();
+      this.items = null;
+    }
+
+    void emit(PrintStream out) {
+      if (output != null && output.size() > 0) {
+        out.write(output.toByteArray(), 0, output.size());
+        out.flush();
+      }
+      this.output = null;
+    }
+  }
+}
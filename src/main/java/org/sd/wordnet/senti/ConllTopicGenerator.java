@@ -17,6 +17,7 @@ package org.sd.wordnet.senti;
 
 
 import java.io.IOException;
+import java.io.PrintStream;
 import java.util.List;
 import org.sd.atnexec.ConfigUtil;
 import org.sd.nlp.conll.ConllSentence;
@@ -34,18 +35,31 @@ public class ConllTopicGenerator extends SynsetConllProcessor {
     super(dataProperties);
   }
 
+  @Override
+  protected boolean canProcessInParallel() {
+    return true;
+  }
+
   @Override
   protected void process(ConllSentence sentence) {
+    process(sentence, System.out);
+  }
+
+  @Override
+  protected void process(ConllSentence sentence, PrintStream out) {
     final ConllPhrase phrase = new ConllPhrase(lexDictionary, sentence);
-    System.out.println(String.format("%s\t%s",
-                                     sentence.getText(),
-                                     phrase.getSummary().toString()));
+    out.println(String.format("%s\t%s",
+                              sentence.getText(),
+                              phrase.getSummary().toString()));
   }
 
 
   public static void main(String[] args) throws IOException {
-    // Properties: None
-    // Args: conll filenames --or-- stdin conll file data
+    // Properties:
+    //    numThreads -- (optional, default 1) number of sentences to process in parallel
+    //    batchSize -- (optional, default 100) number of sentences per worker batch
+    //    readThreads -- (optional, default 1) number of threads decoding conll files
+    // Args: conll (or ConllBinaryCache) filenames --or-- stdin conll file data
 
     final ConfigUtil configUtil = new ConfigUtil(args);
     final DataProperties dataProperties = configUtil.getDataProperties();
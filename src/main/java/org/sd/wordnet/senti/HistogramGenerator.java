@@ -18,6 +18,7 @@ package org.sd.wordnet.senti;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.PrintStream;
 import java.util.Collection;
 import org.sd.atn.AtnParse;
 import org.sd.atnexec.ConfigUtil;
@@ -32,7 +33,7 @@ import org.sd.xml.DataProperties;
  * <p>
  * @author Spencer Koehler
  */
-public class HistogramGenerator implements SynsetLineProcessor.SynsetLineHandler {
+public class HistogramGenerator implements SynsetLineProcessor.ParallelSynsetLineHandler {
   
   private SynsetSelector synsetSelector;
   private Histogram<String> nounHistogram;
@@ -48,6 +49,30 @@ public class HistogramGenerator implements SynsetLineProcessor.SynsetLineHandler
     this.advHistogram = new Histogram<String>();
   }
 
+  @Override
+  public SynsetLineProcessor.ParallelSynsetLineHandler newWorkerHandler() {
+    return new HistogramGenerator();
+  }
+
+  @Override
+  public void setOutput(PrintStream out) {
+    //no-op: no per-line output
+  }
+
+  @Override
+  public void merge(SynsetLineProcessor.ParallelSynsetLineHandler workerHandler) {
+    final HistogramGenerator other = (HistogramGenerator)workerHandler;
+    nounHistogram.add(other.nounHistogram);
+    verbHistogram.add(other.verbHistogram);
+    adjHistogram.add(other.adjHistogram);
+    advHistogram.add(other.advHistogram);
+  }
+
+  @Override
+  public boolean preservesOrder() {
+    return false;
+  }
+
   @Override
   public void startLine(String line) {
     //no-op
@@ -146,6 +171,8 @@ public class HistogramGenerator implements SynsetLineProcessor.SynsetLineHandler
     //    verbfile -- file for writing verb synset histogram
     //    adjfile -- file for writing adj synset histogram
     //    advfile -- file for writing adv synset histogram
+    //    numThreads -- (optional, default 1) number of lines to process in parallel
+    //    batchSize -- (optional, default 100) number of lines per worker batch
 
     final ConfigUtil configUtil = new ConfigUtil(args);
     final DataProperties dataProperties = configUtil.getDataProperties();
@@ -17,6 +17,7 @@ package org.sd.wordnet.senti;
 
 
 import java.io.IOException;
+import java.io.PrintStream;
 import java.util.Collection;
 import org.sd.atn.AtnParse;
 import org.sd.atnexec.ConfigUtil;
@@ -29,12 +30,34 @@ import org.sd.xml.DataProperties;
  * <p>
  * @author Spencer Koehler
  */
-public class SimpleSentimentizer implements SynsetLineProcessor.SynsetLineHandler {
+public class SimpleSentimentizer implements SynsetLineProcessor.ParallelSynsetLineHandler {
   
   private SentimentCollector sentimentCollector;
+  private PrintStream out;
 
   public SimpleSentimentizer() {
     this.sentimentCollector = new SentimentCollector();
+    this.out = System.out;
+  }
+
+  @Override
+  public SynsetLineProcessor.ParallelSynsetLineHandler newWorkerHandler() {
+    return new SimpleSentimentizer();
+  }
+
+  @Override
+  public void setOutput(PrintStream out) {
+    this.out = out;
+  }
+
+  @Override
+  public void merge(SynsetLineProcessor.ParallelSynsetLineHandler workerHandler) {
+    //no-op: output is per line
+  }
+
+  @Override
+  public boolean preservesOrder() {
+    return true;
   }
 
   @Override
@@ -52,11 +75,15 @@ public class SimpleSentimentizer implements SynsetLineProcessor.SynsetLineHandle
 
   @Override
   public void endLine(String line, boolean fromParse) {
-    System.out.println(line + "\t" + sentimentCollector.toString());
+    out.println(line + "\t" + sentimentCollector.toString());
   }
 
 
   public static void main(String[] args) throws IOException {
+    // Properties:
+    //    numThreads -- (optional, default 1) number of lines to process in parallel
+    //    batchSize -- (optional, default 100) number of lines per worker batch
+
     final ConfigUtil configUtil = new ConfigUtil(args);
     final DataProperties dataProperties = configUtil.getDataProperties();
     args = dataProperties.getRemainingArgs();
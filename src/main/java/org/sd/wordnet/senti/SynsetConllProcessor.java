@@ -17,17 +17,34 @@ package org.sd.wordnet.senti;
 
 
 import java.io.BufferedReader;
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
 import org.sd.io.FileUtil;
+import org.sd.nlp.conll.ConllBinaryCache;
 import org.sd.nlp.conll.ConllReader;
 import org.sd.nlp.conll.ConllSentence;
+import org.sd.nlp.conll.ParallelConllReader;
 import org.sd.xml.DataProperties;
 
 /**
  * A SynsetProcessor to work with CoNLL formatted parsed sentences.
  * <p>
+ * Subclasses whose sentence processing is independent across sentences
+ * can override canProcessInParallel and process(sentence, out) so that,
+ * with a "numThreads" property greater than 1, sentences are processed in
+ * batches (of "batchSize" sentences) on worker threads while output stays
+ * in input order.
+ * <p>
+ * Files named with ConllBinaryCache.EXTENSION are read as binary caches.
+ * Other files are decoded on "readThreads" threads (through a
+ * ParallelConllReader) when more than 1.
+ * <p>
  * @author Spencer Koehler
  */
 public abstract class SynsetConllProcessor extends SynsetProcessor {
@@ -35,8 +52,37 @@ public abstract class SynsetConllProcessor extends SynsetProcessor {
   protected abstract void process(ConllSentence sentence);
 
 
+  public static final int DEFAULT_NUM_THREADS = 1;
+  public static final int DEFAULT_BATCH_SIZE = 100;
+
+  private int numThreads;
+  private int batchSize;
+  private int readThreads;
+
   public SynsetConllProcessor(DataProperties dataProperties) {
     super(dataProperties);
+    this.numThreads = dataProperties.getInt("numThreads", DEFAULT_NUM_THREADS);
+    this.batchSize = dataProperties.getInt("batchSize", DEFAULT_BATCH_SIZE);
+    this.readThreads = dataProperties.getInt("readThreads", 1);
+  }
+
+  /**
+   * Determine whether sentences can be processed concurrently through
+   * process(sentence, out).
+   * <p>
+   * Default is false.
+   */
+  protected boolean canProcessInParallel() {
+    return false;
+  }
+
+  /**
+   * Process the sentence, writing any output to the given stream.
+   * <p>
+   * Default delegates to process(sentence).
+   */
+  protected void process(ConllSentence sentence, PrintStream out) {
+    process(sentence);
   }
 
   @Override
@@ -51,9 +97,19 @@ public abstract class SynsetConllProcessor extends SynsetProcessor {
     if (args != null && args.length > 0) {
       // args are conll filenames to process
       for (String arg : args) {
+        if (arg.endsWith(ConllBinaryCache.EXTENSION)) {
+          process(new ConllBinaryCache(new File(arg)).iterator());
+          continue;
+        }
+
         is = FileUtil.getInputStream(arg);
         try {
-          process(is);
+          if (readThreads > 1) {
+            process(new ParallelConllReader(is, readThreads));
+          }
+          else {
+            process(is);
+          }
         }
         finally {
           if (is != null) is.close();
@@ -77,10 +133,36 @@ public abstract class SynsetConllProcessor extends SynsetProcessor {
   }
 
   public void process(BufferedReader reader) {
-    final ConllReader conllReader = new ConllReader(reader);
-    while (conllReader.hasNext()) {
-      final ConllSentence sentence = conllReader.next();
-      process(sentence);
+    process(new ConllReader(reader));
+  }
+
+  public void process(Iterator<ConllSentence> sentences) {
+    final BatchPipeline<ConllSentence> pipeline = buildPipeline();
+    while (sentences.hasNext()) {
+      final ConllSentence sentence = sentences.next();
+      if (pipeline == null) process(sentence);
+      else pipeline.add(sentence);
+    }
+    if (pipeline != null) pipeline.finish();
+  }
+
+  private final BatchPipeline<ConllSentence> buildPipeline() {
+    if (numThreads <= 1 || !canProcessInParallel()) return null;
+
+    final List<SentenceWorker> workers = new ArrayList<SentenceWorker>();
+    for (int i = 0; i < numThreads; ++i) {
+      workers.add(new SentenceWorker());
+    }
+
+    return new BatchPipeline<ConllSentence>("SynsetConllProcessorWorker-", workers, batchSize, true, System.out);
+  }
+
+
+  private final class SentenceWorker implements BatchPipeline.BatchWorker<ConllSentence> {
+    public void process(List<ConllSentence> sentences, PrintStream out) {
+      for (ConllSentence sentence : sentences) {
+        SynsetConllProcessor.this.process(sentence, out);
+      }
     }
   }
 }
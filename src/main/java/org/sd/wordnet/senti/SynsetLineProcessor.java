@@ -19,6 +19,8 @@ package org.sd.wordnet.senti;
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 import java.util.concurrent.ExecutorService;
@@ -40,6 +42,12 @@ import org.sd.xml.DataProperties;
 /**
  * Utility for processing synsets found on lines.
  * <p>
+ * With a "numThreads" property greater than 1 and a ParallelSynsetLineHandler,
+ * lines are read in batches (of "batchSize" lines) and parsed on worker
+ * threads, each with its own WordNetParser and its own handler obtained
+ * through newWorkerHandler. Worker handlers are merged into the original
+ * handler after all lines have been processed.
+ * <p>
  * @author Spencer Koehler
  */
 public class SynsetLineProcessor extends SynsetProcessor {
@@ -50,25 +58,58 @@ public class SynsetLineProcessor extends SynsetProcessor {
     public void endLine(String line, boolean fromParse);
   }
 
+  /**
+   * A handler whose work can be divided among threads.
+   */
+  public interface ParallelSynsetLineHandler extends SynsetLineHandler {
+    /**
+     * Create a handler for a worker thread, which accumulates separately
+     * from this handler.
+     */
+    public ParallelSynsetLineHandler newWorkerHandler();
+
+    /**
+     * Set the stream to receive this handler's per-line output.
+     */
+    public void setOutput(PrintStream out);
+
+    /**
+     * Incorporate a worker handler's accumulations into this handler.
+     */
+    public void merge(ParallelSynsetLineHandler workerHandler);
+
+    /**
+     * Determine whether per-line output must appear in input order.
+     */
+    public boolean preservesOrder();
+  }
+
   public static final int DEFAULT_TIME_LIMIT = 1000;
   public static final int DEFAULT_DIE_WAIT = 1;
+  public static final int DEFAULT_NUM_THREADS = 1;
+  public static final int DEFAULT_BATCH_SIZE = 100;
 
 
   private SynsetLineHandler synsetLineHandler;
-  private LexDictionary lexDictionary;
-  private SimpleWordLookupStrategy strategy;
+  private DataProperties dataProperties;
   private long timeLimit;
   private long dieWait;
+  private int numThreads;
+  private int batchSize;
 
   private WordNetParser parser;
   private ExecutorService threadPool;
+  private List<LineWorker> workers;
 
   public SynsetLineProcessor(SynsetLineHandler synsetLineHandler, DataProperties dataProperties) throws IOException {
     super(dataProperties);
     this.synsetLineHandler = synsetLineHandler;
+    this.dataProperties = dataProperties;
 
     this.timeLimit = dataProperties.getInt("timeLimit", DEFAULT_TIME_LIMIT);
     this.dieWait = dataProperties.getInt("dieWait", DEFAULT_DIE_WAIT);
+    this.numThreads = dataProperties.getInt("numThreads", DEFAULT_NUM_THREADS);
+    this.batchSize = dataProperties.getInt("batchSize", DEFAULT_BATCH_SIZE);
 
     this.parser = new WordNetParser(dataProperties);
     this.threadPool = ThreadPoolUtil.createThreadPool("SynsetLineProcessorParser-", 1);
@@ -81,9 +122,12 @@ public class SynsetLineProcessor extends SynsetProcessor {
 
   @Override
   public void process(String[] args) throws IOException {
+    final BatchPipeline<String> pipeline = buildPipeline();
+
     if (args != null && args.length > 0) {
       for (String arg : args) {
-        process(arg);
+        if (pipeline == null) process(arg);
+        else pipeline.add(arg);
       }
     }
     else {
@@ -93,24 +137,70 @@ public class SynsetLineProcessor extends SynsetProcessor {
       while ((line = in.readLine()) != null) {
         line = line.trim();
         if ("".equals(line)) continue;
-        process(line);
+        if (pipeline == null) process(line);
+        else pipeline.add(line);
       }
       in.close();
     }
+
+    if (pipeline != null) {
+      finish(pipeline);
+    }
   }
 
   public void process(String line) {
-    synsetLineHandler.startLine(line);
+    process(line, synsetLineHandler, parser, threadPool);
+  }
+
+  private final void process(String line, SynsetLineHandler handler, WordNetParser parser, ExecutorService threadPool) {
+    handler.startLine(line);
 
     boolean fromParse = false;
-    if (!parseLine(line)) {
-      tokenizeLine(line);
+    if (!parseLine(line, handler, parser, threadPool)) {
+      tokenizeLine(line, handler);
     }
     else {
       fromParse = true;
     }
 
-    synsetLineHandler.endLine(line, fromParse);
+    handler.endLine(line, fromParse);
+  }
+
+  /**
+   * Build the pipeline for processing lines in parallel, or null to
+   * process lines on the calling thread.
+   */
+  private final BatchPipeline<String> buildPipeline() throws IOException {
+    if (numThreads <= 1 || !(synsetLineHandler instanceof ParallelSynsetLineHandler)) {
+      return null;
+    }
+
+    final ParallelSynsetLineHandler handler = (ParallelSynsetLineHandler)synsetLineHandler;
+    this.workers = new ArrayList<LineWorker>();
+    for (int i = 0; i < numThreads; ++i) {
+      // the first worker reuses this instance's parser
+      workers.add(i == 0 ?
+                  new LineWorker(handler.newWorkerHandler(), parser, threadPool) :
+                  new LineWorker(handler.newWorkerHandler(), new WordNetParser(dataProperties),
+                                 ThreadPoolUtil.createThreadPool("SynsetLineProcessorParser" + i + "-", 1)));
+    }
+
+    return new BatchPipeline<String>("SynsetLineProcessorWorker-", workers, batchSize, handler.preservesOrder(), System.out);
+  }
+
+  private final void finish(BatchPipeline<String> pipeline) {
+    try {
+      pipeline.finish();
+    }
+    finally {
+      final ParallelSynsetLineHandler handler = (ParallelSynsetLineHandler)synsetLineHandler;
+      for (int i = 0; i < workers.size(); ++i) {
+        final LineWorker worker = workers.get(i);
+        handler.merge(worker.handler);
+        if (i > 0) worker.close();
+      }
+      this.workers = null;
+    }
   }
 
   protected boolean shouldProcessSynsets(Collection<String> synsetNames) {
@@ -130,7 +220,7 @@ public class SynsetLineProcessor extends SynsetProcessor {
     return result;
   }
 
-  private final boolean parseLine(String line) {
+  private final boolean parseLine(String line, SynsetLineHandler handler, WordNetParser parser, ExecutorService threadPool) {
     boolean result = false;
 
     final GenericParseResultsAsync parseResultsAsync = parser.parseInputAsync(threadPool, line);
@@ -142,7 +232,7 @@ public class SynsetLineProcessor extends SynsetProcessor {
         for (WordNetParser.TokenData tokenData : tokenDatas) {
           if (tokenData.selectedSynsetNames != null && tokenData.selectedSynsetNames.size() > 0) {
             if (shouldProcessSynsets(tokenData.selectedSynsetNames)) {
-              synsetLineHandler.processSynsets(lexDictionary, tokenData.selectedSynsetNames, atnParse, tokenData.tokenNode);
+              handler.processSynsets(lexDictionary, tokenData.selectedSynsetNames, atnParse, tokenData.tokenNode);
               result = true;
             }
           }
@@ -153,18 +243,47 @@ public class SynsetLineProcessor extends SynsetProcessor {
     return result;
   }
 
-  private final boolean tokenizeLine(String line) {
+  private final boolean tokenizeLine(String line, SynsetLineHandler handler) {
     boolean result = false;
     final WordNetTokenizer tokenizer = new WordNetTokenizer(lexDictionary, strategy, TransformUtil.applyTransformations(line));
     for (Token token = tokenizer.getToken(0); token != null; token = token.getNextToken()) {
       final List<String> tokenSynsetNames = WordNetParser.getTokenSynsetNames(token);
       if (tokenSynsetNames != null) {
         if (shouldProcessSynsets(tokenSynsetNames)) {
-          synsetLineHandler.processSynsets(lexDictionary, tokenSynsetNames, null, null);
+          handler.processSynsets(lexDictionary, tokenSynsetNames, null, null);
           result = true;
         }
       }
     }
     return result;
   }
+
+
+  /**
+   * A worker's parser and handler, used by one thread at a time.
+   */
+  private final class LineWorker implements BatchPipeline.BatchWorker<String> {
+
+    final ParallelSynsetLineHandler handler;
+    private WordNetParser parser;
+    private ExecutorService threadPool;
+
+    LineWorker(ParallelSynsetLineHandler handler, WordNetParser parser, ExecutorService threadPool) {
+      this.handler = handler;
+      this.parser = parser;
+      this.threadPool = threadPool;
+    }
+
+    public void process(List<String> lines, PrintStream out) {
+      handler.setOutput(out);
+      for (String line : lines) {
+        SynsetLineProcessor.this.process(line, handler, parser, threadPool);
+      }
+    }
+
+    void close() {
+      ThreadPoolUtil.shutdownGracefully(threadPool, 1L);
+      parser.close();
+    }
+  }
 }
@@ -18,6 +18,7 @@ package org.sd.wordnet.senti;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.PrintStream;
 import java.util.Collection;
 import java.util.HashSet;
 import java.util.List;
@@ -35,7 +36,7 @@ import org.sd.xml.DataProperties;
  * <p>
  * @author Spencer Koehler
  */
-public class TopicGenerator implements SynsetLineProcessor.SynsetLineHandler {
+public class TopicGenerator implements SynsetLineProcessor.ParallelSynsetLineHandler {
   
   private Histogram<String> nounHistogram;
   private Histogram<String> verbHistogram;
@@ -43,6 +44,7 @@ public class TopicGenerator implements SynsetLineProcessor.SynsetLineHandler {
   private Histogram<String> advHistogram;
 
   private final Set<String> synsetNames = new HashSet<String>();
+  private PrintStream out = System.out;
 
   protected TopicGenerator(File nounfile, File verbfile, File adjfile, File advfile) throws IOException {
     this.nounHistogram = HistogramUtil.loadHistogram(nounfile);
@@ -51,6 +53,34 @@ public class TopicGenerator implements SynsetLineProcessor.SynsetLineHandler {
     this.advHistogram = HistogramUtil.loadHistogram(advfile);
   }
 
+  // worker instance sharing the (read-only) histograms
+  private TopicGenerator(TopicGenerator other) {
+    this.nounHistogram = other.nounHistogram;
+    this.verbHistogram = other.verbHistogram;
+    this.adjHistogram = other.adjHistogram;
+    this.advHistogram = other.advHistogram;
+  }
+
+  @Override
+  public SynsetLineProcessor.ParallelSynsetLineHandler newWorkerHandler() {
+    return new TopicGenerator(this);
+  }
+
+  @Override
+  public void setOutput(PrintStream out) {
+    this.out = out;
+  }
+
+  @Override
+  public void merge(SynsetLineProcessor.ParallelSynsetLineHandler workerHandler) {
+    //no-op: output is per line
+  }
+
+  @Override
+  public boolean preservesOrder() {
+    return true;
+  }
+
   @Override
   public void startLine(String line) {
     this.synsetNames.clear();
@@ -67,7 +97,7 @@ public class TopicGenerator implements SynsetLineProcessor.SynsetLineHandler {
     final String topVerbSynsets = getTopSynsets(verbHistogram, synsetNames);
     final String topAdjSynsets = getTopSynsets(adjHistogram, synsetNames);
     final String topAdvSynsets = getTopSynsets(advHistogram, synsetNames);
-    System.out.println(String.format("%s\t%s\t%s\t%s\t%s\t%s", line, topNounSynsets, topVerbSynsets, topAdjSynsets, topAdvSynsets, fromParse ? "PARSE" : "TOKENS"));
+    out.println(String.format("%s\t%s\t%s\t%s\t%s\t%s", line, topNounSynsets, topVerbSynsets, topAdjSynsets, topAdvSynsets, fromParse ? "PARSE" : "TOKENS"));
   }
 
   private final String getTopSynsets(Histogram<String> histogram, Set<String> synsetNames) {
@@ -117,6 +147,8 @@ public class TopicGenerator implements SynsetLineProcessor.SynsetLineHandler {
     //    verbfile -- file for writing verb synset histogram
     //    adjfile -- file for writing adj synset histogram
     //    advfile -- file for writing adv synset histogram
+    //    numThreads -- (optional, default 1) number of lines to process in parallel
+    //    batchSize -- (optional, default 100) number of lines per worker batch
 
     final ConfigUtil configUtil = new ConfigUtil(args);
     final DataProperties dataProperties = configUtil.getDataProperties();
@@ -23,6 +23,7 @@ import java.io.File;
 import java.io.IOException;
 import java.util.LinkedList;
 import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
 import org.sd.io.FileUtil;
 import org.sd.util.PropertiesParser;
 
@@ -38,6 +39,10 @@ public class DataProperties extends BaseDataProperties {
   private Properties properties;
   private String[] remainingArgs;
 
+  // dom (xpath) lookup results by key, with NO_DOM_VALUE for misses
+  private static final String NO_DOM_VALUE = new String("");
+  private final ConcurrentHashMap<String, String> domValues = new ConcurrentHashMap<String, String>();
+
   /**
    * Construct containing only environment variables.
    */
@@ -161,6 +166,19 @@ public class DataProperties extends BaseDataProperties {
   private final void doAddDataProperties(DomDataProperties ddp) {
     domDataProperties.addFirst(ddp);
     ddp.getDomElement().setDataProperties(this);
+    clearDomCache();
+  }
+
+  /**
+   * Drop cached dom (xpath) lookups so that they'll be looked up again.
+   * <p>
+   * The cache is cleared when dom elements are added through this
+   * instance; call this after changing its DomElements directly.
+   * Properties are always consulted live (and take precedence over dom
+   * values), so they need no invalidation.
+   */
+  public void clearDomCache() {
+    domValues.clear();
   }
 
   public boolean isEmpty() {
@@ -395,17 +413,29 @@ public class DataProperties extends BaseDataProperties {
 
     String result = properties.getProperty(key);
 
-    if (result == null) {
-      for (DomDataProperties ddp : domDataProperties) {
-        result = ddp.getValueString(key);
-        if (result != null) {
-          // cache the result for faster access next time
-          //set(key, result);
-          break;
-        }
+    if (result == null && domDataProperties.size() > 0) {
+      // cache dom (xpath) lookups for faster access next time
+      result = domValues.get(key);
+      if (result == null) {
+        result = getDomValueString(key);
+        domValues.put(key, result == null ? NO_DOM_VALUE : result);
+      }
+      else if (result == NO_DOM_VALUE) {
+        result = null;
       }
     }
 
     return result;
   }
+
+  private final String getDomValueString(String key) {
+    String result = null;
+
+    for (DomDataProperties ddp : domDataProperties) {
+      result = ddp.getValueString(key);
+      if (result != null) break;
+    }
+
+    return result;
+  }
 }
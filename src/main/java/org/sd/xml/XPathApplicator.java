@@ -23,12 +23,12 @@ import org.sd.util.tree.Tree;
 
 import java.io.File;
 import java.io.IOException;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
- * Utility class to cache and apply xpaths.
+ * Utility class to cache (thread-safely) and apply xpaths.
  * <p>
  * @author Spence Koehler
  */
@@ -37,7 +37,7 @@ public class XPathApplicator {
   private Map<String, XPath> pattern2xpath;
 
   public XPathApplicator() {
-    this.pattern2xpath = new HashMap<String, XPath>();
+    this.pattern2xpath = new ConcurrentHashMap<String, XPath>();
   }
 
   /**
@@ -238,6 +238,24 @@ public class XmlLite {
     return result;
   }
 
+  public static Tree<XmlLite.Data> createCommentNode(String text) {
+    final Tree<XmlLite.Data> result = new Tree<XmlLite.Data>(new XmlLite.Comment(text));
+    result.getData().setContainer(result);
+    return result;
+  }
+
+  public static Tree<XmlLite.Data> createScriptNode(String text) {
+    final Tree<XmlLite.Data> result = new Tree<XmlLite.Data>(new XmlLite.Script(text));
+    result.getData().setContainer(result);
+    return result;
+  }
+
+  public static Tree<XmlLite.Data> createStyleNode(String text) {
+    final Tree<XmlLite.Data> result = new Tree<XmlLite.Data>(new XmlLite.Style(text));
+    result.getData().setContainer(result);
+    return result;
+  }
+
   public static Set<String> buildTagSet(String[] tags) {
     final Set<String> result = new HashSet<String>();
     for (String tag : tags) result.add(tag);
@@ -0,0 +1,296 @@
+/*
+    Copyright 2011 Semantic Discovery, Inc. (www.semanticdiscovery.com)
+
+    This file is part of the Semantic Discovery Toolkit.
+
+    The Semantic Discovery Toolkit is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    The Semantic Discovery Toolkit is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with The Semantic Discovery Toolkit.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package org.sd.atn;
+
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import org.sd.xml.DataProperties;
+import org.sd.xml.XmlFactory;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+/**
+ * JUnit Tests for the AtnParseRunner class.
+ * <p>
+ * @author Spence Koehler
+ */
+public class TestAtnParseRunner extends TestCase {
+
+  private static final String PARSE_CONFIG =
+    "<parseConfig>" +
+    "  <compoundParser><id>dates</id>" +
+    "    <parser><id>d</id><grammar><rules><D start='true'><M/><N/></D></rules></grammar>" +
+    "      <parseSelector><jclass>org.sd.atn.LongestParseSelector</jclass></parseSelector></parser>" +
+    "  </compoundParser>" +
+    "  <compoundParser><id>names</id><flowIndependent>true</flowIndependent>" +
+    "    <parser><id>p</id><grammar><rules><P start='true'><F/><L/></P></rules></grammar>" +
+    "      <parseSelector><jclass>org.sd.atn.LongestParseSelector</jclass></parseSelector></parser>" +
+    "  </compoundParser>" +
+    "  <compoundParser><id>events</id>" +
+    "    <parser><id>e</id><grammar><rules><E start='true'><P/><D/></E></rules></grammar>" +
+    "      <parseSelector><jclass>org.sd.atn.LongestParseSelector</jclass></parseSelector></parser>" +
+    "  </compoundParser>" +
+    "</parseConfig>";
+
+  private static final String SEGMENT_CONFIG =
+    "<parseConfig>" +
+    "  <compoundParser><id>pairs</id>" +
+    "    <parser><id>ab</id><grammar><rules><X start='true'><A/><B/></X><X start='true'><B/><C/></X></rules></grammar>" +
+    "      <parseSelector><jclass>org.sd.atn.LongestParseSelector</jclass></parseSelector>" +
+    "      <parseOptions><segmentThreads>SEGMENT_THREADS</segmentThreads></parseOptions></parser>" +
+    "  </compoundParser>" +
+    "</parseConfig>";
+
+
+  private static final String BREAKS_CONFIG =
+    "<parseConfig>" +
+    "  <compoundParser><id>first</id>" +
+    "    <parser><id>q</id><grammar><classifiers><bx><jclass>org.sd.atn.RoteListClassifier</jclass><terms><term>B</term></terms></bx></classifiers><rules><Q start='true'><A/><bx/></Q></rules></grammar>" +
+    "      <parseSelector><jclass>org.sd.atn.LongestParseSelector</jclass></parseSelector></parser>" +
+    "  </compoundParser>" +
+    "  <compoundParser><id>second</id>INDEPENDENT" +
+    "    <parser><id>r</id><grammar><rules><R start='true'><B/><C/></R></rules></grammar>" +
+    "      <parseSelector><jclass>org.sd.atn.LongestParseSelector</jclass></parseSelector></parser>" +
+    "  </compoundParser>" +
+    "</parseConfig>";
+
+
+  public TestAtnParseRunner(String name) {
+    super(name);
+  }
+  
+
+  private final AtnParseRunner buildRunner(int flowThreads) throws IOException {
+    return buildRunner(PARSE_CONFIG, flowThreads);
+  }
+
+  private final AtnParseRunner buildRunner(String parseConfig, int flowThreads) throws IOException {
+    final File configFile = File.createTempFile("TestAtnParseRunner", ".xml");
+    configFile.deleteOnExit();
+    final FileWriter writer = new FileWriter(configFile);
+    writer.write(parseConfig);
+    writer.close();
+
+    final DataProperties options = new DataProperties();
+    options.set("parseConfig", configFile.getAbsolutePath());
+    options.set("flowThreads", Integer.toString(flowThreads));
+
+    return new AtnParseRunner(options);
+  }
+
+  private final List<String> getParseTrees(ParseOutputCollector output) {
+    final List<String> result = new ArrayList<String>();
+
+    if (output.getParseResults() != null) {
+      for (AtnParseResult parseResult : output.getParseResults()) {
+        for (int parseNum = 0; parseNum < parseResult.getNumParses(); ++parseNum) {
+          final AtnParse parse = parseResult.getParse(parseNum);
+          if (parse.getSelected()) {
+            result.add(parseResult.getCompoundParserId() + ":" + parse.getParseTree().toString());
+          }
+        }
+      }
+    }
+
+    return result;
+  }
+
+  public void testFlowGraph() throws IOException {
+    final AtnParseRunner runner = buildRunner(1);
+    final ParserFlowGraph flowGraph = new ParserFlowGraph(runner.getParseConfig(), runner.getActiveFlow());
+
+    assertEquals(2, flowGraph.getWaves().size());
+    assertEquals(0, flowGraph.getLevel(0));
+    assertEquals(0, flowGraph.getLevel(1));
+    assertEquals(1, flowGraph.getLevel(2));
+    assertFalse(flowGraph.dependsOn(1, 0));
+    assertTrue(flowGraph.dependsOn(2, 0));
+    assertTrue(flowGraph.dependsOn(2, 1));
+
+    runner.close();
+  }
+
+  public void testConcurrentFlows() throws IOException {
+    final AtnParseRunner sequentialRunner = buildRunner(1);
+    final AtnParseRunner concurrentRunner = buildRunner(2);
+
+    final String[] inputs = new String[] {
+      "F L M N",
+      "M N, F L",
+      "X Y Z",
+    };
+
+    for (String input : inputs) {
+      final List<String> expected = getParseTrees(sequentialRunner.parseInputString(input, null, null));
+      final List<String> got = getParseTrees(concurrentRunner.parseInputString(input, null, null));
+      assertEquals(input, expected, got);
+    }
+
+    final List<String> trees = getParseTrees(concurrentRunner.parseInputString("F L M N", null, null));
+    assertEquals(3, trees.size());
+    assertEquals("events:(E (P F L) (D M N))", trees.get(2));
+
+    sequentialRunner.close();
+    concurrentRunner.close();
+  }
+
+
+  public void testEarlierFlowBreaksLaterFlow() throws IOException {
+    // "first" and "second" share no categories, but first's parse over
+    // "A B" changes the tokens second sees, so second stays ordered after it.
+    final AtnParseRunner sequentialRunner = buildRunner(BREAKS_CONFIG.replace("INDEPENDENT", ""), 1);
+    final AtnParseRunner concurrentRunner = buildRunner(BREAKS_CONFIG.replace("INDEPENDENT", ""), 2);
+
+    final ParserFlowGraph flowGraph = new ParserFlowGraph(concurrentRunner.getParseConfig(), concurrentRunner.getActiveFlow());
+    assertEquals(2, flowGraph.getWaves().size());
+    assertTrue(flowGraph.dependsOn(1, 0));
+
+    final String[] inputs = new String[] {
+      "A B C",
+      "X B C",
+      "A B B C",
+    };
+
+    for (String input : inputs) {
+      final List<String> expected = getParseTrees(sequentialRunner.parseInputString(input, null, null));
+      final List<String> got = getParseTrees(concurrentRunner.parseInputString(input, null, null));
+      assertEquals(input, expected, got);
+    }
+
+    final List<String> trees = getParseTrees(concurrentRunner.parseInputString("A B C", null, null));
+    assertEquals(1, trees.size());
+    assertEquals("first:(Q A (bx B))", trees.get(0));
+
+    // declaring second independent lets it run alongside first, unaffected by first's parses
+    final AtnParseRunner independentRunner = buildRunner(BREAKS_CONFIG.replace("INDEPENDENT", "<flowIndependent>true</flowIndependent>"), 2);
+    final ParserFlowGraph independentGraph = new ParserFlowGraph(independentRunner.getParseConfig(), independentRunner.getActiveFlow());
+    assertEquals(1, independentGraph.getWaves().size());
+    assertFalse(independentGraph.dependsOn(1, 0));
+
+    final List<String> independentTrees = getParseTrees(independentRunner.parseInputString("A B C", null, null));
+    assertEquals(2, independentTrees.size());
+    assertTrue(independentTrees.contains("second:(R B C)"));
+
+    sequentialRunner.close();
+    concurrentRunner.close();
+    independentRunner.close();
+  }
+
+  public void testSegmentThreads() throws IOException {
+    final AtnParseRunner sequentialRunner = buildRunner(SEGMENT_CONFIG.replace("SEGMENT_THREADS", "0"), 1);
+    final AtnParseRunner concurrentRunner = buildRunner(SEGMENT_CONFIG.replace("SEGMENT_THREADS", "3"), 1);
+
+    final StringBuilder input = new StringBuilder();
+    for (int i = 0; i < 40; ++i) {
+      if (input.length() > 0) input.append(" - ");
+      input.append((i % 4 == 0) ? "A - B" : (i % 4 == 1) ? "A B A B" : (i % 4 == 2) ? "B A B" : "A - B C");
+    }
+
+    final ParseOutputCollector expectedOutput = sequentialRunner.parseInputString(input.toString(), null, null);
+    final ParseOutputCollector output = concurrentRunner.parseInputString(input.toString(), null, null);
+
+    final List<String> expected = getParseTrees(expectedOutput);
+    assertEquals(50, expected.size());
+    assertEquals(expected, getParseTrees(output));
+
+    for (int i = 0; i < expected.size(); ++i) {
+      final AtnParse expectedParse = expectedOutput.getParseResults().get(i).getParse(0);
+      final AtnParse parse = output.getParseResults().get(i).getParse(0);
+      assertEquals(expectedParse.getStartIndex(), parse.getStartIndex());
+      assertEquals(expectedParse.getEndIndex(), parse.getEndIndex());
+    }
+
+    sequentialRunner.close();
+    concurrentRunner.close();
+  }
+
+
+  public void testProfileAggregatesFlows() throws IOException {
+    final AtnParseRunner runner = buildRunner(2);
+    runner.setProfiling(true);
+    final AtnParseProfile profile = runner.getProfile();
+    assertNotNull(profile);
+
+    runner.parseInputString("F L M N", null, null);
+
+    final String[][] parsers = new String[][] { {"dates", "d", "D"}, {"names", "p", "P"}, {"events", "e", "E"} };
+    for (String[] parser : parsers) {
+      final AtnGrammar grammar = runner.getParseConfig().getCompoundParser(parser[0]).getParserWrapper(parser[1]).getGrammar();
+      final AtnParseProfile.Counts counts = profile.getRuleCounts(grammar.getCat2Rules().get(parser[2]).get(0));
+      assertNotNull(parser[0], counts);
+      assertTrue(parser[0], counts.getMatches() > 0);
+    }
+
+    runner.setProfiling(false);
+    assertNull(runner.getProfile());
+    assertNull(runner.getParseOptions("dates", "d").getProfile());
+
+    runner.close();
+  }
+
+  public void testGenericParserResultCache() throws IOException {
+    final AtnParseRunner runner = buildRunner(1);
+    final DataProperties options = new DataProperties(runner.getOptions());
+    options.set("resultCacheSize", "10");
+    final GenericParser parser = new GenericParser(options);
+    final GenericParseCache cache = parser.getResultCache();
+    assertNotNull(cache);
+
+    final GenericParseResults results = parser.parse("F L M N", null, null);
+    assertSame(results, parser.parse("F L M N", null, null));
+    assertEquals(1, cache.getHits());
+    assertEquals(1, cache.getMisses());
+
+    // whitespace variants are their own inputs
+    final GenericParseResults spacedResults = parser.parse(" F  L M N ", null, null);
+    assertNotSame(results, spacedResults);
+    assertEquals(2, cache.getMisses());
+    assertEquals("F L M N", results.getParseOutput().getParseSourceInfo().getInputString());
+    assertEquals(" F  L M N ", spacedResults.getParseOutput().getParseSourceInfo().getInputString());
+
+    // supplementing the config invalidates cached results
+    parser.getParseRunner().getParseConfig().supplement(XmlFactory.loadDocument("<supplement/>", false).getDocumentDomElement());
+    assertNotSame(results, parser.parse("F L M N", null, null));
+
+    // as does changing start rules
+    parser.parse("F L M N", null, null);
+    assertEquals(2, cache.getHits());
+    parser.unsetStartRules();
+    assertEquals(0, cache.size());
+
+    parser.close();
+    runner.close();
+  }
+
+
+  public static Test suite() {
+    TestSuite suite = new TestSuite(TestAtnParseRunner.class);
+    return suite;
+  }
+
+  public static void main(String[] args) {
+    junit.textui.TestRunner.run(suite());
+  }
+}
@@ -229,6 +229,98 @@ public class TestAtnParser extends TestCase {
     runParseTest("ParserTest.7a", xyzParser1, tokenizer7a, null, new String[] { "(X (Y A B C) (Y B C))", "(X (Y A B C) (Z B C))" });
   }
 
+  public void testBeamWidth() throws IOException {
+    // X <- Y+ Z?
+    // Y <- A? B C
+    // Z <- B C
+    final AtnParser xyzParser = AtnParseTest.buildParser("<grammar><rules><X start='true'><Y repeats='true'/><Z optional='true'/></X><Y><A optional='true'/><B/><C/></Y><Z><B/><C/></Z></rules></grammar>", false);
+
+    // a wide beam finds the same full parses as exhaustive parsing, but the
+    // default scorer's repeat penalty finds the non-repeating parse first
+    runParseTest("BeamTest.1", xyzParser,
+                 AtnParseTest.buildTokenizer("<tokenizer><revisionStrategy>SO</revisionStrategy></tokenizer>", "A B C B C"),
+                 "<parseOptions><consumeAllText>true</consumeAllText><beamWidth>100</beamWidth></parseOptions>",
+                 new String[] { "(X (Y A B C) (Z B C))", "(X (Y A B C) (Y B C))" }, true);
+
+    // a narrow beam prunes states
+    final AtnParseOptions options = AtnParseTest.buildParseOptions("<parseOptions><consumeAllText>true</consumeAllText><beamWidth>1</beamWidth></parseOptions>");
+    assertEquals(1, options.getBeamWidth());
+    final AtnParseResult parseResult = xyzParser.parse(AtnParseTest.buildTokenizer("<tokenizer><revisionStrategy>SO</revisionStrategy></tokenizer>", "A B C B C"), options, null, null, null);
+    parseResult.generateParses(0);
+
+    final AtnBeam beam = parseResult.getBeam();
+    assertNotNull(beam);
+    assertTrue(beam.getNumPruned() > 0);
+    assertTrue(parseResult.isComplete());
+    assertTrue(parseResult.getNumParses() > 0);
+    assertEquals("(X (Y A B C) (Z B C))", parseResult.getParse(0).getParseTree().toString());
+  }
+
+  public void testHardBreakSegments() throws IOException {
+    // X <- A B
+    final AtnParser parser = AtnParseTest.buildParser("<grammar><rules><X start='true'><A/><B/></X></rules></grammar>", false);
+    final AtnParseOptions options = AtnParseTest.buildParseOptions("<parseOptions/>");
+    final String text = "A B - A - B A B";
+
+    StandardTokenizer tokenizer = AtnParseTest.buildTokenizer("<tokenizer><revisionStrategy>SO</revisionStrategy></tokenizer>", text);
+    final List<Integer> segmentStarts = AtnParser.findHardBreakSegments(tokenizer);
+    assertEquals(3, segmentStarts.size());
+    assertEquals(0, segmentStarts.get(0).intValue());
+    assertEquals(6, segmentStarts.get(1).intValue());
+    assertEquals(10, segmentStarts.get(2).intValue());
+
+    // unsegmented seeking parses across the hard break
+    List<AtnParseResult> parseResults = parser.seekAll(tokenizer, options, null, null, null);
+    assertEquals(3, parseResults.size());
+    assertEquals("A - B", parseResults.get(1).getParse(0).getParsedText());
+
+    // parses start within a segment but may continue beyond it
+    tokenizer = AtnParseTest.buildTokenizer("<tokenizer><revisionStrategy>SO</revisionStrategy></tokenizer>", text);
+    parseResults = new ArrayList<AtnParseResult>();
+    for (int segmentNum = 0; segmentNum < segmentStarts.size(); ++segmentNum) {
+      final int endIndex = (segmentNum + 1 < segmentStarts.size()) ? segmentStarts.get(segmentNum + 1) : -1;
+      parseResults.addAll(parser.seekAll(tokenizer, segmentStarts.get(segmentNum), endIndex, options, null, null, null));
+    }
+    assertEquals(3, parseResults.size());
+    assertEquals(0, parseResults.get(0).getParse(0).getStartIndex());
+    assertEquals("A - B", parseResults.get(1).getParse(0).getParsedText());
+    assertEquals(12, parseResults.get(2).getParse(0).getStartIndex());
+    assertEquals("A B", parseResults.get(2).getParse(0).getParsedText());
+
+    // seeking continues after a parse that crosses into the next segment
+    tokenizer = AtnParseTest.buildTokenizer("<tokenizer><revisionStrategy>SO</revisionStrategy></tokenizer>", text);
+    parseResults = new ArrayList<AtnParseResult>();
+    final AtnParse lastParse = parser.seekSegment(tokenizer, segmentStarts.get(1), segmentStarts.get(2), options, null, null, null, parseResults);
+    assertEquals("A - B", lastParse.getParsedText());
+    assertSame(lastParse, parser.seekAllAfter(lastParse, segmentStarts.get(2), options, null, null, null, parseResults));
+    assertNotSame(lastParse, parser.seekAllAfter(lastParse, -1, options, null, null, null, parseResults));
+    assertEquals(2, parseResults.size());
+    assertEquals(12, parseResults.get(1).getParse(0).getStartIndex());
+  }
+
+  public void testProfile() throws IOException {
+    // X <- A B C
+    final AtnParser parser = AtnParseTest.buildParser("<grammar><rules><X start='true'><A/><B/><C/></X></rules></grammar>", false);
+    final AtnGrammar grammar = parser.getGrammar();
+    final AtnParseProfile profile = new AtnParseProfile();
+    final AtnParseOptions parseOptions = AtnParseTest.buildParseOptions("<parseOptions><skipTokenLimit>2</skipTokenLimit></parseOptions>");
+    parseOptions.setProfile(profile);
+
+    new MyParseTest("ProfileTest.1", parser,
+                    AtnParseTest.buildTokenizer("<tokenizer><revisionStrategy>SO</revisionStrategy></tokenizer>", "A Z B C"),
+                    parseOptions, new String[] { "(X A (? Z) B C)" }, null, false, false).runTest();
+
+    final AtnRule rule = grammar.getCat2Rules().get("X").get(0);
+    final AtnParseProfile.Counts ruleCounts = profile.getRuleCounts(rule);
+    assertNotNull(ruleCounts);
+    assertEquals(3, ruleCounts.getMatches());
+    assertTrue(ruleCounts.getFailures() > 0);
+    assertTrue(ruleCounts.getSkips() > 0);
+    assertEquals(ruleCounts.getStates(), ruleCounts.getMatches() + ruleCounts.getFailures());
+    assertEquals(1, profile.getStepCounts(rule.getStep(2)).getPops());
+    assertTrue(profile.getReport().indexOf("X.C") >= 0);
+  }
+
   public void tetSkippingUnmatchableTokens() throws IOException {
     // Test skipping unmatchable tokens
     //
@@ -462,6 +554,42 @@ public class TestAtnParser extends TestCase {
                  });
   }
 
+  public void testCompiledGrammarTable() throws IOException {
+    // A <- B? C? B?(rC) D
+    final String rulesXml = "<rules><A start='true'><B optional='true'/><C optional='true'/><B require='C' optional='true'/><D/></A></rules>";
+    final AtnParser compiledParser = AtnParseTest.buildParser("<grammar>" + rulesXml + "</grammar>", false);
+    final AtnParser uncompiledParser = AtnParseTest.buildParser("<grammar compile='false'>" + rulesXml + "</grammar>", false);
+
+    final AtnGrammarTable table = compiledParser.getGrammar().getTable();
+    assertNotNull(table);
+    assertNull(uncompiledParser.getGrammar().getTable());
+
+    assertEquals(1, table.getNumRules());
+    assertEquals(4, table.getNumSteps());
+    assertTrue(table.isConstituent(table.getCategoryIdIfPresent("A")));
+    assertFalse(table.isConstituent(table.getCategoryIdIfPresent("B")));
+    assertEquals(-1, table.getCategoryIdIfPresent("E"));
+
+    final AtnRule rule = table.getRule(0);
+    final StepRequirement requirement = rule.getSteps().get(2).getRequire()[0];
+    assertEquals(table.getCategoryIdIfPresent("C"), requirement.getCategoryId());
+    assertEquals(table.getCategoryIdIfPresent("B"), rule.getSteps().get(2).getCategoryId());
+    assertSame(rule, table.getPushRules(table.getCategoryIdIfPresent("A")).get(0));
+    assertTrue(rule.isTerminal(3));
+    assertFalse(rule.isTerminal(0));
+
+    for (AtnParser parser : new AtnParser[] { compiledParser, uncompiledParser }) {
+      runParseTest("CompiledTest.1", parser,
+                   AtnParseTest.buildTokenizer("<tokenizer><revisionStrategy>SO</revisionStrategy></tokenizer>", "B B D"),
+                   "<parseOptions><skipTokenLimit>0</skipTokenLimit><consumeAllText>true</consumeAllText></parseOptions>",
+                   null);
+      runParseTest("CompiledTest.2", parser,
+                   AtnParseTest.buildTokenizer("<tokenizer><revisionStrategy>SO</revisionStrategy></tokenizer>", "B C B D"),
+                   "<parseOptions><skipTokenLimit>0</skipTokenLimit><consumeAllText>true</consumeAllText></parseOptions>",
+                   new String[] { "(A B C B D)" });
+    }
+  }
+
   public void testStepRequireDeep() throws IOException {
     // X <- Y B? C?(rB) D
     // Y <- A C?
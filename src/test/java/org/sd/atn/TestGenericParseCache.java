@@ -0,0 +1,87 @@
+/*
+    Copyright 2011 Semantic Discovery, Inc. (www.semanticdiscovery.com)
+
+    This file is part of the Semantic Discovery Toolkit.
+
+    The Semantic Discovery Toolkit is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    The Semantic Discovery Toolkit is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with The Semantic Discovery Toolkit.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package org.sd.atn;
+
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+/**
+ * JUnit Tests for the GenericParseCache class.
+ * <p>
+ * @author Spence Koehler
+ */
+public class TestGenericParseCache extends TestCase {
+
+  public TestGenericParseCache(String name) {
+    super(name);
+  }
+  
+
+  private final GenericParseResults buildResults() {
+    return new GenericParseResults(null, null, new GenericParseHelper());
+  }
+
+  public void testSizeEviction() {
+    final GenericParseCache cache = new GenericParseCache(2, 0L);
+    final GenericParseResults a = buildResults();
+    final GenericParseResults b = buildResults();
+    final GenericParseResults c = buildResults();
+
+    cache.put("a", a);
+    cache.put("b", b);
+    assertSame(a, cache.get("a"));  // 'b' is now least recently used
+    cache.put("c", c);
+
+    assertEquals(2, cache.size());
+    assertNull(cache.get("b"));
+    assertSame(a, cache.get("a"));
+    assertSame(c, cache.get("c"));
+
+    assertEquals(3, cache.getHits());
+    assertEquals(1, cache.getMisses());
+    assertEquals(1, cache.getEvictions());
+    assertTrue(cache.getEstimatedBytes() > 0);
+
+    cache.clear();
+    assertEquals(0, cache.size());
+    assertEquals(0, cache.getEstimatedBytes());
+  }
+
+  public void testExpiration() throws InterruptedException {
+    final GenericParseCache cache = new GenericParseCache(10, 5L);
+    cache.put("a", buildResults());
+    Thread.sleep(20L);
+
+    assertNull(cache.get("a"));
+    assertEquals(1, cache.getExpirations());
+    assertEquals(0, cache.size());
+  }
+
+
+  public static Test suite() {
+    TestSuite suite = new TestSuite(TestGenericParseCache.class);
+    return suite;
+  }
+
+  public static void main(String[] args) {
+    junit.textui.TestRunner.run(suite());
+  }
+}
@@ -0,0 +1,148 @@
+/*
+    Copyright 2010 Semantic Discovery, Inc. (www.semanticdiscovery.com)
+
+    This file is part of the Semantic Discovery Toolkit.
+
+    The Semantic Discovery Toolkit is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    The Semantic Discovery Toolkit is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with The Semantic Discovery Toolkit.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package org.sd.atn;
+
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Random;
+import java.util.regex.Matcher;
+import org.sd.xml.DomElement;
+import org.sd.xml.XmlFactory;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+/**
+ * JUnit Tests for the MultiRegex class.
+ * <p>
+ * @author Spence Koehler
+ */
+public class TestMultiRegex extends TestCase {
+
+  public TestMultiRegex(String name) {
+    super(name);
+  }
+  
+
+  private static final String[] COMPILED = new String[] {
+    "abc", "a|ab|abc", "(a|b)*c", "a+b?", "[0-9][0-9]", "([0-9]{2,3})-(\\d{4})", "x{3}", "x{2,}",
+    "[^a-c]+", "[a-c-]+", ".*foo.*", "\\w+\\s\\w+", "[\\W\\d]+", "(?:ab)+?c", "(?<num>\\d+)",
+    "[A-Z]\\.[A-Z]\\.", "colou?r", "\\$\\d+(\\.\\d\\d)?", "()", "a*", "[\\u00e9e]t\\x65", "^ab+",
+    "^([0-9][0-9])$",
+  };
+
+  private static final String[] UNCOMPILED = new String[] {
+    "^a|b", "a^b", "(a)\\1", "a(?=b)", "a*+b", "(?i)abc", "\\bword\\b", "[a-z&&[^aeiou]]", "\\p{L}+", "\\Qa.b\\E",
+  };
+
+  private static final String TEXT_CHARS = "abcxABC019 -.$_éfortuX\t";
+
+  private static final String escape(String text) {
+    return text.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;");
+  }
+
+  private final List<RegexData> loadRegexes(String type, boolean caseInsensitive) throws IOException {
+    final StringBuilder xml = new StringBuilder();
+    xml.append("<test><regexes>");
+    for (String[] regexes : new String[][] { COMPILED, UNCOMPILED }) {
+      for (String regex : regexes) {
+        xml.append("<regex type='").append(type).append("' caseInsensitive='").append(caseInsensitive).append("'>").
+          append(escape(regex)).append("</regex>");
+      }
+    }
+    xml.append("</regexes></test>");
+
+    final DomElement element = (DomElement)(XmlFactory.loadDocument(xml.toString(), false).getDocumentElement());
+    return RegexData.load((DomElement)element.selectSingleNode("regexes"));
+  }
+
+  public void testCompiledSubset() throws IOException {
+    final MultiRegex multiRegex = new MultiRegex(loadRegexes("matches", false));
+
+    assertEquals(COMPILED.length + UNCOMPILED.length, multiRegex.size());
+    assertEquals(COMPILED.length, multiRegex.getNumCompiled());
+    for (int i = 0; i < multiRegex.size(); ++i) {
+      assertEquals("regex " + i, i < COMPILED.length, multiRegex.isCompiled(i));
+    }
+  }
+
+  public void testAgainstPatterns() throws IOException {
+    final Random random = new Random(1234);
+
+    for (String type : new String[] { "matches", "lookingat", "find" }) {
+      for (boolean caseInsensitive : new boolean[] { false, true }) {
+        final List<RegexData> regexes = loadRegexes(type, caseInsensitive);
+        final MultiRegex multiRegex = new MultiRegex(regexes);
+
+        for (int trial = 0; trial < 500; ++trial) {
+          final String text = (trial < 40) ? SAMPLES[trial % SAMPLES.length] : randomText(random);
+          final MultiRegex.Scan scan = multiRegex.scan(text);
+          assertNotNull(text, scan);
+
+          for (int i = 0; i < COMPILED.length; ++i) {
+            if (!multiRegex.isCompiled(i)) continue;  // e.g., '$' when not "matches"
+
+            final Matcher m = regexes.get(i).getPattern().matcher(text);
+            final boolean expected = "find".equals(type) ? m.find() : "lookingat".equals(type) ? m.lookingAt() : m.matches();
+            final String label = type + "/" + caseInsensitive + " '" + COMPILED[i] + "' on '" + text + "'";
+
+            assertEquals(label, expected, scan.matched(i));
+
+            final boolean fully = m.matches();
+            final int matchedFully = scan.matchedFully(i);
+            if (matchedFully >= 0) assertEquals(label, fully, matchedFully == 1);
+            else assertTrue(label, expected);
+          }
+        }
+      }
+    }
+  }
+
+  public void testNotScanned() throws IOException {
+    final MultiRegex multiRegex = new MultiRegex(loadRegexes("matches", false));
+    assertNull(multiRegex.scan(""));
+    assertNull(multiRegex.scan("a\ud83d\ude00b"));
+  }
+
+  private static final String[] SAMPLES = new String[] {
+    "abc", "ABC", "ab", "aab", "ababc", "84", "555-1234", "5555-1234", "xxx", "xxxx", "def", "a-b-c",
+    "the food bar", "two words", "colour", "color", "$12.50", "$12.5", "A.B.", "éte", "ete",
+  };
+
+  private static final String randomText(Random random) {
+    final int len = 1 + random.nextInt(8);
+    final StringBuilder result = new StringBuilder();
+    for (int i = 0; i < len; ++i) {
+      result.append(TEXT_CHARS.charAt(random.nextInt(TEXT_CHARS.length())));
+    }
+    return result.toString();
+  }
+
+
+  public static Test suite() {
+    TestSuite suite = new TestSuite(TestMultiRegex.class);
+    return suite;
+  }
+
+  public static void main(String[] args) {
+    junit.textui.TestRunner.run(suite());
+  }
+}
@@ -0,0 +1,187 @@
+/*
+    Copyright 2011 Semantic Discovery, Inc. (www.semanticdiscovery.com)
+
+    This file is part of the Semantic Discovery Toolkit.
+
+    The Semantic Discovery Toolkit is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    The Semantic Discovery Toolkit is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with The Semantic Discovery Toolkit.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package org.sd.atn;
+
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+import org.sd.xml.DomElement;
+import org.sd.xml.DomNode;
+
+/**
+ * JUnit Tests for the ResourceManager class.
+ * <p>
+ * @author Spence Koehler
+ */
+public class TestResourceManager extends TestCase {
+
+  private static final String RESOURCES_XML =
+    "<resources>" +
+    "<resource name='c'><jclass>org.sd.atn.TestResourceManager$Thing</jclass><ref resource='b'/></resource>" +
+    "<resource name='b'><jclass>org.sd.atn.TestResourceManager$Thing</jclass><ref resource='a'/></resource>" +
+    "<resource name='a'><jclass>org.sd.atn.TestResourceManager$Thing</jclass></resource>" +
+    "<resource name='d'><jclass>org.sd.atn.TestResourceManager$Thing</jclass></resource>" +
+    "</resources>";
+
+  private static final AtomicInteger BUILD_COUNT = new AtomicInteger();
+
+  public TestResourceManager(String name) {
+    super(name);
+  }
+  
+
+  public void testSequentialLoad() throws IOException {
+    // resources declared later are built when first referenced
+    BUILD_COUNT.set(0);
+    final ResourceManager resourceManager = buildResourceManager("");
+    assertEquals(4, BUILD_COUNT.get());
+
+    final Thing c = (Thing)resourceManager.getResource("c");
+    final Thing b = (Thing)resourceManager.getResource("b");
+    assertSame(b, c.getRef());
+    assertSame(resourceManager.getResource("a"), b.getRef());
+    assertFalse(resourceManager.isDeferred("d"));
+  }
+
+  public void testParallelLoad() throws IOException {
+    BUILD_COUNT.set(0);
+    final ResourceManager resourceManager = buildResourceManager("<_loadThreads>4</_loadThreads>");
+    assertEquals(4, BUILD_COUNT.get());
+
+    final Thing c = (Thing)resourceManager.getResource("c");
+    final Thing b = (Thing)resourceManager.getResource("b");
+    final Thing a = (Thing)resourceManager.getResource("a");
+    assertSame(b, c.getRef());
+    assertSame(a, b.getRef());
+    assertNotNull(resourceManager.getResource("d"));
+    assertFalse(resourceManager.isDeferred("c"));
+  }
+
+  public void testLazyLoad() throws IOException {
+    BUILD_COUNT.set(0);
+    final ResourceManager resourceManager = buildResourceManager("<_lazyLoad>true</_lazyLoad>");
+    assertEquals(0, BUILD_COUNT.get());
+    assertTrue(resourceManager.isDeferred("c"));
+
+    final Thing c = (Thing)resourceManager.getResource("c");
+    assertEquals(3, BUILD_COUNT.get());
+    assertSame(resourceManager.getResource("b"), c.getRef());
+    assertTrue(resourceManager.isDeferred("d"));
+    assertFalse(resourceManager.isDeferred("a"));
+  }
+
+  public void testLastDefinitionWins() throws IOException {
+    final String xml =
+      "<resources>" +
+      "<resource name='x'><jclass>org.sd.atn.TestResourceManager$Thing</jclass></resource>" +
+      "<resource name='y'><jclass>org.sd.atn.TestResourceManager$Thing</jclass><ref resource='x'/></resource>" +
+      "<resource name='x'><jclass>org.sd.atn.TestResourceManager$Thing</jclass><ref resource='z'/></resource>" +
+      "<resource name='z'><jclass>org.sd.atn.TestResourceManager$Thing</jclass></resource>" +
+      "</resources>";
+
+    final String[] optionsXmls = new String[] { "", "<_loadThreads>4</_loadThreads>", "<_lazyLoad>true</_lazyLoad>" };
+    for (String optionsXml : optionsXmls) {
+      final ResourceManager resourceManager = new ResourceManager(AtnParseTest.stringToXml(xml.replace("<resources>", "<resources>" + optionsXml), false));
+
+      final Thing y = (Thing)resourceManager.getResource("y");
+      final Thing x = (Thing)resourceManager.getResource("x");
+      assertSame(optionsXml, x, y.getRef());
+      assertSame(optionsXml, resourceManager.getResource("z"), x.getRef());
+      assertFalse(optionsXml, resourceManager.isDeferred("x"));
+    }
+  }
+
+  public void testAddNullResource() throws IOException {
+    final ResourceManager resourceManager = buildResourceManager("");
+    resourceManager.addResource("e", null);
+    assertNull(resourceManager.getResource("e"));
+
+    resourceManager.addResource("d", null);
+    assertNull(resourceManager.getResource("d"));
+  }
+
+  public void testLookupWaitsForBuild() throws Exception {
+    final ResourceManager resourceManager = new ResourceManager(AtnParseTest.stringToXml(
+      "<resources><_lazyLoad>true</_lazyLoad>" +
+      "<resource name='slow'><jclass>org.sd.atn.TestResourceManager$SlowThing</jclass></resource>" +
+      "</resources>", false));
+
+    final Object[] results = new Object[4];
+    final Thread[] threads = new Thread[results.length];
+    for (int i = 0; i < threads.length; ++i) {
+      final int index = i;
+      threads[i] = new Thread() {
+          public void run() {
+            results[index] = resourceManager.getResource("slow");
+          }
+        };
+      threads[i].start();
+    }
+    for (Thread thread : threads) thread.join();
+
+    assertNotNull(results[0]);
+    for (Object result : results) assertSame(results[0], result);
+    assertEquals(1, SlowThing.BUILDS.get());
+  }
+
+  private final ResourceManager buildResourceManager(String optionsXml) throws IOException {
+    final String xml = RESOURCES_XML.replace("<resources>", "<resources>" + optionsXml);
+    return new ResourceManager(AtnParseTest.stringToXml(xml, false));
+  }
+
+
+  public static final class Thing {
+    private Object ref;
+
+    public Thing(DomNode domNode, ResourceManager resourceManager) {
+      final DomElement refElement = (DomElement)domNode.selectSingleNode("ref");
+      this.ref = (refElement == null) ? null : resourceManager.getResource(refElement.getAttributeValue("resource"));
+      BUILD_COUNT.incrementAndGet();
+    }
+
+    public Object getRef() {
+      return ref;
+    }
+  }
+
+
+  public static final class SlowThing {
+    static final AtomicInteger BUILDS = new AtomicInteger();
+
+    public SlowThing(DomNode domNode, ResourceManager resourceManager) throws InterruptedException {
+      BUILDS.incrementAndGet();
+      Thread.sleep(100);
+    }
+  }
+
+
+  public static Test suite() {
+    TestSuite suite = new TestSuite(TestResourceManager.class);
+    return suite;
+  }
+
+  public static void main(String[] args) {
+    junit.textui.TestRunner.run(suite());
+  }
+}
@@ -100,6 +100,124 @@ public class TestFileJoiner extends TestCase {
     if (outputFile.exists()) outputFile.delete();
   }
 
+  public void testSortMergeSubtracting() throws IOException {
+    final Properties properties = new Properties();
+
+    final File outputFile = new File("/tmp/TestFileJoiner/fileA-B.sortMerge.txt");
+    if (outputFile.exists()) outputFile.delete();
+
+    properties.setProperty("fileA", FileUtil.getFilename(this.getClass(), "resources/fileA.txt"));
+    properties.setProperty("fileB", FileUtil.getFilename(this.getClass(), "resources/fileB.txt"));
+    properties.setProperty("outputCols", "A.0/B.0");
+    properties.setProperty("joinColA", "0");
+    properties.setProperty("joinColB", "0");
+    properties.setProperty("keepAllA", "true");
+    properties.setProperty("keepAllB", "false");
+    properties.setProperty("subtract", "true");
+    properties.setProperty("outputFile", outputFile.getAbsolutePath());
+    properties.setProperty("verbose", "false");
+    properties.setProperty("joinStrategy", "sortMerge");
+    properties.setProperty("memoryBudget", "512");  // force spills
+    properties.setProperty("tmpDir", "/tmp/TestFileJoiner/spill");
+
+    final FileJoiner fileJoiner = new FileJoiner(properties);
+    assertEquals(FileJoiner.JoinStrategy.SORT_MERGE, fileJoiner.chooseJoinStrategy());
+    fileJoiner.doJoin();
+
+    // verify the output: all letters of the alphabet without vowels.
+    verifyConsonants(outputFile);
+
+    // verify spill files were cleaned up
+    assertEquals(0, new File("/tmp/TestFileJoiner/spill").listFiles().length);
+
+    if (outputFile.exists()) outputFile.delete();
+  }
+
+  public void testSortMergeFiltering() throws IOException {
+    final Properties properties = new Properties();
+
+    final File outputFile = new File("/tmp/TestFileJoiner/fileA.filtered.sortMerge.txt");
+    if (outputFile.exists()) outputFile.delete();
+
+    properties.setProperty("fileA", FileUtil.getFilename(this.getClass(), "resources/fileA.txt"));
+    properties.setProperty("fileB", FileUtil.getFilename(this.getClass(), "resources/fileA.txt"));
+    properties.setProperty("outputCols", "A.0/B.0");
+    properties.setProperty("joinColA", "0");
+    properties.setProperty("joinColB", "0");
+    properties.setProperty("keepAllA", "true");
+    properties.setProperty("keepAllB", "false");
+    properties.setProperty("subtract", "true");
+    properties.setProperty("keyGeneratorB", "org.sd.cio.TestFileJoiner$VowelFilterGenerator");
+    properties.setProperty("outputFile", outputFile.getAbsolutePath());
+    properties.setProperty("verbose", "false");
+    properties.setProperty("joinStrategy", "sortMerge");
+    properties.setProperty("memoryBudget", "512");
+
+    final FileJoiner fileJoiner = new FileJoiner(properties);
+    fileJoiner.doJoin();
+
+    // verify the output: all letters of the alphabet without vowels.
+    verifyConsonants(outputFile);
+
+    if (outputFile.exists()) outputFile.delete();
+  }
+
+  public void testJoinStrategiesAgree() throws IOException {
+    final Set<String> hashLines = doJoinAB("hash", "/tmp/TestFileJoiner/fileAB.hash.txt");
+    final Set<String> sortMergeLines = doJoinAB("sortMerge", "/tmp/TestFileJoiner/fileAB.sortMerge.txt");
+
+    // vowels joined from both, consonants kept from A
+    assertEquals(26, hashLines.size());
+    assertEquals(hashLines, sortMergeLines);
+  }
+
+  public void testAutoStrategy() throws IOException {
+    final Properties properties = new Properties();
+
+    properties.setProperty("fileA", FileUtil.getFilename(this.getClass(), "resources/fileA.txt"));
+    properties.setProperty("fileB", FileUtil.getFilename(this.getClass(), "resources/fileB.txt"));
+    properties.setProperty("outputCols", "A.0,B.0");
+    properties.setProperty("joinColA", "0");
+    properties.setProperty("joinColB", "0");
+    properties.setProperty("outputFile", "/tmp/TestFileJoiner/unused.txt");
+    properties.setProperty("verbose", "false");
+
+    properties.setProperty("memoryBudget", "1000000");
+    assertEquals(FileJoiner.JoinStrategy.HASH, new FileJoiner(properties).chooseJoinStrategy());
+
+    properties.setProperty("memoryBudget", "10");
+    assertEquals(FileJoiner.JoinStrategy.SORT_MERGE, new FileJoiner(properties).chooseJoinStrategy());
+  }
+
+  private final Set<String> doJoinAB(String joinStrategy, String outputPath) throws IOException {
+    final Properties properties = new Properties();
+
+    final File outputFile = new File(outputPath);
+    if (outputFile.exists()) outputFile.delete();
+
+    properties.setProperty("fileA", FileUtil.getFilename(this.getClass(), "resources/fileA.txt"));
+    properties.setProperty("fileB", FileUtil.getFilename(this.getClass(), "resources/fileB.txt"));
+    properties.setProperty("outputCols", "A.0,B.0");
+    properties.setProperty("joinColA", "0");
+    properties.setProperty("joinColB", "0");
+    properties.setProperty("keepAllA", "true");
+    properties.setProperty("keepAllB", "true");
+    properties.setProperty("outputFile", outputFile.getAbsolutePath());
+    properties.setProperty("verbose", "false");
+    properties.setProperty("joinStrategy", joinStrategy);
+    properties.setProperty("memoryBudget", "512");
+
+    final FileJoiner fileJoiner = new FileJoiner(properties);
+    fileJoiner.doJoin();
+
+    final Set<String> result = new HashSet<String>();
+    FileUtil.readStrings(result, outputFile, null, null, null, true, false);
+
+    if (outputFile.exists()) outputFile.delete();
+
+    return result;
+  }
+
   private final void verifyConsonants(File file) throws IOException {
     final Set<String> lines = new HashSet<String>();
     FileUtil.readStrings(lines, file, null, null, null, true, false);
@@ -0,0 +1,272 @@
+/*
+    Copyright 2009 Semantic Discovery, Inc. (www.semanticdiscovery.com)
+
+    This file is part of the Semantic Discovery Toolkit.
+
+    The Semantic Discovery Toolkit is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    The Semantic Discovery Toolkit is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with The Semantic Discovery Toolkit.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package org.sd.cio;
+
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+import java.io.BufferedInputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.channels.OverlappingFileLockException;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.sd.io.FileLock;
+import org.sd.io.Publishable;
+
+/**
+ * JUnit Tests for the GroupCommitWriter class.
+ * <p>
+ * @author Spence Koehler
+ */
+public class TestGroupCommitWriter extends TestCase {
+
+  public TestGroupCommitWriter(String name) {
+    super(name);
+  }
+  
+
+  public void testConcurrentWriters() throws Exception {
+    final File file = new File("/tmp/TestGroupCommitWriter/records.dat");
+    if (file.exists()) file.delete();
+
+    final GroupCommitWriter writer = new GroupCommitWriter(file, 10, 64);
+    final int numThreads = 4;
+    final int numPerThread = 250;
+    final Thread[] threads = new Thread[numThreads];
+
+    for (int t = 0; t < numThreads; ++t) {
+      final int threadNum = t;
+      threads[t] = new Thread() {
+          public void run() {
+            try {
+              for (int i = 0; i < numPerThread; ++i) {
+                final StringMessage message = new StringMessage(threadNum + "-" + i);
+                if (i % 50 == 0) {
+                  writer.writeAndSync(message);
+                }
+                else {
+                  writer.write(message);
+                }
+              }
+            }
+            catch (IOException e) {
+              throw new IllegalStateException(e);
+            }
+          }
+        };
+      threads[t].start();
+    }
+    for (Thread thread : threads) thread.join();
+
+    writer.close();
+
+    assertEquals(numThreads * numPerThread, writer.getNumWritten());
+    assertTrue(writer.getNumBatches() <= numThreads * numPerThread);
+
+    // read back
+    final Set<String> values = new HashSet<String>();
+    final DataInputStream dataIn = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+    try {
+      while (true) {
+        final StringMessage message = (StringMessage)MessageHelper.readPublishable(dataIn);
+        values.add(message.value);
+      }
+    }
+    catch (EOFException e) {
+      // done
+    }
+    finally {
+      dataIn.close();
+    }
+
+    assertEquals(numThreads * numPerThread, values.size());
+    assertTrue(values.contains("3-249"));
+
+    file.delete();
+  }
+
+  public void testFileLockExcludesThreads() throws Exception {
+    final String filename = "/tmp/TestGroupCommitWriter/locked/data.txt";
+    final AtomicInteger inside = new AtomicInteger(0);
+    final AtomicInteger maxInside = new AtomicInteger(0);
+    final AtomicInteger succeeded = new AtomicInteger(0);
+
+    final Thread[] threads = new Thread[6];
+    for (int t = 0; t < threads.length; ++t) {
+      threads[t] = new Thread() {
+          public void run() {
+            for (int i = 0; i < 10; ++i) {
+              final FileLock<Boolean> fileLock = new FileLock<Boolean>(filename, 5000);
+              final Boolean result = fileLock.operateWhileLocked(new FileLock.LockOperation<Boolean>() {
+                  public Boolean operate(String filename) {
+                    final int count = inside.incrementAndGet();
+                    if (count > maxInside.get()) maxInside.set(count);
+                    try { Thread.sleep(1); } catch (InterruptedException e) {}
+                    inside.decrementAndGet();
+                    return true;
+                  }
+                });
+              if (result != null) succeeded.incrementAndGet();
+            }
+          }
+        };
+      threads[t].start();
+    }
+    for (Thread thread : threads) thread.join();
+
+    assertEquals(1, maxInside.get());
+    assertEquals(60, succeeded.get());
+  }
+
+
+  public void testWriterFailureReleasesWaiters() throws Exception {
+    final File file = new File("/tmp/TestGroupCommitWriter/failing.dat");
+    if (file.exists()) file.delete();
+
+    final GroupCommitWriter writer = new GroupCommitWriter(file, 10, 64);
+
+    // another lock on the file in this jvm makes the writer's lock fail
+    final RandomAccessFile raf = new RandomAccessFile(file, "rw");
+    try {
+      raf.getChannel().lock();
+      writer.writeAndSync(new StringMessage("blocked"));
+      fail("expected the writer's failure to be reported");
+    }
+    catch (IOException e) {
+      // expected
+    }
+    finally {
+      raf.close();
+    }
+
+    try {
+      writer.write(new StringMessage("after"));
+      fail("expected the writer to refuse further writes");
+    }
+    catch (IOException e) {
+      // expected
+    }
+
+    file.delete();
+  }
+
+  public void testWriteSerializesImmediately() throws Exception {
+    final File file = new File("/tmp/TestGroupCommitWriter/snapshot.dat");
+    if (file.exists()) file.delete();
+
+    final GroupCommitWriter writer = new GroupCommitWriter(file, 10, 64);
+    final StringMessage message = new StringMessage("before");
+    writer.write(message);
+    message.value = "after";
+    writer.close();
+
+    try {
+      writer.write(new StringMessage("closed"));
+      fail("expected writes after close to be rejected");
+    }
+    catch (IOException e) {
+      // expected
+    }
+
+    final DataInputStream dataIn = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+    try {
+      assertEquals("before", ((StringMessage)MessageHelper.readPublishable(dataIn)).value);
+      assertEquals(-1, dataIn.read());
+    }
+    finally {
+      dataIn.close();
+    }
+
+    file.delete();
+  }
+
+  public void testNestedFileLockKeepsOuterLock() throws Exception {
+    final String filename = "/tmp/TestGroupCommitWriter/nested/data.txt";
+    final FileLock<Boolean> outer = new FileLock<Boolean>(filename, 1000);
+
+    final Boolean result = outer.operateWhileLocked(new FileLock.LockOperation<Boolean>() {
+        public Boolean operate(String filename) throws IOException {
+          final FileLock<Boolean> inner = new FileLock<Boolean>(filename, 1000);
+          final Boolean innerResult = inner.operateWhileLocked(new FileLock.LockOperation<Boolean>() {
+              public Boolean operate(String filename) {
+                return true;
+              }
+            });
+          assertEquals(Boolean.TRUE, innerResult);
+
+          // the outer holder's lock must survive the inner release
+          final RandomAccessFile raf = new RandomAccessFile(outer.getLockFile(), "rw");
+          try {
+            raf.getChannel().tryLock();
+            fail("expected the lock file to still be locked");
+          }
+          catch (OverlappingFileLockException e) {
+            // expected
+          }
+          finally {
+            raf.close();
+          }
+          return true;
+        }
+      });
+
+    assertEquals(Boolean.TRUE, result);
+  }
+
+
+  public static final class StringMessage implements Publishable {
+    public String value;
+
+    public StringMessage() {
+    }
+
+    public StringMessage(String value) {
+      this.value = value;
+    }
+
+    public void write(DataOutput dataOutput) throws IOException {
+      MessageHelper.writeString(dataOutput, value);
+    }
+
+    public void read(DataInput dataInput) throws IOException {
+      this.value = MessageHelper.readString(dataInput);
+    }
+  }
+
+
+  public static Test suite() {
+    TestSuite suite = new TestSuite(TestGroupCommitWriter.class);
+    return suite;
+  }
+
+  public static void main(String[] args) {
+    junit.textui.TestRunner.run(suite());
+  }
+}
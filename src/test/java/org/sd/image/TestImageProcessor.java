@@ -0,0 +1,120 @@
+/*
+   Copyright 2008-2016 Semantic Discovery, Inc.
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+package org.sd.image;
+
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import javax.imageio.ImageIO;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+/**
+ * JUnit Tests for the ImageProcessor class.
+ * <p>
+ * @author Spence Koehler
+ */
+public class TestImageProcessor extends TestCase {
+
+  public TestImageProcessor(String name) {
+    super(name);
+  }
+
+
+  private static final byte[] buildImage(int width, int height, String type) throws IOException {
+    final BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+    for (int y = 0; y < height; ++y) {
+      for (int x = 0; x < width; ++x) {
+        image.setRGB(x, y, ((x * 255 / width) << 16) | ((y * 255 / height) << 8) | ((x + y) & 0xFF));
+      }
+    }
+
+    final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    ImageIO.write(image, type, out);
+    return out.toByteArray();
+  }
+
+  public void testPooledResize() throws IOException {
+    final ImageProcessor imageProcessor = new ImageProcessor(2);
+    try {
+      final byte[] imageBytes = buildImage(120, 80, "png");
+      final List<byte[]> images = new ArrayList<byte[]>();
+      images.add(imageBytes);
+      images.add(new byte[]{1, 2, 3, 4});  // not an image
+      images.add(imageBytes);
+
+      final List<byte[]> resized = imageProcessor.resizeImages(images, 60, 40);
+      assertEquals(3, resized.size());
+      assertNotNull(resized.get(0));
+      assertNull(resized.get(1));
+      assertNotNull(resized.get(2));
+
+      final BufferedImage image = ImageUtil.createImage(resized.get(0));
+      assertEquals(60, image.getWidth());
+      assertEquals(40, image.getHeight());
+
+      assertNotNull(imageProcessor.resizeImage(imageBytes, 30, 20));
+
+      final ImageProcessor.Metrics metrics = imageProcessor.getMetrics();
+      assertEquals(4, metrics.getImages());
+      assertEquals(1, metrics.getFailures());
+    }
+    finally {
+      imageProcessor.close();
+    }
+  }
+
+  public void testTimeoutCountedOnce() throws IOException {
+    // a single worker can't finish any of these large images within 1ms,
+    // so each times out while running or while still queued
+    final ImageProcessor imageProcessor = new ImageProcessor(1, 0, 1L);
+    final byte[] imageBytes = buildImage(2000, 2000, "jpeg");
+    final List<byte[]> images = new ArrayList<byte[]>();
+    for (int i = 0; i < 4; ++i) images.add(imageBytes);
+
+    final List<byte[]> resized = imageProcessor.resizeImages(images, 1000, 1000);
+    imageProcessor.close();  // waits for the running resize to finish
+
+    for (byte[] bytes : resized) assertNull(bytes);
+
+    final ImageProcessor.Metrics metrics = imageProcessor.getMetrics();
+    assertEquals(4, metrics.getImages());
+    assertEquals(4, metrics.getFailures());
+  }
+
+  public void testSharedInstance() throws IOException {
+    final ImageProcessor imageProcessor = ImageProcessor.getInstance();
+    assertEquals(0, imageProcessor.getNumThreads());
+
+    final byte[] resized = new ImageProcessor.Resizer(buildImage(40, 40, "png"), 20, 20).call();
+    assertNotNull(resized);
+  }
+
+
+  public static Test suite() {
+    TestSuite suite = new TestSuite(TestImageProcessor.class);
+    return suite;
+  }
+
+  public static void main(String[] args) {
+    junit.textui.TestRunner.run(suite());
+  }
+}
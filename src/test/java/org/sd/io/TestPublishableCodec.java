@@ -0,0 +1,197 @@
+/*
+    Copyright 2009 Semantic Discovery, Inc. (www.semanticdiscovery.com)
+
+    This file is part of the Semantic Discovery Toolkit.
+
+    The Semantic Discovery Toolkit is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    The Semantic Discovery Toolkit is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with The Semantic Discovery Toolkit.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package org.sd.io;
+
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.sd.atn.AtnPublishableTypes;
+import org.sd.atn.ParseInterpretation;
+import org.sd.cio.MessageHelper;
+import org.sd.util.tree.Tree;
+import org.sd.util.tree.TreeBuilderFactory;
+import org.sd.xml.XmlFactory;
+import org.sd.xml.XmlLite;
+
+/**
+ * JUnit Tests for the PublishableCodec class.
+ * <p>
+ * @author Spence Koehler
+ */
+public class TestPublishableCodec extends TestCase {
+
+  public TestPublishableCodec(String name) {
+    super(name);
+  }
+  
+
+  private static final PublishableCodec buildCodec() {
+    return new PublishableCodec().
+      register(2, TreeHolder.class, new PublishableCodec.Factory() {
+          public Publishable newInstance() { return new TreeHolder(); }
+        }).
+      register(3, PublishableString.class, new PublishableCodec.Factory() {
+          public Publishable newInstance() { return new PublishableString(); }
+        });
+  }
+
+  public void testVarInts() throws IOException {
+    final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    final DataOutputStream out = new DataOutputStream(bytes);
+    final int[] ints = new int[]{0, 1, 127, 128, 16383, 16384, Integer.MAX_VALUE};
+    final long[] longs = new long[]{0L, -1L, 1L, Long.MIN_VALUE, Long.MAX_VALUE};
+
+    for (int i : ints) PublishableCodec.writeVarInt(out, i);
+    for (long l : longs) PublishableCodec.writeVarLong(out, PublishableCodec.zigZag(l));
+    out.close();
+
+    assertEquals(1, sizeOfVarInt(127));
+    assertEquals(2, sizeOfVarInt(128));
+
+    final DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+    for (int i : ints) assertEquals(i, PublishableCodec.readVarInt(in));
+    for (long l : longs) assertEquals(l, PublishableCodec.unZigZag(PublishableCodec.readVarLong(in)));
+  }
+
+  public void testVersionedRoundTrip() throws IOException {
+    final PublishableCodec codec = buildCodec();
+
+    final TreeHolder holder = new TreeHolder();
+    holder.stringTree = TreeBuilderFactory.getStringTreeBuilder().buildTree("(S (NP (D the) (N dog)) (VP (V saw) (NP (D the) (N cat))))");
+    holder.xmlTree = XmlFactory.buildXmlTree("<doc id=\"1\"><p class=\"a\">Hello &amp; goodbye</p><p class=\"b\"/><!-- note --></doc>", true, false);
+    holder.values.add("a string");
+    holder.values.add(42);
+    holder.values.add(-7L);
+    holder.values.add(3.5);
+    holder.values.add(Boolean.TRUE);
+    holder.values.add(null);
+    holder.values.add(new ArrayList<String>());  // java serialized
+    holder.child = new PublishableString("nested");
+
+    final byte[] codecBytes = codec.serialize(holder);
+    final byte[] helperBytes = MessageHelper.serialize(holder);
+    assertTrue(codecBytes.length < helperBytes.length);
+
+    final TreeHolder copy = (TreeHolder)codec.deserialize(codecBytes);
+    assertEquals(holder.stringTree.toString(), copy.stringTree.toString());
+    assertEquals(XmlLite.asXml(holder.xmlTree, false), XmlLite.asXml(copy.xmlTree, false));
+    assertEquals(holder.values, copy.values);
+    assertEquals("nested", ((PublishableString)copy.child).getString());
+    assertEquals(TreeHolder.CURRENT_VERSION, copy.readVersion);
+
+    // plain MessageHelper round trip is unaffected
+    final TreeHolder helperCopy = (TreeHolder)MessageHelper.deserialize(helperBytes);
+    assertEquals(holder.stringTree.toString(), helperCopy.stringTree.toString());
+    assertEquals(holder.values, helperCopy.values);
+
+    // reusing the per-thread buffer yields identical bytes
+    assertTrue(java.util.Arrays.equals(codecBytes, codec.serialize(holder)));
+  }
+
+  public void testUnregisteredFallback() throws IOException {
+    final PublishableCodec codec = new PublishableCodec();
+    final PublishableString string = new PublishableString("unregistered");
+
+    final PublishableString copy = (PublishableString)codec.deserialize(codec.serialize(string));
+    assertEquals("unregistered", copy.getString());
+    assertNull(codec.deserialize(codec.serialize(null)));
+  }
+
+  public void testAtnTypes() throws IOException {
+    final ParseInterpretation interp = new ParseInterpretation("name");
+    interp.add("first", "John");
+
+    final PublishableCodec codec = AtnPublishableTypes.CODEC;
+    final ParseInterpretation copy = (ParseInterpretation)codec.deserialize(codec.serialize(interp));
+
+    assertEquals("name", copy.getClassification());
+    assertEquals("John", copy.getCategory2Value().get("first"));
+  }
+
+  private static final int sizeOfVarInt(int value) throws IOException {
+    final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    final DataOutputStream out = new DataOutputStream(bytes);
+    PublishableCodec.writeVarInt(out, value);
+    out.close();
+    return bytes.size();
+  }
+
+
+  public static final class TreeHolder extends PersistablePublishable {
+    static final int CURRENT_VERSION = 2;
+
+    Tree<String> stringTree;
+    Tree<XmlLite.Data> xmlTree;
+    List<Serializable> values = new ArrayList<Serializable>();
+    Publishable child;
+    int readVersion;
+
+    public TreeHolder() {
+    }
+
+    protected int getCurrentVersion() {
+      return CURRENT_VERSION;
+    }
+
+    protected void writeCurrentVersion(DataOutput dataOutput) throws IOException {
+      MessageHelper.writeStringTree(dataOutput, stringTree);
+      MessageHelper.writeXmlTree(dataOutput, xmlTree, false);
+      dataOutput.writeInt(values.size());
+      for (Serializable value : values) {
+        MessageHelper.writeSerializable(dataOutput, value);
+      }
+      MessageHelper.writePublishable(dataOutput, child);
+    }
+
+    protected void readVersion(int version, DataInput dataInput) throws IOException {
+      if (version != CURRENT_VERSION) badVersion(version);
+      this.readVersion = version;
+      this.stringTree = MessageHelper.readStringTree(dataInput);
+      this.xmlTree = MessageHelper.readXmlTree(dataInput);
+      final int numValues = dataInput.readInt();
+      for (int i = 0; i < numValues; ++i) {
+        values.add(MessageHelper.readSerializable(dataInput));
+      }
+      this.child = MessageHelper.readPublishable(dataInput);
+    }
+  }
+
+
+  public static Test suite() {
+    TestSuite suite = new TestSuite(TestPublishableCodec.class);
+    return suite;
+  }
+
+  public static void main(String[] args) {
+    junit.textui.TestRunner.run(suite());
+  }
+}
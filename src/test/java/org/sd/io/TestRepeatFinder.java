@@ -0,0 +1,142 @@
+/*
+   Copyright 2008-2016 Semantic Discovery, Inc.
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+package org.sd.io;
+
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * JUnit Tests for the RepeatFinder class.
+ * <p>
+ * @author Spencer Koehler
+ */
+public class TestRepeatFinder extends TestCase {
+
+  public TestRepeatFinder(String name) {
+    super(name);
+  }
+  
+
+  public void testNameAndContentDuplicates() throws IOException {
+    final File root = new File("/tmp/TestRepeatFinder");
+    FileUtil.deleteDir(root);
+
+    final File dirA = new File(root, "a");
+    final File dirB = new File(root, "b");
+
+    final StringBuilder big = new StringBuilder();
+    for (int i = 0; i < 5000; ++i) big.append("line ").append(i).append('\n');
+    final String bigText = big.toString();
+
+    // same name, same content
+    FileUtil.writeToFile(new File(dirA, "x/one.txt"), "hello", false);
+    FileUtil.writeToFile(new File(dirB, "one.txt"), "hello", false);
+
+    // renamed duplicate of a large file
+    FileUtil.writeToFile(new File(dirA, "big.txt"), bigText, false);
+    FileUtil.writeToFile(new File(dirB, "y/z/renamed.dat"), bigText, false);
+
+    // same size, same head and tail, different middle
+    FileUtil.writeToFile(new File(dirB, "big2.txt"), bigText.replace("line 2500\n", "LINE 2500\n"), false);
+
+    // unique and hidden files
+    FileUtil.writeToFile(new File(dirA, "unique.txt"), "unique", false);
+    FileUtil.writeToFile(new File(dirA, ".hidden"), "hello", false);
+
+    final RepeatFinder finder = new RepeatFinder(Arrays.asList(dirA, dirB), 3);
+    assertEquals(6, finder.getNumFiles());
+
+    // by name
+    final Map<String, RepeatFinder.DuplicateContainer> byName = finder.getNameDuplicates();
+    assertEquals(2, byName.get("one").duplicates.get(5L).size());
+    assertNull(byName.get("renamed").duplicates.get(5L));
+
+    // by content
+    final Map<String, RepeatFinder.ContentDuplicates> byContent = finder.getContentDuplicates();
+    assertEquals(2, byContent.size());
+
+    final Set<String> names = new HashSet<String>();
+    for (RepeatFinder.ContentDuplicates dups : byContent.values()) {
+      assertEquals(2, dups.files.size());
+      for (File file : dups.files) names.add(file.getName());
+    }
+    assertEquals(new HashSet<String>(Arrays.asList("one.txt", "big.txt", "renamed.dat")), names);
+
+    // copy one of each by content
+    final File uniques = new File(root, "uniques");
+    finder.copyOneOfEachByContent(uniques);
+    assertEquals(4, countFiles(uniques));
+
+    finder.close();
+    FileUtil.deleteDir(root);
+  }
+
+  public void testLinkedDirsAndEmptyFiles() throws IOException {
+    final File root = new File("/tmp/TestRepeatFinder2");
+    FileUtil.deleteDir(root);
+
+    final File dirA = new File(root, "a");
+    final File dirB = new File(root, "b");
+    final File linked = new File(root, "linked");
+
+    FileUtil.writeToFile(new File(dirA, "one.txt"), "hello", false);
+    FileUtil.writeToFile(new File(linked, "two.txt"), "hello", false);
+    FileUtil.writeToFile(new File(dirA, "empty1.txt"), "", false);
+    FileUtil.writeToFile(new File(dirB, "empty2.txt"), "", false);
+    Files.createSymbolicLink(new File(dirB, "link").toPath(), linked.toPath());
+
+    final RepeatFinder finder = new RepeatFinder(Arrays.asList(dirA, dirB), 2);
+    assertEquals(4, finder.getNumFiles());
+
+    // the linked directory's file is found; empty files don't repeat content
+    final Map<String, RepeatFinder.ContentDuplicates> byContent = finder.getContentDuplicates();
+    assertEquals(1, byContent.size());
+    final Set<String> names = new HashSet<String>();
+    for (File file : byContent.values().iterator().next().files) names.add(file.getName());
+    assertEquals(new HashSet<String>(Arrays.asList("one.txt", "two.txt")), names);
+
+    finder.close();
+    FileUtil.deleteDir(root);
+  }
+
+  private static final int countFiles(File dir) {
+    int result = 0;
+    for (File file : dir.listFiles()) {
+      result += file.isDirectory() ? countFiles(file) : 1;
+    }
+    return result;
+  }
+
+
+  public static Test suite() {
+    TestSuite suite = new TestSuite(TestRepeatFinder.class);
+    return suite;
+  }
+
+  public static void main(String[] args) {
+    junit.textui.TestRunner.run(suite());
+  }
+}
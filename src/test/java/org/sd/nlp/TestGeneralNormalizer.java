@@ -194,6 +194,28 @@ public class TestGeneralNormalizer extends TestCase {
     assertEquals(norm1, norm2);
   }
 
+  public void testWorkspaceNormalization() {
+    final String[] inputs = new String[] {
+      "", "a", "A", "@#$%", ".123", "Ph.D.", " - testing - ", "testing--this",
+      "'don't'", "ab/cd", "c/o", "   a  b    cde   f", "this \"@#*! test\" had better work!",
+      "12:30", "camelCase123", "R&D + more", ", testing, 1, 2, 3",
+      "2008\u5e747\u670818\u65e5 \u4e0b\u53484\u65f630\u5206",
+    };
+    final NormalizerWorkspace workspace = new NormalizerWorkspace();
+
+    for (GeneralNormalizer n : new GeneralNormalizer[] { new GeneralNormalizer(false), new GeneralNormalizer(true) }) {
+      for (String input : inputs) {
+        final NormalizedString expected = n.normalize(input);
+        final CharSequence normalized = n.normalize(input, workspace);
+
+        assertEquals(input, expected.getNormalized(), normalized.toString());
+        for (int i = 0; i < workspace.getN2OLength(); ++i) {
+          assertEquals(input, expected.getOriginalIndex(i), workspace.getN2OIndex(i));
+        }
+      }
+    }
+  }
+
   public static Test suite() {
     TestSuite suite = new TestSuite(TestGeneralNormalizer.class);
     return suite;
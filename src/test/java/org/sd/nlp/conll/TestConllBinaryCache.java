@@ -0,0 +1,85 @@
+/*
+   Copyright 2008-2016 Semantic Discovery, Inc.
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+package org.sd.nlp.conll;
+
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.StringReader;
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+/**
+ * JUnit Tests for the ConllBinaryCache class.
+ * <p>
+ * @author Spence Koehler
+ */
+public class TestConllBinaryCache extends TestCase {
+
+  public TestConllBinaryCache(String name) {
+    super(name);
+  }
+  
+
+  public void testRoundTrip() throws Exception {
+    final String conll = TestParallelConllReader.buildConll(50, "\n") + "1\tshort\t_\tNN\n\n";
+    final File file = File.createTempFile("TestConllBinaryCache", ConllBinaryCache.EXTENSION);
+    file.deleteOnExit();
+
+    final int numWritten = ConllBinaryCache.write(new ConllReader(new BufferedReader(new StringReader(conll))), file);
+    assertEquals(51, numWritten);
+
+    final ConllBinaryCache cache = new ConllBinaryCache(file);
+    assertEquals(51, cache.getNumSentences());
+
+    final ConllReader reader = new ConllReader(new BufferedReader(new StringReader(conll)));
+    int sentenceNum = 0;
+    long numTokens = 0;
+    for (ConllSentence sentence : cache) {
+      final ConllSentence expected = reader.next();
+      assertEquals(expected.toString(), sentence.toString());
+      assertEquals(expected.getText(), sentence.getText());
+      assertEquals(expected.size(), cache.getSentenceLength(sentenceNum));
+      numTokens += sentence.size();
+      ++sentenceNum;
+    }
+    assertEquals(51, sentenceNum);
+    assertEquals(numTokens, cache.getNumTokens());
+
+    // codes compare without strings
+    final long rootToken = cache.getSentenceStart(2);
+    assertEquals(cache.getCode("root"), cache.getCode(rootToken, ConllField.DEPREL));
+    assertEquals("w2_1", cache.getValue(rootToken, ConllField.FORM));
+    assertEquals(-1, cache.getCode("no such value"));
+
+    // missing trailing fields
+    final long shortToken = cache.getSentenceStart(50);
+    assertEquals("NN", cache.getValue(shortToken, ConllField.CPOSTAG));
+    assertNull(cache.getValue(shortToken, ConllField.HEAD));
+    assertEquals(-1, cache.getCode(shortToken, ConllField.POSTAG));
+  }
+
+
+  public static Test suite() {
+    TestSuite suite = new TestSuite(TestConllBinaryCache.class);
+    return suite;
+  }
+
+  public static void main(String[] args) {
+    junit.textui.TestRunner.run(suite());
+  }
+}
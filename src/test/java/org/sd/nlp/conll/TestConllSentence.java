@@ -0,0 +1,110 @@
+/*
+   Copyright 2008-2016 Semantic Discovery, Inc.
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+package org.sd.nlp.conll;
+
+
+import java.util.List;
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+/**
+ * JUnit Tests for the ConllSentence class.
+ * <p>
+ * @author Spence Koehler
+ */
+public class TestConllSentence extends TestCase {
+
+  public TestConllSentence(String name) {
+    super(name);
+  }
+  
+
+  private static final String[] TOKEN_LINES = new String[] {
+    "1\tThe\t_\tDT\tDT\t_\t2\tdet\t_\t_",
+    "2\tdog\t_\tNN\tNN\t_\t3\tnsubj\t_\t_",
+    "3\tchased\t_\tVB\tVBD\t_\t0\troot\t_\t_",
+    "4\tthe\t_\tDT\tDT\t_\t5\tdet\t_\t_",
+    "5\tcat\t_\tNN\tNN\t_\t3\tdobj\t_\t_",
+    "6\tup\t_\tIN\tIN\t_\t3\tprep\t_\t_",
+    "7\ttrees\t_\tNN\tNNS\t_\t6\tpobj\t_\t_",
+  };
+
+  private final ConllSentence buildSentence() {
+    final ConllSentence result = new ConllSentence();
+    for (String tokenLine : TOKEN_LINES) {
+      result.addTokenLine(tokenLine);
+    }
+    return result;
+  }
+
+  public void testChildrenAndParents() {
+    final ConllSentence sentence = buildSentence();
+    final ConllToken root = sentence.getRoot();
+    assertEquals("chased", root.getText());
+
+    final List<ConllToken> children = sentence.getChildren(root);
+    assertEquals(3, children.size());
+    assertEquals("dog", children.get(0).getText());
+    assertEquals("cat", children.get(1).getText());
+    assertEquals("up", children.get(2).getText());
+
+    assertEquals("cat", sentence.getFirstChild(root, ConllField.DEPREL, "dobj").getText());
+    assertNull(sentence.getFirstChild(root, ConllField.DEPREL, "amod"));
+    assertEquals("up", sentence.getFirstChild(root, new ConllField[]{ConllField.FORM, ConllField.DEPREL}, new String[]{"up", "prep"}).getText());
+
+    final ConllToken trees = sentence.getFirstDeepChild(root, new ConllField[]{ConllField.DEPREL}, new String[]{"pobj"});
+    assertEquals("trees", trees.getText());
+    assertEquals("up", sentence.getParent(trees).getText());
+    assertTrue(sentence.isParent(root, trees));
+    assertFalse(sentence.isParent(trees, root));
+
+    assertNull(sentence.getChildren(trees));
+    assertEquals(2, sentence.getDeepChildren(root, new ConllField[]{ConllField.POSTAG}, new String[]{"DT"}).size());
+  }
+
+  public void testEmptyValues() {
+    final ConllSentence sentence = buildSentence();
+
+    // "_" and missing values match each other
+    assertEquals(7, sentence.getAllTokens(ConllField.LEMMA, null).size());
+    assertEquals(7, sentence.getAllTokens(ConllField.FEATS, "").size());
+    assertNull(sentence.getAllTokens(ConllField.LEMMA, "dog"));
+
+    // fields beyond the given values must be empty
+    assertNull(sentence.getFirstToken(new ConllField[]{ConllField.POSTAG, ConllField.DEPREL}, new String[]{"NN"}));
+    assertEquals("dog", sentence.getFirstToken(new ConllField[]{ConllField.POSTAG, ConllField.FEATS}, new String[]{"NN"}).getText());
+  }
+
+  public void testAddTokenUpdatesLookups() {
+    final ConllSentence sentence = buildSentence();
+    assertEquals(1, sentence.getAllTokens(ConllField.POSTAG, "IN").size());
+
+    sentence.addTokenLine("8\t.\t_\t.\t.\t_\t3\tpunct\t_\t_");
+    assertEquals(4, sentence.getChildren(sentence.getRoot()).size());
+    assertEquals(".", sentence.getFirstToken(ConllField.DEPREL, "punct").getText());
+  }
+
+
+  public static Test suite() {
+    TestSuite suite = new TestSuite(TestConllSentence.class);
+    return suite;
+  }
+
+  public static void main(String[] args) {
+    junit.textui.TestRunner.run(suite());
+  }
+}
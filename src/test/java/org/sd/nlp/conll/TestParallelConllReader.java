@@ -0,0 +1,99 @@
+/*
+   Copyright 2008-2016 Semantic Discovery, Inc.
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+package org.sd.nlp.conll;
+
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+/**
+ * JUnit Tests for the ParallelConllReader class.
+ * <p>
+ * @author Spence Koehler
+ */
+public class TestParallelConllReader extends TestCase {
+
+  public TestParallelConllReader(String name) {
+    super(name);
+  }
+  
+
+  static final String buildConll(int numSentences, String lineEnd) {
+    final StringBuilder result = new StringBuilder();
+    for (int s = 0; s < numSentences; ++s) {
+      final int numTokens = 1 + (s % 9);
+      for (int t = 1; t <= numTokens; ++t) {
+        result.append(t).append("\tw").append(s).append('_').append(t).append("\t_\tNN\tNN\t_\t")
+          .append(t == 1 ? 0 : 1).append('\t').append(t == 1 ? "root" : "dep").append("\t_\t_").append(lineEnd);
+      }
+      result.append(lineEnd);
+    }
+    return result.toString();
+  }
+
+  private final List<String> readSerially(String conll) {
+    final List<String> result = new ArrayList<String>();
+    final ConllReader reader = new ConllReader(new BufferedReader(new StringReader(conll)));
+    while (reader.hasNext()) result.add(reader.next().toString());
+    return result;
+  }
+
+  private final List<String> readInParallel(String conll, int numThreads, int chunkSize) throws Exception {
+    final List<String> result = new ArrayList<String>();
+    final ParallelConllReader reader = new ParallelConllReader(new ByteArrayInputStream(conll.getBytes("UTF-8")), numThreads, chunkSize);
+    while (reader.hasNext()) result.add(reader.next().toString());
+    return result;
+  }
+
+  public void testMatchesConllReader() throws Exception {
+    final String conll = buildConll(500, "\n");
+    final List<String> expected = readSerially(conll);
+    assertEquals(500, expected.size());
+
+    assertEquals(expected, readInParallel(conll, 4, 1024));
+    assertEquals(expected, readInParallel(conll, 1, 1 << 20));
+  }
+
+  public void testCarriageReturns() throws Exception {
+    final String conll = buildConll(300, "\r\n");
+    final List<String> expected = readSerially(conll);
+    assertEquals(300, expected.size());
+    assertEquals(expected, readInParallel(conll, 3, 1024));
+  }
+
+  public void testNoTrailingBlankLine() throws Exception {
+    final String conll = buildConll(3, "\n").trim() + "\n\n\n4\tx\t_\tNN\tNN\t_\t0\troot\t_\t_";
+    final List<String> sentences = readInParallel(conll, 2, 1024);
+    assertEquals(4, sentences.size());
+    assertEquals("4\tx\t_\tNN\tNN\t_\t0\troot\t_\t_", sentences.get(3));
+  }
+
+
+  public static Test suite() {
+    TestSuite suite = new TestSuite(TestParallelConllReader.class);
+    return suite;
+  }
+
+  public static void main(String[] args) {
+    junit.textui.TestRunner.run(suite());
+  }
+}
@@ -16,7 +16,12 @@
 package org.sd.text;
 
 
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
 import junit.framework.Test;
 import junit.framework.TestCase;
 import junit.framework.TestSuite;
@@ -65,6 +70,120 @@ public class TestPhraseIndex extends TestCase {
     assertFalse(dakotaNorth.get(0).isExactMatch());
   }
 
+  public void testMostFrequentItems() {
+    final PhraseIndex<Integer> phraseIndex = new PhraseIndex<Integer>();
+    phraseIndex.put(new String[]{"first", "national", "bank"}, 0);
+    phraseIndex.put(new String[]{"national", "bank", "of", "ohio"}, 1);
+    phraseIndex.addMandatoryWords(new String[]{"of"});
+
+    // only the item having all of the input words is considered
+    final List<PhraseIndex.RetrievalResult<Integer>> results = phraseIndex.get("national bank of", new String[]{"national", "bank", "of"});
+    assertEquals(1, results.size());
+    assertEquals(1, results.get(0).getValue().intValue());
+    assertEquals(2, results.get(0).getScore());
+    assertEquals(4, results.get(0).getMatchedWords().length);
+  }
+
+  public void testAgainstUnindexedAlignment() {
+    final Random random = new Random(13);
+    final String[] vocab = new String[40];
+    for (int i = 0; i < vocab.length; ++i) vocab[i] = "w" + i;
+
+    final PhraseIndex<Integer> phraseIndex = new PhraseIndex<Integer>();
+    phraseIndex.addMandatoryWords(new String[]{"w3", "w7"});
+    for (int p = 0; p < 600; ++p) {
+      // skew word frequencies so that some words are common
+      final String[] words = new String[1 + random.nextInt(5)];
+      for (int i = 0; i < words.length; ++i) {
+        words[i] = vocab[(int)(vocab.length * Math.pow(random.nextDouble(), 2))];
+      }
+      phraseIndex.put(words, random.nextInt(200));
+    }
+
+    for (int q = 0; q < 300; ++q) {
+      final String[] words = new String[1 + random.nextInt(4)];
+      for (int i = 0; i < words.length; ++i) {
+        words[i] = (random.nextInt(20) == 0) ? "unknown" : vocab[random.nextInt(vocab.length)];
+      }
+
+      final Map<Integer, Integer> expected = align(phraseIndex, words);
+      final List<PhraseIndex.RetrievalResult<Integer>> results = phraseIndex.get("", words);
+      if (expected == null) {
+        assertNull(results);
+        continue;
+      }
+
+      assertEquals(expected.size(), results.size());
+      for (PhraseIndex.RetrievalResult<Integer> result : results) {
+        assertEquals(expected.get(result.getValue()).intValue(), result.getScore());
+      }
+
+      final List<PhraseIndex.RetrievalResult<Integer>> top = phraseIndex.get("", words, 3);
+      assertEquals(Math.min(3, results.size()), top.size());
+      for (int i = 0; i < top.size(); ++i) {
+        assertEquals(results.get(i).getScore(), top.get(i).getScore());
+        assertEquals(expected.get(top.get(i).getValue()).intValue(), top.get(i).getScore());
+      }
+    }
+  }
+
+  /**
+   * Align every phrase of the most frequent items (without the index's
+   * posting lists or bounds), mapping each retrieved item to its score.
+   */
+  private final Map<Integer, Integer> align(PhraseIndex<Integer> phraseIndex, String[] words) {
+    final Map<Integer, Integer> counts = new HashMap<Integer, Integer>();
+    final Map<String, Integer> cardinalities = new HashMap<String, Integer>();
+    int maxCount = 0;
+    int minCardinality = Integer.MAX_VALUE;
+    for (String word : words) {
+      final Set<Integer> items = phraseIndex.getWord2Items().get(word);
+      if (items == null) continue;
+      cardinalities.put(word, items.size());
+      minCardinality = Math.min(minCardinality, items.size());
+      for (Integer item : items) {
+        final Integer count = counts.get(item);
+        counts.put(item, count == null ? 1 : count + 1);
+        maxCount = Math.max(maxCount, count == null ? 1 : count + 1);
+      }
+    }
+    if (maxCount == 0) return null;
+
+    final Set<String> mustHave = new HashSet<String>();
+    for (String word : words) {
+      if (phraseIndex.getMandatoryWords().contains(word) || (cardinalities.containsKey(word) && cardinalities.get(word) == minCardinality)) {
+        mustHave.add(word);
+      }
+    }
+
+    final Map<Integer, Integer> result = new HashMap<Integer, Integer>();
+    for (Map.Entry<Integer, Integer> entry : counts.entrySet()) {
+      if (entry.getValue() < maxCount) continue;
+      int bestDist = Integer.MAX_VALUE;
+      for (String[] phrase : phraseIndex.getItem2Words().get(entry.getKey())) {
+        boolean hasMustHave = false;
+        for (String word : phrase) hasMustHave |= mustHave.contains(word);
+        if (!hasMustHave) continue;
+        bestDist = Math.min(bestDist, wordLev(phrase, words));
+      }
+      if (bestDist < Integer.MAX_VALUE) result.put(entry.getKey(), maxCount - bestDist);
+    }
+    return result;
+  }
+
+  private static final int wordLev(String[] a, String[] b) {
+    final int[][] d = new int[a.length + 1][b.length + 1];
+    for (int i = 0; i <= a.length; ++i) d[i][0] = i;
+    for (int j = 0; j <= b.length; ++j) d[0][j] = j;
+    for (int i = 1; i <= a.length; ++i) {
+      for (int j = 1; j <= b.length; ++j) {
+        final int sub = d[i - 1][j - 1] + (a[i - 1].equals(b[j - 1]) ? 0 : 1);
+        d[i][j] = Math.min(sub, Math.min(d[i - 1][j], d[i][j - 1]) + 1);
+      }
+    }
+    return d[a.length][b.length];
+  }
+
 
   public static Test suite() {
     TestSuite suite = new TestSuite(TestPhraseIndex.class);
@@ -23,6 +23,8 @@ import junit.framework.Test;
 import junit.framework.TestCase;
 import junit.framework.TestSuite;
 
+import java.util.List;
+
 /**
  * JUnit Tests for the StandardTokenizer class.
  * <p>
@@ -517,6 +519,62 @@ public class TestStandardTokenizer extends TestCase {
   }
 
 
+  public void testTokenLattice() {
+    final String text = "John Jacob Jingleheimer Schmidt: His name is my name too! Testing 1-2-3 get-prior-token.";
+
+    final StandardTokenizerOptions options = new StandardTokenizerOptions();
+    final StandardTokenizer plain = new StandardTokenizer(text, options);
+
+    final StandardTokenizerOptions latticeOptions = new StandardTokenizerOptions(options);
+    latticeOptions.setUseTokenLattice(true);
+    final StandardTokenizer cached = new StandardTokenizer(text, latticeOptions);
+    final TokenLattice lattice = cached.getTokenLattice();
+    assertNotNull(lattice);
+
+    // same tokens whether computed or cached, including on repeat visits
+    for (int pass = 0; pass < 2; ++pass) {
+      Token plainToken = plain.getToken(0);
+      Token cachedToken = cached.getToken(0);
+      while (plainToken != null) {
+        assertNotNull(cachedToken);
+        assertCandidates(plain.getCandidateTokens(plainToken.getStartIndex()), cached.getCandidateTokens(cachedToken.getStartIndex()));
+
+        final Token plainPrior = plain.getPriorToken(plainToken);
+        final Token cachedPrior = cached.getPriorToken(cachedToken);
+        assertEquals(plainPrior == null ? null : plainPrior.getText(), cachedPrior == null ? null : cachedPrior.getText());
+
+        plainToken = plain.getNextToken(plainToken);
+        cachedToken = cached.getNextToken(cachedToken);
+        if (plainToken != null) {
+          assertEquals(plainToken.getSequenceNumber(), cachedToken.getSequenceNumber());
+        }
+      }
+      assertNull(cachedToken);
+    }
+
+    assertTrue(lattice.getNumHits() > lattice.getNumMisses());
+
+    // each request gets its own instance
+    assertNotSame(cached.getToken(0), cached.getToken(0));
+
+    final List<Token> candidates = cached.getCandidateTokens(0);
+    assertEquals("John", candidates.get(1).getText());
+    assertEquals(1, candidates.get(1).getRevisionNumber());
+  }
+
+  private final void assertCandidates(List<Token> expected, List<Token> got) {
+    assertEquals(expected.size(), got.size());
+    for (int i = 0; i < expected.size(); ++i) {
+      final Token expectedToken = expected.get(i);
+      final Token gotToken = got.get(i);
+      assertEquals(expectedToken.getText(), gotToken.getText());
+      assertEquals(expectedToken.getStartIndex(), gotToken.getStartIndex());
+      assertEquals(expectedToken.getRevisionNumber(), gotToken.getRevisionNumber());
+      assertEquals(expectedToken.getWordCount(), gotToken.getWordCount());
+      assertEquals(expectedToken.getBreakCount(), gotToken.getBreakCount());
+    }
+  }
+
   public static Test suite() {
     TestSuite suite = new TestSuite(TestStandardTokenizer.class);
     return suite;
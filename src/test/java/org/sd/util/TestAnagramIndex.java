@@ -0,0 +1,84 @@
+/*
+    Copyright 2011 Semantic Discovery, Inc. (www.semanticdiscovery.com)
+
+    This file is part of the Semantic Discovery Toolkit.
+
+    The Semantic Discovery Toolkit is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    The Semantic Discovery Toolkit is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with The Semantic Discovery Toolkit.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package org.sd.util;
+
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+/**
+ * JUnit Tests for the AnagramIndex class.
+ * <p>
+ * @author Spence Koehler
+ */
+public class TestAnagramIndex extends TestCase {
+
+  private static final List<String> WORDS = Arrays.asList(new String[] {
+      "a", "at", "ta", "tat", "tea", "eat", "ate", "seat", "east", "teas", "tease", "state", "taste", "stat", "ease", "set",
+    });
+
+  public TestAnagramIndex(String name) {
+    super(name);
+  }
+
+  public void testExactAnagrams() {
+    final AnagramIndex index = new AnagramIndex(WORDS);
+    assertEquals(WORDS.size(), index.size());
+
+    assertEquals(new HashSet<String>(Arrays.asList("ate", "eat", "tea")), index.getAnagrams("tae"));
+    assertEquals(new HashSet<String>(Arrays.asList("east", "seat", "teas")), index.getAnagrams("SATE"));
+    assertTrue(index.getAnagrams("xyz").isEmpty());
+  }
+
+  public void testMatchesPermutations() {
+    final Set<String> words = new HashSet<String>(WORDS);
+    final AnagramGenerator.WordValidator validator = new AnagramGenerator.WordValidator() {
+        public boolean isValid(String word) {
+          return words.contains(word);
+        }
+      };
+
+    final AnagramGenerator permuter = new AnagramGenerator(validator);
+    final AnagramGenerator indexer = new AnagramGenerator(null, new AnagramIndex(WORDS));
+
+    for (String letters : new String[] {"teats", "eastt", "sea", "tt", "q"}) {
+      final Map<Integer, Set<String>> expected = permuter.getAnagrams(letters);
+      final Map<Integer, Set<String>> got = indexer.getAnagrams(letters);
+      assertEquals(letters, expected, got);
+    }
+
+    assertEquals(permuter.getAnagrams("teats", 3, 4), indexer.getAnagrams("teats", 3, 4));
+  }
+
+
+  public static Test suite() {
+    TestSuite suite = new TestSuite(TestAnagramIndex.class);
+    return suite;
+  }
+
+  public static void main(String[] args) {
+    junit.textui.TestRunner.run(suite());
+  }
+}
@@ -0,0 +1,76 @@
+/*
+    Copyright 2009 Semantic Discovery, Inc. (www.semanticdiscovery.com)
+
+    This file is part of the Semantic Discovery Toolkit.
+
+    The Semantic Discovery Toolkit is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    The Semantic Discovery Toolkit is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with The Semantic Discovery Toolkit.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package org.sd.util;
+
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+/**
+ * JUnit Tests for the CharSequenceSet class.
+ * <p>
+ * @author Spence Koehler
+ */
+public class TestCharSequenceSet extends TestCase {
+
+  public TestCharSequenceSet(String name) {
+    super(name);
+  }
+  
+  public void testHashCode() {
+    assertEquals("".hashCode(), CharSequenceSet.hashCode(new StringBuilder()));
+    assertEquals("testing".hashCode(), CharSequenceSet.hashCode(new StringBuilder("testing")));
+  }
+
+  public void testLookups() {
+    final CharSequenceSet set = new CharSequenceSet();
+
+    for (int i = 0; i < 1000; ++i) {
+      assertTrue(set.add("term" + i));
+    }
+    assertFalse(set.add("term7"));
+    assertEquals(1000, set.size());
+
+    final StringBuilder chars = new StringBuilder();
+    for (int i = 0; i < 1000; ++i) {
+      chars.setLength(0);
+      chars.append("term").append(i);
+      assertTrue(set.contains(chars));
+      assertEquals(chars.toString(), set.get(chars));
+    }
+
+    assertFalse(set.contains("term1000"));
+    assertFalse(set.contains(""));
+    assertNull(set.get(null));
+
+    set.clear();
+    assertEquals(0, set.size());
+    assertFalse(set.contains("term7"));
+  }
+
+  public static Test suite() {
+    TestSuite suite = new TestSuite(TestCharSequenceSet.class);
+    return suite;
+  }
+
+  public static void main(String[] args) {
+    junit.textui.TestRunner.run(suite());
+  }
+}
@@ -94,6 +94,37 @@ public class TestTree extends TestCase {
     }
   }
 
+  public void testSharedRootPath() {
+    // tree:
+    // a -- b -- d
+    //  \-- c
+    final Tree<String> a = new Tree<String>("a");
+    final Tree<String> b = a.addChild("b");
+    final Tree<String> c = a.addChild("c");
+    final Tree<String> d = b.addChild("d");
+
+    final RootPath<String> dPath = d.getSharedRootPath();
+    assertEquals(2, dPath.depth());
+    assertEquals(3, dPath.size());
+    assertEquals("a.b.d", dPath.toString());
+    assertSame(a, dPath.get(0));
+    assertSame(d, dPath.getNode());
+
+    // prefixes are shared, not copied
+    assertSame(b.getSharedRootPath(), dPath.getParentPath());
+    assertSame(a.getSharedRootPath(), c.getSharedRootPath().getParentPath());
+    assertSame(dPath, d.getSharedRootPath());
+
+    assertSame(a, d.getDeepestCommonAncestor(c));
+    assertSame(b, d.getDeepestCommonAncestor(b));
+    assertEquals(d.getRootPath(), d.getPath());
+
+    // reparenting invalidates the cached path
+    c.addChild(d);
+    assertEquals("a.c.d", d.getSharedRootPath().toString());
+    assertSame(c, d.getDeepestCommonAncestor(c));
+  }
+
   public static Test suite() {
     TestSuite suite = new TestSuite(TestTree.class);
     return suite;
@@ -16,6 +16,7 @@
 package org.sd.wordnet.lex;
 
 
+import java.io.IOException;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
@@ -130,6 +131,42 @@ public class TestLexDictionary extends TestCase {
     }
   }
 
+  public void testDerivedLookupsAreShared() throws IOException {
+    final StringLexLoader lexLoader = new StringLexLoader();
+    lexLoader.add("verb.body", new String[] {
+        "{ feel, verb.stative:be3,@ frames: 7 (be conscious of a physical, mental, or emotional state) }",
+      });
+    final LexDictionary lexDictionary = new LexDictionary(lexLoader);
+    lexDictionary.setMorphTool(new MorphTool(null));
+
+    final List<Synset> synsets = lexDictionary.lookupDerivedSynsets("feels");
+    assertNotNull(synsets);
+    assertEquals(1, synsets.size());
+    assertSame(synsets, lexDictionary.lookupDerivedSynsets("feels"));
+
+    final LexDictionary lexNameDictionary = new LexDictionary(lexLoader, false, false, true, false);
+    lexNameDictionary.setMorphTool(new MorphTool(null));
+
+    final Set<String> lexNames = lexNameDictionary.lookupDerivedLexNames("feels");
+    assertNotNull(lexNames);
+    assertTrue(lexNames.contains("verb.body"));
+    assertSame(lexNames, lexNameDictionary.lookupDerivedLexNames("feels"));
+
+    // cached lookups are shared, so they can't be modified
+    try {
+      synsets.clear();
+      fail("expected an unmodifiable list");
+    }
+    catch (UnsupportedOperationException e) {
+    }
+    try {
+      lexNames.clear();
+      fail("expected an unmodifiable set");
+    }
+    catch (UnsupportedOperationException e) {
+    }
+  }
+
 
   public static Test suite() {
     TestSuite suite = new TestSuite(TestLexDictionary.class);
@@ -0,0 +1,107 @@
+/*
+   Copyright 2008-2016 Semantic Discovery, Inc.
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+package org.sd.wordnet.lex;
+
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+/**
+ * JUnit Tests for the MorphTool class.
+ * <p>
+ * @author Spence Koehler
+ */
+public class TestMorphTool extends TestCase {
+
+  public TestMorphTool(String name) {
+    super(name);
+  }
+
+  private final Set<String> getBases(Collection<MorphTool.Derivation> derivations) {
+    final Set<String> result = new TreeSet<String>();
+    for (MorphTool.Derivation derivation : derivations) {
+      result.add(derivation.baseForm);
+    }
+    return result;
+  }
+
+  private final Set<String> asSet(String... bases) {
+    return new TreeSet<String>(Arrays.asList(bases));
+  }
+
+  public void testSuffixRules() throws IOException {
+    final MorphTool morphTool = new MorphTool(null);
+
+    assertEquals(asSet("cat"), getBases(morphTool.deriveBaseForms("cats")));
+    assertEquals(asSet("fli", "flie", "fly"), getBases(morphTool.deriveBaseForms("flies")));
+    assertEquals(asSet("buses", "busese"), getBases(morphTool.deriveBaseForms("buseses")));
+    assertEquals(asSet("church", "churche"), getBases(morphTool.deriveBaseForms("churches")));
+    assertEquals(asSet("prophesy", "prophesye", "prophesying"), getBases(morphTool.deriveBaseForms("prophesyings")));
+    assertEquals(asSet("woman"), getBases(morphTool.deriveBaseForms("women")));
+    assertEquals(asSet("walk up", "walke up"), getBases(morphTool.deriveBaseForms("walked up")));
+    assertTrue(morphTool.deriveBaseForms("s").isEmpty());
+    assertTrue(morphTool.deriveBaseForms("ing").isEmpty());
+
+    final MorphTool.Derivation derivation = morphTool.deriveBaseForms("women").iterator().next();
+    assertTrue(derivation.matchesPOS("noun"));
+    assertFalse(derivation.matchesPOS("verb"));
+  }
+
+  public void testArchaic() throws IOException {
+    final MorphTool morphTool = new MorphTool(null);
+    morphTool.setArchaic(true);
+
+    assertTrue(getBases(morphTool.deriveBaseForms("commandeth")).contains("command"));
+    assertTrue(getBases(morphTool.deriveBaseForms("canst")).contains("can"));
+  }
+
+  public void testFilterAndBatch() throws IOException {
+    final MorphTool morphTool = new MorphTool(null);
+    final Set<String> words = new HashSet<String>(Arrays.asList("fly", "bake", "box"));
+    final MorphTool.BaseFormFilter filter = new MorphTool.BaseFormFilter() {
+        public boolean accept(String baseForm) {
+          return words.contains(baseForm);
+        }
+      };
+
+    final List<Collection<MorphTool.Derivation>> derivations =
+      morphTool.deriveBaseForms(new String[] {"flies", "baked", "boxes", "cats"}, filter);
+
+    assertEquals(4, derivations.size());
+    assertEquals(asSet("fly"), getBases(derivations.get(0)));
+    assertEquals(asSet("bake"), getBases(derivations.get(1)));
+    assertEquals(asSet("box"), getBases(derivations.get(2)));
+    assertTrue(derivations.get(3).isEmpty());
+  }
+
+
+  public static Test suite() {
+    TestSuite suite = new TestSuite(TestMorphTool.class);
+    return suite;
+  }
+
+  public static void main(String[] args) {
+    junit.textui.TestRunner.run(suite());
+  }
+}
@@ -0,0 +1,142 @@
+/*
+   Copyright 2008-2016 Semantic Discovery, Inc.
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+package org.sd.wordnet.lex;
+
+
+import java.util.HashSet;
+import java.util.Set;
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+import org.sd.wordnet.rel.ExpandedWord;
+
+/**
+ * JUnit Tests for the PointerGraph class.
+ * <p>
+ * @author Spence Koehler
+ */
+public class TestPointerGraph extends TestCase {
+
+  public TestPointerGraph(String name) {
+    super(name);
+  }
+
+  private final LexDictionary buildDictionary() {
+    final StringLexLoader lexLoader = new StringLexLoader();
+
+    lexLoader.add("noun.animal", new String[] {
+        "{ entity, (that which is perceived to have its own distinct existence) }",
+        "{ organism, entity,@ (a living thing) }",
+        "{ animal, organism,@ (a living organism that can move) }",
+        "{ [ dog, bark,+ ] canine, animal,@ (a domesticated canine) }",
+        "{ cat, animal,@ (a feline mammal) }",
+        "{ puppy, dog,@ (a young dog) }",
+        "{ bark, (the sound made by a dog) }",
+      });
+
+    return new LexDictionary(lexLoader);
+  }
+
+  private final Word getWord(LexDictionary dict, String word) {
+    return dict.getSynsets().get(word).get(0).getSynsetWord();
+  }
+
+  public void testEdges() {
+    final LexDictionary dict = buildDictionary();
+    final PointerGraph graph = dict.getPointerGraph();
+    assertTrue(dict.hasPointerGraph());
+    assertSame(graph, dict.getPointerGraph());
+
+    assertEquals(8, graph.getNumWords());
+
+    final int hypernym = graph.getSymbolId("@");
+    final int derived = graph.getSymbolId("+");
+    assertEquals(PointerGraph.ANY_SYMBOL, graph.getSymbolId(null));
+    assertEquals(PointerGraph.UNKNOWN_SYMBOL, graph.getSymbolId("~"));
+
+    // dog -> animal (synset pointer), dog -> bark (word pointer)
+    final int dog = graph.getWordId(getWord(dict, "dog"));
+    assertEquals(2, graph.getForwardEnd(dog) - graph.getForwardStart(dog));
+    int edge = graph.nextForwardEdge(dog, graph.getForwardStart(dog), derived);
+    assertEquals("bark", graph.getWord(graph.getTarget(edge)).getWordName());
+    assertEquals("+", graph.getPointerDefinition(edge).getPointerSymbol());
+    assertEquals(-1, graph.nextForwardEdge(dog, edge + 1, derived));
+    assertEquals(-1, graph.nextForwardEdge(dog, graph.getForwardStart(dog), PointerGraph.UNKNOWN_SYMBOL));
+
+    // canine shares dog's synset pointer (but not its word pointer)
+    final int canine = graph.getWordId(dict.getSynsets().get("canine").get(0).getWords().get(1));
+    assertEquals(1, graph.getForwardEnd(canine) - graph.getForwardStart(canine));
+
+    // animal <- dog, canine, cat
+    final int animal = graph.getWordId(getWord(dict, "animal"));
+    final Set<String> sources = new HashSet<String>();
+    for (int reverse = graph.nextReverseEdge(animal, graph.getReverseStart(animal), hypernym);
+         reverse >= 0;
+         reverse = graph.nextReverseEdge(animal, reverse + 1, hypernym)) {
+      sources.add(graph.getWord(graph.getSource(reverse)).getWordName());
+      assertEquals(animal, graph.getTarget(graph.getForwardEdge(reverse)));
+    }
+    assertEquals(3, sources.size());
+    assertTrue(sources.contains("canine"));
+  }
+
+  public void testSearch() {
+    final LexDictionary dict = buildDictionary();
+    final PointerGraph graph = dict.getPointerGraph();
+    final int hypernym = graph.getSymbolId("@");
+
+    final int puppy = graph.getWordId(getWord(dict, "puppy"));
+    final int entity = graph.getWordId(getWord(dict, "entity"));
+    final int bark = graph.getWordId(getWord(dict, "bark"));
+
+    assertEquals(4, graph.getDistance(puppy, entity, false, -1, PointerGraph.ANY_SYMBOL));
+    assertEquals(-1, graph.getDistance(puppy, entity, false, 3, hypernym));
+    assertEquals(4, graph.getDistance(entity, puppy, true, -1, hypernym));
+    assertEquals(-1, graph.getDistance(entity, puppy, false, -1, hypernym));
+    assertEquals(2, graph.getDistance(puppy, bark, false, -1, PointerGraph.ANY_SYMBOL));
+    assertEquals(-1, graph.getDistance(puppy, bark, false, -1, hypernym));
+
+    assertEquals(4, graph.getReachable(puppy, false, -1, hypernym).length);
+    assertEquals(2, graph.getReachable(puppy, false, 2, hypernym).length);
+    assertEquals(6, graph.getReachable(entity, true, -1, hypernym).length);
+  }
+
+  public void testExpandedWordWithGraph() {
+    final LexDictionary dict = buildDictionary();
+    final Word puppy = getWord(dict, "puppy");
+
+    final ExpandedWord expanded = new ExpandedWord(puppy, dict, -1, null, null);
+    final ExpandedWord compiled = new ExpandedWord(puppy, dict, -1, null, dict.getPointerGraph());
+
+    assertEquals(expanded.getWordNames(), compiled.getWordNames());
+    for (String wordName : expanded.getWordNames()) {
+      assertEquals(wordName, expanded.getDepth(wordName), compiled.getDepth(wordName));
+    }
+
+    final ExpandedWord hypernyms = new ExpandedWord(puppy, dict, -1, "@", dict.getPointerGraph());
+    assertFalse(hypernyms.getWordNames().contains("noun.animal:bark"));
+  }
+
+
+  public static Test suite() {
+    TestSuite suite = new TestSuite(TestPointerGraph.class);
+    return suite;
+  }
+
+  public static void main(String[] args) {
+    junit.textui.TestRunner.run(suite());
+  }
+}
@@ -0,0 +1,134 @@
+/*
+   Copyright 2008-2016 Semantic Discovery, Inc.
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+package org.sd.wordnet.rel;
+
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+import org.sd.wordnet.lex.LexDictionary;
+import org.sd.wordnet.lex.StringLexLoader;
+import org.sd.wordnet.lex.Synset;
+
+/**
+ * JUnit Tests for the HypernymIndex class.
+ * <p>
+ * @author Spence Koehler
+ */
+public class TestHypernymIndex extends TestCase {
+
+  public TestHypernymIndex(String name) {
+    super(name);
+  }
+
+  private final LexDictionary buildDictionary() {
+    final StringLexLoader lexLoader = new StringLexLoader();
+
+    lexLoader.add("noun.animal", new String[] {
+        "{ entity, (that which is perceived to have its own distinct existence) }",
+        "{ organism, entity,@ (a living thing) }",
+        "{ animal, organism,@ (a living organism that can move) }",
+        "{ plant, organism,@ (a living organism lacking locomotion) }",
+        "{ pet, entity,@ (a domesticated animal kept for companionship) }",
+        "{ dog, animal,@ (a domesticated canine) }",
+        "{ cat, animal,@ (a feline mammal) }",
+        "{ puppy, dog,@ (a young dog) }",
+        "{ housecat, cat,@ pet,@ (a cat kept as a pet) }",
+        "{ rock, (a lump of stone) }",
+      });
+
+    return new LexDictionary(lexLoader);
+  }
+
+  private final Synset getSynset(LexDictionary dict, String word) {
+    return dict.getSynsets().get(word).get(0);
+  }
+
+  public void testAncestry() {
+    final LexDictionary dict = buildDictionary();
+    final HypernymIndex index = new HypernymIndex(dict);
+
+    final Synset entity = getSynset(dict, "entity");
+    final Synset animal = getSynset(dict, "animal");
+    final Synset pet = getSynset(dict, "pet");
+    final Synset dog = getSynset(dict, "dog");
+    final Synset puppy = getSynset(dict, "puppy");
+    final Synset housecat = getSynset(dict, "housecat");
+
+    assertEquals(10, index.size());
+    assertEquals(0, index.getDepth(entity));
+    assertEquals(3, index.getDepth(dog));
+    assertEquals(4, index.getDepth(puppy));
+    assertEquals(2, index.getDepth(housecat));
+    assertEquals(4, index.getMaxDepth());
+
+    assertTrue(index.isAncestor(animal, puppy));
+    assertTrue(index.isAncestor(entity, puppy));
+    assertTrue(index.isAncestor(pet, housecat));
+    assertFalse(index.isAncestor(puppy, animal));
+    assertFalse(index.isAncestor(dog, dog));
+    assertFalse(index.isAncestor(pet, dog));
+
+    assertEquals(2, index.getDistance(puppy, animal));
+    assertEquals(2, index.getDistance(housecat, entity));
+    assertEquals(-1, index.getDistance(animal, puppy));
+    assertEquals(5, index.getAncestors(puppy).size());
+  }
+
+  public void testSubsumersAndSimilarity() {
+    final LexDictionary dict = buildDictionary();
+    final HypernymIndex index = new HypernymIndex(dict);
+
+    final Synset organism = getSynset(dict, "organism");
+    final Synset animal = getSynset(dict, "animal");
+    final Synset plant = getSynset(dict, "plant");
+    final Synset pet = getSynset(dict, "pet");
+    final Synset dog = getSynset(dict, "dog");
+    final Synset cat = getSynset(dict, "cat");
+    final Synset puppy = getSynset(dict, "puppy");
+    final Synset housecat = getSynset(dict, "housecat");
+    final Synset rock = getSynset(dict, "rock");
+
+    assertSame(animal, index.getLowestCommonSubsumer(puppy, cat));
+    assertEquals(3, index.getPathDistance(puppy, cat));
+    assertSame(organism, index.getLowestCommonSubsumer(dog, plant));
+    assertSame(animal, index.getLowestCommonSubsumer(housecat, dog));
+    assertSame(pet, index.getLowestCommonSubsumer(housecat, pet));
+    assertSame(dog, index.getLowestCommonSubsumer(dog, dog));
+    assertNull(index.getLowestCommonSubsumer(dog, rock));
+    assertEquals(-1, index.getPathDistance(dog, rock));
+
+    assertEquals(1.0 / 3.0, index.getPathSimilarity(dog, cat), 1.0e-9);
+    assertEquals(0.75, index.getWuPalmerSimilarity(dog, cat), 1.0e-9);
+    assertEquals(Math.log(10.0 / 3.0), index.getLeacockChodorowSimilarity(dog, cat), 1.0e-9);
+    assertEquals(1.0, index.getWuPalmerSimilarity(dog, dog), 1.0e-9);
+    assertEquals(0.0, index.getPathSimilarity(dog, rock), 0.0);
+
+    final GraphHelper graphHelper = new GraphHelper(dict, animal.getSynsetWord(), index);
+    assertTrue(graphHelper.isHypernymOf(puppy.getSynsetWord()));
+    assertSame(animal, graphHelper.getLowestCommonSubsumer(housecat.getSynsetWord()));
+  }
+
+
+  public static Test suite() {
+    TestSuite suite = new TestSuite(TestHypernymIndex.class);
+    return suite;
+  }
+
+  public static void main(String[] args) {
+    junit.textui.TestRunner.run(suite());
+  }
+}
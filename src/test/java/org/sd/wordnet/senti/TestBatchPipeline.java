@@ -0,0 +1,173 @@
+/*
+   Copyright 2008-2016 Semantic Discovery, Inc.
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+package org.sd.wordnet.senti;
+
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+/**
+ * JUnit Tests for the BatchPipeline class.
+ * <p>
+ * @author Spence Koehler
+ */
+public class TestBatchPipeline extends TestCase {
+
+  public TestBatchPipeline(String name) {
+    super(name);
+  }
+  
+
+  private static final class CountingWorker implements BatchPipeline.BatchWorker<Integer> {
+    int sum = 0;
+    boolean busy = false;
+    boolean overlapped = false;
+
+    public void process(List<Integer> batch, PrintStream out) {
+      if (busy) overlapped = true;
+      busy = true;
+      for (Integer item : batch) {
+        // vary the work so batches finish out of order
+        if (item % 7 == 0) Thread.yield();
+        sum += item;
+        out.println(item);
+      }
+      busy = false;
+    }
+  }
+
+  private final List<CountingWorker> runPipeline(int numItems, boolean preserveOrder, ByteArrayOutputStream bytes) {
+    final List<CountingWorker> workers = new ArrayList<CountingWorker>();
+    for (int i = 0; i < 4; ++i) workers.add(new CountingWorker());
+
+    final PrintStream out = new PrintStream(bytes);
+    final BatchPipeline<Integer> pipeline = new BatchPipeline<Integer>("TestBatchPipeline-", workers, 3, preserveOrder, out);
+    for (int i = 0; i < numItems; ++i) {
+      pipeline.add(i);
+    }
+    pipeline.finish();
+    out.flush();
+
+    return workers;
+  }
+
+  public void testOrderedOutput() {
+    final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    final List<CountingWorker> workers = runPipeline(100, true, bytes);
+
+    final String[] lines = bytes.toString().split("\\r?\\n");
+    assertEquals(100, lines.length);
+    for (int i = 0; i < 100; ++i) {
+      assertEquals(Integer.toString(i), lines[i]);
+    }
+
+    int sum = 0;
+    for (CountingWorker worker : workers) {
+      assertFalse(worker.overlapped);
+      sum += worker.sum;
+    }
+    assertEquals(4950, sum);
+  }
+
+  public void testUnorderedOutput() {
+    final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    final List<CountingWorker> workers = runPipeline(50, false, bytes);
+
+    final String[] lines = bytes.toString().split("\\r?\\n");
+    assertEquals(50, lines.length);
+
+    final boolean[] seen = new boolean[50];
+    for (String line : lines) {
+      seen[Integer.parseInt(line)] = true;
+    }
+    for (boolean s : seen) assertTrue(s);
+  }
+
+  public void testHeldOutputIsBounded() throws InterruptedException {
+    final CountDownLatch release = new CountDownLatch(1);
+    final AtomicInteger numProcessed = new AtomicInteger(0);
+
+    final List<BatchPipeline.BatchWorker<Integer>> workers = new ArrayList<BatchPipeline.BatchWorker<Integer>>();
+    for (int i = 0; i < 2; ++i) {
+      workers.add(new BatchPipeline.BatchWorker<Integer>() {
+          public void process(List<Integer> batch, PrintStream out) {
+            if (batch.get(0) == 0) {
+              // hold up the first batch so that later batches can't be emitted
+              try {
+                release.await(10, TimeUnit.SECONDS);
+              }
+              catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+              }
+            }
+            else {
+              numProcessed.incrementAndGet();
+            }
+            out.println(batch.get(0));
+          }
+        });
+    }
+
+    final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    final PrintStream out = new PrintStream(bytes);
+    final BatchPipeline<Integer> pipeline = new BatchPipeline<Integer>("TestBatchPipeline-", workers, 1, true, out);
+    final Thread reader = new Thread(new Runnable() {
+        public void run() {
+          for (int i = 0; i < 100; ++i) {
+            pipeline.add(i);
+          }
+          pipeline.finish();
+        }
+      });
+    reader.start();
+
+    // only up to twice the number of workers batches are outstanding,
+    // one of which is the held up first batch
+    Thread.sleep(300);
+    assertTrue(numProcessed.get() <= 3);
+
+    release.countDown();
+    reader.join(10000);
+    assertFalse(reader.isAlive());
+    assertEquals(99, numProcessed.get());
+    out.flush();
+    assertEquals(100, bytes.toString().split("\\r?\\n").length);
+  }
+
+  public void testEmptyInput() {
+    final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    runPipeline(0, true, bytes);
+    assertEquals(0, bytes.size());
+  }
+
+
+  public static Test suite() {
+    TestSuite suite = new TestSuite(TestBatchPipeline.class);
+    return suite;
+  }
+
+  public static void main(String[] args) {
+    junit.textui.TestRunner.run(suite());
+  }
+}
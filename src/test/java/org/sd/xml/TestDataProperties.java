@@ -23,6 +23,8 @@ import junit.framework.Test;
 import junit.framework.TestCase;
 import junit.framework.TestSuite;
 
+import java.io.IOException;
+
 /**
  * JUnit Tests for the DataProperties class.
  * <p>
@@ -60,6 +62,27 @@ public class TestDataProperties extends TestCase {
     assertEquals("/abc/ghi/def/path", value);
   }
 
+  public void testDomValueCache() throws IOException {
+    final DomElement domElement = XmlFactory.buildDomNode("<config><limit>3</limit><flag>true</flag><name>dom</name></config>", false).asDomElement();
+    final DataProperties dp = new DataProperties(domElement);
+    dp.set("name", "prop");
+
+    assertEquals(3, dp.getInt("limit", 0));
+    assertTrue(dp.getBoolean("flag", false));
+    assertEquals("prop", dp.getString("name"));  // properties trump dom
+    assertEquals(7, dp.getInt("missing", 7));
+    assertFalse(dp.hasProperty("missing"));
+
+    // properties are consulted live over cached dom values
+    dp.set("limit", 5);
+    assertEquals(5, dp.getInt("limit", 0));
+
+    // added dom elements refresh cached values (including misses)
+    dp.addDomElement(XmlFactory.buildDomNode("<config><flag>false</flag><missing>9</missing></config>", false).asDomElement());
+    assertFalse(dp.getBoolean("flag", true));
+    assertEquals(9, dp.getInt("missing", 7));
+  }
+
 
   public static Test suite() {
     TestSuite suite = new TestSuite(TestDataProperties.class);